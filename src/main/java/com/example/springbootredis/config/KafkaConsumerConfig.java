@@ -0,0 +1,54 @@
+package com.example.springbootredis.config;
+
+import com.example.springbootredis.kafka.TelemetryLaneDispatcher;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+
+/**
+ * Kafka消费者配置类
+ */
+@Configuration
+public class KafkaConsumerConfig {
+    
+    /**
+     * 批量监听容器工厂
+     * 一次拉取的全部记录交给监听方法处理，由监听方法在批次落库后手动提交偏移量；
+     * 分区被回收时由分道处理器清空遥测内存状态（单条模式使用默认工厂，由Spring Boot配置同一个再均衡监听器）
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            TelemetryLaneDispatcher laneDispatcher) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        // 沿用application.yml中的spring.kafka配置
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setConsumerRebalanceListener(laneDispatcher);
+        return factory;
+    }
+    
+    /**
+     * 并行监听容器工厂
+     * 记录分发到按键分道的处理通道，偏移量由分道处理器按分区最小未完成位置提交
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> parallelKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            TelemetryLaneDispatcher laneDispatcher) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setConsumerRebalanceListener(laneDispatcher);
+        // 没有新消息时定期触发空闲事件，提交尾部已处理完成的偏移量
+        factory.getContainerProperties().setIdleEventInterval(1000L);
+        return factory;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.springbootredis.config;
+
+import com.example.springbootredis.service.CommandCodeCache;
+import com.example.springbootredis.service.JudgePlanCache;
+import com.example.springbootredis.service.TelemetryStateSync;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * Redis发布订阅配置
+ * 订阅指令代码缓存、判定计划缓存的失效频道（telemetry.command-cache.invalidation-enabled）
+ * 和遥测状态失效频道（telemetry.state-sync.enabled），多实例部署时同步各实例的本地缓存和内存状态
+ */
+@Configuration
+@ConditionalOnExpression("${telemetry.command-cache.invalidation-enabled:true} or ${telemetry.state-sync.enabled:true}")
+public class RedisListenerConfig {
+    
+    @Value("${telemetry.command-cache.invalidation-enabled:true}")
+    private boolean cacheInvalidationEnabled;
+    
+    @Value("${telemetry.state-sync.enabled:true}")
+    private boolean stateSyncEnabled;
+    
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       CommandCodeCache commandCodeCache,
+                                                                       JudgePlanCache judgePlanCache,
+                                                                       TelemetryStateSync telemetryStateSync) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        if (cacheInvalidationEnabled) {
+            container.addMessageListener(commandCodeCache, new ChannelTopic(CommandCodeCache.INVALIDATION_CHANNEL));
+            container.addMessageListener(judgePlanCache, new ChannelTopic(JudgePlanCache.INVALIDATION_CHANNEL));
+        }
+        if (stateSyncEnabled) {
+            container.addMessageListener(telemetryStateSync, new ChannelTopic(TelemetryStateSync.CHANNEL));
+        }
+        return container;
+    }
+}
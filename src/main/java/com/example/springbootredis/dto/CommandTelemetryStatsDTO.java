@@ -0,0 +1,72 @@
+package com.example.springbootredis.dto;
+
+import com.example.springbootredis.service.CommandSatisfactionState;
+
+import java.util.Map;
+
+/**
+ * 指令遥测参数聚合统计
+ * 由关联关系与参数最新值表聚合查询得到，字段口径与 {@link CommandSatisfactionState#toStats()} 一致；
+ * 判定结果取落库的结果，不含复杂公式只在内存中重新判定的结果
+ */
+public class CommandTelemetryStatsDTO {
+    
+    private final Long commandId;
+    private final int totalParams;
+    private final int requiredParams;
+    private final int satisfiedParams;
+    private final int unsatisfiedParams;
+    private final int totalWeight;
+    private final int satisfiedWeight;
+    
+    public CommandTelemetryStatsDTO(Long commandId, Long totalParams, Long requiredParams, Long satisfiedParams,
+                                    Long unsatisfiedParams, Long totalWeight, Long satisfiedWeight) {
+        this.commandId = commandId;
+        this.totalParams = toInt(totalParams);
+        this.requiredParams = toInt(requiredParams);
+        this.satisfiedParams = toInt(satisfiedParams);
+        this.unsatisfiedParams = toInt(unsatisfiedParams);
+        this.totalWeight = toInt(totalWeight);
+        this.satisfiedWeight = toInt(satisfiedWeight);
+    }
+    
+    /**
+     * 没有关联关系的指令（聚合查询不返回）
+     */
+    public static CommandTelemetryStatsDTO empty(Long commandId) {
+        return new CommandTelemetryStatsDTO(commandId, 0L, 0L, 0L, 0L, 0L, 0L);
+    }
+    
+    /**
+     * 按权重计算的完成进度百分比
+     */
+    public int getProgress() {
+        return CommandSatisfactionState.progress(satisfiedWeight, totalWeight);
+    }
+    
+    /**
+     * 转换为统计信息，字段与TelemetryJudgeService.getCommandTelemetryStats一致
+     */
+    public Map<String, Object> toStats() {
+        return Map.of(
+            "totalParams", totalParams,
+            "requiredParams", requiredParams,
+            "satisfiedParams", satisfiedParams,
+            "unsatisfiedParams", unsatisfiedParams,
+            "progress", getProgress()
+        );
+    }
+    
+    private static int toInt(Long value) {
+        return value != null ? value.intValue() : 0;
+    }
+    
+    // Getter 方法
+    public Long getCommandId() { return commandId; }
+    public int getTotalParams() { return totalParams; }
+    public int getRequiredParams() { return requiredParams; }
+    public int getSatisfiedParams() { return satisfiedParams; }
+    public int getUnsatisfiedParams() { return unsatisfiedParams; }
+    public int getTotalWeight() { return totalWeight; }
+    public int getSatisfiedWeight() { return satisfiedWeight; }
+}
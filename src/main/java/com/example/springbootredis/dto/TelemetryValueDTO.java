@@ -0,0 +1,25 @@
+package com.example.springbootredis.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * 遥测参数取值
+ * 公式回测只需要参数代码、实际值和接收时间，由查询直接构造，不加载遥测数据实体
+ */
+public class TelemetryValueDTO {
+    
+    private final String paramCode;
+    private final String actualValue;
+    private final LocalDateTime receiveTime;
+    
+    public TelemetryValueDTO(String paramCode, String actualValue, LocalDateTime receiveTime) {
+        this.paramCode = paramCode;
+        this.actualValue = actualValue;
+        this.receiveTime = receiveTime;
+    }
+    
+    // Getter 方法
+    public String getParamCode() { return paramCode; }
+    public String getActualValue() { return actualValue; }
+    public LocalDateTime getReceiveTime() { return receiveTime; }
+}
@@ -1,6 +1,7 @@
 package com.example.springbootredis.entity;
 
 import com.example.springbootredis.entity.enums.JudgeOperator;
+import com.example.springbootredis.service.JudgePlanEntityListener;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
@@ -8,6 +9,7 @@ import java.time.LocalDateTime;
  * 指令-遥测参数关联实体类
  */
 @Entity
+@EntityListeners(JudgePlanEntityListener.class)
 @Table(name = "tb_command_telemetry_relation")
 public class CommandTelemetryRelation {
     
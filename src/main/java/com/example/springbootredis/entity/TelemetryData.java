@@ -1,6 +1,7 @@
 package com.example.springbootredis.entity;
 
 import jakarta.persistence.*;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 
 /**
@@ -61,10 +62,36 @@ public class TelemetryData {
     
     /**
      * 原始消息（用于调试）
+     * 不保存在遥测数据表中，插入后按采样率压缩存入 tb_telemetry_raw_message，通过 TelemetryJudgeService.getTelemetryDetail 查看
      */
-    @Column(name = "raw_message", length = 1000)
+    @Transient
     private String rawMessage;
     
+    /**
+     * 原始消息字节（UTF-8），与rawMessage互为缓存：消费时只保存字节，需要文本时才解码
+     */
+    @Transient
+    private byte[] rawPayload;
+    
+    /**
+     * 样本时间（遥测消息自带的时间戳），作为时间窗口函数（avg、rate、heldFor）的样本时间和判定时刻；
+     * 不保存，未设置时取接收时间
+     */
+    @Transient
+    private LocalDateTime sampleTime;
+    
+    /**
+     * 并入本条的重复样本数（值在死区内且判断结果不变）
+     */
+    @Column(name = "repeat_count")
+    private Integer repeatCount = 0;
+    
+    /**
+     * 最后一个并入本条的样本的接收时间
+     */
+    @Column(name = "last_repeat_time")
+    private LocalDateTime lastRepeatTime;
+    
     // 构造函数
     public TelemetryData() {
         this.receiveTime = LocalDateTime.now();
@@ -118,6 +145,14 @@ public class TelemetryData {
         this.receiveTime = receiveTime;
     }
     
+    public LocalDateTime getSampleTime() {
+        return sampleTime != null ? sampleTime : receiveTime;
+    }
+    
+    public void setSampleTime(LocalDateTime sampleTime) {
+        this.sampleTime = sampleTime;
+    }
+    
     public Boolean getJudgeResult() {
         return judgeResult;
     }
@@ -146,11 +181,43 @@ public class TelemetryData {
     }
     
     public String getRawMessage() {
+        if (rawMessage == null && rawPayload != null) {
+            rawMessage = new String(rawPayload, StandardCharsets.UTF_8);
+        }
         return rawMessage;
     }
     
     public void setRawMessage(String rawMessage) {
         this.rawMessage = rawMessage;
+        this.rawPayload = null;
+    }
+    
+    public byte[] getRawPayload() {
+        if (rawPayload == null && rawMessage != null) {
+            rawPayload = rawMessage.getBytes(StandardCharsets.UTF_8);
+        }
+        return rawPayload;
+    }
+    
+    public void setRawPayload(byte[] rawPayload) {
+        this.rawPayload = rawPayload;
+        this.rawMessage = null;
+    }
+    
+    public Integer getRepeatCount() {
+        return repeatCount;
+    }
+    
+    public void setRepeatCount(Integer repeatCount) {
+        this.repeatCount = repeatCount;
+    }
+    
+    public LocalDateTime getLastRepeatTime() {
+        return lastRepeatTime;
+    }
+    
+    public void setLastRepeatTime(LocalDateTime lastRepeatTime) {
+        this.lastRepeatTime = lastRepeatTime;
     }
     
     @Override
@@ -164,7 +231,9 @@ public class TelemetryData {
                 ", judgeResult=" + judgeResult +
                 ", judgeTime=" + judgeTime +
                 ", dataSource='" + dataSource + '\'' +
-                ", rawMessage='" + rawMessage + '\'' +
+                ", rawMessage='" + getRawMessage() + '\'' +
+                ", repeatCount=" + repeatCount +
+                ", lastRepeatTime=" + lastRepeatTime +
                 '}';
     }
 }
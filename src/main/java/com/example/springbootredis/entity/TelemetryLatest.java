@@ -0,0 +1,128 @@
+package com.example.springbootredis.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 参数最新值实体类
+ * 每个指令的每个参数一行，随遥测数据写入在同一事务中更新（只接受ID更大的数据），
+ * 主键 (command_id, param_code) 即聚簇索引，按指令读取全部参数最新值是一次主键范围扫描
+ */
+@Entity
+@IdClass(TelemetryLatestId.class)
+@Table(name = "tb_telemetry_latest")
+public class TelemetryLatest {
+    
+    /**
+     * 指令ID
+     */
+    @Id
+    @Column(name = "command_id", nullable = false)
+    private Long commandId;
+    
+    /**
+     * 参数代码
+     */
+    @Id
+    @Column(name = "param_code", nullable = false, length = 50)
+    private String paramCode;
+    
+    /**
+     * 最新一条遥测数据的ID
+     */
+    @Column(name = "data_id", nullable = false)
+    private Long dataId;
+    
+    /**
+     * 实际值
+     */
+    @Column(name = "actual_value", nullable = false, length = 100)
+    private String actualValue;
+    
+    /**
+     * 判断结果
+     */
+    @Column(name = "judge_result")
+    private Boolean judgeResult;
+    
+    /**
+     * 接收时间
+     */
+    @Column(name = "receive_time", nullable = false)
+    private LocalDateTime receiveTime;
+    
+    public TelemetryLatest() {
+    }
+    
+    /**
+     * 转换为遥测数据（ID为最新一条数据的ID），供按遥测数据重建内存状态的调用方使用
+     */
+    public TelemetryData toTelemetryData() {
+        TelemetryData data = new TelemetryData(commandId, paramCode, actualValue);
+        data.setId(dataId);
+        data.setJudgeResult(judgeResult);
+        data.setReceiveTime(receiveTime);
+        return data;
+    }
+    
+    // Getter 和 Setter 方法
+    public Long getCommandId() {
+        return commandId;
+    }
+    
+    public void setCommandId(Long commandId) {
+        this.commandId = commandId;
+    }
+    
+    public String getParamCode() {
+        return paramCode;
+    }
+    
+    public void setParamCode(String paramCode) {
+        this.paramCode = paramCode;
+    }
+    
+    public Long getDataId() {
+        return dataId;
+    }
+    
+    public void setDataId(Long dataId) {
+        this.dataId = dataId;
+    }
+    
+    public String getActualValue() {
+        return actualValue;
+    }
+    
+    public void setActualValue(String actualValue) {
+        this.actualValue = actualValue;
+    }
+    
+    public Boolean getJudgeResult() {
+        return judgeResult;
+    }
+    
+    public void setJudgeResult(Boolean judgeResult) {
+        this.judgeResult = judgeResult;
+    }
+    
+    public LocalDateTime getReceiveTime() {
+        return receiveTime;
+    }
+    
+    public void setReceiveTime(LocalDateTime receiveTime) {
+        this.receiveTime = receiveTime;
+    }
+    
+    @Override
+    public String toString() {
+        return "TelemetryLatest{" +
+                "commandId=" + commandId +
+                ", paramCode='" + paramCode + '\'' +
+                ", dataId=" + dataId +
+                ", actualValue='" + actualValue + '\'' +
+                ", judgeResult=" + judgeResult +
+                ", receiveTime=" + receiveTime +
+                '}';
+    }
+}
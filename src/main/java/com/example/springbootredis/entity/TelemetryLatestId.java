@@ -0,0 +1,47 @@
+package com.example.springbootredis.entity;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * 参数最新值主键（指令ID + 参数代码）
+ */
+public class TelemetryLatestId implements Serializable {
+    
+    private Long commandId;
+    
+    private String paramCode;
+    
+    public TelemetryLatestId() {
+    }
+    
+    public TelemetryLatestId(Long commandId, String paramCode) {
+        this.commandId = commandId;
+        this.paramCode = paramCode;
+    }
+    
+    public Long getCommandId() {
+        return commandId;
+    }
+    
+    public String getParamCode() {
+        return paramCode;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TelemetryLatestId)) {
+            return false;
+        }
+        TelemetryLatestId that = (TelemetryLatestId) o;
+        return Objects.equals(commandId, that.commandId) && Objects.equals(paramCode, that.paramCode);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(commandId, paramCode);
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.springbootredis.entity;
 
+import com.example.springbootredis.entity.enums.CompressionMode;
+import com.example.springbootredis.service.JudgePlanEntityListener;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
@@ -7,6 +9,7 @@ import java.time.LocalDateTime;
  * 遥测参数实体类
  */
 @Entity
+@EntityListeners(JudgePlanEntityListener.class)
 @Table(name = "tb_telemetry_param")
 public class TelemetryParam {
     
@@ -71,6 +74,19 @@ public class TelemetryParam {
     @Column(name = "formula_description", length = 200)
     private String formulaDescription;
     
+    /**
+     * 压缩模式（为空时不压缩）：值在死区内且判断结果不变的样本并入上一条保存的数据
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "compression_mode", length = 20)
+    private CompressionMode compressionMode;
+    
+    /**
+     * 死区（DEADBAND模式下与上一条保存值的最大允许偏差，为空时按0处理）
+     */
+    @Column(name = "deadband")
+    private Double deadband;
+    
     /**
      * 创建时间
      */
@@ -175,6 +191,22 @@ public class TelemetryParam {
         this.formulaDescription = formulaDescription;
     }
     
+    public CompressionMode getCompressionMode() {
+        return compressionMode;
+    }
+    
+    public void setCompressionMode(CompressionMode compressionMode) {
+        this.compressionMode = compressionMode;
+    }
+    
+    public Double getDeadband() {
+        return deadband;
+    }
+    
+    public void setDeadband(Double deadband) {
+        this.deadband = deadband;
+    }
+    
     public LocalDateTime getCreateTime() {
         return createTime;
     }
@@ -209,6 +241,8 @@ public class TelemetryParam {
                 ", supportFormula=" + supportFormula +
                 ", formulaExpression='" + formulaExpression + '\'' +
                 ", formulaDescription='" + formulaDescription + '\'' +
+                ", compressionMode=" + compressionMode +
+                ", deadband=" + deadband +
                 ", createTime=" + createTime +
                 ", updateTime=" + updateTime +
                 '}';
@@ -0,0 +1,88 @@
+package com.example.springbootredis.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 遥测原始消息实体类
+ * 原始消息只用于调试，按采样率保留并以Deflate压缩存放在独立的表中，遥测数据表只保存定长的判定数据；
+ * 主键即对应遥测数据的ID，需要时按ID读取；按接收时间建索引，随过期遥测数据一起按时间范围清理
+ */
+@Entity
+@Table(name = "tb_telemetry_raw_message", indexes = {
+    @Index(name = "idx_raw_message_receive_time", columnList = "receive_time")
+})
+public class TelemetryRawMessage {
+    
+    /**
+     * 遥测数据ID
+     */
+    @Id
+    @Column(name = "data_id", nullable = false)
+    private Long dataId;
+    
+    /**
+     * 接收时间（随遥测数据一起按保留期清理）
+     */
+    @Column(name = "receive_time", nullable = false)
+    private LocalDateTime receiveTime;
+    
+    /**
+     * 压缩前的字节数
+     */
+    @Column(name = "raw_length", nullable = false)
+    private Integer rawLength;
+    
+    /**
+     * Deflate压缩后的UTF-8原始消息
+     */
+    @Lob
+    @Column(name = "payload", nullable = false, length = 65535)
+    private byte[] payload;
+    
+    public TelemetryRawMessage() {
+    }
+    
+    // Getter 和 Setter 方法
+    public Long getDataId() {
+        return dataId;
+    }
+    
+    public void setDataId(Long dataId) {
+        this.dataId = dataId;
+    }
+    
+    public LocalDateTime getReceiveTime() {
+        return receiveTime;
+    }
+    
+    public void setReceiveTime(LocalDateTime receiveTime) {
+        this.receiveTime = receiveTime;
+    }
+    
+    public Integer getRawLength() {
+        return rawLength;
+    }
+    
+    public void setRawLength(Integer rawLength) {
+        this.rawLength = rawLength;
+    }
+    
+    public byte[] getPayload() {
+        return payload;
+    }
+    
+    public void setPayload(byte[] payload) {
+        this.payload = payload;
+    }
+    
+    @Override
+    public String toString() {
+        return "TelemetryRawMessage{" +
+                "dataId=" + dataId +
+                ", receiveTime=" + receiveTime +
+                ", rawLength=" + rawLength +
+                ", payloadLength=" + (payload != null ? payload.length : 0) +
+                '}';
+    }
+}
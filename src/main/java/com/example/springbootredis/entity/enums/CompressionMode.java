@@ -0,0 +1,31 @@
+package com.example.springbootredis.entity.enums;
+
+/**
+ * 遥测数据压缩模式枚举
+ */
+public enum CompressionMode {
+    /**
+     * 不压缩，每个样本保存一条
+     */
+    NONE("不压缩"),
+    
+    /**
+     * 值不变且判断结果不变时并入上一条
+     */
+    UNCHANGED("值不变时合并"),
+    
+    /**
+     * 与上一条保存值之差不超过死区且判断结果不变时并入上一条
+     */
+    DEADBAND("死区内合并");
+    
+    private final String description;
+    
+    CompressionMode(String description) {
+        this.description = description;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+}
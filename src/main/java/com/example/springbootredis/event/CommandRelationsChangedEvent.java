@@ -0,0 +1,45 @@
+package com.example.springbootredis.event;
+
+/**
+ * 指令关联关系变更事件
+ * 关联关系或遥测参数新增、修改、删除并提交后发布，供判定计划缓存和各内存状态失效
+ */
+public class CommandRelationsChangedEvent {
+    
+    private final Long commandId;
+    private final boolean local;
+    
+    /**
+     * @param commandId 关联关系变更的指令ID，null表示影响所有指令（遥测参数变更）
+     * @param local 是否为本实例产生的变更（否则来自其他实例的失效通知）
+     */
+    public CommandRelationsChangedEvent(Long commandId, boolean local) {
+        this.commandId = commandId;
+        this.local = local;
+    }
+    
+    public Long getCommandId() { return commandId; }
+    public boolean isLocal() { return local; }
+    
+    /**
+     * 是否影响所有指令
+     */
+    public boolean isAllCommands() {
+        return commandId == null;
+    }
+    
+    /**
+     * 是否影响指定指令
+     */
+    public boolean affects(Long commandId) {
+        return this.commandId == null || this.commandId.equals(commandId);
+    }
+    
+    @Override
+    public String toString() {
+        return "CommandRelationsChangedEvent{" +
+                "commandId=" + commandId +
+                ", local=" + local +
+                '}';
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.springbootredis.event;
+
+import com.example.springbootredis.entity.enums.CommandStatus;
+
+/**
+ * 指令状态变更事件
+ * 指令状态更新后发布，供本地缓存和内存状态同步
+ */
+public class CommandStatusChangedEvent {
+    
+    private final Long commandId;
+    private final String commandCode;
+    private final CommandStatus oldStatus;
+    private final CommandStatus newStatus;
+    
+    public CommandStatusChangedEvent(Long commandId, String commandCode, CommandStatus oldStatus, CommandStatus newStatus) {
+        this.commandId = commandId;
+        this.commandCode = commandCode;
+        this.oldStatus = oldStatus;
+        this.newStatus = newStatus;
+    }
+    
+    public Long getCommandId() { return commandId; }
+    public String getCommandCode() { return commandCode; }
+    public CommandStatus getOldStatus() { return oldStatus; }
+    public CommandStatus getNewStatus() { return newStatus; }
+    
+    /**
+     * 新状态是否为终态（已完成或失败）
+     */
+    public boolean isTerminal() {
+        return CommandStatus.COMPLETED.equals(newStatus) || CommandStatus.FAILED.equals(newStatus);
+    }
+    
+    @Override
+    public String toString() {
+        return "CommandStatusChangedEvent{" +
+                "commandId=" + commandId +
+                ", commandCode='" + commandCode + '\'' +
+                ", oldStatus=" + oldStatus +
+                ", newStatus=" + newStatus +
+                '}';
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.springbootredis.event;
+
+import java.util.Set;
+
+/**
+ * 遥测内存状态失效事件
+ * 其他实例提交指令状态变更后经Redis通知到本实例，或本实例的Kafka分区被回收时发布，
+ * 供满足状态、最新值快照和死区锚点失效后从数据库重建
+ */
+public class TelemetryStateInvalidatedEvent {
+    
+    private final Set<Long> commandIds;
+    
+    /**
+     * @param commandIds 失效的指令ID，null表示所有指令（分区被回收）
+     */
+    public TelemetryStateInvalidatedEvent(Set<Long> commandIds) {
+        this.commandIds = commandIds;
+    }
+    
+    public Set<Long> getCommandIds() { return commandIds; }
+    
+    /**
+     * 是否影响所有指令
+     */
+    public boolean isAllCommands() {
+        return commandIds == null;
+    }
+    
+    @Override
+    public String toString() {
+        return "TelemetryStateInvalidatedEvent{" +
+                "commandIds=" + commandIds +
+                '}';
+    }
+}
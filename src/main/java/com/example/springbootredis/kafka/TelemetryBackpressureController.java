@@ -0,0 +1,311 @@
+package com.example.springbootredis.kafka;
+
+import com.example.springbootredis.service.TelemetryWriteBehindBuffer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 遥测消费背压控制器
+ * 跟踪处理延迟（EWMA）、消费滞后量、处理通道队列深度和异步写入缓冲区占用：
+ * 批量模式按每块处理耗时加性增、乘性减地调整分块大小；
+ * 通道队列或异步写入缓冲区越过高水位、或处理延迟超过暂停阈值时暂停当前模式的监听容器（暂停其全部已分配分区），
+ * 冷却时间已过、队列和缓冲区回落到低水位且处理延迟低于恢复阈值后恢复拉取（两个阈值之间保持原状态，避免反复暂停恢复）。
+ * 暂停期间没有新的处理样本时，延迟EWMA每次评估按平滑系数向0衰减，恢复时保留当前值
+ */
+@Component
+public class TelemetryBackpressureController {
+    
+    /**
+     * EWMA平滑系数
+     */
+    private static final double EWMA_ALPHA = 0.2;
+    
+    /**
+     * 每隔多少次评估输出一次统计日志
+     */
+    private static final int LOG_EVERY_EVALUATIONS = 30;
+    
+    @Autowired
+    private KafkaListenerEndpointRegistry listenerRegistry;
+    
+    @Autowired
+    private TelemetryLaneDispatcher laneDispatcher;
+    
+    @Autowired
+    private TelemetryWriteBehindBuffer writeBehindBuffer;
+    
+    @Value("${telemetry.consumer.mode:single}")
+    private String consumerMode;
+    
+    @Value("${telemetry.backpressure.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${telemetry.backpressure.high-watermark:0.8}")
+    private double highWatermark;
+    
+    @Value("${telemetry.backpressure.low-watermark:0.3}")
+    private double lowWatermark;
+    
+    @Value("${telemetry.backpressure.max-record-latency-ms:200}")
+    private double maxRecordLatencyMs;
+    
+    @Value("${telemetry.backpressure.resume-record-latency-ms:100}")
+    private double resumeRecordLatencyMs;
+    
+    @Value("${telemetry.backpressure.pause-cooldown-ms:2000}")
+    private long pauseCooldownMs;
+    
+    @Value("${telemetry.backpressure.target-chunk-latency-ms:500}")
+    private double targetChunkLatencyMs;
+    
+    @Value("${telemetry.backpressure.min-chunk-size:20}")
+    private int minChunkSize;
+    
+    @Value("${telemetry.backpressure.max-chunk-size:500}")
+    private int maxChunkSize;
+    
+    /**
+     * 单条记录处理耗时的EWMA（纳秒），0表示尚无样本
+     */
+    private volatile double recordLatencyEwmaNanos;
+    
+    private volatile int chunkSize = -1;
+    
+    private volatile boolean paused;
+    private volatile long pausedAt;
+    private volatile String lastPauseReason;
+    
+    private final LongAdder processedRecords = new LongAdder();
+    private final AtomicLong pauseCount = new AtomicLong();
+    private final Map<TopicPartition, Long> partitionLag = new ConcurrentHashMap<>();
+    
+    private long lastEvaluatedAt = System.nanoTime();
+    private long lastProcessedRecords;
+    private volatile double throughput;
+    private int evaluationCount;
+    
+    /**
+     * 记录处理完成的记录数和耗时（可在任意处理线程调用）
+     *
+     * @param records 记录数
+     * @param elapsedNanos 处理耗时（纳秒）
+     */
+    public void recordProcessed(int records, long elapsedNanos) {
+        if (records <= 0) {
+            return;
+        }
+        processedRecords.add(records);
+        double perRecord = (double) elapsedNanos / records;
+        double current = recordLatencyEwmaNanos;
+        recordLatencyEwmaNanos = current == 0 ? perRecord : current + EWMA_ALPHA * (perRecord - current);
+    }
+    
+    /**
+     * 批量模式下一块的处理完成，按耗时调整下一块的大小：超过目标耗时减半，否则加一个步长
+     *
+     * @param records 本块记录数
+     * @param elapsedNanos 本块处理耗时（纳秒）
+     */
+    public void onChunkProcessed(int records, long elapsedNanos) {
+        recordProcessed(records, elapsedNanos);
+        int current = getChunkSize();
+        if (elapsedNanos / 1_000_000.0 > targetChunkLatencyMs) {
+            chunkSize = Math.max(minChunkSize, current / 2);
+        } else if (records >= current) {
+            chunkSize = Math.min(maxChunkSize, current + Math.max(1, minChunkSize / 2));
+        }
+    }
+    
+    /**
+     * 批量模式当前的分块大小
+     */
+    public int getChunkSize() {
+        int current = chunkSize;
+        return current > 0 ? current : maxChunkSize;
+    }
+    
+    /**
+     * 刷新各分区的消费滞后量（必须在消费线程中调用）
+     *
+     * @param consumer Kafka消费者
+     */
+    public void updateLag(Consumer<?, ?> consumer) {
+        for (TopicPartition partition : consumer.assignment()) {
+            OptionalLong lag = consumer.currentLag(partition);
+            if (lag.isPresent()) {
+                partitionLag.put(partition, lag.getAsLong());
+            }
+        }
+        partitionLag.keySet().retainAll(consumer.assignment());
+    }
+    
+    /**
+     * 定期评估背压状态，决定暂停或恢复拉取
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void evaluate() {
+        long now = System.nanoTime();
+        long processed = processedRecords.sum();
+        throughput = (processed - lastProcessedRecords) * 1e9 / Math.max(1, now - lastEvaluatedAt);
+        if (paused && processed == lastProcessedRecords) {
+            // 暂停后没有新样本，按空闲样本衰减，否则因延迟暂停后EWMA不会再下降
+            recordLatencyEwmaNanos *= 1 - EWMA_ALPHA;
+        }
+        lastProcessedRecords = processed;
+        lastEvaluatedAt = now;
+        
+        if (!paused) {
+            String reason = enabled ? pressureReason() : null;
+            if (reason != null) {
+                pause(reason);
+            }
+        } else if (canResume()) {
+            // 通道队列满时的暂停不受开关控制，恢复也始终进行
+            resume();
+        }
+        
+        if (++evaluationCount % LOG_EVERY_EVALUATIONS == 0 && (processed > 0 || paused)) {
+            System.out.println(String.format("遥测消费背压统计: 吞吐=%.1f 条/秒, 单条延迟=%.2f ms, 滞后=%d, 通道排队=%d（最多的通道=%d）, 暂停=%s, 分块=%d",
+                throughput, getRecordLatencyMs(), getTotalLag(), laneDispatcher.getTotalQueueDepth(),
+                laneDispatcher.getMaxQueueDepth(), paused, getChunkSize()));
+        }
+    }
+    
+    /**
+     * 立即暂停拉取（在消费线程中调用，如处理通道队列已满），恢复仍由定期评估按低水位和冷却时间决定
+     *
+     * @param reason 暂停原因
+     */
+    public void requestPause(String reason) {
+        if (!paused) {
+            pause(reason);
+        }
+    }
+    
+    /**
+     * 判断是否需要暂停，返回暂停原因；无需暂停返回null
+     */
+    private String pressureReason() {
+        int capacity = laneDispatcher.getTotalQueueCapacity();
+        if (capacity > 0 && laneDispatcher.getTotalQueueDepth() >= capacity * highWatermark) {
+            return "处理通道队列超过高水位";
+        }
+        if (writeBehindBuffer.getFillRatio() >= highWatermark) {
+            return String.format("异步写入缓冲区占用 %.0f%% 超过高水位", writeBehindBuffer.getFillRatio() * 100);
+        }
+        if (getRecordLatencyMs() > maxRecordLatencyMs) {
+            return String.format("单条处理延迟 %.2f ms 超过阈值", getRecordLatencyMs());
+        }
+        return null;
+    }
+    
+    /**
+     * 冷却时间已过、通道队列和异步写入缓冲区回落到低水位且处理延迟低于恢复阈值时可以恢复
+     */
+    private boolean canResume() {
+        if (System.currentTimeMillis() - pausedAt < pauseCooldownMs) {
+            return false;
+        }
+        int capacity = laneDispatcher.getTotalQueueCapacity();
+        if (capacity > 0 && laneDispatcher.getTotalQueueDepth() > capacity * lowWatermark) {
+            return false;
+        }
+        return writeBehindBuffer.getFillRatio() <= lowWatermark && getRecordLatencyMs() <= resumeRecordLatencyMs;
+    }
+    
+    private void pause(String reason) {
+        MessageListenerContainer container = activeContainer();
+        if (container == null || !container.isRunning()) {
+            return;
+        }
+        container.pause();
+        paused = true;
+        pausedAt = System.currentTimeMillis();
+        lastPauseReason = reason;
+        pauseCount.incrementAndGet();
+        System.out.println("遥测消费已暂停: " + reason);
+    }
+    
+    private void resume() {
+        MessageListenerContainer container = activeContainer();
+        if (container != null) {
+            container.resume();
+        }
+        paused = false;
+        System.out.println("遥测消费已恢复");
+    }
+    
+    /**
+     * 当前消费模式对应的监听容器
+     */
+    private MessageListenerContainer activeContainer() {
+        String listenerId;
+        switch (consumerMode) {
+            case "batch":
+                listenerId = TelemetryKafkaConsumer.BATCH_LISTENER_ID;
+                break;
+            case "parallel":
+                listenerId = TelemetryLaneDispatcher.LISTENER_ID;
+                break;
+            default:
+                listenerId = TelemetryKafkaConsumer.SINGLE_LISTENER_ID;
+        }
+        return listenerRegistry.getListenerContainer(listenerId);
+    }
+    
+    public double getRecordLatencyMs() {
+        return recordLatencyEwmaNanos / 1_000_000.0;
+    }
+    
+    public long getTotalLag() {
+        long total = 0;
+        for (Long lag : partitionLag.values()) {
+            total += lag;
+        }
+        return total;
+    }
+    
+    public boolean isPaused() {
+        return paused;
+    }
+    
+    /**
+     * 获取背压统计信息
+     *
+     * @return 吞吐量、延迟、滞后量、暂停状态、分块大小、通道排队情况和异步写入缓冲区占用
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> partitions = new LinkedHashMap<>();
+        partitionLag.forEach((partition, lag) -> partitions.put(partition.toString(), lag));
+        
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", consumerMode);
+        stats.put("throughput", throughput);
+        stats.put("processedRecords", processedRecords.sum());
+        stats.put("recordLatencyMs", getRecordLatencyMs());
+        stats.put("totalLag", getTotalLag());
+        stats.put("partitionLag", partitions);
+        stats.put("paused", paused);
+        stats.put("pauseCount", pauseCount.get());
+        stats.put("lastPauseReason", lastPauseReason);
+        stats.put("chunkSize", getChunkSize());
+        stats.put("laneQueueDepth", laneDispatcher.getTotalQueueDepth());
+        stats.put("laneQueueCapacity", laneDispatcher.getTotalQueueCapacity());
+        stats.put("writeBehindFillRatio", writeBehindBuffer.getFillRatio());
+        stats.put("lanes", laneDispatcher.getLaneStats());
+        return stats;
+    }
+}
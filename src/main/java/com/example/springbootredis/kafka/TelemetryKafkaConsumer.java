@@ -1,16 +1,29 @@
 package com.example.springbootredis.kafka;
 
-import com.alibaba.fastjson2.JSON;
 import com.example.springbootredis.entity.Command;
+import com.example.springbootredis.entity.TelemetryData;
 import com.example.springbootredis.entity.enums.CommandStatus;
 import com.example.springbootredis.service.CommandManagementService;
 import com.example.springbootredis.service.CommandStatusWebSocketService;
+import com.example.springbootredis.service.ParamWatcherIndex;
 import com.example.springbootredis.service.TelemetryJudgeService;
+import com.example.springbootredis.service.TelemetryTrace;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -19,6 +32,16 @@ import java.util.Map;
 @Service
 public class TelemetryKafkaConsumer {
     
+    /**
+     * 逐条模式监听器ID
+     */
+    public static final String SINGLE_LISTENER_ID = "telemetrySingleListener";
+    
+    /**
+     * 批量模式监听器ID
+     */
+    public static final String BATCH_LISTENER_ID = "telemetryBatchListener";
+    
     @Autowired
     private CommandManagementService commandManagementService;
     
@@ -28,161 +51,474 @@ public class TelemetryKafkaConsumer {
     @Autowired
     private CommandStatusWebSocketService webSocketService;
     
+    @Autowired
+    private TelemetryLaneDispatcher laneDispatcher;
+    
+    @Autowired
+    private TelemetryMessageDecoder messageDecoder;
+    
+    @Autowired
+    private TelemetryBackpressureController backpressureController;
+    
+    @Autowired
+    private TelemetryPipelineMetrics pipelineMetrics;
+    
+    @Autowired
+    private ParamWatcherIndex paramWatcherIndex;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
     /**
-     * 消费遥测数据
+     * 逐条模式下每个消费线程复用的消息对象
+     */
+    private final ThreadLocal<TelemetryMessage> reusableMessage = ThreadLocal.withInitial(TelemetryMessage::new);
+    
+    /**
+     * 消费遥测数据（逐条模式）
      * 
-     * @param message Kafka消息
+     * @param payload Kafka消息
+     * @param consumer Kafka消费者（用于读取消费滞后量）
      */
-    @KafkaListener(topics = "satellite-telemetry", groupId = "satellite-telemetry-group")
-    public void consumeTelemetryData(String message) {
+    @KafkaListener(id = SINGLE_LISTENER_ID, topics = "satellite-telemetry", groupId = "satellite-telemetry-group",
+            autoStartup = "#{'${telemetry.consumer.mode:single}' == 'single'}")
+    public void consumeTelemetryData(byte[] payload, Consumer<?, ?> consumer) {
+        long startNanos = System.nanoTime();
         try {
-            System.out.println("收到Kafka遥测数据: " + message);
-            
             // 解析Kafka消息
-            TelemetryMessage telemetryMessage = parseTelemetryMessage(message);
-            if (telemetryMessage == null) {
-                System.out.println("遥测数据解析失败");
-                return;
-            }
-            
-            // 根据指令代码查找指令
-            Command command = commandManagementService.findByCommandCode(telemetryMessage.getCommandCode());
-            if (command == null) {
-                System.out.println("未找到指令代码: " + telemetryMessage.getCommandCode());
+            TelemetryMessage telemetryMessage = reusableMessage.get();
+            long decodeStart = System.nanoTime();
+            boolean decoded = messageDecoder.decode(payload, telemetryMessage);
+            pipelineMetrics.record(TelemetryPipelineMetrics.STAGE_DECODE, decodeStart);
+            if (!decoded) {
+                TelemetryTrace.println("遥测数据解析失败");
                 return;
             }
+            // 原始消息只引用消息字节，保存采样原始消息时才使用
+            telemetryMessage.setRawPayload(payload);
             
-            // 如果指令是已编制状态，更新为执行中
-            if (CommandStatus.PREPARED.equals(command.getStatus())) {
-                commandManagementService.updateCommandStatus(command.getId(), CommandStatus.EXECUTING, 
-                    "收到遥测数据，开始执行");
-                webSocketService.pushCommandStatusChange(command.getId(), CommandStatus.PREPARED, 
-                    CommandStatus.EXECUTING, "收到遥测数据，开始执行");
-            }
-            
-            // 处理遥测数据并判断
-            boolean judgeResult = telemetryJudgeService.processTelemetryData(
-                command.getId(),
-                telemetryMessage.getParamCode(),
-                telemetryMessage.getActualValue(),
-                message
-            );
-            
-            // 推送判定结果
-            webSocketService.pushTelemetryJudgeResult(
-                command.getId(),
-                telemetryMessage.getParamCode(),
-                telemetryMessage.getParamName(),
-                telemetryMessage.getExpectedValue(),
-                telemetryMessage.getActualValue(),
-                judgeResult
-            );
-            
-            // 检查指令是否完成
-            if (CommandStatus.EXECUTING.equals(command.getStatus())) {
-                boolean isCompleted = telemetryJudgeService.checkCommandCompletion(command.getId());
-                if (isCompleted) {
-                    commandManagementService.updateCommandStatus(command.getId(), CommandStatus.COMPLETED, 
-                        "所有遥测参数满足要求");
-                    webSocketService.pushCommandStatusChange(command.getId(), CommandStatus.EXECUTING, 
-                        CommandStatus.COMPLETED, "所有遥测参数满足要求");
-                    webSocketService.pushCommandCompleted(command);
-                } else {
-                    // 推送进度信息
-                    Map<String, Object> stats = telemetryJudgeService.getCommandTelemetryStats(command.getId());
-                    int progress = (Integer) stats.get("progress");
-                    int totalParams = (Integer) stats.get("totalParams");
-                    int satisfiedParams = (Integer) stats.get("satisfiedParams");
-                    
-                    webSocketService.pushCommandProgress(command.getId(), totalParams, satisfiedParams, 
-                        progress, new String[]{}); // 这里可以添加剩余参数列表
-                }
-            }
+            processTelemetryMessage(telemetryMessage);
             
         } catch (Exception e) {
             System.err.println("处理遥测数据异常: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            backpressureController.recordProcessed(1, System.nanoTime() - startNanos);
+            backpressureController.updateLag(consumer);
         }
     }
     
     /**
-     * 解析遥测消息
+     * 并行消费遥测数据（分道模式）
+     * 消费线程只负责解析和分发：同一分道键（指令代码，不带指令代码时为消息键）的消息进入同一通道顺序处理，
+     * 不同指令在多个通道上并行处理；通道队列已满时暂停拉取而不阻塞消费线程；每次拉取后提交各分区已连续处理完成的偏移量
      * 
-     * @param message 原始消息
-     * @return 解析后的遥测消息对象
+     * @param records 一次拉取的Kafka记录
+     * @param consumer Kafka消费者（用于在消费线程内提交偏移量）
      */
-    private TelemetryMessage parseTelemetryMessage(String message) {
-        try {
-            Map<String, Object> data = JSON.parseObject(message, Map.class);
-            
-            TelemetryMessage telemetryMessage = new TelemetryMessage();
-            telemetryMessage.setCommandCode((String) data.get("commandCode"));
-            telemetryMessage.setParamCode((String) data.get("paramCode"));
-            telemetryMessage.setParamName((String) data.get("paramName"));
-            telemetryMessage.setActualValue(String.valueOf(data.get("actualValue")));
-            telemetryMessage.setExpectedValue((String) data.get("expectedValue"));
-            
-            // 解析时间戳
-            Object timestamp = data.get("timestamp");
-            if (timestamp != null) {
-                if (timestamp instanceof Long) {
-                    telemetryMessage.setTimestamp(LocalDateTime.ofEpochSecond((Long) timestamp / 1000, 0,
-                            java.time.ZoneOffset.UTC));
-                } else if (timestamp instanceof String) {
-                    telemetryMessage.setTimestamp(LocalDateTime.parse((String) timestamp));
+    @KafkaListener(id = TelemetryLaneDispatcher.LISTENER_ID, topics = "satellite-telemetry",
+            groupId = "satellite-telemetry-group",
+            containerFactory = "parallelKafkaListenerContainerFactory",
+            autoStartup = "#{'${telemetry.consumer.mode:single}' == 'parallel'}")
+    public void consumeTelemetryParallel(List<ConsumerRecord<String, byte[]>> records, Consumer<?, ?> consumer) {
+        boolean saturated = false;
+        for (ConsumerRecord<String, byte[]> record : records) {
+            // 消息会在处理通道中异步使用，每条记录解码到独立对象
+            long decodeStart = System.nanoTime();
+            TelemetryMessage telemetryMessage = messageDecoder.decode(record.value());
+            pipelineMetrics.record(TelemetryPipelineMetrics.STAGE_DECODE, decodeStart);
+            TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+            if (telemetryMessage == null) {
+                TelemetryTrace.println("遥测数据解析失败, offset=" + record.offset());
+                laneDispatcher.skip(partition, record.offset());
+                continue;
+            }
+            telemetryMessage.setRawPayload(record.value());
+            String laneKey = laneKeyOf(telemetryMessage, record.key());
+            saturated |= laneDispatcher.dispatch(laneKey, partition, record.offset(), () -> {
+                long startNanos = System.nanoTime();
+                try {
+                    processTelemetryMessage(telemetryMessage);
+                } catch (Exception e) {
+                    System.err.println("处理遥测数据异常: " + e.getMessage());
+                    e.printStackTrace();
+                } finally {
+                    backpressureController.recordProcessed(1, System.nanoTime() - startNanos);
                 }
-            } else {
-                telemetryMessage.setTimestamp(LocalDateTime.now());
+            });
+        }
+        if (saturated) {
+            // 不在消费线程中阻塞等待通道队列，暂停拉取直到队列回落
+            backpressureController.requestPause("处理通道队列已满");
+        }
+        laneDispatcher.commitProcessed(consumer);
+        backpressureController.updateLag(consumer);
+    }
+    
+    /**
+     * 处理单条已解析的遥测消息（Kafka各消费模式和离线回放共用的处理入口）
+     * 
+     * @param telemetryMessage 解析后的遥测消息（含原始消息）
+     */
+    public void processTelemetryMessage(TelemetryMessage telemetryMessage) {
+        // 不带指令代码的遥测数据分发给所有关注这些参数的执行中指令
+        if (telemetryMessage.getCommandCode() == null) {
+            for (Command command : processUnaddressedMessage(telemetryMessage)) {
+                checkCompletionAndPushProgress(command);
             }
+            return;
+        }
+        
+        // 根据指令代码查找指令
+        long stageStart = System.nanoTime();
+        Command command = commandManagementService.findByCommandCode(telemetryMessage.getCommandCode());
+        if (command == null) {
+            TelemetryTrace.println("未找到指令代码: " + telemetryMessage.getCommandCode());
+            return;
+        }
+        
+        // 如果指令是已编制状态，更新为执行中
+        startExecutionIfPrepared(command);
+        pipelineMetrics.record(TelemetryPipelineMetrics.STAGE_COMMAND_LOOKUP, stageStart);
+        
+        // 多参数帧：整帧一次判定、一次落库，完成检查也只做一次
+        if (telemetryMessage.isFrame()) {
+            stageStart = System.nanoTime();
+            List<TelemetryData> judged = telemetryJudgeService.processTelemetryFrame(command.getId(),
+                toSamples(command.getId(), telemetryMessage));
+            pipelineMetrics.record(TelemetryPipelineMetrics.STAGE_JUDGE, stageStart);
             
-            return telemetryMessage;
+            stageStart = System.nanoTime();
+            pushLatestJudgeResults(command, List.of(telemetryMessage), judged);
+            pipelineMetrics.record(TelemetryPipelineMetrics.STAGE_PUSH, stageStart);
             
-        } catch (Exception e) {
-            System.err.println("解析遥测消息失败: " + e.getMessage());
-            return null;
+            checkCompletionAndPushProgress(command);
+            return;
         }
+        
+        // 处理遥测数据并判断
+        stageStart = System.nanoTime();
+        boolean judgeResult = telemetryJudgeService.processTelemetrySample(
+            toSamples(command.getId(), telemetryMessage).get(0));
+        pipelineMetrics.record(TelemetryPipelineMetrics.STAGE_JUDGE, stageStart);
+        
+        // 推送判定结果
+        stageStart = System.nanoTime();
+        webSocketService.pushTelemetryJudgeResult(
+            command.getId(),
+            telemetryMessage.getParamCode(),
+            telemetryMessage.getParamName(),
+            telemetryMessage.getExpectedValue(),
+            telemetryMessage.getActualValue(),
+            judgeResult
+        );
+        pipelineMetrics.record(TelemetryPipelineMetrics.STAGE_PUSH, stageStart);
+        
+        // 检查指令是否完成
+        checkCompletionAndPushProgress(command);
     }
     
     /**
-     * 遥测消息内部类
+     * 批量消费遥测数据（批量模式）
+     * 按指令代码分组，每组只查询一次指令和关联关系，整组判定后一次性落库。
+     * 批次按背压控制器给出的分块大小分块处理，每块的全部分组在同一个事务中落库，单次事务的规模随下游写入耗时自适应；
+     * 全部分块处理完成后才提交偏移量。某块落库失败时该块整体回滚，异常带上该块第一条记录的下标抛给容器，
+     * 由错误处理器只提交之前已落库的分块、从失败块重新投递，已落库的数据不会重复插入。
+     * 满足状态、最新值快照等内存状态在事务提交后才更新，因此块内涉及指令的完成检查和进度推送在该块提交之后进行
+     * 
+     * @param records 一次拉取的Kafka记录
+     * @param acknowledgment 偏移量提交句柄
+     * @param consumer Kafka消费者（用于读取消费滞后量）
      */
-    public static class TelemetryMessage {
-        private String commandCode;
-        private String paramCode;
-        private String paramName;
-        private String actualValue;
-        private String expectedValue;
-        private LocalDateTime timestamp;
+    @KafkaListener(id = BATCH_LISTENER_ID, topics = "satellite-telemetry", groupId = "satellite-telemetry-group",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            autoStartup = "#{'${telemetry.consumer.mode:single}' == 'batch'}")
+    public void consumeTelemetryBatch(List<ConsumerRecord<String, byte[]>> records, Acknowledgment acknowledgment,
+                                      Consumer<?, ?> consumer) {
+        TelemetryTrace.println("收到Kafka遥测数据批次: " + records.size() + " 条");
+        
+        TransactionTemplate chunkTransaction = new TransactionTemplate(transactionManager);
+        int from = 0;
+        while (from < records.size()) {
+            int to = Math.min(records.size(), from + backpressureController.getChunkSize());
+            List<ConsumerRecord<String, byte[]>> chunk = records.subList(from, to);
+            long startNanos = System.nanoTime();
+            Map<Long, Command> affectedCommands = new LinkedHashMap<>();
+            try {
+                chunkTransaction.executeWithoutResult(status -> processRecordChunk(chunk, affectedCommands));
+            } catch (RuntimeException e) {
+                throw new BatchListenerFailedException("遥测数据分块落库失败", e, from);
+            }
+            backpressureController.onChunkProcessed(to - from, System.nanoTime() - startNanos);
+            
+            // 本块已提交，按提交后的指令状态检查完成情况（每个指令只检查一次）
+            for (Command command : affectedCommands.values()) {
+                Command current = commandManagementService.findByCommandCode(command.getCommandCode());
+                if (current != null) {
+                    checkCompletionAndPushProgress(current);
+                }
+            }
+            from = to;
+        }
         
-        // Getters and Setters
-        public String getCommandCode() { return commandCode; }
-        public void setCommandCode(String commandCode) { this.commandCode = commandCode; }
+        // 整批数据已落库（开启异步写入时已写入本地日志），提交偏移量
+        acknowledgment.acknowledge();
+        backpressureController.updateLag(consumer);
+    }
+    
+    /**
+     * 处理批次中的一块记录：按指令代码分组后逐组判定落库（在调用方的分块事务中执行）
+     * 
+     * @param records 一块Kafka记录
+     * @param affectedCommands 收集本块涉及的指令（指令ID -> 指令），由调用方在提交后检查完成情况
+     */
+    private void processRecordChunk(List<ConsumerRecord<String, byte[]>> records, Map<Long, Command> affectedCommands) {
+        // 按指令代码分组，保持组内消息顺序；不带指令代码的消息单独按顺序分发
+        Map<String, List<TelemetryMessage>> groups = new LinkedHashMap<>();
+        List<TelemetryMessage> unaddressed = new ArrayList<>();
+        for (ConsumerRecord<String, byte[]> record : records) {
+            long decodeStart = System.nanoTime();
+            TelemetryMessage telemetryMessage = messageDecoder.decode(record.value());
+            pipelineMetrics.record(TelemetryPipelineMetrics.STAGE_DECODE, decodeStart);
+            if (telemetryMessage == null) {
+                TelemetryTrace.println("遥测数据解析失败, offset=" + record.offset());
+                continue;
+            }
+            telemetryMessage.setRawPayload(record.value());
+            if (telemetryMessage.getCommandCode() == null) {
+                unaddressed.add(telemetryMessage);
+                continue;
+            }
+            groups.computeIfAbsent(telemetryMessage.getCommandCode(), k -> new ArrayList<>()).add(telemetryMessage);
+        }
+        
+        for (Map.Entry<String, List<TelemetryMessage>> group : groups.entrySet()) {
+            Command command = processCommandGroup(group.getKey(), group.getValue());
+            if (command != null) {
+                affectedCommands.putIfAbsent(command.getId(), command);
+            }
+        }
+        for (TelemetryMessage telemetryMessage : unaddressed) {
+            for (Command command : processUnaddressedMessage(telemetryMessage)) {
+                affectedCommands.putIfAbsent(command.getId(), command);
+            }
+        }
+    }
+    
+    /**
+     * 处理不带指令代码的遥测消息
+     * 通过参数关注索引找到关注这些参数的执行中指令，逐个指令判定落库并推送结果
+     * 
+     * @param telemetryMessage 解析后的遥测消息（含原始消息）
+     * @return 有判定结果的指令，由调用方检查完成情况
+     */
+    private List<Command> processUnaddressedMessage(TelemetryMessage telemetryMessage) {
+        long stageStart = System.nanoTime();
+        List<TelemetryData> judged = telemetryJudgeService.processWatchedFrame(toSamples(null, telemetryMessage));
+        pipelineMetrics.record(TelemetryPipelineMetrics.STAGE_JUDGE, stageStart);
+        if (judged.isEmpty()) {
+            TelemetryTrace.println("没有执行中指令关注该遥测数据: " + laneKeyOf(telemetryMessage, null));
+            return List.of();
+        }
         
-        public String getParamCode() { return paramCode; }
-        public void setParamCode(String paramCode) { this.paramCode = paramCode; }
+        Map<Long, List<TelemetryData>> judgedByCommand = new LinkedHashMap<>();
+        for (TelemetryData data : judged) {
+            judgedByCommand.computeIfAbsent(data.getCommandId(), k -> new ArrayList<>()).add(data);
+        }
+        List<Command> commands = new ArrayList<>(judgedByCommand.size());
+        for (Map.Entry<Long, List<TelemetryData>> entry : judgedByCommand.entrySet()) {
+            // 判定期间指令可能已结束并移出索引
+            String commandCode = paramWatcherIndex.getCommandCode(entry.getKey());
+            Command command = commandCode == null ? null : commandManagementService.findByCommandCode(commandCode);
+            if (command == null) {
+                continue;
+            }
+            
+            stageStart = System.nanoTime();
+            pushLatestJudgeResults(command, List.of(telemetryMessage), entry.getValue());
+            pipelineMetrics.record(TelemetryPipelineMetrics.STAGE_PUSH, stageStart);
+            commands.add(command);
+        }
+        return commands;
+    }
+    
+    /**
+     * 分道键：指令代码（同一指令的消息无论消息键如何都进入同一通道），不带指令代码时用消息键，都没有时用参数代码
+     */
+    private String laneKeyOf(TelemetryMessage telemetryMessage, String recordKey) {
+        if (telemetryMessage.getCommandCode() != null) {
+            return telemetryMessage.getCommandCode();
+        }
+        if (recordKey != null) {
+            return recordKey;
+        }
+        if (telemetryMessage.isFrame()) {
+            return telemetryMessage.getParams().get(0).getParamCode();
+        }
+        return telemetryMessage.getParamCode();
+    }
+    
+    /**
+     * 处理同一指令的一组遥测消息
+     * 
+     * @param commandCode 指令代码
+     * @param messages 该指令的遥测消息（按接收顺序）
+     * @return 找到的指令，由调用方在分块提交后检查完成情况；未找到时返回null
+     */
+    private Command processCommandGroup(String commandCode, List<TelemetryMessage> messages) {
+        long stageStart = System.nanoTime();
+        Command command = commandManagementService.findByCommandCode(commandCode);
+        if (command == null) {
+            TelemetryTrace.println("未找到指令代码: " + commandCode + ", 丢弃 " + messages.size() + " 条遥测数据");
+            return null;
+        }
         
-        public String getParamName() { return paramName; }
-        public void setParamName(String paramName) { this.paramName = paramName; }
+        startExecutionIfPrepared(command);
+        pipelineMetrics.record(TelemetryPipelineMetrics.STAGE_COMMAND_LOOKUP, stageStart);
         
-        public String getActualValue() { return actualValue; }
-        public void setActualValue(String actualValue) { this.actualValue = actualValue; }
+        List<List<TelemetryData>> frames = new ArrayList<>(messages.size());
+        for (TelemetryMessage telemetryMessage : messages) {
+            frames.add(toSamples(command.getId(), telemetryMessage));
+        }
         
-        public String getExpectedValue() { return expectedValue; }
-        public void setExpectedValue(String expectedValue) { this.expectedValue = expectedValue; }
+        // 整组判定并批量落库（异常向上抛出，保证偏移量不被提交）
+        stageStart = System.nanoTime();
+        List<TelemetryData> judged = telemetryJudgeService.processTelemetryBatch(command.getId(), frames);
+        pipelineMetrics.record(TelemetryPipelineMetrics.STAGE_JUDGE, stageStart);
         
-        public LocalDateTime getTimestamp() { return timestamp; }
-        public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
+        stageStart = System.nanoTime();
+        pushLatestJudgeResults(command, messages, judged);
+        pipelineMetrics.record(TelemetryPipelineMetrics.STAGE_PUSH, stageStart);
+        return command;
+    }
+    
+    /**
+     * 把遥测消息（单参数消息或多参数帧）转换为待判定的遥测数据
+     * 每个样本引用同一份原始消息，判定时只保存在帧内第一个落库的样本上（见 TelemetryJudgeService）
+     */
+    private List<TelemetryData> toSamples(Long commandId, TelemetryMessage telemetryMessage) {
+        List<TelemetryMessage.ParamValue> paramValues = paramValuesOf(telemetryMessage);
+        List<TelemetryData> samples = new ArrayList<>(paramValues.size());
+        for (TelemetryMessage.ParamValue paramValue : paramValues) {
+            TelemetryData sample = new TelemetryData(commandId, paramValue.getParamCode(), paramValue.getActualValue());
+            sample.setRawPayload(telemetryMessage.getRawPayload());
+            sample.setSampleTime(telemetryMessage.getTimestamp());
+            samples.add(sample);
+        }
+        return samples;
+    }
+    
+    /**
+     * 获取消息中的参数值列表，单参数消息视为只有一个参数的帧
+     */
+    private List<TelemetryMessage.ParamValue> paramValuesOf(TelemetryMessage telemetryMessage) {
+        if (telemetryMessage.isFrame()) {
+            return telemetryMessage.getParams();
+        }
+        TelemetryMessage.ParamValue paramValue = new TelemetryMessage.ParamValue();
+        paramValue.setParamCode(telemetryMessage.getParamCode());
+        paramValue.setParamName(telemetryMessage.getParamName());
+        paramValue.setActualValue(telemetryMessage.getActualValue());
+        paramValue.setExpectedValue(telemetryMessage.getExpectedValue());
+        return List.of(paramValue);
+    }
+    
+    /**
+     * 每个参数只推送这些消息中的最新判定结果
+     */
+    private void pushLatestJudgeResults(Command command, List<TelemetryMessage> messages, List<TelemetryData> judged) {
+        Map<String, TelemetryMessage.ParamValue> latestValues = new LinkedHashMap<>();
+        for (TelemetryMessage telemetryMessage : messages) {
+            for (TelemetryMessage.ParamValue paramValue : paramValuesOf(telemetryMessage)) {
+                latestValues.put(paramValue.getParamCode(), paramValue);
+            }
+        }
+        Map<String, Boolean> latestResults = new HashMap<>();
+        for (TelemetryData data : judged) {
+            latestResults.put(data.getParamCode(), data.getJudgeResult());
+        }
+        for (TelemetryMessage.ParamValue paramValue : latestValues.values()) {
+            Boolean judgeResult = latestResults.get(paramValue.getParamCode());
+            webSocketService.pushTelemetryJudgeResult(
+                command.getId(),
+                paramValue.getParamCode(),
+                paramValue.getParamName(),
+                paramValue.getExpectedValue(),
+                paramValue.getActualValue(),
+                Boolean.TRUE.equals(judgeResult)
+            );
+        }
+    }
+    
+    /**
+     * 已编制的指令收到遥测数据后转为执行中
+     */
+    private void startExecutionIfPrepared(Command command) {
+        if (CommandStatus.PREPARED.equals(command.getStatus())) {
+            commandManagementService.updateCommandStatus(command.getId(), CommandStatus.EXECUTING, 
+                "收到遥测数据，开始执行");
+            webSocketService.pushCommandStatusChange(command.getId(), CommandStatus.PREPARED, 
+                CommandStatus.EXECUTING, "收到遥测数据，开始执行");
+        }
+    }
+    
+    /**
+     * 检查执行中指令是否完成，未完成则推送进度
+     */
+    private void checkCompletionAndPushProgress(Command command) {
+        if (!CommandStatus.EXECUTING.equals(command.getStatus())) {
+            return;
+        }
         
-        @Override
-        public String toString() {
-            return "TelemetryMessage{" +
-                    "commandCode='" + commandCode + '\'' +
-                    ", paramCode='" + paramCode + '\'' +
-                    ", paramName='" + paramName + '\'' +
-                    ", actualValue='" + actualValue + '\'' +
-                    ", expectedValue='" + expectedValue + '\'' +
-                    ", timestamp=" + timestamp +
-                    '}';
+        long stageStart = System.nanoTime();
+        try {
+            pushCompletionOrProgress(command, telemetryJudgeService.checkCommandCompletion(command.getId()));
+        } finally {
+            pipelineMetrics.record(TelemetryPipelineMetrics.STAGE_COMPLETION, stageStart);
+        }
+    }
+    
+    /**
+     * 定时按当前时间重新判定时间窗口公式（参数值保持不变、没有新帧时heldFor等公式也能变为满足），
+     * 有关联关系变为满足的执行中指令检查是否完成，未完成则推送进度
+     */
+    @Scheduled(fixedDelayString = "${telemetry.temporal.reevaluate-interval-ms:1000}")
+    public void reevaluateTemporalFormulas() {
+        long now = System.currentTimeMillis();
+        try {
+            List<Long> changed = telemetryJudgeService.reevaluateTemporalRelations(now);
+            if (changed.isEmpty()) {
+                return;
+            }
+            for (Command command : commandManagementService.getExecutingCommands()) {
+                if (changed.contains(command.getId())) {
+                    pushCompletionOrProgress(command, telemetryJudgeService.checkCommandCompletion(command.getId(), now));
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("定时重新判定时间窗口公式失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 指令已完成则更新状态并推送完成消息，否则推送进度
+     */
+    private void pushCompletionOrProgress(Command command, boolean isCompleted) {
+        if (isCompleted) {
+            commandManagementService.updateCommandStatus(command.getId(), CommandStatus.COMPLETED, 
+                "所有遥测参数满足要求");
+            webSocketService.pushCommandStatusChange(command.getId(), CommandStatus.EXECUTING, 
+                CommandStatus.COMPLETED, "所有遥测参数满足要求");
+            webSocketService.pushCommandCompleted(command);
+        } else {
+            // 推送进度信息
+            Map<String, Object> stats = telemetryJudgeService.getCommandTelemetryStats(command.getId());
+            int progress = (Integer) stats.get("progress");
+            int totalParams = (Integer) stats.get("totalParams");
+            int satisfiedParams = (Integer) stats.get("satisfiedParams");
+            
+            webSocketService.pushCommandProgress(command.getId(), totalParams, satisfiedParams, 
+                progress, new String[]{}); // 这里可以添加剩余参数列表
         }
     }
-}
+}
\ No newline at end of file
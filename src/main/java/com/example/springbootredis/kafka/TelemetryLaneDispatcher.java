@@ -0,0 +1,410 @@
+package com.example.springbootredis.kafka;
+
+import jakarta.annotation.PostConstruct;
+import com.example.springbootredis.service.TelemetryStateSync;
+import com.example.springbootredis.service.VirtualThreads;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 遥测数据按键分道并行处理器
+ * 按指令代码（不带指令代码的消息按消息键）哈希到固定数量的处理通道：同一指令的消息在同一通道内顺序处理，
+ * 不同指令在多个通道间并行处理。每个分区只提交到最小的未完成偏移量，保证不丢消息。
+ * 通道队列容量是软上限：通道排队达到容量时由调用方暂停监听容器（见 {@link TelemetryBackpressureController#requestPause}），
+ * 超出部分正常最多为一次拉取的记录数；队列硬上限为软上限加一次拉取的最大记录数，超过硬上限时分发阻塞到通道有空位。
+ * 每个分区的偏移量跟踪对象即该分区的分配代次：分区被回收或丢失后，已排队的旧代次任务直接跳过（不标记完成，由新的消费者重新处理），
+ * 回收前等待正在执行的任务结束后再提交偏移量。同时作为各消费模式监听容器的分区再均衡监听器，分区被回收或丢失时通知 {@link TelemetryStateSync} 清空遥测内存状态
+ */
+@Component
+public class TelemetryLaneDispatcher implements ConsumerAwareRebalanceListener {
+    
+    /**
+     * 并行模式监听器ID
+     */
+    public static final String LISTENER_ID = "telemetryParallelListener";
+    
+    @Autowired
+    private TelemetryStateSync stateSync;
+    
+    @Value("${telemetry.consumer.mode:single}")
+    private String consumerMode;
+    
+    @Value("${telemetry.consumer.lanes:0}")
+    private int configuredLaneCount;
+    
+    @Value("${telemetry.consumer.lane-queue-capacity:1000}")
+    private int laneQueueCapacity;
+    
+    @Value("${spring.kafka.consumer.max-poll-records:500}")
+    private int maxPollRecords;
+    
+    /**
+     * 分区被回收时等待正在执行的任务结束的最长时间（毫秒）
+     */
+    @Value("${telemetry.consumer.revoke-timeout-ms:5000}")
+    private long revokeTimeoutMs;
+    
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+    
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int dataSourcePoolSize;
+    
+    private ThreadPoolExecutor[] lanes = new ThreadPoolExecutor[0];
+    
+    /**
+     * 各通道的处理耗时和队列满次数
+     */
+    private LaneCounters[] laneCounters = new LaneCounters[0];
+    
+    private final Map<TopicPartition, PartitionOffsetTracker> trackers = new ConcurrentHashMap<>();
+    
+    @PostConstruct
+    public void init() {
+        if (!"parallel".equals(consumerMode)) {
+            return;
+        }
+        // 虚拟线程模式下通道线程几乎没有开销，通道数默认与数据库连接池大小一致，使每个连接都能被利用
+        boolean virtual = VirtualThreads.isActive(virtualThreadsEnabled, "遥测并行处理通道");
+        int defaultLaneCount = virtual ? dataSourcePoolSize : Runtime.getRuntime().availableProcessors();
+        int laneCount = configuredLaneCount > 0 ? configuredLaneCount : defaultLaneCount;
+        lanes = new ThreadPoolExecutor[laneCount];
+        laneCounters = new LaneCounters[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            laneCounters[i] = new LaneCounters();
+            final int laneIndex = i;
+            ThreadFactory threadFactory = virtual
+                ? new VirtualThreadTaskExecutor("telemetry-lane-" + laneIndex + "-").getVirtualThreadFactory()
+                : r -> new Thread(r, "telemetry-lane-" + laneIndex);
+            // 达到软上限后即暂停拉取，硬上限只在单次拉取超出预期时生效，正常情况下入队不会阻塞消费线程
+            // （长时间阻塞会使消费者错过拉取间隔而被踢出消费组）
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(laneQueueCapacity + Math.max(1, maxPollRecords)), threadFactory,
+                blockWhenFull(laneCounters[i]));
+        }
+        System.out.println("遥测并行处理通道已启动，通道数: " + laneCount + (virtual ? "（虚拟线程）" : ""));
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        for (ThreadPoolExecutor lane : lanes) {
+            try {
+                lane.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * 分发一条消息到对应通道
+     *
+     * @param laneKey 分道键（指令代码或卫星ID）
+     * @param partition 消息所在分区
+     * @param offset 消息偏移量
+     * @param task 处理任务
+     * @return 通道排队是否已达到队列容量（调用方应暂停拉取）
+     */
+    public boolean dispatch(String laneKey, TopicPartition partition, long offset, Runnable task) {
+        PartitionOffsetTracker tracker = trackers.computeIfAbsent(partition, tp -> new PartitionOffsetTracker());
+        tracker.begin(offset);
+        int laneIndex = Math.floorMod(laneKey == null ? 0 : laneKey.hashCode(), lanes.length);
+        ThreadPoolExecutor lane = lanes[laneIndex];
+        LaneCounters counters = laneCounters[laneIndex];
+        lane.execute(() -> {
+            if (!tracker.enter()) {
+                // 分区已被回收，消息由新的消费者重新处理
+                counters.staleSkips.increment();
+                return;
+            }
+            long startNanos = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                counters.processNanos.add(System.nanoTime() - startNanos);
+                tracker.complete(offset);
+                tracker.exit();
+            }
+        });
+        if (lane.getQueue().size() >= laneQueueCapacity) {
+            counters.saturations.increment();
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * 标记无需处理的消息（如解析失败），使其偏移量可以被提交
+     *
+     * @param partition 消息所在分区
+     * @param offset 消息偏移量
+     */
+    public void skip(TopicPartition partition, long offset) {
+        PartitionOffsetTracker tracker = trackers.computeIfAbsent(partition, tp -> new PartitionOffsetTracker());
+        tracker.begin(offset);
+        tracker.complete(offset);
+    }
+    
+    /**
+     * 提交已处理完成的偏移量（必须在消费线程中调用）
+     *
+     * @param consumer Kafka消费者
+     */
+    public void commitProcessed(Consumer<?, ?> consumer) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition partition : consumer.assignment()) {
+            PartitionOffsetTracker tracker = trackers.get(partition);
+            if (tracker == null) {
+                continue;
+            }
+            long committable = tracker.committableOffset();
+            if (committable > tracker.lastCommitted) {
+                offsets.put(partition, new OffsetAndMetadata(committable));
+                tracker.lastCommitted = committable;
+            }
+        }
+        if (!offsets.isEmpty()) {
+            consumer.commitAsync(offsets, (committed, exception) -> {
+                if (exception != null) {
+                    System.err.println("提交遥测偏移量失败: " + exception.getMessage());
+                }
+            });
+        }
+    }
+    
+    /**
+     * 消费者空闲时提交尾部已完成的偏移量
+     */
+    @EventListener(condition = "event.listenerId.startsWith('" + LISTENER_ID + "')")
+    public void onIdle(ListenerContainerIdleEvent event) {
+        commitProcessed(event.getConsumer());
+    }
+    
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        // 已排队的任务不再执行，等待正在执行的任务结束后提交已完成部分，未完成的消息由新的消费者重新处理
+        List<PartitionOffsetTracker> revoked = revoke(partitions);
+        long deadline = System.currentTimeMillis() + revokeTimeoutMs;
+        for (PartitionOffsetTracker tracker : revoked) {
+            if (!tracker.awaitIdle(deadline - System.currentTimeMillis())) {
+                System.err.println("等待被回收分区的处理任务结束超时，未完成的消息由新的消费者重新处理");
+                break;
+            }
+        }
+        commitProcessed(consumer);
+        for (TopicPartition partition : partitions) {
+            trackers.remove(partition);
+        }
+        stateSync.onPartitionsReleased(partitions);
+    }
+    
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        // 分区已归其他消费者，不能再提交偏移量，只丢弃已排队的任务
+        revoke(partitions);
+        for (TopicPartition partition : partitions) {
+            trackers.remove(partition);
+        }
+        stateSync.onPartitionsReleased(partitions);
+    }
+    
+    /**
+     * 标记分区的当前代次已结束，已排队的任务执行时直接跳过
+     */
+    private List<PartitionOffsetTracker> revoke(Collection<TopicPartition> partitions) {
+        List<PartitionOffsetTracker> revoked = new ArrayList<>();
+        for (TopicPartition partition : partitions) {
+            PartitionOffsetTracker tracker = trackers.get(partition);
+            if (tracker != null) {
+                tracker.revoke();
+                revoked.add(tracker);
+            }
+        }
+        return revoked;
+    }
+    
+    /**
+     * 队列达到硬上限时阻塞分发线程直到通道有空位
+     */
+    private static RejectedExecutionHandler blockWhenFull(LaneCounters counters) {
+        return (task, executor) -> {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("处理通道已关闭");
+            }
+            counters.blockedDispatches.increment();
+            try {
+                executor.getQueue().put(task);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("等待处理通道空位时被中断", e);
+            }
+        };
+    }
+    
+    /**
+     * 获取各通道统计信息
+     *
+     * @return 每个通道的队列深度、活跃任务数、已完成任务数、平均处理耗时、队列满次数、阻塞分发次数和跳过的已回收分区任务数
+     */
+    public List<Map<String, Object>> getLaneStats() {
+        List<Map<String, Object>> stats = new ArrayList<>(lanes.length);
+        for (int i = 0; i < lanes.length; i++) {
+            long completed = lanes[i].getCompletedTaskCount();
+            Map<String, Object> laneStats = new LinkedHashMap<>();
+            laneStats.put("lane", i);
+            laneStats.put("queueDepth", lanes[i].getQueue().size());
+            laneStats.put("activeCount", lanes[i].getActiveCount());
+            laneStats.put("completedCount", completed);
+            laneStats.put("avgProcessMicros", completed == 0 ? 0.0 : laneCounters[i].processNanos.sum() / 1000.0 / completed);
+            laneStats.put("saturations", laneCounters[i].saturations.sum());
+            laneStats.put("blockedDispatches", laneCounters[i].blockedDispatches.sum());
+            laneStats.put("staleSkips", laneCounters[i].staleSkips.sum());
+            stats.add(laneStats);
+        }
+        return stats;
+    }
+    
+    /**
+     * 获取排队最多的通道的队列深度
+     */
+    public int getMaxQueueDepth() {
+        int max = 0;
+        for (ThreadPoolExecutor lane : lanes) {
+            max = Math.max(max, lane.getQueue().size());
+        }
+        return max;
+    }
+    
+    /**
+     * 获取所有通道的排队消息总数
+     */
+    public int getTotalQueueDepth() {
+        int total = 0;
+        for (ThreadPoolExecutor lane : lanes) {
+            total += lane.getQueue().size();
+        }
+        return total;
+    }
+    
+    /**
+     * 获取所有通道的队列总容量（非并行模式为0）
+     */
+    public int getTotalQueueCapacity() {
+        return lanes.length * laneQueueCapacity;
+    }
+    
+    /**
+     * 单个通道的统计
+     */
+    private static class LaneCounters {
+        private final LongAdder processNanos = new LongAdder();
+        private final LongAdder saturations = new LongAdder();
+        private final LongAdder blockedDispatches = new LongAdder();
+        private final LongAdder staleSkips = new LongAdder();
+    }
+    
+    /**
+     * 单个分区一次分配（代次）内的偏移量跟踪
+     */
+    private static class PartitionOffsetTracker {
+        private final ConcurrentSkipListSet<Long> inFlight = new ConcurrentSkipListSet<>();
+        private final AtomicInteger running = new AtomicInteger();
+        private volatile long highestDispatched = -1;
+        private volatile boolean revoked;
+        private long lastCommitted = -1;
+        
+        void begin(long offset) {
+            inFlight.add(offset);
+            if (offset > highestDispatched) {
+                highestDispatched = offset;
+            }
+        }
+        
+        void complete(long offset) {
+            inFlight.remove(offset);
+        }
+        
+        /**
+         * 任务开始执行，分区已被回收时返回false
+         */
+        boolean enter() {
+            running.incrementAndGet();
+            if (revoked) {
+                exit();
+                return false;
+            }
+            return true;
+        }
+        
+        void exit() {
+            if (running.decrementAndGet() == 0 && revoked) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+        
+        void revoke() {
+            revoked = true;
+        }
+        
+        /**
+         * 等待正在执行的任务结束
+         *
+         * @return 是否在超时前全部结束
+         */
+        synchronized boolean awaitIdle(long timeoutMs) {
+            long deadline = System.currentTimeMillis() + timeoutMs;
+            while (running.get() > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        /**
+         * 可提交的偏移量：最小的未完成偏移量；全部完成时为已分发的最大偏移量+1
+         */
+        long committableOffset() {
+            Long lowestInFlight = inFlight.ceiling(Long.MIN_VALUE);
+            return lowestInFlight != null ? lowestInFlight : highestDispatched + 1;
+        }
+    }
+}
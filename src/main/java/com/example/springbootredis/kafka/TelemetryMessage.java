@@ -0,0 +1,144 @@
+package com.example.springbootredis.kafka;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 遥测消息
+ * 支持单参数消息（paramCode/actualValue）和多参数帧（params数组，共享commandCode和timestamp）；
+ * 可通过reset()复用；实际值保留消息中的原始文本；
+ * 原始消息以Kafka消息字节保存，只在读取文本时才解码
+ */
+public class TelemetryMessage {
+    private String commandCode;
+    private String paramCode;
+    private String paramName;
+    private String actualValue;
+    private String expectedValue;
+    private LocalDateTime timestamp;
+    private String rawMessage;
+    private byte[] rawPayload;
+    
+    /**
+     * 多参数帧中的参数列表（单参数消息为空）
+     */
+    private final List<ParamValue> params = new ArrayList<>();
+    
+    /**
+     * 清空所有字段，便于复用
+     */
+    public void reset() {
+        commandCode = null;
+        paramCode = null;
+        paramName = null;
+        actualValue = null;
+        expectedValue = null;
+        timestamp = null;
+        rawMessage = null;
+        rawPayload = null;
+        params.clear();
+    }
+    
+    /**
+     * 是否为多参数帧
+     */
+    public boolean isFrame() {
+        return !params.isEmpty();
+    }
+    
+    /**
+     * 追加一个帧参数
+     */
+    public ParamValue addParam() {
+        ParamValue paramValue = new ParamValue();
+        params.add(paramValue);
+        return paramValue;
+    }
+    
+    public List<ParamValue> getParams() { return params; }
+    
+    // Getters and Setters
+    public String getCommandCode() { return commandCode; }
+    public void setCommandCode(String commandCode) { this.commandCode = commandCode; }
+    
+    public String getParamCode() { return paramCode; }
+    public void setParamCode(String paramCode) { this.paramCode = paramCode; }
+    
+    public String getParamName() { return paramName; }
+    public void setParamName(String paramName) { this.paramName = paramName; }
+    
+    public String getActualValue() { return actualValue; }
+    public void setActualValue(String actualValue) { this.actualValue = actualValue; }
+    
+    public String getExpectedValue() { return expectedValue; }
+    public void setExpectedValue(String expectedValue) { this.expectedValue = expectedValue; }
+    
+    public LocalDateTime getTimestamp() { return timestamp; }
+    public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
+    
+    public String getRawMessage() {
+        if (rawMessage == null && rawPayload != null) {
+            rawMessage = new String(rawPayload, StandardCharsets.UTF_8);
+        }
+        return rawMessage;
+    }
+    public void setRawMessage(String rawMessage) {
+        this.rawMessage = rawMessage;
+        this.rawPayload = null;
+    }
+    
+    /**
+     * 原始消息字节（UTF-8），只有文本形式时按需编码
+     */
+    public byte[] getRawPayload() {
+        if (rawPayload == null && rawMessage != null) {
+            rawPayload = rawMessage.getBytes(StandardCharsets.UTF_8);
+        }
+        return rawPayload;
+    }
+    
+    /**
+     * 设置原始消息字节（直接引用Kafka消息的字节数组，不复制）
+     */
+    public void setRawPayload(byte[] rawPayload) {
+        this.rawPayload = rawPayload;
+        this.rawMessage = null;
+    }
+    
+    @Override
+    public String toString() {
+        return "TelemetryMessage{" +
+                "commandCode='" + commandCode + '\'' +
+                ", paramCode='" + paramCode + '\'' +
+                ", paramName='" + paramName + '\'' +
+                ", actualValue='" + actualValue + '\'' +
+                ", expectedValue='" + expectedValue + '\'' +
+                ", timestamp=" + timestamp +
+                ", params=" + params.size() +
+                '}';
+    }
+    
+    /**
+     * 帧内单个参数值
+     */
+    public static class ParamValue {
+        private String paramCode;
+        private String paramName;
+        private String actualValue;
+        private String expectedValue;
+        
+        public String getParamCode() { return paramCode; }
+        public void setParamCode(String paramCode) { this.paramCode = paramCode; }
+        
+        public String getParamName() { return paramName; }
+        public void setParamName(String paramName) { this.paramName = paramName; }
+        
+        public String getActualValue() { return actualValue; }
+        public void setActualValue(String actualValue) { this.actualValue = actualValue; }
+        
+        public String getExpectedValue() { return expectedValue; }
+        public void setExpectedValue(String expectedValue) { this.expectedValue = expectedValue; }
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.springbootredis.kafka;
+
+import com.alibaba.fastjson2.JSONReader;
+import com.alibaba.fastjson2.util.Fnv;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * 遥测消息解码器
+ * 使用fastjson2的流式读取器直接从Kafka字节数组解码到可复用的TelemetryMessage，
+ * 按字段名哈希匹配字段，不创建中间Map；数值型实际值直接截取消息中的原始文本（不经double转换，保留精度和写法），
+ * 未提供或为null的实际值为文本"null"。
+ * 多参数帧格式：{"commandCode": "...", "timestamp": ..., "params": [{"paramCode": "...", "actualValue": ...}, ...]}
+ */
+@Component
+public class TelemetryMessageDecoder {
+    
+    private static final long HASH_COMMAND_CODE = Fnv.hashCode64("commandCode");
+    private static final long HASH_PARAM_CODE = Fnv.hashCode64("paramCode");
+    private static final long HASH_PARAM_NAME = Fnv.hashCode64("paramName");
+    private static final long HASH_ACTUAL_VALUE = Fnv.hashCode64("actualValue");
+    private static final long HASH_EXPECTED_VALUE = Fnv.hashCode64("expectedValue");
+    private static final long HASH_TIMESTAMP = Fnv.hashCode64("timestamp");
+    private static final long HASH_PARAMS = Fnv.hashCode64("params");
+    
+    /**
+     * 未提供或为null的实际值（与按Map解析时 String.valueOf(null) 的结果一致）
+     */
+    private static final String NULL_VALUE = "null";
+    
+    /**
+     * 解码遥测消息
+     *
+     * @param payload Kafka消息字节数组（UTF-8 JSON）
+     * @param target 解码目标，解码前会被重置
+     * @return 是否解码成功
+     */
+    public boolean decode(byte[] payload, TelemetryMessage target) {
+        target.reset();
+        try (JSONReader reader = JSONReader.of(payload)) {
+            if (!reader.nextIfObjectStart()) {
+                return false;
+            }
+            while (!reader.nextIfObjectEnd()) {
+                long nameHash = reader.readFieldNameHashCode();
+                if (nameHash == HASH_COMMAND_CODE) {
+                    target.setCommandCode(reader.readString());
+                } else if (nameHash == HASH_PARAM_CODE) {
+                    target.setParamCode(reader.readString());
+                } else if (nameHash == HASH_PARAM_NAME) {
+                    target.setParamName(reader.readString());
+                } else if (nameHash == HASH_ACTUAL_VALUE) {
+                    target.setActualValue(readActualValue(reader, payload));
+                } else if (nameHash == HASH_EXPECTED_VALUE) {
+                    target.setExpectedValue(reader.readString());
+                } else if (nameHash == HASH_TIMESTAMP) {
+                    readTimestamp(reader, target);
+                } else if (nameHash == HASH_PARAMS) {
+                    readParams(reader, payload, target);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            if (target.getTimestamp() == null) {
+                target.setTimestamp(LocalDateTime.now());
+            }
+            if (!target.isFrame() && target.getActualValue() == null) {
+                target.setActualValue(NULL_VALUE);
+            }
+            return true;
+        } catch (Exception e) {
+            System.err.println("解析遥测消息失败: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * 解码遥测消息到新对象
+     *
+     * @param payload Kafka消息字节数组
+     * @return 解码后的遥测消息，失败返回null
+     */
+    public TelemetryMessage decode(byte[] payload) {
+        TelemetryMessage telemetryMessage = new TelemetryMessage();
+        return decode(payload, telemetryMessage) ? telemetryMessage : null;
+    }
+    
+    /**
+     * 读取实际值：数值截取原始文本，字符串和布尔值保留文本，null为文本"null"
+     */
+    private String readActualValue(JSONReader reader, byte[] payload) {
+        if (reader.nextIfNull()) {
+            return NULL_VALUE;
+        }
+        if (reader.isNumber()) {
+            return readNumberText(reader, payload);
+        } else if (reader.isString()) {
+            return reader.readString();
+        } else {
+            return String.valueOf(reader.readAny());
+        }
+    }
+    
+    /**
+     * 截取当前数值的原始文本（如"25.50"、"1.5e3"），读取器越过该值
+     * 读取器的偏移量指向当前字符之后，数值只由ASCII字符组成
+     */
+    private static String readNumberText(JSONReader reader, byte[] payload) {
+        int start = reader.getOffset() - 1;
+        reader.skipValue();
+        int end = start;
+        while (end < payload.length && isNumberChar(payload[end])) {
+            end++;
+        }
+        return new String(payload, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+    
+    private static boolean isNumberChar(byte b) {
+        return (b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E';
+    }
+    
+    /**
+     * 读取多参数帧的参数数组
+     */
+    private void readParams(JSONReader reader, byte[] payload, TelemetryMessage target) {
+        if (reader.nextIfNull()) {
+            return;
+        }
+        if (!reader.nextIfArrayStart()) {
+            reader.skipValue();
+            return;
+        }
+        while (!reader.nextIfArrayEnd()) {
+            if (!reader.nextIfObjectStart()) {
+                reader.skipValue();
+                continue;
+            }
+            TelemetryMessage.ParamValue paramValue = target.addParam();
+            while (!reader.nextIfObjectEnd()) {
+                long nameHash = reader.readFieldNameHashCode();
+                if (nameHash == HASH_PARAM_CODE) {
+                    paramValue.setParamCode(reader.readString());
+                } else if (nameHash == HASH_PARAM_NAME) {
+                    paramValue.setParamName(reader.readString());
+                } else if (nameHash == HASH_ACTUAL_VALUE) {
+                    paramValue.setActualValue(readActualValue(reader, payload));
+                } else if (nameHash == HASH_EXPECTED_VALUE) {
+                    paramValue.setExpectedValue(reader.readString());
+                } else {
+                    reader.skipValue();
+                }
+            }
+            if (paramValue.getActualValue() == null) {
+                paramValue.setActualValue(NULL_VALUE);
+            }
+        }
+    }
+    
+    /**
+     * 读取时间戳：数值为毫秒时间戳（UTC），字符串为ISO格式本地时间
+     */
+    private void readTimestamp(JSONReader reader, TelemetryMessage target) {
+        if (reader.nextIfNull()) {
+            return;
+        }
+        if (reader.isNumber()) {
+            long epochMillis = reader.readInt64Value();
+            target.setTimestamp(LocalDateTime.ofEpochSecond(Math.floorDiv(epochMillis, 1000L),
+                (int) Math.floorMod(epochMillis, 1000L) * 1_000_000, ZoneOffset.UTC));
+        } else if (reader.isString()) {
+            target.setTimestamp(LocalDateTime.parse(reader.readString()));
+        } else {
+            reader.skipValue();
+        }
+    }
+}
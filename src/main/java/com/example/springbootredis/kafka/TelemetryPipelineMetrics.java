@@ -0,0 +1,83 @@
+package com.example.springbootredis.kafka;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 遥测处理流水线分阶段耗时统计
+ * 记录解码、指令查找、判定落库、结果推送和完成检查各阶段的次数、平均耗时和最大耗时
+ */
+@Component
+public class TelemetryPipelineMetrics {
+    
+    public static final String STAGE_DECODE = "decode";
+    public static final String STAGE_COMMAND_LOOKUP = "commandLookup";
+    public static final String STAGE_JUDGE = "judge";
+    public static final String STAGE_PUSH = "push";
+    public static final String STAGE_COMPLETION = "completionCheck";
+    
+    private final Map<String, StageTimer> stages = new ConcurrentHashMap<>();
+    
+    /**
+     * 记录一次阶段耗时
+     *
+     * @param stage 阶段名称
+     * @param startNanos 阶段开始时间（System.nanoTime()）
+     */
+    public void record(String stage, long startNanos) {
+        stages.computeIfAbsent(stage, s -> new StageTimer()).record(System.nanoTime() - startNanos);
+    }
+    
+    /**
+     * 获取各阶段统计信息
+     *
+     * @return 阶段名称 -> 次数、平均耗时（微秒）、最大耗时（微秒）
+     */
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        for (String stage : new String[]{STAGE_DECODE, STAGE_COMMAND_LOOKUP, STAGE_JUDGE, STAGE_PUSH, STAGE_COMPLETION}) {
+            StageTimer timer = stages.get(stage);
+            if (timer != null) {
+                stats.put(stage, timer.toStats());
+            }
+        }
+        stages.forEach((stage, timer) -> stats.putIfAbsent(stage, timer.toStats()));
+        return stats;
+    }
+    
+    /**
+     * 清空统计
+     */
+    public void reset() {
+        stages.clear();
+    }
+    
+    /**
+     * 单个阶段的耗时累计
+     */
+    private static class StageTimer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+        
+        Map<String, Object> toStats() {
+            long n = count.sum();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("count", n);
+            stats.put("avgMicros", n == 0 ? 0.0 : totalNanos.sum() / 1000.0 / n);
+            stats.put("maxMicros", maxNanos.get() / 1000.0);
+            return stats;
+        }
+    }
+}
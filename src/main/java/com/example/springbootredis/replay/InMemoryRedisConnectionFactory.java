@@ -0,0 +1,208 @@
+package com.example.springbootredis.replay;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisSentinelConnection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * 进程内Redis替身（离线回放模式使用）
+ * 只实现回放流程用到的字符串、集合、哈希和键命令（见 InMemoryRedisConnectionFactoryTest），数据保存在内存中，忽略过期时间；
+ * 发布消息直接丢弃（回放模式关闭了缓存失效和状态同步），其余命令抛出 {@link UnsupportedOperationException}，
+ * 新增的Redis用法在回放中立即暴露，而不是静默得到空值。只由同一包中 {@code replay} 配置文件下的 {@link ReplayRedisConfig} 创建
+ */
+public class InMemoryRedisConnectionFactory implements RedisConnectionFactory {
+    
+    private final Map<String, byte[]> strings = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> sets = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, byte[]>> hashes = new ConcurrentHashMap<>();
+    
+    private final RedisConnection connection = (RedisConnection) Proxy.newProxyInstance(
+        RedisConnection.class.getClassLoader(), new Class<?>[]{RedisConnection.class}, new CommandHandler());
+    
+    @Override
+    public RedisConnection getConnection() {
+        return connection;
+    }
+    
+    @Override
+    public RedisClusterConnection getClusterConnection() {
+        throw new UnsupportedOperationException("内存Redis替身不支持集群连接");
+    }
+    
+    @Override
+    public boolean getConvertPipelineAndTxResults() {
+        return false;
+    }
+    
+    @Override
+    public RedisSentinelConnection getSentinelConnection() {
+        throw new UnsupportedOperationException("内存Redis替身不支持哨兵连接");
+    }
+    
+    @Override
+    public DataAccessException translateExceptionIfPossible(RuntimeException ex) {
+        return null;
+    }
+    
+    /**
+     * 字节数组按ISO-8859-1转为字符串作为内部键，保证任意字节可逆
+     */
+    private static String key(Object bytes) {
+        return new String((byte[]) bytes, StandardCharsets.ISO_8859_1);
+    }
+    
+    private static byte[] bytes(String key) {
+        return key.getBytes(StandardCharsets.ISO_8859_1);
+    }
+    
+    /**
+     * 按方法名分发命令
+     */
+    private class CommandHandler implements InvocationHandler {
+        
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (name.endsWith("Commands") && method.getParameterCount() == 0) {
+                // stringCommands()、setCommands()等返回连接自身
+                return proxy;
+            }
+            switch (name) {
+                case "set":
+                case "setEx":
+                case "pSetEx":
+                    // set(key, value[, expiration, option])、setEx(key, seconds, value)
+                    byte[] value = (byte[]) (name.equals("set") ? args[1] : args[2]);
+                    strings.put(key(args[0]), value);
+                    return Boolean.TRUE;
+                case "get":
+                    return strings.get(key(args[0]));
+                case "sAdd":
+                    return (long) modifySet(args, true);
+                case "sRem":
+                    return (long) modifySet(args, false);
+                case "sMembers": {
+                    Set<byte[]> members = new HashSet<>();
+                    for (String member : sets.getOrDefault(key(args[0]), Set.of())) {
+                        members.add(bytes(member));
+                    }
+                    return members;
+                }
+                case "sIsMember":
+                    return sets.getOrDefault(key(args[0]), Set.of()).contains(key(args[1]));
+                case "sCard":
+                    return (long) sets.getOrDefault(key(args[0]), Set.of()).size();
+                case "hSet":
+                    hashes.computeIfAbsent(key(args[0]), k -> new ConcurrentHashMap<>()).put(key(args[1]), (byte[]) args[2]);
+                    return Boolean.TRUE;
+                case "hMSet": {
+                    Map<String, byte[]> hash = hashes.computeIfAbsent(key(args[0]), k -> new ConcurrentHashMap<>());
+                    for (Map.Entry<?, ?> entry : ((Map<?, ?>) args[1]).entrySet()) {
+                        hash.put(key(entry.getKey()), (byte[]) entry.getValue());
+                    }
+                    return null;
+                }
+                case "hGet":
+                    return hashes.getOrDefault(key(args[0]), Map.of()).get(key(args[1]));
+                case "hGetAll": {
+                    Map<byte[], byte[]> entries = new LinkedHashMap<>();
+                    hashes.getOrDefault(key(args[0]), Map.of()).forEach((field, v) -> entries.put(bytes(field), v));
+                    return entries;
+                }
+                case "hDel": {
+                    Map<String, byte[]> hash = hashes.getOrDefault(key(args[0]), Map.of());
+                    long removed = 0;
+                    for (Object field : (Object[]) args[1]) {
+                        if (hash.remove(key(field)) != null) {
+                            removed++;
+                        }
+                    }
+                    return removed;
+                }
+                case "del":
+                case "unlink": {
+                    long removed = 0;
+                    for (Object k : (Object[]) args[0]) {
+                        String internalKey = key(k);
+                        if (strings.remove(internalKey) != null | sets.remove(internalKey) != null
+                                | hashes.remove(internalKey) != null) {
+                            removed++;
+                        }
+                    }
+                    return removed;
+                }
+                case "exists":
+                    if (args[0] instanceof byte[]) {
+                        return exists(key(args[0]));
+                    }
+                    long count = 0;
+                    for (Object k : (Object[]) args[0]) {
+                        if (exists(key(k))) {
+                            count++;
+                        }
+                    }
+                    return count;
+                case "expire":
+                case "pExpire":
+                    return exists(key(args[0]));
+                case "keys": {
+                    Pattern pattern = Pattern.compile(Pattern.quote(key(args[0])).replace("*", "\\E.*\\Q"));
+                    Set<byte[]> keys = new HashSet<>();
+                    for (Map<String, ?> store : List.<Map<String, ?>>of(strings, sets, hashes)) {
+                        for (String k : store.keySet()) {
+                            if (pattern.matcher(k).matches()) {
+                                keys.add(bytes(k));
+                            }
+                        }
+                    }
+                    return keys;
+                }
+                case "publish":
+                    return 0L;
+                case "close":
+                    return null;
+                case "isClosed":
+                case "isQueueing":
+                case "isPipelined":
+                    return Boolean.FALSE;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "InMemoryRedisConnection";
+                default:
+                    throw new UnsupportedOperationException("内存Redis替身不支持命令: " + name);
+            }
+        }
+        
+        private int modifySet(Object[] args, boolean add) {
+            Set<String> set = sets.computeIfAbsent(key(args[0]), k -> ConcurrentHashMap.newKeySet());
+            int changed = 0;
+            for (Object member : (Object[]) args[1]) {
+                if (add ? set.add(key(member)) : set.remove(key(member))) {
+                    changed++;
+                }
+            }
+            return changed;
+        }
+        
+        private boolean exists(String internalKey) {
+            return strings.containsKey(internalKey) || sets.containsKey(internalKey) || hashes.containsKey(internalKey);
+        }
+    }
+}
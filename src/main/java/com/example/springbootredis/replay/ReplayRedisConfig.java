@@ -0,0 +1,21 @@
+package com.example.springbootredis.replay;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+/**
+ * 离线回放模式的Redis配置
+ * 使用进程内Redis替身（{@link InMemoryRedisConnectionFactory}）代替真实连接，自动配置的RedisTemplate都基于该连接工厂；
+ * 替身只实现回放流程用到的命令，回放配置同时关闭了缓存失效和状态同步的发布订阅
+ */
+@Configuration
+@Profile("replay")
+public class ReplayRedisConfig {
+    
+    @Bean
+    public RedisConnectionFactory redisConnectionFactory() {
+        return new InMemoryRedisConnectionFactory();
+    }
+}
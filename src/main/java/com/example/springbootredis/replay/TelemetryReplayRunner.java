@@ -0,0 +1,237 @@
+package com.example.springbootredis.replay;
+
+import com.example.springbootredis.entity.Command;
+import com.example.springbootredis.kafka.TelemetryKafkaConsumer;
+import com.example.springbootredis.kafka.TelemetryMessage;
+import com.example.springbootredis.kafka.TelemetryMessageDecoder;
+import com.example.springbootredis.kafka.TelemetryPipelineMetrics;
+import com.example.springbootredis.repository.CommandRepository;
+import com.example.springbootredis.service.CommandManagementService;
+import com.example.springbootredis.service.TelemetryJudgeService;
+import com.example.springbootredis.service.TelemetryTrace;
+import com.example.springbootredis.service.TelemetryWriteBehindBuffer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 遥测数据离线回放入口（replay profile）
+ * 逐行读取NDJSON（或gzip压缩的NDJSON）文件，每行一条与Kafka消息相同格式的遥测消息，
+ * 不经过Kafka直接送入与消费者相同的处理流程；支持尽可能快或按消息时间戳倍速回放，
+ * 结束后输出吞吐量、各阶段耗时和涉及指令的最终状态
+ */
+@Component
+@Profile("replay")
+public class TelemetryReplayRunner implements ApplicationRunner {
+    
+    /**
+     * 最终状态报告中最多列出的指令数
+     */
+    private static final int MAX_REPORTED_COMMANDS = 100;
+    private static final long FLUSH_TIMEOUT_MILLIS = 60_000;
+    
+    @Autowired
+    private TelemetryKafkaConsumer telemetryKafkaConsumer;
+    
+    @Autowired
+    private TelemetryMessageDecoder messageDecoder;
+    
+    @Autowired
+    private TelemetryPipelineMetrics pipelineMetrics;
+    
+    @Autowired
+    private CommandRepository commandRepository;
+    
+    @Autowired
+    private CommandManagementService commandManagementService;
+    
+    @Autowired
+    private TelemetryJudgeService telemetryJudgeService;
+    
+    @Autowired
+    private TelemetryWriteBehindBuffer writeBehindBuffer;
+    
+    @Autowired
+    private ApplicationContext applicationContext;
+    
+    @Value("${telemetry.replay.files:}")
+    private String files;
+    
+    @Value("${telemetry.replay.speed:0}")
+    private double speed;
+    
+    @Value("${telemetry.replay.quiet:true}")
+    private boolean quiet;
+    
+    @Value("${telemetry.replay.exit-on-finish:true}")
+    private boolean exitOnFinish;
+    
+    private long messageCount;
+    private long failedCount;
+    private long firstMessageEpochMillis = Long.MIN_VALUE;
+    private long replayStartNanos;
+    private final Set<String> commandCodes = new LinkedHashSet<>();
+    
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (files == null || files.isBlank()) {
+            System.out.println("未指定回放文件（telemetry.replay.files），跳过回放");
+            return;
+        }
+        
+        pipelineMetrics.reset();
+        // 只关闭处理流程的逐条日志，启动、汇总和错误日志照常输出
+        boolean traceEnabled = TelemetryTrace.isEnabled();
+        if (quiet) {
+            TelemetryTrace.setEnabled(false);
+        }
+        
+        replayStartNanos = System.nanoTime();
+        try {
+            for (String file : files.split(",")) {
+                replayFile(Paths.get(file.trim()));
+            }
+        } finally {
+            TelemetryTrace.setEnabled(traceEnabled);
+        }
+        // 开启异步写入时等待数据全部落库，报告中的进度从数据库重建
+        if (!writeBehindBuffer.awaitFlushed(FLUSH_TIMEOUT_MILLIS)) {
+            System.err.println("等待遥测数据写入数据库超时: " + writeBehindBuffer.getStats());
+        }
+        long elapsedNanos = System.nanoTime() - replayStartNanos;
+        
+        printReport(elapsedNanos);
+        
+        if (exitOnFinish) {
+            System.exit(SpringApplication.exit(applicationContext, () -> 0));
+        }
+    }
+    
+    /**
+     * 回放单个文件
+     */
+    private void replayFile(Path path) throws IOException, InterruptedException {
+        System.out.println("开始回放遥测文件: " + path);
+        try (BufferedReader reader = openReader(path)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                byte[] payload = line.getBytes(StandardCharsets.UTF_8);
+                
+                long decodeStart = System.nanoTime();
+                TelemetryMessage telemetryMessage = messageDecoder.decode(payload);
+                pipelineMetrics.record(TelemetryPipelineMetrics.STAGE_DECODE, decodeStart);
+                if (telemetryMessage == null) {
+                    failedCount++;
+                    continue;
+                }
+                telemetryMessage.setRawMessage(line);
+                
+                throttle(telemetryMessage);
+                
+                try {
+                    telemetryKafkaConsumer.processTelemetryMessage(telemetryMessage);
+                } catch (Exception e) {
+                    failedCount++;
+                    System.err.println("回放处理遥测数据异常: " + e.getMessage());
+                }
+                if (telemetryMessage.getCommandCode() != null) {
+                    commandCodes.add(telemetryMessage.getCommandCode());
+                }
+                messageCount++;
+            }
+        }
+    }
+    
+    private BufferedReader openReader(Path path) throws IOException {
+        InputStream in = Files.newInputStream(path);
+        if (path.getFileName().toString().endsWith(".gz")) {
+            in = new GZIPInputStream(in, 64 * 1024);
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+    }
+    
+    /**
+     * 倍速回放：按消息时间戳与第一条消息的间隔除以倍速等待
+     */
+    private void throttle(TelemetryMessage telemetryMessage) throws InterruptedException {
+        if (speed <= 0 || telemetryMessage.getTimestamp() == null) {
+            return;
+        }
+        long epochMillis = telemetryMessage.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli();
+        if (firstMessageEpochMillis == Long.MIN_VALUE) {
+            firstMessageEpochMillis = epochMillis;
+            return;
+        }
+        long targetNanos = replayStartNanos + (long) ((epochMillis - firstMessageEpochMillis) * 1_000_000 / speed);
+        long waitNanos = targetNanos - System.nanoTime();
+        if (waitNanos > 0) {
+            Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+        }
+    }
+    
+    /**
+     * 输出回放报告
+     */
+    private void printReport(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.println("========== 遥测回放报告 ==========");
+        System.out.println(String.format("消息数=%d, 失败=%d, 耗时=%.2f 秒, 吞吐=%.1f 条/秒",
+            messageCount, failedCount, seconds, seconds > 0 ? messageCount / seconds : 0.0));
+        
+        System.out.println("各阶段耗时:");
+        for (Map.Entry<String, Map<String, Object>> stage : pipelineMetrics.getStats().entrySet()) {
+            Map<String, Object> stats = stage.getValue();
+            System.out.println(String.format("  %-16s 次数=%d, 平均=%.1f 微秒, 最大=%.1f 微秒",
+                stage.getKey(), stats.get("count"), stats.get("avgMicros"), stats.get("maxMicros")));
+        }
+        
+        System.out.println("指令最终状态（共 " + commandCodes.size() + " 个指令）:");
+        Map<String, Command> reportedCommands = new LinkedHashMap<>();
+        for (String commandCode : commandCodes) {
+            if (reportedCommands.size() >= MAX_REPORTED_COMMANDS) {
+                break;
+            }
+            reportedCommands.put(commandCode, commandRepository.findByCommandCode(commandCode));
+        }
+        // 已结束指令的满足状态已移除，进度通过一条聚合查询统计
+        Map<Long, Map<String, Object>> commandStats = telemetryJudgeService.getCommandTelemetryStats(
+            reportedCommands.values().stream().filter(Objects::nonNull).map(Command::getId).toList());
+        reportedCommands.forEach((commandCode, command) -> {
+            if (command == null) {
+                System.out.println("  " + commandCode + ": 未找到指令");
+                return;
+            }
+            System.out.println(String.format("  %s: 状态=%s, 进度=%d%%", commandCode, command.getStatus(),
+                commandStats.get(command.getId()).get("progress")));
+        });
+        if (commandCodes.size() > MAX_REPORTED_COMMANDS) {
+            System.out.println("  ...");
+        }
+        System.out.println(commandManagementService.getCommandStats());
+        System.out.println("=================================");
+    }
+}
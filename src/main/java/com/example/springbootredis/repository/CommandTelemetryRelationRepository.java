@@ -1,11 +1,13 @@
 package com.example.springbootredis.repository;
 
+import com.example.springbootredis.dto.CommandTelemetryStatsDTO;
 import com.example.springbootredis.entity.CommandTelemetryRelation;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -23,6 +25,35 @@ public interface CommandTelemetryRelationRepository extends JpaRepository<Comman
            "ORDER BY ctr.weight DESC, ctr.id")
     List<CommandTelemetryRelation> findByCommandIdWithTelemetryParam(@Param("commandId") Long commandId);
     
+    /**
+     * 批量查询多个指令的关联关系（含遥测参数）
+     */
+    @Query("SELECT ctr FROM CommandTelemetryRelation ctr " +
+           "LEFT JOIN FETCH ctr.telemetryParam " +
+           "WHERE ctr.commandId IN :commandIds " +
+           "ORDER BY ctr.commandId, ctr.weight DESC, ctr.id")
+    List<CommandTelemetryRelation> findByCommandIdInWithTelemetryParam(@Param("commandIds") Collection<Long> commandIds);
+    
+    /**
+     * 聚合统计多个指令的参数满足情况（一条语句）
+     * 关联关系左连接参数最新值表，按指令分组统计关联数、必须参数数、满足/不满足数和权重；
+     * 参数已删除的关联只计入关联数，没有关联关系的指令不返回。
+     * 满足/不满足按参数最新值表中保存的判定结果统计：复杂公式在自身参数落库后因依赖参数变化重新判定的结果只在内存中，
+     * 不计入（满足状态重建时按最新值重新计算）
+     */
+    @Query("SELECT new com.example.springbootredis.dto.CommandTelemetryStatsDTO(ctr.commandId, COUNT(ctr), " +
+           "SUM(CASE WHEN tp.paramCode IS NOT NULL AND ctr.required = true THEN 1L ELSE 0L END), " +
+           "SUM(CASE WHEN tl.judgeResult = true THEN 1L ELSE 0L END), " +
+           "SUM(CASE WHEN tl.judgeResult = false THEN 1L ELSE 0L END), " +
+           "SUM(CASE WHEN tp.paramCode IS NOT NULL THEN ctr.weight ELSE 0 END), " +
+           "SUM(CASE WHEN tl.judgeResult = true THEN ctr.weight ELSE 0 END)) " +
+           "FROM CommandTelemetryRelation ctr " +
+           "LEFT JOIN ctr.telemetryParam tp " +
+           "LEFT JOIN TelemetryLatest tl ON tl.commandId = ctr.commandId AND tl.paramCode = tp.paramCode " +
+           "WHERE ctr.commandId IN :commandIds " +
+           "GROUP BY ctr.commandId")
+    List<CommandTelemetryStatsDTO> summarizeByCommandIds(@Param("commandIds") Collection<Long> commandIds);
+    
     /**
      * 根据指令ID查询关联的遥测参数（简单查询）
      */
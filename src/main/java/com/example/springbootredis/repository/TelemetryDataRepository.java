@@ -1,14 +1,21 @@
 package com.example.springbootredis.repository;
 
+import com.example.springbootredis.dto.TelemetryValueDTO;
 import com.example.springbootredis.entity.TelemetryData;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * 遥测数据Repository接口
@@ -34,6 +41,17 @@ public interface TelemetryDataRepository extends JpaRepository<TelemetryData, Lo
            "ORDER BY td.receiveTime DESC LIMIT 1")
     Optional<TelemetryData> findLatestByCommandIdAndParamCode(@Param("commandId") Long commandId, @Param("paramCode") String paramCode);
     
+    /**
+     * 把重复样本并入已保存的遥测数据（累加重复次数并更新最后重复时间）
+     * 附带该数据接收时间所在的范围，分区表只访问对应的分区
+     */
+    @Modifying
+    @Query("UPDATE TelemetryData td SET td.repeatCount = COALESCE(td.repeatCount, 0) + :count, " +
+           "td.lastRepeatTime = :lastRepeatTime WHERE td.id = :id " +
+           "AND td.receiveTime BETWEEN :receivedFrom AND :receivedTo")
+    int addRepeats(@Param("id") Long id, @Param("count") int count, @Param("lastRepeatTime") LocalDateTime lastRepeatTime,
+                   @Param("receivedFrom") LocalDateTime receivedFrom, @Param("receivedTo") LocalDateTime receivedTo);
+    
     /**
      * 查询满足条件的遥测数据
      */
@@ -57,6 +75,20 @@ public interface TelemetryDataRepository extends JpaRepository<TelemetryData, Lo
            "ORDER BY td.receiveTime DESC")
     List<TelemetryData> findByReceiveTimeBetween(@Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
     
+    /**
+     * 按接收顺序流式读取指令在时间范围内指定参数的取值（公式回测用）
+     * 只查询参数代码、实际值和接收时间，不加载实体；按接收时间范围查询，分区表只访问对应的分区。
+     * 需在事务中使用并关闭流；MySQL需在连接参数中开启 useCursorFetch 才按批从服务端读取
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.example.springbootredis.dto.TelemetryValueDTO(td.paramCode, td.actualValue, td.receiveTime) " +
+           "FROM TelemetryData td " +
+           "WHERE td.commandId = :commandId AND td.paramCode IN :paramCodes " +
+           "AND td.receiveTime >= :startTime AND td.receiveTime < :endTime " +
+           "ORDER BY td.receiveTime, td.id")
+    Stream<TelemetryValueDTO> streamValues(@Param("commandId") Long commandId, @Param("paramCodes") Collection<String> paramCodes,
+                                           @Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
+    
     /**
      * 统计指令的遥测数据数量
      */
@@ -73,9 +105,11 @@ public interface TelemetryDataRepository extends JpaRepository<TelemetryData, Lo
     long countByCommandIdAndJudgeResultFalse(Long commandId);
     
     /**
-     * 删除指定时间之前的遥测数据（用于数据清理）
+     * 删除指定时间之前的遥测数据（用于未分区时的数据清理，一条语句批量删除，不加载实体）
      */
-    void deleteByReceiveTimeBefore(LocalDateTime cutoffTime);
+    @Modifying
+    @Query("DELETE FROM TelemetryData td WHERE td.receiveTime < :cutoffTime")
+    int deleteByReceiveTimeBefore(@Param("cutoffTime") LocalDateTime cutoffTime);
     
     /**
      * 查询指令的所有参数代码
@@ -0,0 +1,37 @@
+package com.example.springbootredis.repository;
+
+import com.example.springbootredis.entity.TelemetryLatest;
+import com.example.springbootredis.entity.TelemetryLatestId;
+import com.example.springbootredis.entity.enums.CommandStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 参数最新值Repository接口
+ * 写入由 {@link com.example.springbootredis.service.TelemetryDataBatchWriter} 随遥测数据一起完成
+ */
+@Repository
+public interface TelemetryLatestRepository extends JpaRepository<TelemetryLatest, TelemetryLatestId> {
+    
+    /**
+     * 查询指令所有参数的最新值（主键范围扫描）
+     */
+    List<TelemetryLatest> findByCommandId(Long commandId);
+    
+    /**
+     * 删除非活动指令（状态不在给定范围内或指令已删除）在指定时间之前更新的最新值（随过期遥测数据一起清理）
+     * 活动指令的最新值即使长期未更新也保留：它是满足状态、最新值快照和死区锚点冷启动的依据
+     */
+    @Modifying
+    @Query("DELETE FROM TelemetryLatest tl WHERE tl.receiveTime < :cutoffTime AND NOT EXISTS "
+        + "(SELECT c.id FROM Command c WHERE c.id = tl.commandId AND c.status IN :activeStatuses)")
+    int deleteInactiveByReceiveTimeBefore(@Param("cutoffTime") LocalDateTime cutoffTime,
+                                          @Param("activeStatuses") Collection<CommandStatus> activeStatuses);
+}
@@ -0,0 +1,25 @@
+package com.example.springbootredis.repository;
+
+import com.example.springbootredis.entity.TelemetryRawMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * 遥测原始消息Repository接口
+ * 写入由 {@link com.example.springbootredis.service.TelemetryRawMessageStore} 随遥测数据批量完成
+ */
+@Repository
+public interface TelemetryRawMessageRepository extends JpaRepository<TelemetryRawMessage, Long> {
+    
+    /**
+     * 删除指定时间之前接收的原始消息（随过期遥测数据一起清理）
+     */
+    @Modifying
+    @Query("DELETE FROM TelemetryRawMessage trm WHERE trm.receiveTime < :cutoffTime")
+    int deleteByReceiveTimeBefore(@Param("cutoffTime") LocalDateTime cutoffTime);
+}
@@ -0,0 +1,705 @@
+package com.example.springbootredis.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按列计算的公式程序
+ * 把只由数值变量、数值字面量、四则运算和取模、比较（== != > >= < <=）、逻辑与或非和括号组成的公式
+ * 编译为运算符树，按块（每块 {@link #BLOCK_ROWS} 行）逐个运算符计算整列：数值结果为double数组，
+ * 比较和逻辑运算的结果为位图，不为每行构建上下文、不调用Aviator。
+ * 运算语义与Aviator一致：整数字面量之间按long计算，含变量或小数的运算按double计算，比较按Double.compare；
+ * 结果为数值时非0即满足（同 {@link FormulaEvaluationService} 的结果转换）。
+ * 公式含函数调用、字符串、三元运算、位运算、布尔值之间的比较或未提供列的变量时编译返回null，由调用方逐行计算
+ */
+public final class ColumnarFormula {
+    
+    /**
+     * 每块的行数（64的整数倍）
+     */
+    public static final int BLOCK_ROWS = 1024;
+    
+    private static final int BLOCK_WORDS = BLOCK_ROWS >>> 6;
+    
+    private final Node root;
+    private final int numberSlots;
+    private final int bitSlots;
+    private final List<NumberConstant> constants;
+    private final List<BooleanConstant> booleanConstants;
+    
+    private ColumnarFormula(Node root, int numberSlots, int bitSlots,
+                            List<NumberConstant> constants, List<BooleanConstant> booleanConstants) {
+        this.root = root;
+        this.numberSlots = numberSlots;
+        this.bitSlots = bitSlots;
+        this.constants = constants;
+        this.booleanConstants = booleanConstants;
+    }
+    
+    /**
+     * 编译公式
+     *
+     * @param expression 公式表达式
+     * @param variableIndex 变量名 -> 列下标
+     * @return 列式程序，公式超出支持的运算范围时返回null
+     */
+    public static ColumnarFormula compile(String expression, Map<String, Integer> variableIndex) {
+        try {
+            Parser parser = new Parser(expression, variableIndex);
+            Node root = parser.parse();
+            return new ColumnarFormula(root, parser.numberSlots, parser.bitSlots, parser.constants, parser.booleanConstants);
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * 计算 [from, to) 行，满足公式且各列都不缺失（非NaN）的行在结果字中置位
+     * from必须是64的整数倍，不同调用的行区间不重叠时可以并发调用
+     *
+     * @param columns 各变量的列（按编译时的下标）
+     * @param words 结果位图的字数组
+     * @param from 起始行（含）
+     * @param to 结束行（不含）
+     */
+    public void evaluate(double[][] columns, long[] words, int from, int to) {
+        Block block = new Block(columns);
+        for (int base = from; base < to; base += BLOCK_ROWS) {
+            int len = Math.min(BLOCK_ROWS, to - base);
+            long[] result = block.bits(root, base, len);
+            int wordCount = (len + 63) >>> 6;
+            for (int w = 0; w < wordCount; w++) {
+                long valid = validBits(columns, base + (w << 6), Math.min(64, len - (w << 6)));
+                words[(base >>> 6) + w] = result[w] & valid;
+            }
+        }
+    }
+    
+    /**
+     * 各列在该字对应的行上都不缺失的位
+     */
+    private static long validBits(double[][] columns, int start, int count) {
+        long valid = count == 64 ? -1L : (1L << count) - 1;
+        for (double[] column : columns) {
+            for (int j = 0; j < count; j++) {
+                if (Double.isNaN(column[start + j])) {
+                    valid &= ~(1L << j);
+                }
+            }
+        }
+        return valid;
+    }
+    
+    /**
+     * 单个计算线程的块缓冲区：每个中间结果一个数值数组或位图
+     */
+    private final class Block {
+        private final double[][] columns;
+        private final double[][] numbers;
+        private final long[][] bits;
+        
+        Block(double[][] columns) {
+            this.columns = columns;
+            this.numbers = new double[numberSlots][BLOCK_ROWS];
+            this.bits = new long[bitSlots][BLOCK_WORDS];
+            for (NumberConstant constant : constants) {
+                Arrays.fill(numbers[constant.slot], constant.doubleValue);
+            }
+            for (BooleanConstant constant : booleanConstants) {
+                Arrays.fill(bits[constant.slot], constant.value ? -1L : 0L);
+            }
+        }
+        
+        /**
+         * 计算数值结点，返回结果所在的数组（起始下标见 {@link #offset}）
+         */
+        double[] numbers(Node node, int base, int len) {
+            if (node instanceof Column column) {
+                return columns[column.index];
+            }
+            node.compute(this, base, len);
+            return numbers[node.slot];
+        }
+        
+        int offset(Node node, int base) {
+            return node instanceof Column ? base : 0;
+        }
+        
+        /**
+         * 计算布尔结点（数值结点按非0转换），返回本块的结果位图
+         */
+        long[] bits(Node node, int base, int len) {
+            if (node.bool) {
+                node.compute(this, base, len);
+                return bits[node.slot];
+            }
+            double[] values = numbers(node, base, len);
+            int offset = offset(node, base);
+            long[] out = new long[BLOCK_WORDS];
+            for (int i = 0; i < len; i++) {
+                if (values[offset + i] != 0) {
+                    out[i >>> 6] |= 1L << i;
+                }
+            }
+            return out;
+        }
+    }
+    
+    /**
+     * 运算符树结点
+     */
+    private abstract static class Node {
+        /**
+         * 结果是否为布尔值（否则为数值）
+         */
+        final boolean bool;
+        int slot = -1;
+        
+        Node(boolean bool) {
+            this.bool = bool;
+        }
+        
+        abstract void compute(Block block, int base, int len);
+    }
+    
+    private static final class Column extends Node {
+        final int index;
+        
+        Column(int index) {
+            super(false);
+            this.index = index;
+        }
+        
+        @Override
+        void compute(Block block, int base, int len) {
+        }
+    }
+    
+    /**
+     * 数值字面量（或全部由字面量组成、已在编译时算出的子表达式），整数保持long语义
+     */
+    private static final class NumberConstant extends Node {
+        final boolean integer;
+        final long longValue;
+        final double doubleValue;
+        
+        NumberConstant(long value) {
+            super(false);
+            this.integer = true;
+            this.longValue = value;
+            this.doubleValue = value;
+        }
+        
+        NumberConstant(double value) {
+            super(false);
+            this.integer = false;
+            this.longValue = 0;
+            this.doubleValue = value;
+        }
+        
+        @Override
+        void compute(Block block, int base, int len) {
+        }
+    }
+    
+    private static final class BooleanConstant extends Node {
+        final boolean value;
+        
+        BooleanConstant(boolean value) {
+            super(true);
+            this.value = value;
+        }
+        
+        @Override
+        void compute(Block block, int base, int len) {
+        }
+    }
+    
+    private static final class Arithmetic extends Node {
+        final char op;
+        final Node left;
+        final Node right;
+        
+        Arithmetic(char op, Node left, Node right) {
+            super(false);
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        void compute(Block block, int base, int len) {
+            double[] a = block.numbers(left, base, len);
+            int ao = block.offset(left, base);
+            double[] b = block.numbers(right, base, len);
+            int bo = block.offset(right, base);
+            double[] out = block.numbers[slot];
+            switch (op) {
+                case '+' -> {
+                    for (int i = 0; i < len; i++) {
+                        out[i] = a[ao + i] + b[bo + i];
+                    }
+                }
+                case '-' -> {
+                    for (int i = 0; i < len; i++) {
+                        out[i] = a[ao + i] - b[bo + i];
+                    }
+                }
+                case '*' -> {
+                    for (int i = 0; i < len; i++) {
+                        out[i] = a[ao + i] * b[bo + i];
+                    }
+                }
+                case '/' -> {
+                    for (int i = 0; i < len; i++) {
+                        out[i] = a[ao + i] / b[bo + i];
+                    }
+                }
+                default -> {
+                    for (int i = 0; i < len; i++) {
+                        out[i] = a[ao + i] % b[bo + i];
+                    }
+                }
+            }
+        }
+    }
+    
+    private static final class Negate extends Node {
+        final Node operand;
+        
+        Negate(Node operand) {
+            super(false);
+            this.operand = operand;
+        }
+        
+        @Override
+        void compute(Block block, int base, int len) {
+            double[] a = block.numbers(operand, base, len);
+            int ao = block.offset(operand, base);
+            double[] out = block.numbers[slot];
+            for (int i = 0; i < len; i++) {
+                out[i] = -a[ao + i];
+            }
+        }
+    }
+    
+    private static final class Comparison extends Node {
+        final String op;
+        final Node left;
+        final Node right;
+        
+        Comparison(String op, Node left, Node right) {
+            super(true);
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        void compute(Block block, int base, int len) {
+            double[] a = block.numbers(left, base, len);
+            int ao = block.offset(left, base);
+            double[] b = block.numbers(right, base, len);
+            int bo = block.offset(right, base);
+            long[] out = block.bits[slot];
+            int wordCount = (len + 63) >>> 6;
+            for (int w = 0; w < wordCount; w++) {
+                int start = w << 6;
+                int count = Math.min(64, len - start);
+                long word = 0;
+                for (int j = 0; j < count; j++) {
+                    if (test(Double.compare(a[ao + start + j], b[bo + start + j]))) {
+                        word |= 1L << j;
+                    }
+                }
+                out[w] = word;
+            }
+        }
+        
+        boolean test(int compared) {
+            return switch (op) {
+                case "==" -> compared == 0;
+                case "!=" -> compared != 0;
+                case ">" -> compared > 0;
+                case ">=" -> compared >= 0;
+                case "<" -> compared < 0;
+                default -> compared <= 0;
+            };
+        }
+    }
+    
+    private static final class Logical extends Node {
+        final boolean and;
+        final Node left;
+        final Node right;
+        
+        Logical(boolean and, Node left, Node right) {
+            super(true);
+            this.and = and;
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        void compute(Block block, int base, int len) {
+            long[] a = block.bits(left, base, len);
+            long[] b = block.bits(right, base, len);
+            long[] out = block.bits[slot];
+            for (int w = 0; w < BLOCK_WORDS; w++) {
+                out[w] = and ? a[w] & b[w] : a[w] | b[w];
+            }
+        }
+    }
+    
+    private static final class Not extends Node {
+        final Node operand;
+        
+        Not(Node operand) {
+            super(true);
+            this.operand = operand;
+        }
+        
+        @Override
+        void compute(Block block, int base, int len) {
+            long[] a = block.bits(operand, base, len);
+            long[] out = block.bits[slot];
+            for (int w = 0; w < BLOCK_WORDS; w++) {
+                out[w] = ~a[w];
+            }
+        }
+    }
+    
+    /**
+     * 递归下降解析器，优先级与Aviator一致：|| < && < == != < 比较 < + - < * / % < 一元 ! -
+     * 遇到不支持的写法抛出UnsupportedOperationException；全部由字面量组成的子表达式在编译时算出
+     */
+    private static final class Parser {
+        private final String text;
+        private final Map<String, Integer> variableIndex;
+        private int pos;
+        
+        int numberSlots;
+        int bitSlots;
+        final List<NumberConstant> constants = new ArrayList<>();
+        final List<BooleanConstant> booleanConstants = new ArrayList<>();
+        
+        Parser(String text, Map<String, Integer> variableIndex) {
+            this.text = text;
+            this.variableIndex = variableIndex;
+        }
+        
+        Node parse() {
+            Node root = or();
+            skipSpaces();
+            if (pos < text.length()) {
+                throw unsupported();
+            }
+            assignSlots(root);
+            return root;
+        }
+        
+        private Node or() {
+            Node left = and();
+            while (accept("||")) {
+                left = logical(false, left, and());
+            }
+            return left;
+        }
+        
+        private Node and() {
+            Node left = equality();
+            while (accept("&&")) {
+                left = logical(true, left, equality());
+            }
+            return left;
+        }
+        
+        private Node equality() {
+            Node left = relational();
+            while (true) {
+                if (accept("==")) {
+                    left = comparison("==", left, relational());
+                } else if (accept("!=")) {
+                    left = comparison("!=", left, relational());
+                } else {
+                    return left;
+                }
+            }
+        }
+        
+        private Node relational() {
+            Node left = additive();
+            while (true) {
+                String op = acceptAny(">=", "<=", ">", "<");
+                if (op == null) {
+                    return left;
+                }
+                left = comparison(op, left, additive());
+            }
+        }
+        
+        private Node additive() {
+            Node left = multiplicative();
+            while (true) {
+                String op = acceptAny("+", "-");
+                if (op == null) {
+                    return left;
+                }
+                left = arithmetic(op.charAt(0), left, multiplicative());
+            }
+        }
+        
+        private Node multiplicative() {
+            Node left = unary();
+            while (true) {
+                String op = acceptAny("*", "/", "%");
+                if (op == null) {
+                    return left;
+                }
+                left = arithmetic(op.charAt(0), left, unary());
+            }
+        }
+        
+        private Node unary() {
+            skipSpaces();
+            if (accept("!")) {
+                Node operand = unary();
+                requireBoolean(operand);
+                if (operand instanceof BooleanConstant constant) {
+                    return booleanConstant(!constant.value);
+                }
+                return new Not(operand);
+            }
+            if (accept("-")) {
+                Node operand = unary();
+                requireNumber(operand);
+                if (operand instanceof NumberConstant constant) {
+                    return constant.integer ? numberConstant(-constant.longValue) : numberConstant(-constant.doubleValue);
+                }
+                return new Negate(operand);
+            }
+            return primary();
+        }
+        
+        private Node primary() {
+            skipSpaces();
+            if (pos >= text.length()) {
+                throw unsupported();
+            }
+            char c = text.charAt(pos);
+            if (c == '(') {
+                pos++;
+                Node inner = or();
+                if (!accept(")")) {
+                    throw unsupported();
+                }
+                return inner;
+            }
+            if (Character.isDigit(c)) {
+                return number();
+            }
+            if (Character.isJavaIdentifierStart(c)) {
+                int start = pos;
+                while (pos < text.length() && Character.isJavaIdentifierPart(text.charAt(pos))) {
+                    pos++;
+                }
+                String name = text.substring(start, pos);
+                skipSpaces();
+                // 函数调用、属性访问和下标不在支持范围内
+                if (pos < text.length() && "(.[".indexOf(text.charAt(pos)) >= 0) {
+                    throw unsupported();
+                }
+                if ("true".equals(name) || "false".equals(name)) {
+                    return booleanConstant(Boolean.parseBoolean(name));
+                }
+                Integer index = variableIndex.get(name);
+                if (index == null) {
+                    throw unsupported();
+                }
+                return new Column(index);
+            }
+            throw unsupported();
+        }
+        
+        private Node number() {
+            int start = pos;
+            boolean decimal = false;
+            while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                pos++;
+            }
+            if (pos < text.length() && text.charAt(pos) == '.') {
+                decimal = true;
+                pos++;
+                while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                    pos++;
+                }
+            }
+            if (pos < text.length() && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E')) {
+                decimal = true;
+                pos++;
+                if (pos < text.length() && (text.charAt(pos) == '+' || text.charAt(pos) == '-')) {
+                    pos++;
+                }
+                while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                    pos++;
+                }
+            }
+            // 十六进制、BigDecimal(M)和BigInteger(N)后缀等不在支持范围内
+            if (pos < text.length() && Character.isJavaIdentifierPart(text.charAt(pos))) {
+                throw unsupported();
+            }
+            String literal = text.substring(start, pos);
+            try {
+                return decimal ? numberConstant(Double.parseDouble(literal)) : numberConstant(Long.parseLong(literal));
+            } catch (NumberFormatException e) {
+                throw unsupported();
+            }
+        }
+        
+        private Node arithmetic(char op, Node left, Node right) {
+            requireNumber(left);
+            requireNumber(right);
+            if (left instanceof NumberConstant a && right instanceof NumberConstant b) {
+                if (a.integer && b.integer) {
+                    if ((op == '/' || op == '%') && b.longValue == 0) {
+                        // Aviator对整数除以0抛出异常，交给逐行计算（视为不满足）
+                        throw unsupported();
+                    }
+                    return numberConstant(switch (op) {
+                        case '+' -> a.longValue + b.longValue;
+                        case '-' -> a.longValue - b.longValue;
+                        case '*' -> a.longValue * b.longValue;
+                        case '/' -> a.longValue / b.longValue;
+                        default -> a.longValue % b.longValue;
+                    });
+                }
+                return numberConstant(switch (op) {
+                    case '+' -> a.doubleValue + b.doubleValue;
+                    case '-' -> a.doubleValue - b.doubleValue;
+                    case '*' -> a.doubleValue * b.doubleValue;
+                    case '/' -> a.doubleValue / b.doubleValue;
+                    default -> a.doubleValue % b.doubleValue;
+                });
+            }
+            return new Arithmetic(op, left, right);
+        }
+        
+        private Node comparison(String op, Node left, Node right) {
+            // 布尔值之间的比较在Aviator中的语义与直觉不同，不在支持范围内
+            requireNumber(left);
+            requireNumber(right);
+            if (left instanceof NumberConstant a && right instanceof NumberConstant b) {
+                int compared = a.integer && b.integer
+                    ? Long.compare(a.longValue, b.longValue)
+                    : Double.compare(a.doubleValue, b.doubleValue);
+                return booleanConstant(new Comparison(op, a, b).test(compared));
+            }
+            return new Comparison(op, left, right);
+        }
+        
+        private Node logical(boolean and, Node left, Node right) {
+            requireBoolean(left);
+            requireBoolean(right);
+            if (left instanceof BooleanConstant a && right instanceof BooleanConstant b) {
+                return booleanConstant(and ? a.value && b.value : a.value || b.value);
+            }
+            return new Logical(and, left, right);
+        }
+        
+        private NumberConstant numberConstant(long value) {
+            return new NumberConstant(value);
+        }
+        
+        private NumberConstant numberConstant(double value) {
+            return new NumberConstant(value);
+        }
+        
+        private BooleanConstant booleanConstant(boolean value) {
+            return new BooleanConstant(value);
+        }
+        
+        /**
+         * 为中间结果和参与运算的常量分配缓冲区（列结点直接读取列数组）
+         */
+        private void assignSlots(Node node) {
+            if (node.slot >= 0 || node instanceof Column) {
+                return;
+            }
+            if (node instanceof Arithmetic arithmetic) {
+                assignSlots(arithmetic.left);
+                assignSlots(arithmetic.right);
+            } else if (node instanceof Negate negate) {
+                assignSlots(negate.operand);
+            } else if (node instanceof Comparison comparison) {
+                assignSlots(comparison.left);
+                assignSlots(comparison.right);
+            } else if (node instanceof Logical logical) {
+                assignSlots(logical.left);
+                assignSlots(logical.right);
+            } else if (node instanceof Not not) {
+                assignSlots(not.operand);
+            } else if (node instanceof NumberConstant constant) {
+                constants.add(constant);
+            } else if (node instanceof BooleanConstant constant) {
+                booleanConstants.add(constant);
+            }
+            node.slot = node.bool ? bitSlots++ : numberSlots++;
+        }
+        
+        private void requireNumber(Node node) {
+            if (node.bool) {
+                throw unsupported();
+            }
+        }
+        
+        private void requireBoolean(Node node) {
+            if (!node.bool) {
+                throw unsupported();
+            }
+        }
+        
+        private boolean accept(String token) {
+            skipSpaces();
+            if (!text.startsWith(token, pos)) {
+                return false;
+            }
+            int end = pos + token.length();
+            // 避免把 ** = =~ >> << & | 等不支持的运算符的一部分当作支持的运算符
+            if (end < text.length()) {
+                char next = text.charAt(end);
+                boolean clash = switch (token) {
+                    case "*" -> next == '*';
+                    case ">", "<" -> next == '>' || next == '<' || next == '=';
+                    case "!" -> next == '=';
+                    default -> false;
+                };
+                if (clash) {
+                    return false;
+                }
+            }
+            pos = end;
+            return true;
+        }
+        
+        private String acceptAny(String... tokens) {
+            for (String token : tokens) {
+                if (accept(token)) {
+                    return token;
+                }
+            }
+            return null;
+        }
+        
+        private void skipSpaces() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+        
+        private UnsupportedOperationException unsupported() {
+            return new UnsupportedOperationException("公式不支持列式计算: " + text);
+        }
+    }
+}
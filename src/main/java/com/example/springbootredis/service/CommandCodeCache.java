@@ -0,0 +1,219 @@
+package com.example.springbootredis.service;
+
+import com.example.springbootredis.entity.Command;
+import com.example.springbootredis.entity.enums.CommandStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 指令代码本地缓存
+ * 缓存已编制和执行中指令的快照，遥测数据入口按指令代码查找指令时不再访问数据库。
+ * 指令状态变更时在事务提交后更新本地缓存，并通过Redis发布订阅通知其他实例失效。
+ */
+@Component
+public class CommandCodeCache implements MessageListener {
+    
+    /**
+     * 缓存失效通知频道
+     */
+    public static final String INVALIDATION_CHANNEL = "command_cache:invalidate";
+    
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+    
+    @Value("${telemetry.command-cache.max-size:10000}")
+    private int maxSize;
+    
+    @Value("${telemetry.command-cache.invalidation-enabled:true}")
+    private boolean invalidationEnabled;
+    
+    /**
+     * 当前实例标识，用于忽略自己发布的失效通知
+     */
+    private final String instanceId = UUID.randomUUID().toString();
+    
+    /**
+     * 按访问顺序排列的有界缓存（LRU）
+     */
+    private final Map<String, Command> snapshots = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Command> eldest) {
+            if (size() > maxSize) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    
+    /**
+     * 是否为需要缓存的状态（已编制、执行中）
+     */
+    public static boolean isCacheable(CommandStatus status) {
+        return CommandStatus.PREPARED.equals(status) || CommandStatus.EXECUTING.equals(status);
+    }
+    
+    /**
+     * 按指令代码获取指令快照
+     * 返回的快照与数据库实体分离，调用方不应修改
+     *
+     * @param commandCode 指令代码
+     * @return 指令快照，未缓存时返回null
+     */
+    public Command get(String commandCode) {
+        Command snapshot;
+        synchronized (snapshots) {
+            snapshot = snapshots.get(commandCode);
+        }
+        if (snapshot != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return snapshot;
+    }
+    
+    /**
+     * 缓存从数据库加载的指令（只缓存已编制和执行中的指令）
+     */
+    public void put(Command command) {
+        if (command.getCommandCode() == null || !isCacheable(command.getStatus())) {
+            return;
+        }
+        Command snapshot = snapshotOf(command);
+        synchronized (snapshots) {
+            snapshots.put(snapshot.getCommandCode(), snapshot);
+        }
+    }
+    
+    /**
+     * 移除指定指令代码的缓存
+     */
+    public void evict(String commandCode) {
+        if (commandCode == null) {
+            return;
+        }
+        synchronized (snapshots) {
+            if (snapshots.remove(commandCode) != null) {
+                invalidations.increment();
+            }
+        }
+    }
+    
+    /**
+     * 指令状态或内容变更后刷新缓存
+     * 在事务中调用时推迟到提交之后执行，避免缓存到未提交的状态；同时通知其他实例失效
+     *
+     * @param command 变更后的指令
+     */
+    public void refresh(Command command) {
+        Command snapshot = snapshotOf(command);
+        Runnable action = () -> {
+            if (isCacheable(snapshot.getStatus())) {
+                put(snapshot);
+            } else {
+                evict(snapshot.getCommandCode());
+            }
+            publishInvalidation(snapshot.getCommandCode());
+        };
+        
+        AfterCommit.run(action);
+    }
+    
+    /**
+     * 通知其他实例失效指定指令代码
+     */
+    private void publishInvalidation(String commandCode) {
+        if (!invalidationEnabled || commandCode == null) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, instanceId + "|" + commandCode);
+        } catch (Exception e) {
+            System.err.println("发布指令缓存失效通知失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 接收其他实例的失效通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf('|');
+        if (separator < 0 || body.substring(0, separator).equals(instanceId)) {
+            return;
+        }
+        evict(body.substring(separator + 1));
+    }
+    
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        synchronized (snapshots) {
+            snapshots.clear();
+        }
+    }
+    
+    /**
+     * 获取缓存统计信息
+     *
+     * @return 命中数、未命中数、命中率、淘汰数、失效数和当前大小
+     */
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        int size;
+        synchronized (snapshots) {
+            size = snapshots.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("evictions", evictions.sum());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("size", size);
+        stats.put("maxSize", maxSize);
+        return stats;
+    }
+    
+    /**
+     * 复制指令的当前状态，与JPA实体分离
+     */
+    private Command snapshotOf(Command command) {
+        Command snapshot = new Command();
+        snapshot.setId(command.getId());
+        snapshot.setContent(command.getContent());
+        snapshot.setSatelliteId(command.getSatelliteId());
+        snapshot.setStatus(command.getStatus());
+        snapshot.setCreateTime(command.getCreateTime());
+        snapshot.setCommandCode(command.getCommandCode());
+        snapshot.setRemark(command.getRemark());
+        // 执行时间和超时时间的setter会重算过期时间，最后再覆盖为原值
+        if (command.getExecuteTime() != null) {
+            snapshot.setExecuteTime(command.getExecuteTime());
+        }
+        if (command.getTimeoutDuration() != null) {
+            snapshot.setTimeoutDuration(command.getTimeoutDuration());
+        }
+        snapshot.setExpireTime(command.getExpireTime());
+        return snapshot;
+    }
+}
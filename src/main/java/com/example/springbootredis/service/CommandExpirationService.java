@@ -2,8 +2,10 @@ package com.example.springbootredis.service;
 
 import com.example.springbootredis.entity.Command;
 import com.example.springbootredis.entity.enums.CommandStatus;
+import com.example.springbootredis.event.CommandStatusChangedEvent;
 import com.example.springbootredis.repository.CommandRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -23,6 +25,12 @@ public class CommandExpirationService {
     @Autowired
     private CommandRepository commandRepository;
     
+    @Autowired
+    private CommandCodeCache commandCodeCache;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     /**
      * 每分钟执行一次过期指令清理任务
      */
@@ -37,6 +45,9 @@ public class CommandExpirationService {
             for (Command command : expiredCommands) {
                 command.setStatus(CommandStatus.FAILED);
                 commandRepository.save(command);
+                commandCodeCache.refresh(command);
+                eventPublisher.publishEvent(new CommandStatusChangedEvent(command.getId(), command.getCommandCode(),
+                    CommandStatus.EXECUTING, CommandStatus.FAILED));
                 cleanedCount++;
             }
             
@@ -0,0 +1,116 @@
+package com.example.springbootredis.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 按指令并发执行的任务分发器
+ * 每个指令的处理并发执行，并发数受 telemetry.fan-out.max-concurrency 限制，
+ * 应小于数据库连接池大小，避免连接池成为隐性瓶颈；并发数为1时在调用线程上顺序执行。
+ * 开启虚拟线程（spring.threads.virtual.enabled=true）且运行时JDK为21及以上时，每个指令在独立的虚拟线程上执行，
+ * 否则使用固定大小的平台线程池
+ */
+@Component
+public class CommandFanOutExecutor {
+    
+    @Value("${telemetry.fan-out.max-concurrency:8}")
+    private int maxConcurrency;
+    
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+    
+    private Executor executor;
+    
+    private boolean virtual;
+    
+    @PostConstruct
+    public void init() {
+        if (maxConcurrency <= 1) {
+            return;
+        }
+        if (VirtualThreads.isActive(virtualThreadsEnabled, "指令任务分发")) {
+            SimpleAsyncTaskExecutor virtualExecutor = new SimpleAsyncTaskExecutor("command-fanout-");
+            virtualExecutor.setVirtualThreads(true);
+            // 达到并发上限时阻塞提交线程，而不是让虚拟线程堆积在连接池上等待超时
+            virtualExecutor.setConcurrencyLimit(maxConcurrency);
+            executor = virtualExecutor;
+            virtual = true;
+            System.out.println("指令任务分发已启用虚拟线程，最大并发数: " + maxConcurrency);
+            return;
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(maxConcurrency,
+            r -> new Thread(r, "command-fanout-" + threadIndex.incrementAndGet()));
+        System.out.println("指令任务分发线程池已启动，最大并发数: " + maxConcurrency);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof SimpleAsyncTaskExecutor virtualExecutor) {
+            virtualExecutor.close();
+        } else if (executor instanceof ExecutorService pool) {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * 对每个元素执行任务，全部完成后返回；单个任务异常只记录日志，不影响其他任务
+     *
+     * @param items 待处理的元素（通常为指令）
+     * @param task 处理任务
+     */
+    public <T> void forEach(List<T> items, Consumer<T> task) {
+        if (executor == null || items.size() <= 1) {
+            for (T item : items) {
+                runSafely(item, task);
+            }
+            return;
+        }
+        
+        List<CompletableFuture<Void>> futures = new ArrayList<>(items.size());
+        for (T item : items) {
+            futures.add(CompletableFuture.runAsync(() -> runSafely(item, task), executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+    }
+    
+    /**
+     * 是否并发执行
+     */
+    public boolean isConcurrent() {
+        return executor != null;
+    }
+    
+    /**
+     * 是否使用虚拟线程并发执行
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+    
+    private <T> void runSafely(T item, Consumer<T> task) {
+        try {
+            task.accept(item);
+        } catch (Exception e) {
+            System.err.println("指令任务执行失败: " + item + ", " + e.getMessage());
+        }
+    }
+}
@@ -2,14 +2,17 @@ package com.example.springbootredis.service;
 
 import com.example.springbootredis.entity.Command;
 import com.example.springbootredis.entity.enums.CommandStatus;
+import com.example.springbootredis.event.CommandStatusChangedEvent;
 import com.example.springbootredis.repository.CommandRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -24,6 +27,12 @@ public class CommandManagementService {
     @Autowired
     private RedisTemplate<String, String> redisTemplate;
     
+    @Autowired
+    private CommandCodeCache commandCodeCache;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     private static final String COMMAND_CACHE_PREFIX = "command:";
     private static final String EXECUTING_COMMANDS_KEY = "executing_commands";
     
@@ -67,6 +76,7 @@ public class CommandManagementService {
         
         // 更新Redis缓存
         updateCommandCache(command);
+        commandCodeCache.refresh(command);
         
         // 如果是执行中状态，添加到执行中指令集合
         if (CommandStatus.EXECUTING.equals(newStatus)) {
@@ -76,6 +86,9 @@ public class CommandManagementService {
             redisTemplate.opsForSet().remove(EXECUTING_COMMANDS_KEY, commandId.toString());
         }
         
+        eventPublisher.publishEvent(new CommandStatusChangedEvent(commandId, command.getCommandCode(),
+            oldStatus, newStatus));
+        
         System.out.println(String.format("指令状态更新: ID=%d, %s -> %s, 原因=%s", 
             commandId, oldStatus, newStatus, reason));
         
@@ -133,9 +146,26 @@ public class CommandManagementService {
     
     /**
      * 根据指令代码查找指令
+     * 已编制和执行中的指令优先从本地缓存读取，返回的缓存快照不应被修改
      */
     public Command findByCommandCode(String commandCode) {
-        return commandRepository.findByCommandCode(commandCode);
+        Command cached = commandCodeCache.get(commandCode);
+        if (cached != null) {
+            return cached;
+        }
+        
+        Command command = commandRepository.findByCommandCode(commandCode);
+        if (command != null) {
+            commandCodeCache.put(command);
+        }
+        return command;
+    }
+    
+    /**
+     * 获取指令代码本地缓存统计信息
+     */
+    public Map<String, Object> getCommandCodeCacheStats() {
+        return commandCodeCache.getStats();
     }
     
     /**
@@ -159,6 +189,7 @@ public class CommandManagementService {
     public Command saveCommand(Command command) {
         Command savedCommand = commandRepository.save(command);
         updateCommandCache(savedCommand);
+        commandCodeCache.refresh(savedCommand);
         return savedCommand;
     }
     
@@ -0,0 +1,189 @@
+package com.example.springbootredis.service;
+
+import com.example.springbootredis.entity.CommandTelemetryRelation;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单个指令的参数满足状态
+ * 每个关联关系占一位：judged位表示已有判定结果，satisfied位表示最新判定结果为满足；
+ * 同时维护满足权重之和与未满足的必须参数个数，判定结果到达时O(1)更新，
+ * 完成判断和进度计算直接读取，不再查询数据库
+ */
+public class CommandSatisfactionState {
+    
+    private final Long commandId;
+    
+    /**
+     * 关联关系总数（含未配置参数的关联，与统计接口的totalParams口径一致）
+     */
+    private final int totalRelations;
+    
+    private final int requiredCount;
+    private final int totalWeight;
+    private final int[] weights;
+    private final boolean[] required;
+    
+    /**
+     * 参数代码 -> 关联关系下标（同一参数可能对应多个关联关系）
+     */
+    private final Map<String, int[]> indexByParamCode;
+    
+    private final BitSet judged;
+    private final BitSet satisfied;
+    private int satisfiedWeight;
+    private int requiredUnsatisfied;
+    
+    public CommandSatisfactionState(Long commandId, List<CommandTelemetryRelation> relations) {
+        this.commandId = commandId;
+        this.totalRelations = relations.size();
+        
+        int size = 0;
+        for (CommandTelemetryRelation relation : relations) {
+            if (relation.getTelemetryParam() != null) {
+                size++;
+            }
+        }
+        this.weights = new int[size];
+        this.required = new boolean[size];
+        this.judged = new BitSet(size);
+        this.satisfied = new BitSet(size);
+        
+        Map<String, int[]> index = new HashMap<>();
+        int i = 0;
+        int weightSum = 0;
+        int requiredSum = 0;
+        for (CommandTelemetryRelation relation : relations) {
+            if (relation.getTelemetryParam() == null) {
+                continue;
+            }
+            weights[i] = relation.getWeight() != null ? relation.getWeight() : 0;
+            required[i] = Boolean.TRUE.equals(relation.getRequired());
+            weightSum += weights[i];
+            if (required[i]) {
+                requiredSum++;
+            }
+            
+            final int relationIndex = i;
+            index.merge(relation.getTelemetryParam().getParamCode(), new int[]{relationIndex}, (existing, added) -> {
+                int[] merged = new int[existing.length + 1];
+                System.arraycopy(existing, 0, merged, 0, existing.length);
+                merged[existing.length] = relationIndex;
+                return merged;
+            });
+            i++;
+        }
+        this.indexByParamCode = index;
+        this.totalWeight = weightSum;
+        this.requiredCount = requiredSum;
+        this.requiredUnsatisfied = requiredSum;
+    }
+    
+    /**
+     * 应用参数的最新判定结果
+     *
+     * @param paramCode 参数代码
+     * @param judgeResult 判定结果，null表示未判定
+     */
+    public synchronized void apply(String paramCode, Boolean judgeResult) {
+        int[] indexes = indexByParamCode.get(paramCode);
+        if (indexes == null) {
+            return;
+        }
+        boolean nowSatisfied = Boolean.TRUE.equals(judgeResult);
+        for (int index : indexes) {
+            boolean wasSatisfied = satisfied.get(index);
+            if (judgeResult != null) {
+                judged.set(index);
+            } else {
+                judged.clear(index);
+            }
+            if (wasSatisfied == nowSatisfied) {
+                continue;
+            }
+            if (nowSatisfied) {
+                satisfied.set(index);
+                satisfiedWeight += weights[index];
+                if (required[index]) {
+                    requiredUnsatisfied--;
+                }
+            } else {
+                satisfied.clear(index);
+                satisfiedWeight -= weights[index];
+                if (required[index]) {
+                    requiredUnsatisfied++;
+                }
+            }
+        }
+    }
+    
+    /**
+     * 参数对应的关联关系是否都已满足（不在状态中的参数返回false）
+     */
+    public synchronized boolean isSatisfied(String paramCode) {
+        int[] indexes = indexByParamCode.get(paramCode);
+        if (indexes == null) {
+            return false;
+        }
+        for (int index : indexes) {
+            if (!satisfied.get(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * 所有必须参数是否都已满足（没有必须参数时视为已完成）
+     */
+    public synchronized boolean isComplete() {
+        return requiredUnsatisfied == 0;
+    }
+    
+    /**
+     * 按权重计算的完成进度百分比
+     */
+    public synchronized int getProgress() {
+        return progress(satisfiedWeight, totalWeight);
+    }
+    
+    /**
+     * 按权重计算完成进度百分比（没有权重时视为已完成）
+     */
+    public static int progress(int satisfiedWeight, int totalWeight) {
+        if (totalWeight == 0) {
+            return 100;
+        }
+        return (int) Math.round((double) satisfiedWeight / totalWeight * 100);
+    }
+    
+    /**
+     * 获取统计信息，字段与TelemetryJudgeService.getCommandTelemetryStats一致
+     */
+    public synchronized Map<String, Object> toStats() {
+        int satisfiedParams = satisfied.cardinality();
+        int unsatisfiedParams = judged.cardinality() - satisfiedParams;
+        return Map.of(
+            "totalParams", totalRelations,
+            "requiredParams", requiredCount,
+            "satisfiedParams", satisfiedParams,
+            "unsatisfiedParams", unsatisfiedParams,
+            "progress", getProgress()
+        );
+    }
+    
+    public Long getCommandId() {
+        return commandId;
+    }
+    
+    public synchronized int getRequiredUnsatisfied() {
+        return requiredUnsatisfied;
+    }
+    
+    public synchronized int getSatisfiedWeight() {
+        return satisfiedWeight;
+    }
+}
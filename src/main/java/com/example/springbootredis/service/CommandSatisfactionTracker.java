@@ -0,0 +1,190 @@
+package com.example.springbootredis.service;
+
+import com.example.springbootredis.entity.Command;
+import com.example.springbootredis.entity.CommandTelemetryRelation;
+import com.example.springbootredis.entity.TelemetryData;
+import com.example.springbootredis.entity.TelemetryLatest;
+import com.example.springbootredis.entity.enums.CommandStatus;
+import com.example.springbootredis.event.CommandRelationsChangedEvent;
+import com.example.springbootredis.event.CommandStatusChangedEvent;
+import com.example.springbootredis.event.TelemetryStateInvalidatedEvent;
+import com.example.springbootredis.repository.CommandRepository;
+import com.example.springbootredis.repository.TelemetryLatestRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 指令参数满足状态跟踪器
+ * 为执行中的指令维护内存中的满足状态，判定结果提交后增量更新；
+ * 启动时为执行中指令重建状态，运行期间只在未命中时从数据库重建，指令进入终态后移除；
+ * 其他实例变更指令状态或本实例的Kafka分区被回收后（{@link TelemetryStateSync}）移除相应状态，下次读取时按数据库重建
+ */
+@Component
+public class CommandSatisfactionTracker {
+    
+    @Autowired
+    private CommandRepository commandRepository;
+    
+    @Autowired
+    private JudgePlanCache judgePlanCache;
+    
+    @Autowired
+    private TelemetryLatestRepository telemetryLatestRepository;
+    
+    @Autowired
+    private FormulaEvaluationService formulaEvaluationService;
+    
+    private final CommandStateMap<CommandSatisfactionState> states = new CommandStateMap<>();
+    
+    /**
+     * 获取指令的满足状态，未命中时从数据库重建
+     *
+     * @param commandId 指令ID
+     * @return 满足状态
+     */
+    public CommandSatisfactionState getState(Long commandId) {
+        return states.get(commandId, this::rebuild);
+    }
+    
+    /**
+     * 获取已加载的满足状态，未加载时返回null（不重建）
+     */
+    public CommandSatisfactionState getCachedState(Long commandId) {
+        return states.getIfPresent(commandId);
+    }
+    
+    /**
+     * 已加载满足状态的指令ID
+     */
+    public List<Long> getTrackedCommandIds() {
+        return new ArrayList<>(states.keys());
+    }
+    
+    /**
+     * 记录已保存的判定结果
+     * 在事务中调用时推迟到提交之后应用，回滚的结果不会进入内存状态
+     *
+     * @param commandId 指令ID
+     * @param judged 已判定并保存的遥测数据（按接收顺序）
+     */
+    public void recordResults(Long commandId, List<TelemetryData> judged) {
+        if (judged.isEmpty()) {
+            return;
+        }
+        Runnable action = () -> {
+            // 状态尚未加载时不处理，下次读取时从数据库重建即包含这些结果
+            CommandSatisfactionState state = states.getForUpdate(commandId);
+            if (state == null) {
+                return;
+            }
+            for (TelemetryData data : judged) {
+                state.apply(data.getParamCode(), data.getJudgeResult());
+            }
+        };
+        
+        AfterCommit.run(action);
+    }
+    
+    /**
+     * 移除指令的满足状态（关联关系变更或指令结束时调用）
+     */
+    public void evict(Long commandId) {
+        states.evict(commandId);
+    }
+    
+    /**
+     * 指令进入终态后移除其满足状态
+     */
+    @EventListener
+    public void onCommandStatusChanged(CommandStatusChangedEvent event) {
+        if (event.isTerminal()) {
+            evict(event.getCommandId());
+        }
+    }
+    
+    /**
+     * 关联关系变更后移除受影响指令的满足状态，下次读取时按新的判定计划重建
+     */
+    @EventListener
+    public void onRelationsChanged(CommandRelationsChangedEvent event) {
+        if (event.isAllCommands()) {
+            states.clear();
+        } else {
+            evict(event.getCommandId());
+        }
+    }
+    
+    /**
+     * 其他实例变更指令状态或本实例的分区被回收后移除满足状态
+     */
+    @EventListener
+    public void onStateInvalidated(TelemetryStateInvalidatedEvent event) {
+        if (event.isAllCommands()) {
+            states.clear();
+        } else {
+            event.getCommandIds().forEach(this::evict);
+        }
+    }
+    
+    /**
+     * 启动时为执行中的指令重建满足状态
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            List<Command> executingCommands = commandRepository.findByStatusOrderByCreateTimeDesc(CommandStatus.EXECUTING);
+            for (Command command : executingCommands) {
+                getState(command.getId());
+            }
+            System.out.println("已重建 " + executingCommands.size() + " 个执行中指令的参数满足状态");
+        } catch (Exception e) {
+            System.err.println("重建指令参数满足状态失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 当前跟踪的指令数量
+     */
+    public int size() {
+        return states.size();
+    }
+    
+    /**
+     * 从数据库重建满足状态：关联关系取自判定计划，从参数最新值表一次查询每个参数的最新判定结果
+     * 复杂公式的结果可能在自身参数落库后被依赖参数的变化更新过（只更新内存），因此按各参数最新值重新计算
+     */
+    private CommandSatisfactionState rebuild(Long commandId) {
+        List<CommandTelemetryRelation> relations = judgePlanCache.get(commandId).getRelations();
+        CommandSatisfactionState state = new CommandSatisfactionState(commandId, relations);
+        Map<String, Object> latestValues = new HashMap<>();
+        for (TelemetryLatest data : telemetryLatestRepository.findByCommandId(commandId)) {
+            state.apply(data.getParamCode(), data.getJudgeResult());
+            latestValues.put(data.getParamCode(), data.getActualValue());
+        }
+        
+        Set<String> ownParamCodes = new HashSet<>();
+        for (CommandTelemetryRelation relation : relations) {
+            if (relation.getTelemetryParam() == null || !ownParamCodes.add(FormulaDependencyGraph.ownParamCode(relation))
+                    || !FormulaDependencyGraph.isComplex(relation)
+                    || latestValues.get(FormulaDependencyGraph.ownParamCode(relation)) == null
+                    || TemporalFormulaFunctions.usesTemporalFunctions(relation.getFormulaExpression())) {
+                // 使用时间窗口函数的公式依赖内存中的近期历史，重建时保留已保存的判定结果
+                continue;
+            }
+            Map<String, Object> context = formulaEvaluationService.createComplexContext(latestValues);
+            context.put(FormulaEvaluationService.COMMAND_ID_VARIABLE, commandId);
+            boolean satisfied = formulaEvaluationService.evaluateComplexExpression(relation.getFormulaExpression(), context);
+            state.apply(FormulaDependencyGraph.ownParamCode(relation), satisfied);
+        }
+        return state;
+    }
+}
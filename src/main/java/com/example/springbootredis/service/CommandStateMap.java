@@ -0,0 +1,106 @@
+package com.example.springbootredis.service;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * 按指令缓存的内存状态
+ * 未命中时在映射之外从数据库加载（不持有ConcurrentHashMap的桶锁执行查询），加载完成后putIfAbsent；
+ * 加载期间该指令被移除或有增量更新因未加载而跳过时，本次加载结果可能已过期，只返回给调用方而不缓存
+ *
+ * @param <V> 状态类型
+ */
+public final class CommandStateMap<V> {
+    
+    private static final int STRIPES = 64;
+    
+    private final Map<Long, V> states = new ConcurrentHashMap<>();
+    
+    /**
+     * 按指令ID分段的版本号，移除或跳过增量更新时递增
+     */
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+    
+    /**
+     * 获取指令的状态，未命中时加载
+     *
+     * @param commandId 指令ID
+     * @param loader 从数据库加载状态
+     * @return 状态
+     */
+    public V get(Long commandId, Function<Long, V> loader) {
+        V state = states.get(commandId);
+        if (state != null) {
+            return state;
+        }
+        int stripe = stripe(commandId);
+        long generation = generations.get(stripe);
+        V loaded = loader.apply(commandId);
+        if (generations.get(stripe) != generation) {
+            return loaded;
+        }
+        V existing = states.putIfAbsent(commandId, loaded);
+        if (existing != null) {
+            return existing;
+        }
+        if (generations.get(stripe) != generation) {
+            states.remove(commandId, loaded);
+        }
+        return loaded;
+    }
+    
+    /**
+     * 获取已加载的状态用于增量更新，未加载时返回null，并使正在进行的加载结果不再缓存
+     * （加载可能在本次更新提交之前读取了数据库）
+     */
+    public V getForUpdate(Long commandId) {
+        V state = states.get(commandId);
+        if (state == null) {
+            generations.incrementAndGet(stripe(commandId));
+        }
+        return state;
+    }
+    
+    /**
+     * 获取已加载的状态，未加载时返回null（不加载）
+     */
+    public V getIfPresent(Long commandId) {
+        return states.get(commandId);
+    }
+    
+    /**
+     * 移除指令的状态
+     *
+     * @return 被移除的状态，未加载时返回null
+     */
+    public V evict(Long commandId) {
+        generations.incrementAndGet(stripe(commandId));
+        return states.remove(commandId);
+    }
+    
+    public void clear() {
+        for (int i = 0; i < STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+        states.clear();
+    }
+    
+    /**
+     * 已加载状态的指令ID（只读视图）
+     */
+    public Set<Long> keys() {
+        return Collections.unmodifiableSet(states.keySet());
+    }
+    
+    public int size() {
+        return states.size();
+    }
+    
+    private static int stripe(Long commandId) {
+        return Math.floorMod(commandId.hashCode(), STRIPES);
+    }
+}
@@ -7,7 +7,6 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -23,6 +22,12 @@ public class CommandStatusMonitorService {
     @Autowired
     private CommandStatusWebSocketService webSocketService;
     
+    @Autowired
+    private CommandFanOutExecutor fanOutExecutor;
+    
+    @Autowired
+    private TelemetryPartitionManager partitionManager;
+    
     /**
      * 每30秒同步一次未执行和已编制的指令
      */
@@ -38,20 +43,21 @@ public class CommandStatusMonitorService {
     
     /**
      * 每分钟检查执行中指令是否超时
+     * 各超时指令按 telemetry.fan-out.max-concurrency 并发处理（开启虚拟线程时运行在虚拟线程上）
      */
     @Scheduled(fixedRate = 60000) // 1分钟
     public void checkExecutingCommandsTimeout() {
         try {
             List<Command> expiredCommands = commandManagementService.getExpiredExecutingCommands();
             
-            for (Command command : expiredCommands) {
+            fanOutExecutor.forEach(expiredCommands, command -> {
                 boolean handled = commandManagementService.handleCommandTimeout(command.getId());
                 if (handled) {
                     webSocketService.pushCommandStatusChange(command.getId(), CommandStatus.EXECUTING, 
                         CommandStatus.FAILED, "指令执行超时");
                     webSocketService.pushCommandFailed(command, "指令执行超时");
                 }
-            }
+            });
             
             if (!expiredCommands.isEmpty()) {
                 System.out.println("超时检查完成，处理了 " + expiredCommands.size() + " 个超时指令");
@@ -76,15 +82,13 @@ public class CommandStatusMonitorService {
     }
     
     /**
-     * 每天凌晨2点清理过期的遥测数据
+     * 每天凌晨2点清理过期的遥测数据（分区表整分区删除，保留天数见 telemetry.partition.retention-days）
      */
     @Scheduled(cron = "0 0 2 * * ?")
     public void cleanupOldData() {
         try {
-            // 清理7天前的遥测数据
-            LocalDateTime cutoffTime = LocalDateTime.now().minusDays(7);
-            // 这里可以调用遥测数据Repository的清理方法
-            System.out.println("数据清理任务执行完成，清理了7天前的数据");
+            partitionManager.dropExpiredData();
+            System.out.println("数据清理任务执行完成");
         } catch (Exception e) {
             System.err.println("数据清理任务执行失败: " + e.getMessage());
         }
@@ -96,7 +100,7 @@ public class CommandStatusMonitorService {
     public void monitorExecutingCommands() {
         List<Command> executingCommands = commandManagementService.getExecutingCommands();
         
-        for (Command command : executingCommands) {
+        fanOutExecutor.forEach(executingCommands, command -> {
             // 检查是否超时
             if (command.isExpired()) {
                 commandManagementService.handleCommandTimeout(command.getId());
@@ -104,7 +108,7 @@ public class CommandStatusMonitorService {
                     CommandStatus.FAILED, "指令执行超时");
                 webSocketService.pushCommandFailed(command, "指令执行超时");
             }
-        }
+        });
     }
     
     /**
@@ -48,7 +48,9 @@ public class CommandStatusWebSocketService {
         // 推送到全局频道
         messagingTemplate.convertAndSend("/topic/telemetry", message);
         
-        System.out.println("推送遥测判定结果: " + JSON.toJSONString(message));
+        if (TelemetryTrace.isEnabled()) {
+            System.out.println("推送遥测判定结果: " + JSON.toJSONString(message));
+        }
     }
     
     /**
@@ -75,7 +77,9 @@ public class CommandStatusWebSocketService {
         // 推送到全局状态变更频道
         messagingTemplate.convertAndSend("/topic/status", message);
         
-        System.out.println("推送状态变更: " + JSON.toJSONString(message));
+        if (TelemetryTrace.isEnabled()) {
+            System.out.println("推送状态变更: " + JSON.toJSONString(message));
+        }
     }
     
     /**
@@ -104,7 +108,9 @@ public class CommandStatusWebSocketService {
         // 推送到全局进度频道
         messagingTemplate.convertAndSend("/topic/progress", message);
         
-        System.out.println("推送执行进度: " + JSON.toJSONString(message));
+        if (TelemetryTrace.isEnabled()) {
+            System.out.println("推送执行进度: " + JSON.toJSONString(message));
+        }
     }
     
     /**
@@ -127,7 +133,9 @@ public class CommandStatusWebSocketService {
         // 推送到全局完成频道
         messagingTemplate.convertAndSend("/topic/completed", message);
         
-        System.out.println("推送指令完成: " + JSON.toJSONString(message));
+        if (TelemetryTrace.isEnabled()) {
+            System.out.println("推送指令完成: " + JSON.toJSONString(message));
+        }
     }
     
     /**
@@ -152,7 +160,9 @@ public class CommandStatusWebSocketService {
         // 推送到全局失败频道
         messagingTemplate.convertAndSend("/topic/failed", message);
         
-        System.out.println("推送指令失败: " + JSON.toJSONString(message));
+        if (TelemetryTrace.isEnabled()) {
+            System.out.println("推送指令失败: " + JSON.toJSONString(message));
+        }
     }
     
     /**
@@ -0,0 +1,121 @@
+package com.example.springbootredis.service;
+
+import com.example.springbootredis.entity.CommandTelemetryRelation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 指令的参数依赖图
+ * 每个关联关系依赖其自身参数，复杂公式还依赖公式中引用的所有变量；
+ * 某个参数到达时，只需重新判定依赖它的关联关系。每个参数只取第一个关联关系作为判定结果的归属（与原有逻辑一致）
+ */
+public class FormulaDependencyGraph {
+    
+    /**
+     * 参数代码 -> 结果归属于该参数的关联关系
+     */
+    private final Map<String, CommandTelemetryRelation> owners = new HashMap<>();
+    
+    /**
+     * 参数代码 -> 依赖该参数的关联关系（按关联关系原有顺序）
+     */
+    private final Map<String, List<CommandTelemetryRelation>> dependents = new HashMap<>();
+    
+    private boolean hasComplex;
+    
+    private FormulaDependencyGraph() {
+    }
+    
+    /**
+     * 根据关联关系构建依赖图
+     *
+     * @param relations 已加载遥测参数的关联关系
+     * @param formulaEvaluationService 用于解析公式变量
+     * @return 依赖图
+     */
+    public static FormulaDependencyGraph build(List<CommandTelemetryRelation> relations,
+                                               FormulaEvaluationService formulaEvaluationService) {
+        FormulaDependencyGraph graph = new FormulaDependencyGraph();
+        for (CommandTelemetryRelation relation : relations) {
+            if (relation.getTelemetryParam() == null
+                    || graph.owners.putIfAbsent(ownParamCode(relation), relation) != null) {
+                continue;
+            }
+            graph.hasComplex |= isComplex(relation);
+            for (String paramCode : dependenciesOf(relation, formulaEvaluationService)) {
+                graph.dependents.computeIfAbsent(paramCode, k -> new ArrayList<>()).add(relation);
+            }
+        }
+        return graph;
+    }
+    
+    /**
+     * 关联关系依赖的参数：自身参数，以及复杂公式中引用的变量
+     *
+     * @param relation 已加载遥测参数的关联关系
+     * @param formulaEvaluationService 用于解析公式变量
+     * @return 参数代码集合（自身参数在前）
+     */
+    public static Set<String> dependenciesOf(CommandTelemetryRelation relation,
+                                             FormulaEvaluationService formulaEvaluationService) {
+        Set<String> paramCodes = new LinkedHashSet<>();
+        paramCodes.add(ownParamCode(relation));
+        if (isComplex(relation)) {
+            for (String variable : formulaEvaluationService.getExpressionVariables(relation.getFormulaExpression())) {
+                paramCodes.add(variable);
+            }
+        }
+        return paramCodes;
+    }
+    
+    /**
+     * 关联关系自身的参数代码（判定结果归属的参数）
+     */
+    public static String ownParamCode(CommandTelemetryRelation relation) {
+        return relation.getTelemetryParam().getParamCode();
+    }
+    
+    /**
+     * 是否为复杂公式关联关系
+     */
+    public static boolean isComplex(CommandTelemetryRelation relation) {
+        return "COMPLEX".equals(relation.getFormulaType()) && relation.getFormulaExpression() != null;
+    }
+    
+    /**
+     * 获取结果归属于该参数的关联关系
+     *
+     * @param paramCode 参数代码
+     * @return 关联关系，没有时返回null
+     */
+    public CommandTelemetryRelation getOwner(String paramCode) {
+        return owners.get(paramCode);
+    }
+    
+    /**
+     * 获取这些参数到达后需要重新判定的关联关系（去重，保持关联关系顺序）
+     *
+     * @param paramCodes 到达的参数代码
+     * @return 依赖其中任一参数的关联关系
+     */
+    public Set<CommandTelemetryRelation> affectedBy(Collection<String> paramCodes) {
+        Set<CommandTelemetryRelation> affected = new LinkedHashSet<>();
+        for (String paramCode : paramCodes) {
+            affected.addAll(dependents.getOrDefault(paramCode, List.of()));
+        }
+        return affected;
+    }
+    
+    /**
+     * 是否包含复杂公式（需要其他参数的最新值作为上下文）
+     */
+    public boolean hasComplex() {
+        return hasComplex;
+    }
+}
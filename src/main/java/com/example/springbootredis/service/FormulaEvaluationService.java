@@ -1,20 +1,56 @@
 package com.example.springbootredis.service;
 
-import com.googlecode.aviator.AviatorEvaluator;
 import com.googlecode.aviator.Expression;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * 公式计算服务
- * 使用阿里巴巴Aviator框架进行复杂公式计算
+ * 使用阿里巴巴Aviator框架进行复杂公式计算，编译结果统一经由公式编译缓存获取；
+ * 启动时注册时间窗口函数（avg、rate、heldFor，见 {@link TemporalFormulaFunctions}）
  */
 @Service
 public class FormulaEvaluationService {
     
+    /**
+     * 批量计算时单个任务处理的最少行数（64的整数倍，各任务写入互不重叠的结果字）
+     */
+    private static final int COLUMNAR_CHUNK_ROWS = 8192;
+    
+    /**
+     * 复杂公式上下文中的指令ID变量，时间窗口函数据此定位指令的参数历史
+     */
+    public static final String COMMAND_ID_VARIABLE = "__commandId";
+    
+    /**
+     * 复杂公式上下文中的判定时刻（毫秒），时间窗口函数以此为窗口终点；
+     * 判定遥测帧时为帧的样本时间（消息时间戳），定时重新判定时为换算到指令样本时间的当前时间，缺省按当前时间
+     */
+    public static final String EVALUATION_TIME_VARIABLE = "__evaluationTime";
+    
+    @Autowired
+    private FormulaExpressionCache expressionCache;
+    
+    @Autowired
+    private TelemetryHistoryBuffers historyBuffers;
+    
+    /**
+     * 注册时间窗口函数（注册到公式编译缓存的Aviator实例）
+     */
+    @PostConstruct
+    public void registerTemporalFunctions() {
+        TemporalFormulaFunctions.register(expressionCache.getEvaluator(), historyBuffers);
+    }
+    
     /**
      * 计算简单表达式（兼容原有逻辑）
      * 
@@ -61,28 +97,31 @@ public class FormulaEvaluationService {
      */
     private boolean evaluateExpression(String expression, Map<String, Object> context) {
         try {
-            // 编译表达式
-            Expression compiledExp = AviatorEvaluator.compile(expression);
+            // 获取编译结果（同一公式只编译一次）
+            Expression compiledExp = expressionCache.getOrCompile(expression);
             
             // 执行表达式
-            Object result = compiledExp.execute(context);
-            
-            // 转换为布尔值
-            if (result instanceof Boolean) {
-                return (Boolean) result;
-            } else if (result instanceof Number) {
-                return ((Number) result).doubleValue() != 0;
-            } else if (result instanceof String) {
-                return Boolean.parseBoolean((String) result);
-            }
-            
-            return false;
+            return toBoolean(compiledExp.execute(context));
         } catch (Exception e) {
             System.err.println("表达式计算异常: " + e.getMessage());
             return false;
         }
     }
     
+    /**
+     * 表达式结果转换为布尔值
+     */
+    private static boolean toBoolean(Object result) {
+        if (result instanceof Boolean) {
+            return (Boolean) result;
+        } else if (result instanceof Number) {
+            return ((Number) result).doubleValue() != 0;
+        } else if (result instanceof String) {
+            return Boolean.parseBoolean((String) result);
+        }
+        return false;
+    }
+    
     /**
      * 构建简单表达式
      */
@@ -205,7 +244,7 @@ public class FormulaEvaluationService {
      */
     public boolean validateExpression(String expression) {
         try {
-            AviatorEvaluator.compile(expression);
+            expressionCache.getOrCompile(expression);
             return true;
         } catch (Exception e) {
             System.err.println("公式表达式验证失败: " + e.getMessage());
@@ -221,7 +260,7 @@ public class FormulaEvaluationService {
      */
     public String[] getExpressionVariables(String expression) {
         try {
-            Expression compiledExp = AviatorEvaluator.compile(expression);
+            Expression compiledExp = expressionCache.getOrCompile(expression);
             return compiledExp.getVariableNames().toArray(new String[0]);
         } catch (Exception e) {
             System.err.println("获取表达式变量失败: " + e.getMessage());
@@ -238,7 +277,7 @@ public class FormulaEvaluationService {
      */
     public Double evaluateNumericExpression(String expression, Map<String, Object> context) {
         try {
-            Expression compiledExp = AviatorEvaluator.compile(expression);
+            Expression compiledExp = expressionCache.getOrCompile(expression);
             Object result = compiledExp.execute(context);
             
             if (result instanceof Number) {
@@ -260,13 +299,31 @@ public class FormulaEvaluationService {
      */
     public Expression preCompileExpression(String expression) {
         try {
-            return AviatorEvaluator.compile(expression);
+            return expressionCache.getOrCompile(expression);
         } catch (Exception e) {
             System.err.println("表达式预编译失败: " + e.getMessage());
             return null;
         }
     }
     
+    /**
+     * 移除公式的编译缓存（公式修改或删除后调用）
+     * 
+     * @param expression 公式表达式
+     */
+    public void invalidateExpression(String expression) {
+        expressionCache.invalidate(expression);
+    }
+    
+    /**
+     * 获取公式编译缓存统计信息
+     * 
+     * @return 命中、未命中、编译耗时、淘汰等统计
+     */
+    public Map<String, Object> getExpressionCacheStats() {
+        return expressionCache.getStats();
+    }
+    
     /**
      * 使用预编译的表达式计算结果
      * 
@@ -276,18 +333,126 @@ public class FormulaEvaluationService {
      */
     public boolean evaluatePreCompiledExpression(Expression compiledExp, Map<String, Object> context) {
         try {
-            Object result = compiledExp.execute(context);
-            
-            if (result instanceof Boolean) {
-                return (Boolean) result;
-            } else if (result instanceof Number) {
-                return ((Number) result).doubleValue() != 0;
-            }
-            
-            return false;
+            return toBoolean(compiledExp.execute(context));
         } catch (Exception e) {
             System.err.println("预编译表达式计算失败: " + e.getMessage());
             return false;
         }
     }
+    
+    /**
+     * 按列批量计算公式（用于用历史遥测数据回测公式）
+     * 公式只由数值变量、数值字面量、四则运算、比较和逻辑运算组成时编译为列式程序（见 {@link ColumnarFormula}），
+     * 按块对整列做向量化计算，不构建逐行上下文；其他公式（函数调用、时间窗口函数、字符串等）退回逐行用Aviator计算。
+     * 两种方式都按行区间拆分，在ForkJoin公共池上并行计算，结果打包为位图。
+     * 数值以double参与计算（与逐条判定的BigDecimal上下文不同，超出double精度的比较可能有差异），
+     * NaN表示该行缺失该变量，缺失任一变量的行视为不满足；逐行计算时单行计算异常视为不满足
+     * 
+     * @param expression 公式表达式
+     * @param columns 变量名 -> 该变量各行的值（长度不小于行数）
+     * @param rowCount 行数
+     * @return 满足公式的行（第i位为1表示第i行满足）
+     */
+    public BitSet evaluateColumnar(String expression, Map<String, double[]> columns, int rowCount) {
+        for (Map.Entry<String, double[]> column : columns.entrySet()) {
+            if (column.getValue().length < rowCount) {
+                throw new IllegalArgumentException("变量 " + column.getKey() + " 的行数不足: "
+                    + column.getValue().length + " < " + rowCount);
+            }
+        }
+        String[] names = columns.keySet().toArray(new String[0]);
+        double[][] values = new double[names.length][];
+        Map<String, Integer> variableIndex = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            values[i] = columns.get(names[i]);
+            variableIndex.put(names[i], i);
+        }
+        
+        long[] words = new long[(rowCount + 63) >>> 6];
+        ColumnarFormula program = ColumnarFormula.compile(expression, variableIndex);
+        RangeEvaluator evaluator;
+        if (program != null) {
+            evaluator = (from, to) -> program.evaluate(values, words, from, to);
+        } else {
+            Expression compiledExp = expressionCache.getOrCompile(expression);
+            evaluator = (from, to) -> evaluateRows(compiledExp, names, values, words, from, to);
+        }
+        ForkJoinPool.commonPool().invoke(new RangeEvaluationTask(evaluator, 0, rowCount));
+        return BitSet.valueOf(words);
+    }
+    
+    /**
+     * 公式能否按列计算（否则回测时逐行计算）
+     * 
+     * @param expression 公式表达式
+     * @param variables 提供列的变量名
+     * @return 是否能编译为列式程序
+     */
+    public boolean isColumnar(String expression, Collection<String> variables) {
+        Map<String, Integer> variableIndex = new HashMap<>();
+        for (String variable : variables) {
+            variableIndex.put(variable, variableIndex.size());
+        }
+        return ColumnarFormula.compile(expression, variableIndex) != null;
+    }
+    
+    /**
+     * 逐行计算 [from, to) 行：同一区间内复用上下文，每行只替换变量值，结果按 {@link #toBoolean} 转换
+     */
+    private static void evaluateRows(Expression compiledExp, String[] names, double[][] values, long[] words,
+                                     int from, int to) {
+        Map<String, Object> context = new HashMap<>(names.length * 2);
+        rows:
+        for (int row = from; row < to; row++) {
+            for (int i = 0; i < names.length; i++) {
+                double value = values[i][row];
+                if (Double.isNaN(value)) {
+                    continue rows;
+                }
+                context.put(names[i], value);
+            }
+            boolean satisfied;
+            try {
+                satisfied = toBoolean(compiledExp.execute(context));
+            } catch (Exception e) {
+                satisfied = false;
+            }
+            if (satisfied) {
+                words[row >>> 6] |= 1L << row;
+            }
+        }
+    }
+    
+    /**
+     * 计算一个行区间并写入结果字（区间起点为64的整数倍，不同区间写入的结果字互不重叠）
+     */
+    private interface RangeEvaluator {
+        void evaluate(int from, int to);
+    }
+    
+    /**
+     * 按行区间并行计算的任务：行数超过阈值时对半拆分（拆分点对齐到64行）
+     */
+    private static class RangeEvaluationTask extends RecursiveAction {
+        private final RangeEvaluator evaluator;
+        private final int from;
+        private final int to;
+        
+        RangeEvaluationTask(RangeEvaluator evaluator, int from, int to) {
+            this.evaluator = evaluator;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from > COLUMNAR_CHUNK_ROWS) {
+                int middle = (from + (to - from) / 2) & ~63;
+                invokeAll(new RangeEvaluationTask(evaluator, from, middle),
+                    new RangeEvaluationTask(evaluator, middle, to));
+                return;
+            }
+            evaluator.evaluate(from, to);
+        }
+    }
 }
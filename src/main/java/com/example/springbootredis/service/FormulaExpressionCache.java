@@ -0,0 +1,151 @@
+package com.example.springbootredis.service;
+
+import com.googlecode.aviator.AviatorEvaluator;
+import com.googlecode.aviator.AviatorEvaluatorInstance;
+import com.googlecode.aviator.Expression;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 公式编译结果缓存
+ * 按公式文本缓存Aviator编译后的表达式，同一公式只解析和生成一次字节码，避免每次判定重复编译带来的类加载和元空间压力。
+ * 缓存有界（LRU），编译在锁外进行，并发未命中同一公式时以先写入的结果为准。
+ * 公式使用本服务独立的Aviator实例编译，自定义函数（时间窗口函数）只注册到该实例，不影响全局实例
+ */
+@Component
+public class FormulaExpressionCache {
+    
+    private final int maxSize;
+    
+    /**
+     * 判定公式使用的Aviator实例
+     */
+    private final AviatorEvaluatorInstance evaluator = AviatorEvaluator.newInstance();
+    
+    /**
+     * 按访问顺序排列的有界缓存（LRU）
+     */
+    private final Map<String, Expression> expressions;
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder compileFailures = new LongAdder();
+    private final LongAdder compileNanos = new LongAdder();
+    private final LongAccumulator maxCompileNanos = new LongAccumulator(Math::max, 0);
+    
+    public FormulaExpressionCache(@Value("${telemetry.formula-cache.max-size:1024}") int maxSize) {
+        this.maxSize = maxSize;
+        this.expressions = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Expression> eldest) {
+                if (size() > FormulaExpressionCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    /**
+     * 获取公式的编译结果，未缓存时编译并缓存
+     * 编译失败不缓存，异常抛给调用方
+     *
+     * @param expression 公式文本
+     * @return 编译后的表达式
+     */
+    public Expression getOrCompile(String expression) {
+        Expression compiled;
+        synchronized (expressions) {
+            compiled = expressions.get(expression);
+        }
+        if (compiled != null) {
+            hits.increment();
+            return compiled;
+        }
+        misses.increment();
+        
+        long startNanos = System.nanoTime();
+        try {
+            compiled = evaluator.compile(expression);
+        } catch (RuntimeException e) {
+            compileFailures.increment();
+            throw e;
+        } finally {
+            long elapsedNanos = System.nanoTime() - startNanos;
+            compileNanos.add(elapsedNanos);
+            maxCompileNanos.accumulate(elapsedNanos);
+        }
+        
+        synchronized (expressions) {
+            Expression existing = expressions.putIfAbsent(expression, compiled);
+            return existing != null ? existing : compiled;
+        }
+    }
+    
+    /**
+     * 获取判定公式使用的Aviator实例（用于注册自定义函数）
+     */
+    public AviatorEvaluatorInstance getEvaluator() {
+        return evaluator;
+    }
+    
+    /**
+     * 移除指定公式的编译结果（公式修改或删除后调用）
+     *
+     * @param expression 公式文本
+     */
+    public void invalidate(String expression) {
+        if (expression == null) {
+            return;
+        }
+        synchronized (expressions) {
+            if (expressions.remove(expression) != null) {
+                invalidations.increment();
+            }
+        }
+    }
+    
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        synchronized (expressions) {
+            invalidations.add(expressions.size());
+            expressions.clear();
+        }
+    }
+    
+    /**
+     * 获取缓存统计信息
+     */
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        int size;
+        synchronized (expressions) {
+            size = expressions.size();
+        }
+        
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", total == 0 ? 0.0 : (double) hitCount / total);
+        stats.put("compileFailures", compileFailures.sum());
+        stats.put("avgCompileMicros", missCount == 0 ? 0.0 : compileNanos.sum() / 1000.0 / missCount);
+        stats.put("maxCompileMicros", maxCompileNanos.get() / 1000.0);
+        stats.put("evictions", evictions.sum());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("size", size);
+        stats.put("maxSize", maxSize);
+        return stats;
+    }
+}
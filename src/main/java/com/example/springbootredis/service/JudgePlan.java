@@ -0,0 +1,167 @@
+package com.example.springbootredis.service;
+
+import com.example.springbootredis.entity.CommandTelemetryRelation;
+import com.example.springbootredis.entity.TelemetryParam;
+import com.googlecode.aviator.Expression;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 指令判定计划
+ * 一次查询关联关系（含遥测参数）后构建，汇总判定所需的全部信息：关联关系列表、必须参数、参数依赖图、
+ * 简单比较判定器（期望值已解析）和复杂公式的编译结果。构建后不再修改，可在多个线程间共享；
+ * 关联关系变更后由 {@link JudgePlanCache} 整体替换
+ */
+public final class JudgePlan {
+    
+    private final Long commandId;
+    private final List<CommandTelemetryRelation> relations;
+    private final List<CommandTelemetryRelation> requiredRelations;
+    
+    /**
+     * 必须满足的参数各自的判定关联关系（依赖图中的归属关联关系，同一参数只有一个）
+     */
+    private final List<CommandTelemetryRelation> requiredOwners;
+    private final FormulaDependencyGraph graph;
+    
+    /**
+     * 使用时间窗口函数的复杂公式关联关系（结果随时间变化，需定时重新判定）
+     */
+    private final List<CommandTelemetryRelation> temporalRelations;
+    
+    /**
+     * 关联关系ID -> 简单比较判定器
+     */
+    private final Map<Long, SimpleJudge> simpleJudges;
+    
+    /**
+     * 关联关系ID -> 复杂公式编译结果
+     */
+    private final Map<Long, Expression> expressions;
+    
+    private JudgePlan(Long commandId, List<CommandTelemetryRelation> relations,
+                      List<CommandTelemetryRelation> requiredRelations, FormulaDependencyGraph graph,
+                      List<CommandTelemetryRelation> temporalRelations, Map<Long, SimpleJudge> simpleJudges,
+                      Map<Long, Expression> expressions) {
+        this.commandId = commandId;
+        this.relations = relations;
+        this.requiredRelations = requiredRelations;
+        this.requiredOwners = requiredOwners(requiredRelations, graph);
+        this.graph = graph;
+        this.temporalRelations = temporalRelations;
+        this.simpleJudges = simpleJudges;
+        this.expressions = expressions;
+    }
+    
+    /**
+     * 构建判定计划
+     *
+     * @param commandId 指令ID
+     * @param relations 已加载遥测参数的关联关系（按权重降序）
+     * @param formulaEvaluationService 用于编译公式和解析公式变量
+     * @return 判定计划
+     */
+    public static JudgePlan build(Long commandId, List<CommandTelemetryRelation> relations,
+                                  FormulaEvaluationService formulaEvaluationService) {
+        List<CommandTelemetryRelation> required = new ArrayList<>();
+        List<CommandTelemetryRelation> temporal = new ArrayList<>();
+        Map<Long, SimpleJudge> simpleJudges = new HashMap<>();
+        Map<Long, Expression> expressions = new HashMap<>();
+        for (CommandTelemetryRelation relation : relations) {
+            if (Boolean.TRUE.equals(relation.getRequired())) {
+                required.add(relation);
+            }
+            TelemetryParam param = relation.getTelemetryParam();
+            if (param == null || relation.getId() == null) {
+                continue;
+            }
+            if (FormulaDependencyGraph.isComplex(relation)) {
+                if (TemporalFormulaFunctions.usesTemporalFunctions(relation.getFormulaExpression())) {
+                    temporal.add(relation);
+                }
+                Expression expression = formulaEvaluationService.preCompileExpression(relation.getFormulaExpression());
+                if (expression != null) {
+                    expressions.put(relation.getId(), expression);
+                }
+            } else {
+                simpleJudges.put(relation.getId(),
+                    SimpleJudge.of(relation.getJudgeOperator(), relation.getExpectedValue(), param.getParamType()));
+            }
+        }
+        return new JudgePlan(commandId, Collections.unmodifiableList(new ArrayList<>(relations)),
+            Collections.unmodifiableList(required), FormulaDependencyGraph.build(relations, formulaEvaluationService),
+            Collections.unmodifiableList(temporal), simpleJudges, expressions);
+    }
+    
+    public Long getCommandId() {
+        return commandId;
+    }
+    
+    /**
+     * 全部关联关系（按权重降序，只读）
+     */
+    public List<CommandTelemetryRelation> getRelations() {
+        return relations;
+    }
+    
+    /**
+     * 必须满足的关联关系（按权重降序，只读）
+     */
+    public List<CommandTelemetryRelation> getRequiredRelations() {
+        return requiredRelations;
+    }
+    
+    /**
+     * 必须满足的参数各自的判定关联关系（按权重降序，只读）
+     * 同一参数有多个关联关系时只有依赖图中的归属关联关系被判定，其结果应用于该参数的全部关联关系，完成校验只需判定这些
+     */
+    public List<CommandTelemetryRelation> getRequiredOwners() {
+        return requiredOwners;
+    }
+    
+    public FormulaDependencyGraph getGraph() {
+        return graph;
+    }
+    
+    /**
+     * 使用时间窗口函数的复杂公式关联关系（只读）
+     */
+    public List<CommandTelemetryRelation> getTemporalRelations() {
+        return temporalRelations;
+    }
+    
+    /**
+     * 获取关联关系的简单比较判定器
+     *
+     * @return 判定器，复杂公式或不在计划中的关联关系返回null
+     */
+    public SimpleJudge getSimpleJudge(CommandTelemetryRelation relation) {
+        return relation.getId() == null ? null : simpleJudges.get(relation.getId());
+    }
+    
+    /**
+     * 获取关联关系的公式编译结果
+     *
+     * @return 编译结果，简单比较、编译失败或不在计划中的关联关系返回null
+     */
+    public Expression getExpression(CommandTelemetryRelation relation) {
+        return relation.getId() == null ? null : expressions.get(relation.getId());
+    }
+    
+    private static List<CommandTelemetryRelation> requiredOwners(List<CommandTelemetryRelation> requiredRelations,
+                                                                 FormulaDependencyGraph graph) {
+        Set<CommandTelemetryRelation> owners = new LinkedHashSet<>();
+        for (CommandTelemetryRelation relation : requiredRelations) {
+            if (relation.getTelemetryParam() != null) {
+                owners.add(graph.getOwner(FormulaDependencyGraph.ownParamCode(relation)));
+            }
+        }
+        return Collections.unmodifiableList(new ArrayList<>(owners));
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.springbootredis.service;
+
+import com.example.springbootredis.event.CommandRelationsChangedEvent;
+import com.example.springbootredis.event.CommandStatusChangedEvent;
+import com.example.springbootredis.repository.CommandTelemetryRelationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 指令判定计划缓存
+ * 每个指令的判定计划只查询一次关联关系并构建（在缓存映射之外查询，见 {@link CommandStateMap}），指令进入终态后移除；
+ * 关联关系或遥测参数变更提交后失效，并通过Redis发布订阅通知其他实例（其他服务直接修改关联关系表后
+ * 也可以向该频道发布 "来源|指令ID" 或 "来源|*" 触发失效）。公式编译结果按公式文本由公式编译缓存共享，
+ * 失效时不移除（其他指令的计划可能使用同一公式），由其LRU淘汰
+ */
+@Component
+public class JudgePlanCache implements MessageListener {
+    
+    /**
+     * 判定计划失效通知频道
+     */
+    public static final String INVALIDATION_CHANNEL = "judge_plan:invalidate";
+    
+    private static final String ALL_COMMANDS = "*";
+    
+    @Autowired
+    private CommandTelemetryRelationRepository relationRepository;
+    
+    @Autowired
+    private FormulaEvaluationService formulaEvaluationService;
+    
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Value("${telemetry.command-cache.invalidation-enabled:true}")
+    private boolean invalidationEnabled;
+    
+    /**
+     * 当前实例标识，用于忽略自己发布的失效通知
+     */
+    private final String instanceId = UUID.randomUUID().toString();
+    
+    private final CommandStateMap<JudgePlan> plans = new CommandStateMap<>();
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder builds = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    
+    /**
+     * 获取指令的判定计划，未命中时查询关联关系构建并缓存（用于执行中指令的判定）
+     *
+     * @param commandId 指令ID
+     * @return 判定计划
+     */
+    public JudgePlan get(Long commandId) {
+        JudgePlan plan = plans.getIfPresent(commandId);
+        if (plan != null) {
+            hits.increment();
+            return plan;
+        }
+        return plans.get(commandId, this::build);
+    }
+    
+    /**
+     * 获取已缓存的判定计划，未缓存时返回null（不构建）
+     */
+    public JudgePlan getIfPresent(Long commandId) {
+        return plans.getIfPresent(commandId);
+    }
+    
+    /**
+     * 查询指令的判定计划，未缓存时构建但不缓存（用于查询接口，已结束或未开始执行的指令不占用缓存）
+     *
+     * @param commandId 指令ID
+     * @return 判定计划
+     */
+    public JudgePlan lookup(Long commandId) {
+        JudgePlan plan = plans.getIfPresent(commandId);
+        return plan != null ? plan : build(commandId);
+    }
+    
+    /**
+     * 移除指令的判定计划
+     */
+    public void evict(Long commandId) {
+        if (plans.evict(commandId) != null) {
+            invalidations.increment();
+        }
+    }
+    
+    /**
+     * 指令进入终态后移除其判定计划
+     */
+    @EventListener
+    public void onCommandStatusChanged(CommandStatusChangedEvent event) {
+        if (event.isTerminal()) {
+            evict(event.getCommandId());
+        }
+    }
+    
+    /**
+     * 关联关系变更后失效判定计划（先于其他监听者执行，使它们重建时读取到新的计划），
+     * 本实例的变更同时通知其他实例
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onRelationsChanged(CommandRelationsChangedEvent event) {
+        if (event.isAllCommands()) {
+            invalidations.add(plans.size());
+            plans.clear();
+        } else {
+            evict(event.getCommandId());
+        }
+        if (event.isLocal()) {
+            publishInvalidation(event.isAllCommands() ? ALL_COMMANDS : event.getCommandId().toString());
+        }
+    }
+    
+    private JudgePlan build(Long commandId) {
+        builds.increment();
+        return JudgePlan.build(commandId, relationRepository.findByCommandIdWithTelemetryParam(commandId), formulaEvaluationService);
+    }
+    
+    /**
+     * 通知其他实例失效
+     */
+    private void publishInvalidation(String target) {
+        if (!invalidationEnabled) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, instanceId + "|" + target);
+        } catch (Exception e) {
+            System.err.println("发布判定计划失效通知失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 接收其他实例（或其他服务）的失效通知，作为非本地变更事件发布给本实例的各监听者
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf('|');
+        if (separator < 0 || body.substring(0, separator).equals(instanceId)) {
+            return;
+        }
+        String target = body.substring(separator + 1).trim();
+        try {
+            Long commandId = ALL_COMMANDS.equals(target) ? null : Long.valueOf(target);
+            eventPublisher.publishEvent(new CommandRelationsChangedEvent(commandId, false));
+        } catch (NumberFormatException e) {
+            System.err.println("无效的判定计划失效通知: " + body);
+        }
+    }
+    
+    /**
+     * 获取缓存统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("plans", plans.size());
+        stats.put("hits", hits.sum());
+        stats.put("builds", builds.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.springbootredis.service;
+
+import com.example.springbootredis.entity.CommandTelemetryRelation;
+import com.example.springbootredis.event.CommandRelationsChangedEvent;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * 关联关系和遥测参数的实体监听器
+ * 由Hibernate通过Spring容器创建（注入事件发布器），实体变更提交后发布 {@link CommandRelationsChangedEvent}：
+ * 关联关系变更只影响所属指令，遥测参数变更影响所有指令
+ */
+public class JudgePlanEntityListener {
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChanged(Object entity) {
+        if (eventPublisher == null) {
+            return;
+        }
+        Long commandId = entity instanceof CommandTelemetryRelation
+            ? ((CommandTelemetryRelation) entity).getCommandId()
+            : null;
+        Runnable action = () -> eventPublisher.publishEvent(new CommandRelationsChangedEvent(commandId, true));
+        
+        AfterCommit.run(action);
+    }
+}
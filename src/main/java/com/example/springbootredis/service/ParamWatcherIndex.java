@@ -0,0 +1,237 @@
+package com.example.springbootredis.service;
+
+import com.example.springbootredis.entity.Command;
+import com.example.springbootredis.entity.CommandTelemetryRelation;
+import com.example.springbootredis.entity.enums.CommandStatus;
+import com.example.springbootredis.event.CommandRelationsChangedEvent;
+import com.example.springbootredis.event.CommandStatusChangedEvent;
+import com.example.springbootredis.repository.CommandRepository;
+import com.example.springbootredis.repository.CommandTelemetryRelationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 参数代码到关注指令的倒排索引
+ * 维护 参数代码 -> 依赖该参数的执行中指令关联关系 的映射（自身参数及复杂公式引用的参数），
+ * 一个不带指令代码的遥测样本可以直接分发给所有关注该参数的指令判定。
+ * 启动时从关联关系表构建，此后随指令状态变更增量维护：进入执行中时加入，离开执行中时移除；
+ * 关联关系变更时按新的判定计划重新登记。
+ * 索引在发布事件的事务提交后才更新，事务回滚时不会留下未生效的登记；没有事务时立即更新
+ */
+@Component
+public class ParamWatcherIndex {
+    
+    @Autowired
+    private CommandRepository commandRepository;
+    
+    @Autowired
+    private CommandTelemetryRelationRepository relationRepository;
+    
+    @Autowired
+    private FormulaEvaluationService formulaEvaluationService;
+    
+    @Autowired
+    private JudgePlanCache judgePlanCache;
+    
+    /**
+     * 参数代码 -> 关注者列表（写时复制，读取无锁）
+     */
+    private final Map<String, List<Watcher>> watchersByParamCode = new ConcurrentHashMap<>();
+    
+    /**
+     * 指令ID -> 该指令登记的关注者，用于移除
+     */
+    private final Map<Long, List<Watcher>> watchersByCommand = new ConcurrentHashMap<>();
+    
+    /**
+     * 指令ID -> 指令代码（包括没有关注任何参数的执行中指令，关联关系变更时重新登记用）
+     */
+    private final Map<Long, String> commandCodes = new ConcurrentHashMap<>();
+    
+    /**
+     * 获取关注指定参数的执行中指令
+     *
+     * @param paramCode 参数代码
+     * @return 关注者列表（只读）
+     */
+    public List<Watcher> getWatchers(String paramCode) {
+        if (paramCode == null) {
+            return List.of();
+        }
+        return watchersByParamCode.getOrDefault(paramCode, List.of());
+    }
+    
+    /**
+     * 获取索引中执行中指令的指令代码
+     *
+     * @param commandId 指令ID
+     * @return 指令代码，指令不在索引中时返回null
+     */
+    public String getCommandCode(Long commandId) {
+        return commandCodes.get(commandId);
+    }
+    
+    /**
+     * 指令进入执行中时登记其关联关系，离开执行中时移除（状态变更提交后执行）
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCommandStatusChanged(CommandStatusChangedEvent event) {
+        if (CommandStatus.EXECUTING.equals(event.getNewStatus())) {
+            register(event.getCommandId(), event.getCommandCode(), judgePlanCache.get(event.getCommandId()).getRelations());
+        } else if (CommandStatus.EXECUTING.equals(event.getOldStatus())) {
+            unregister(event.getCommandId());
+        }
+    }
+    
+    /**
+     * 关联关系变更后按新的判定计划重新登记受影响的执行中指令（变更提交后执行）
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRelationsChanged(CommandRelationsChangedEvent event) {
+        List<Long> commandIds = event.isAllCommands()
+            ? new ArrayList<>(commandCodes.keySet())
+            : List.of(event.getCommandId());
+        for (Long commandId : commandIds) {
+            String commandCode = getCommandCode(commandId);
+            if (commandCode != null) {
+                register(commandId, commandCode, judgePlanCache.get(commandId).getRelations());
+            }
+        }
+    }
+    
+    /**
+     * 启动时为所有执行中指令构建索引（关联关系一次批量查询）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            List<Command> executingCommands = commandRepository.findByStatusOrderByCreateTimeDesc(CommandStatus.EXECUTING);
+            if (executingCommands.isEmpty()) {
+                return;
+            }
+            Map<Long, String> commandCodes = new HashMap<>();
+            for (Command command : executingCommands) {
+                commandCodes.put(command.getId(), command.getCommandCode());
+            }
+            
+            Map<Long, List<CommandTelemetryRelation>> relationsByCommand = new LinkedHashMap<>();
+            for (CommandTelemetryRelation relation : relationRepository.findByCommandIdInWithTelemetryParam(commandCodes.keySet())) {
+                relationsByCommand.computeIfAbsent(relation.getCommandId(), k -> new ArrayList<>()).add(relation);
+            }
+            relationsByCommand.forEach((commandId, relations) -> register(commandId, commandCodes.get(commandId), relations));
+            
+            System.out.println("参数关注索引已构建: 执行中指令=" + relationsByCommand.size() + ", 参数=" + watchersByParamCode.size());
+        } catch (Exception e) {
+            System.err.println("构建参数关注索引失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 登记指令的关联关系（重复登记时先移除旧的）
+     *
+     * @param commandId 指令ID
+     * @param commandCode 指令代码
+     * @param relations 已加载遥测参数的关联关系
+     */
+    public synchronized void register(Long commandId, String commandCode, List<CommandTelemetryRelation> relations) {
+        unregister(commandId);
+        List<Watcher> watchers = new ArrayList<>();
+        Set<String> ownParamCodes = new HashSet<>();
+        for (CommandTelemetryRelation relation : relations) {
+            // 每个参数只取第一个关联关系（与判定服务的依赖图一致）
+            if (relation.getTelemetryParam() == null || !ownParamCodes.add(FormulaDependencyGraph.ownParamCode(relation))) {
+                continue;
+            }
+            for (String triggerParamCode : FormulaDependencyGraph.dependenciesOf(relation, formulaEvaluationService)) {
+                Watcher watcher = new Watcher(commandId, commandCode, relation, triggerParamCode);
+                watchers.add(watcher);
+                watchersByParamCode.compute(triggerParamCode, (paramCode, existing) -> {
+                    List<Watcher> updated = existing == null ? new ArrayList<>() : new ArrayList<>(existing);
+                    updated.add(watcher);
+                    return List.copyOf(updated);
+                });
+            }
+        }
+        watchersByCommand.put(commandId, watchers);
+        commandCodes.put(commandId, commandCode);
+    }
+    
+    /**
+     * 移除指令的所有关注
+     *
+     * @param commandId 指令ID
+     */
+    public synchronized void unregister(Long commandId) {
+        commandCodes.remove(commandId);
+        List<Watcher> watchers = watchersByCommand.remove(commandId);
+        if (watchers == null) {
+            return;
+        }
+        for (Watcher watcher : watchers) {
+            watchersByParamCode.computeIfPresent(watcher.getTriggerParamCode(), (paramCode, existing) -> {
+                List<Watcher> updated = new ArrayList<>(existing);
+                updated.removeIf(w -> w.getCommandId().equals(commandId));
+                return updated.isEmpty() ? null : List.copyOf(updated);
+            });
+        }
+    }
+    
+    /**
+     * 获取索引统计信息
+     *
+     * @return 执行中指令数、参数数和关注总数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("commands", watchersByCommand.size());
+        stats.put("params", watchersByParamCode.size());
+        stats.put("watchers", watchersByCommand.values().stream().mapToInt(List::size).sum());
+        return stats;
+    }
+    
+    /**
+     * 关注某个参数的指令及其关联关系
+     */
+    public static class Watcher {
+        private final Long commandId;
+        private final String commandCode;
+        private final CommandTelemetryRelation relation;
+        private final String triggerParamCode;
+        
+        public Watcher(Long commandId, String commandCode, CommandTelemetryRelation relation, String triggerParamCode) {
+            this.commandId = commandId;
+            this.commandCode = commandCode;
+            this.relation = relation;
+            this.triggerParamCode = triggerParamCode;
+        }
+        
+        public Long getCommandId() { return commandId; }
+        public String getCommandCode() { return commandCode; }
+        public CommandTelemetryRelation getRelation() { return relation; }
+        
+        /**
+         * 触发重新判定的参数代码（索引键）
+         */
+        public String getTriggerParamCode() { return triggerParamCode; }
+        
+        /**
+         * 关联关系自身的参数代码（判定结果归属的参数）
+         */
+        public String getParamCode() {
+            return relation.getTelemetryParam().getParamCode();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.springbootredis.service;
+
+import com.example.springbootredis.entity.CommandTelemetryRelation;
+import com.example.springbootredis.event.CommandRelationsChangedEvent;
+import com.example.springbootredis.event.CommandStatusChangedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 关联关系判定运行统计
+ * 按关联关系记录判定次数、不满足次数和判定耗时，据此给出完成校验时的判定顺序：
+ * 按 平均耗时 / 不满足概率 从小到大排列（逐个判定、遇到不满足即停止时期望耗时最小），
+ * 耗时低且经常不满足的关联关系排在前面，"尚未完成"的结论用最少的判定次数得出；
+ * 只统计遥测数据触发的判定，完成校验中的重新判定不计入。指令进入终态或关联关系变更后移除该指令的统计
+ */
+@Component
+public class RelationJudgeStats {
+    
+    private final Map<Long, Counters> counters = new ConcurrentHashMap<>();
+    
+    /**
+     * 指令ID -> 有统计的关联关系ID
+     */
+    private final Map<Long, Set<Long>> relationIdsByCommand = new ConcurrentHashMap<>();
+    
+    private final LongAdder verifications = new LongAdder();
+    private final LongAdder verificationEvaluations = new LongAdder();
+    private final LongAdder shortCircuits = new LongAdder();
+    
+    /**
+     * 记录一次判定
+     *
+     * @param relation 关联关系（未保存的关联关系不统计）
+     * @param elapsedNanos 判定耗时
+     * @param satisfied 判定结果
+     */
+    public void record(CommandTelemetryRelation relation, long elapsedNanos, boolean satisfied) {
+        if (relation.getId() == null) {
+            return;
+        }
+        Counters c = counters.get(relation.getId());
+        if (c == null) {
+            c = counters.computeIfAbsent(relation.getId(), k -> new Counters());
+            if (relation.getCommandId() != null) {
+                relationIdsByCommand.computeIfAbsent(relation.getCommandId(), k -> ConcurrentHashMap.newKeySet())
+                    .add(relation.getId());
+            }
+        }
+        c.evaluations.increment();
+        c.totalNanos.add(elapsedNanos);
+        if (!satisfied) {
+            c.unsatisfied.increment();
+        }
+    }
+    
+    /**
+     * 记录一次完成校验
+     *
+     * @param evaluations 校验中实际判定的关联关系个数
+     * @param shortCircuited 是否因遇到不满足的关联关系提前结束
+     */
+    public void recordVerification(int evaluations, boolean shortCircuited) {
+        verifications.increment();
+        verificationEvaluations.add(evaluations);
+        if (shortCircuited) {
+            shortCircuits.increment();
+        }
+    }
+    
+    /**
+     * 按期望代价从小到大排序（不修改入参）
+     * 没有统计数据的关联关系代价为0，排在最前面，先积累统计；代价相同时保持原有顺序
+     *
+     * @param relations 关联关系
+     * @return 排序后的新列表
+     */
+    public List<CommandTelemetryRelation> order(List<CommandTelemetryRelation> relations) {
+        // 先取出各自的代价再排序，避免排序过程中统计被并发更新导致比较结果不一致
+        Map<CommandTelemetryRelation, Double> scores = new IdentityHashMap<>();
+        for (CommandTelemetryRelation relation : relations) {
+            scores.put(relation, score(relation));
+        }
+        List<CommandTelemetryRelation> ordered = new ArrayList<>(relations);
+        ordered.sort(Comparator.comparingDouble(scores::get));
+        return ordered;
+    }
+    
+    /**
+     * 期望代价：平均耗时（纳秒）/ 不满足概率（拉普拉斯平滑，避免从未不满足时除以0）
+     */
+    public double score(CommandTelemetryRelation relation) {
+        Counters c = relation.getId() == null ? null : counters.get(relation.getId());
+        if (c == null) {
+            return 0;
+        }
+        long evaluations = c.evaluations.sum();
+        if (evaluations == 0) {
+            return 0;
+        }
+        double averageNanos = (double) c.totalNanos.sum() / evaluations;
+        double unsatisfiedProbability = (c.unsatisfied.sum() + 1.0) / (evaluations + 2.0);
+        return averageNanos / unsatisfiedProbability;
+    }
+    
+    /**
+     * 按判定顺序列出关联关系的统计，用于调优
+     *
+     * @param relations 关联关系（需已加载遥测参数）
+     * @return 每个关联关系一项：关联关系ID、参数代码、判定次数、不满足率、平均耗时（微秒）、期望代价
+     */
+    public List<Map<String, Object>> describe(List<CommandTelemetryRelation> relations) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (CommandTelemetryRelation relation : order(relations)) {
+            Counters c = relation.getId() == null ? null : counters.get(relation.getId());
+            long evaluations = c == null ? 0 : c.evaluations.sum();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("relationId", relation.getId());
+            row.put("paramCode", relation.getTelemetryParam() != null ? relation.getTelemetryParam().getParamCode() : null);
+            row.put("required", relation.getRequired());
+            row.put("evaluations", evaluations);
+            row.put("unsatisfiedRate", evaluations == 0 ? 0.0 : (double) c.unsatisfied.sum() / evaluations);
+            row.put("avgCostMicros", evaluations == 0 ? 0.0 : c.totalNanos.sum() / 1000.0 / evaluations);
+            row.put("score", score(relation));
+            rows.add(row);
+        }
+        return rows;
+    }
+    
+    /**
+     * 移除关联关系的统计（关联关系删除后调用）
+     */
+    public void evict(Long relationId) {
+        counters.remove(relationId);
+    }
+    
+    /**
+     * 移除指令全部关联关系的统计
+     */
+    public void evictCommand(Long commandId) {
+        Set<Long> relationIds = relationIdsByCommand.remove(commandId);
+        if (relationIds != null) {
+            relationIds.forEach(this::evict);
+        }
+    }
+    
+    /**
+     * 指令进入终态后移除其关联关系的统计
+     */
+    @EventListener
+    public void onCommandStatusChanged(CommandStatusChangedEvent event) {
+        if (event.isTerminal()) {
+            evictCommand(event.getCommandId());
+        }
+    }
+    
+    /**
+     * 关联关系变更后移除受影响指令的统计（关联关系可能已删除或修改了公式）
+     */
+    @EventListener
+    public void onRelationsChanged(CommandRelationsChangedEvent event) {
+        if (event.isAllCommands()) {
+            counters.clear();
+            relationIdsByCommand.clear();
+        } else {
+            evictCommand(event.getCommandId());
+        }
+    }
+    
+    /**
+     * 获取完成校验的整体统计
+     */
+    public Map<String, Object> getStats() {
+        long count = verifications.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("trackedRelations", counters.size());
+        stats.put("verifications", count);
+        stats.put("shortCircuits", shortCircuits.sum());
+        stats.put("avgEvaluationsPerVerification", count == 0 ? 0.0 : (double) verificationEvaluations.sum() / count);
+        return stats;
+    }
+    
+    private static class Counters {
+        private final LongAdder evaluations = new LongAdder();
+        private final LongAdder unsatisfied = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+    }
+}
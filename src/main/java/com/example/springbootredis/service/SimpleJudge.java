@@ -0,0 +1,206 @@
+package com.example.springbootredis.service;
+
+import com.example.springbootredis.entity.enums.JudgeOperator;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * 简单比较判定器
+ * 按判断操作符和参数类型直接比较原始值，期望值在创建时解析一次；判定结果与Aviator简单表达式一致。
+ * 数值按十进制定点数（long尾数 + 小数位数）精确比较，常见报文判定时不产生任何对象；
+ * 超出long范围或带指数的数值才退回BigDecimal比较
+ */
+public final class SimpleJudge {
+    
+    private static final long[] POW10 = {
+        1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L,
+        10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L, 100_000_000_000_000L,
+        1_000_000_000_000_000L, 10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L
+    };
+    
+    /**
+     * 数值解析失败（含溢出）的标记小数位数
+     */
+    private static final int NOT_PARSED = -1;
+    
+    private enum Kind { NUMBER, STRING, BOOLEAN, NEVER }
+    
+    private final JudgeOperator operator;
+    private final String expectedValue;
+    private final String paramType;
+    private final Kind kind;
+    
+    private final long expectedMantissa;
+    private final int expectedScale;
+    private final BigDecimal expectedDecimal;
+    private final boolean expectedBoolean;
+    
+    private SimpleJudge(JudgeOperator operator, String expectedValue, String paramType, Kind kind,
+                        BigDecimal expectedDecimal) {
+        this.operator = operator;
+        this.expectedValue = expectedValue;
+        this.paramType = paramType;
+        this.kind = kind;
+        this.expectedDecimal = expectedDecimal;
+        this.expectedBoolean = Boolean.parseBoolean(expectedValue);
+        
+        long mantissa = 0;
+        int scale = NOT_PARSED;
+        if (expectedDecimal != null) {
+            BigDecimal stripped = expectedDecimal.scale() < 0 ? expectedDecimal.setScale(0) : expectedDecimal;
+            if (stripped.scale() < POW10.length && stripped.unscaledValue().bitLength() < 63) {
+                mantissa = stripped.unscaledValue().longValue();
+                scale = stripped.scale();
+            }
+        }
+        this.expectedMantissa = mantissa;
+        this.expectedScale = scale;
+    }
+    
+    /**
+     * 创建判定器
+     * 期望值无法按参数类型解析、操作符或参数类型为空时，判定器恒返回不满足（与Aviator路径抛异常后的结果一致）
+     *
+     * @param operator 判断操作符
+     * @param expectedValue 期望值
+     * @param paramType 参数类型（NUMBER、STRING、BOOLEAN，其他按字符串处理）
+     * @return 判定器
+     */
+    public static SimpleJudge of(JudgeOperator operator, String expectedValue, String paramType) {
+        if (operator == null || paramType == null) {
+            return new SimpleJudge(operator, expectedValue, paramType, Kind.NEVER, null);
+        }
+        switch (paramType.toUpperCase()) {
+            case "NUMBER":
+                try {
+                    return new SimpleJudge(operator, expectedValue, paramType, Kind.NUMBER, new BigDecimal(expectedValue));
+                } catch (RuntimeException e) {
+                    return new SimpleJudge(operator, expectedValue, paramType, Kind.NEVER, null);
+                }
+            case "BOOLEAN":
+                return new SimpleJudge(operator, expectedValue, paramType, Kind.BOOLEAN, null);
+            default:
+                return expectedValue == null
+                    ? new SimpleJudge(operator, null, paramType, Kind.NEVER, null)
+                    : new SimpleJudge(operator, expectedValue, paramType, Kind.STRING, null);
+        }
+    }
+    
+    /**
+     * 判定器是否仍对应给定的关联关系配置（配置变更后需要重新创建）
+     */
+    public boolean matches(JudgeOperator operator, String expectedValue, String paramType) {
+        return this.operator == operator && Objects.equals(this.expectedValue, expectedValue)
+            && Objects.equals(this.paramType, paramType);
+    }
+    
+    /**
+     * 判定实际值是否满足要求
+     *
+     * @param actualValue 实际值（不能为空）
+     * @return 是否满足
+     */
+    public boolean test(String actualValue) {
+        switch (kind) {
+            case NUMBER:
+                return testNumber(actualValue);
+            case BOOLEAN:
+                return apply(Boolean.compare(Boolean.parseBoolean(actualValue), expectedBoolean));
+            case STRING:
+                return apply(actualValue.compareTo(expectedValue));
+            default:
+                return false;
+        }
+    }
+    
+    private boolean testNumber(String actualValue) {
+        int length = actualValue.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (actualValue.charAt(0) == '-' || actualValue.charAt(0) == '+')) {
+            negative = actualValue.charAt(0) == '-';
+            i++;
+        }
+        
+        long mantissa = 0;
+        int scale = 0;
+        int digits = 0;
+        boolean point = false;
+        boolean simple = expectedScale != NOT_PARSED;
+        for (; i < length && simple; i++) {
+            char c = actualValue.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (mantissa > (Long.MAX_VALUE - 9) / 10) {
+                    simple = false;
+                    break;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (point) {
+                    scale++;
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                simple = false;
+            }
+        }
+        
+        if (!simple || digits == 0 || scale >= POW10.length) {
+            return testDecimal(actualValue);
+        }
+        return apply(compareScaled(negative ? -mantissa : mantissa, scale, expectedMantissa, expectedScale));
+    }
+    
+    /**
+     * 非常见格式（指数、超长数字）及非法数值走BigDecimal，解析失败视为不满足
+     */
+    private boolean testDecimal(String actualValue) {
+        try {
+            return apply(new BigDecimal(actualValue).compareTo(expectedDecimal));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * 比较两个十进制定点数 m1×10^-s1 与 m2×10^-s2
+     */
+    private static int compareScaled(long m1, int s1, long m2, int s2) {
+        if (s1 == s2) {
+            return Long.compare(m1, m2);
+        }
+        if (s1 < s2) {
+            long factor = POW10[s2 - s1];
+            if (Math.abs(m1) <= Long.MAX_VALUE / factor) {
+                return Long.compare(m1 * factor, m2);
+            }
+        } else {
+            long factor = POW10[s1 - s2];
+            if (Math.abs(m2) <= Long.MAX_VALUE / factor) {
+                return Long.compare(m1, m2 * factor);
+            }
+        }
+        return BigDecimal.valueOf(m1, s1).compareTo(BigDecimal.valueOf(m2, s2));
+    }
+    
+    private boolean apply(int comparison) {
+        switch (operator) {
+            case EQUALS:
+                return comparison == 0;
+            case NOT_EQUALS:
+                return comparison != 0;
+            case GREATER_THAN:
+                return comparison > 0;
+            case LESS_THAN:
+                return comparison < 0;
+            case GREATER_THAN_OR_EQUALS:
+                return comparison >= 0;
+            case LESS_THAN_OR_EQUALS:
+                return comparison <= 0;
+            default:
+                return false;
+        }
+    }
+}
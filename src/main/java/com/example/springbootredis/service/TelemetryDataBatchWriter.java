@@ -0,0 +1,223 @@
+package com.example.springbootredis.service;
+
+import com.example.springbootredis.entity.TelemetryData;
+import com.example.springbootredis.repository.TelemetryDataRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 遥测数据批量写入
+ * 遥测数据主键为数据库自增（IDENTITY），Hibernate对这类实体不做插入批处理，saveAll 每条数据一次往返；
+ * 这里直接用JDBC批处理插入，MySQL驱动开启 rewriteBatchedStatements 后一批合并为一条多行INSERT。
+ * 插入在当前事务的连接上执行（与JPA共用同一事务），插入后按顺序回填自增ID（死区压缩需要ID更新重复次数），
+ * 并在同一事务中更新参数最新值表（tb_telemetry_latest，每个指令的每个参数只保留ID最大的一条）、
+ * 保存采样的原始消息（{@link TelemetryRawMessageStore}）
+ */
+@Component
+public class TelemetryDataBatchWriter {
+    
+    private static final String INSERT_SQL = "INSERT INTO tb_telemetry_data (command_id, param_code, actual_value, receive_time, "
+        + "judge_result, judge_time, data_source, repeat_count, last_repeat_time) "
+        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    /**
+     * MySQL：只有ID更大的数据才覆盖最新值（使用行别名，data_id 最后赋值，前面的条件比较的是旧值）
+     */
+    private static final String UPSERT_LATEST_MYSQL_SQL = "INSERT INTO tb_telemetry_latest (command_id, param_code, data_id, "
+        + "actual_value, judge_result, receive_time) VALUES (?, ?, ?, ?, ?, ?) AS new ON DUPLICATE KEY UPDATE "
+        + "actual_value = CASE WHEN new.data_id > tb_telemetry_latest.data_id "
+        + "THEN new.actual_value ELSE tb_telemetry_latest.actual_value END, "
+        + "judge_result = CASE WHEN new.data_id > tb_telemetry_latest.data_id "
+        + "THEN new.judge_result ELSE tb_telemetry_latest.judge_result END, "
+        + "receive_time = CASE WHEN new.data_id > tb_telemetry_latest.data_id "
+        + "THEN new.receive_time ELSE tb_telemetry_latest.receive_time END, "
+        + "data_id = GREATEST(tb_telemetry_latest.data_id, new.data_id)";
+    
+    /**
+     * 其他数据库（如回放使用的H2）：标准MERGE，语义同上
+     */
+    private static final String UPSERT_LATEST_MERGE_SQL = "MERGE INTO tb_telemetry_latest l USING (VALUES (CAST(? AS BIGINT), "
+        + "CAST(? AS VARCHAR(50)), CAST(? AS BIGINT), CAST(? AS VARCHAR(100)), CAST(? AS BOOLEAN), CAST(? AS TIMESTAMP))) "
+        + "AS n (command_id, param_code, data_id, actual_value, judge_result, receive_time) "
+        + "ON l.command_id = n.command_id AND l.param_code = n.param_code "
+        + "WHEN MATCHED AND n.data_id > l.data_id THEN UPDATE SET data_id = n.data_id, actual_value = n.actual_value, "
+        + "judge_result = n.judge_result, receive_time = n.receive_time "
+        + "WHEN NOT MATCHED THEN INSERT (command_id, param_code, data_id, actual_value, judge_result, receive_time) "
+        + "VALUES (n.command_id, n.param_code, n.data_id, n.actual_value, n.judge_result, n.receive_time)";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private TelemetryDataRepository telemetryDataRepository;
+    
+    @Autowired
+    private TelemetryRawMessageStore rawMessageStore;
+    
+    /**
+     * 是否使用JDBC批量插入（关闭时退回 saveAll）
+     */
+    @Value("${telemetry.batch-writer.enabled:true}")
+    private boolean enabled;
+    
+    /**
+     * 每批最多插入的行数
+     */
+    @Value("${telemetry.batch-writer.batch-size:500}")
+    private int batchSize;
+    
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder latestUpserts = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    
+    /**
+     * 最新值更新语句（按数据库类型首次使用时选择）
+     */
+    private volatile String upsertLatestSql;
+    
+    /**
+     * 批量插入遥测数据并回填ID
+     *
+     * @param data 待插入的遥测数据（ID为空）
+     */
+    public void insertAll(List<TelemetryData> data) {
+        if (data.isEmpty()) {
+            return;
+        }
+        if (!enabled) {
+            telemetryDataRepository.saveAll(data);
+            upsertLatest(data);
+            rawMessageStore.storeAll(data);
+            return;
+        }
+        long start = System.nanoTime();
+        int chunkSize = Math.max(1, batchSize);
+        for (int from = 0; from < data.size(); from += chunkSize) {
+            List<TelemetryData> chunk = data.subList(from, Math.min(from + chunkSize, data.size()));
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                    for (TelemetryData item : chunk) {
+                        bind(statement, item);
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                    assignKeys(statement, chunk);
+                }
+                return null;
+            });
+            batches.increment();
+        }
+        upsertLatest(data);
+        rawMessageStore.storeAll(data);
+        rows.add(data.size());
+        nanos.add(System.nanoTime() - start);
+    }
+    
+    /**
+     * 更新参数最新值：同一批中每个指令的每个参数只取最后一条
+     */
+    private void upsertLatest(List<TelemetryData> data) {
+        Map<String, TelemetryData> latest = new LinkedHashMap<>();
+        for (TelemetryData item : data) {
+            if (item.getId() != null) {
+                latest.put(item.getCommandId() + "|" + item.getParamCode(), item);
+            }
+        }
+        if (latest.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            if (upsertLatestSql == null) {
+                upsertLatestSql = "MySQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName())
+                    ? UPSERT_LATEST_MYSQL_SQL : UPSERT_LATEST_MERGE_SQL;
+            }
+            try (PreparedStatement statement = connection.prepareStatement(upsertLatestSql)) {
+                for (TelemetryData item : latest.values()) {
+                    statement.setLong(1, item.getCommandId());
+                    statement.setString(2, item.getParamCode());
+                    statement.setLong(3, item.getId());
+                    statement.setString(4, item.getActualValue());
+                    if (item.getJudgeResult() != null) {
+                        statement.setBoolean(5, item.getJudgeResult());
+                    } else {
+                        statement.setNull(5, Types.BOOLEAN);
+                    }
+                    statement.setObject(6, item.getReceiveTime());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            return null;
+        });
+        latestUpserts.add(latest.size());
+    }
+    
+    /**
+     * 获取写入统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long totalRows = rows.sum();
+        long totalNanos = nanos.sum();
+        stats.put("enabled", enabled);
+        stats.put("batchSize", batchSize);
+        stats.put("rows", totalRows);
+        stats.put("batches", batches.sum());
+        stats.put("latestUpserts", latestUpserts.sum());
+        stats.put("rowsPerSecond", totalNanos == 0 ? 0 : Math.round(totalRows * 1_000_000_000.0 / totalNanos));
+        return stats;
+    }
+    
+    private static void bind(PreparedStatement statement, TelemetryData item) throws SQLException {
+        statement.setLong(1, item.getCommandId());
+        statement.setString(2, item.getParamCode());
+        statement.setString(3, item.getActualValue());
+        statement.setObject(4, item.getReceiveTime());
+        if (item.getJudgeResult() != null) {
+            statement.setBoolean(5, item.getJudgeResult());
+        } else {
+            statement.setNull(5, Types.BOOLEAN);
+        }
+        statement.setObject(6, item.getJudgeTime());
+        statement.setString(7, item.getDataSource());
+        statement.setObject(8, item.getRepeatCount());
+        statement.setObject(9, item.getLastRepeatTime());
+    }
+    
+    /**
+     * 按插入顺序回填自增ID，驱动返回的ID数量与行数不一致时不回填（按未分配ID处理）
+     */
+    private static void assignKeys(PreparedStatement statement, List<TelemetryData> chunk) throws SQLException {
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            Long[] ids = new Long[chunk.size()];
+            int count = 0;
+            while (keys.next()) {
+                if (count < ids.length) {
+                    ids[count] = keys.getLong(1);
+                }
+                count++;
+            }
+            if (count != chunk.size()) {
+                System.err.println("批量插入返回的ID数量与行数不一致: 行数=" + chunk.size() + ", ID数=" + count);
+                return;
+            }
+            for (int i = 0; i < ids.length; i++) {
+                chunk.get(i).setId(ids[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.example.springbootredis.service;
+
+import com.example.springbootredis.entity.CommandTelemetryRelation;
+import com.example.springbootredis.entity.TelemetryData;
+import com.example.springbootredis.entity.TelemetryLatest;
+import com.example.springbootredis.entity.TelemetryParam;
+import com.example.springbootredis.entity.enums.CompressionMode;
+import com.example.springbootredis.event.CommandStatusChangedEvent;
+import com.example.springbootredis.event.TelemetryStateInvalidatedEvent;
+import com.example.springbootredis.repository.TelemetryDataRepository;
+import com.example.springbootredis.repository.TelemetryLatestRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 遥测数据死区压缩
+ * 参数配置了压缩模式（{@link TelemetryParam#getCompressionMode()}）时，与该参数上一条保存的数据相比
+ * 值在死区内且判断结果不变的样本不再插入新行，而是累加上一条的重复次数和最后重复时间；
+ * 判断结果变化的样本总是保存，状态跳变不会丢失。简单比较的值完全相同时直接沿用上一条的判断结果，不再判定。
+ * 每个指令各参数上一条保存的数据（锚点）缓存在内存中，未命中时从参数最新值表（tb_telemetry_latest）一次加载，
+ * 指令进入终态或其他实例写入同一指令的遥测数据后移除
+ */
+@Component
+public class TelemetryDeadbandFilter {
+    
+    @Autowired
+    private TelemetryDataRepository telemetryDataRepository;
+    
+    @Autowired
+    private TelemetryLatestRepository telemetryLatestRepository;
+    
+    /**
+     * 锚点保存后超过该时长的样本不再合并，重新保存一条（0表示不限制）
+     */
+    @Value("${telemetry.compression.max-fold-seconds:300}")
+    private long maxFoldSeconds;
+    
+    private final CommandStateMap<Map<String, Anchor>> anchors = new CommandStateMap<>();
+    
+    private final LongAdder folded = new LongAdder();
+    private final LongAdder skippedJudges = new LongAdder();
+    private final LongAdder repeatUpdates = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    
+    /**
+     * 开始一批样本的压缩（一次判定事务对应一批）
+     */
+    public FoldBatch newBatch() {
+        return new FoldBatch();
+    }
+    
+    /**
+     * 移除指令的锚点
+     */
+    public void evict(Long commandId) {
+        anchors.evict(commandId);
+    }
+    
+    /**
+     * 指令进入终态后移除其锚点
+     */
+    @EventListener
+    public void onCommandStatusChanged(CommandStatusChangedEvent event) {
+        if (event.isTerminal()) {
+            evict(event.getCommandId());
+        }
+    }
+    
+    /**
+     * 其他实例变更指令状态或本实例的分区被回收后移除锚点，避免与其他实例保存的数据比较
+     */
+    @EventListener
+    public void onStateInvalidated(TelemetryStateInvalidatedEvent event) {
+        if (event.isAllCommands()) {
+            anchors.clear();
+        } else {
+            event.getCommandIds().forEach(this::evict);
+        }
+    }
+    
+    /**
+     * 获取压缩统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("commands", anchors.size());
+        stats.put("folded", folded.sum());
+        stats.put("skippedJudges", skippedJudges.sum());
+        stats.put("repeatUpdates", repeatUpdates.sum());
+        stats.put("loads", loads.sum());
+        stats.put("maxFoldSeconds", maxFoldSeconds);
+        return stats;
+    }
+    
+    /**
+     * 值是否在死区内
+     *
+     * @param mode 压缩模式
+     * @param deadband 死区（为空按0处理）
+     * @param anchorValue 上一条保存的值
+     * @param value 当前样本值
+     * @return UNCHANGED模式值完全相同时为true；DEADBAND模式数值之差不超过死区时为true，非数值按完全相同比较
+     */
+    public static boolean withinDeadband(CompressionMode mode, Double deadband, String anchorValue, String value) {
+        if (mode == null || mode == CompressionMode.NONE || anchorValue == null || value == null) {
+            return false;
+        }
+        if (value.equals(anchorValue)) {
+            return true;
+        }
+        if (mode != CompressionMode.DEADBAND) {
+            return false;
+        }
+        try {
+            double difference = Math.abs(Double.parseDouble(value) - Double.parseDouble(anchorValue));
+            return difference <= (deadband != null ? deadband : 0);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+    
+    private Anchor getAnchor(Long commandId, String paramCode) {
+        return anchors.get(commandId, this::load).get(paramCode);
+    }
+    
+    private Map<String, Anchor> load(Long commandId) {
+        loads.increment();
+        Map<String, Anchor> commandAnchors = new ConcurrentHashMap<>();
+        for (TelemetryLatest data : telemetryLatestRepository.findByCommandId(commandId)) {
+            commandAnchors.put(data.getParamCode(), new Anchor(data.toTelemetryData()));
+        }
+        return commandAnchors;
+    }
+    
+    private boolean expired(LocalDateTime anchorTime, LocalDateTime sampleTime) {
+        return maxFoldSeconds > 0 && anchorTime != null && sampleTime != null
+            && Duration.between(anchorTime, sampleTime).getSeconds() >= maxFoldSeconds;
+    }
+    
+    /**
+     * 上一条保存的数据
+     * 异步写入时数据提交后还没有ID，ID在写入数据库后回填，在此之前不能合并到该数据
+     */
+    private static final class Anchor {
+        private final TelemetryData row;
+        private final String value;
+        private final Boolean judgeResult;
+        private final LocalDateTime receiveTime;
+        
+        Anchor(TelemetryData row) {
+            this.row = row;
+            this.value = row.getActualValue();
+            this.judgeResult = row.getJudgeResult();
+            this.receiveTime = row.getReceiveTime();
+        }
+        
+        Long rowId() {
+            return row.getId();
+        }
+    }
+    
+    /**
+     * 本批并入某条已提交数据的样本数和最后一个样本的接收时间
+     */
+    private static final class Repeat {
+        private LocalDateTime rowReceiveTime;
+        private int count;
+        private LocalDateTime lastTime;
+    }
+    
+    /**
+     * 一批样本的压缩过程
+     * 本批新保存的数据作为后续样本的锚点，合并到本批新数据上的重复直接修改实体随插入一起保存；
+     * 合并到已提交数据上的重复按行累计，{@link #flush()} 时每行只执行一次更新
+     */
+    public class FoldBatch {
+        
+        /**
+         * 指令ID -> 参数代码 -> 本批新保存的数据
+         */
+        private final Map<Long, Map<String, TelemetryData>> pending = new HashMap<>();
+        
+        /**
+         * 已提交数据ID -> 本批并入的样本数和最后一个样本
+         */
+        private final Map<Long, Repeat> repeats = new LinkedHashMap<>();
+        
+        private int foldedCount;
+        
+        private FoldBatch() {
+        }
+        
+        /**
+         * 判定样本并尝试合并到该参数上一条保存的数据
+         * 无论是否合并，样本的判断结果都会被设置
+         *
+         * @param commandId 指令ID
+         * @param relation 样本参数的关联关系（需已加载遥测参数）
+         * @param sample 样本
+         * @param judge 判定该样本
+         * @return 是否已合并（合并的样本不需要保存）
+         */
+        public boolean judgeOrFold(Long commandId, CommandTelemetryRelation relation, TelemetryData sample,
+                                   BooleanSupplier judge) {
+            TelemetryParam param = relation.getTelemetryParam();
+            CompressionMode mode = param.getCompressionMode();
+            if (mode == null || mode == CompressionMode.NONE) {
+                sample.setJudgeResult(judge.getAsBoolean());
+                return false;
+            }
+            
+            TelemetryData pendingAnchor = pending.getOrDefault(commandId, Map.of()).get(sample.getParamCode());
+            Anchor anchor = pendingAnchor != null ? new Anchor(pendingAnchor) : getAnchor(commandId, sample.getParamCode());
+            Long anchorRowId = anchor != null ? anchor.rowId() : null;
+            if (anchor == null || anchor.judgeResult == null || (pendingAnchor == null && anchorRowId == null)
+                    || !withinDeadband(mode, param.getDeadband(), anchor.value, sample.getActualValue())
+                    || expired(anchor.receiveTime, sample.getReceiveTime())) {
+                sample.setJudgeResult(judge.getAsBoolean());
+                return false;
+            }
+            
+            boolean judgeResult;
+            if (!FormulaDependencyGraph.isComplex(relation) && anchor.value.equals(sample.getActualValue())) {
+                // 简单比较只取决于自身的值，值相同结果必然相同
+                judgeResult = anchor.judgeResult;
+                skippedJudges.increment();
+            } else {
+                judgeResult = judge.getAsBoolean();
+            }
+            sample.setJudgeResult(judgeResult);
+            if (judgeResult != anchor.judgeResult) {
+                return false;
+            }
+            
+            if (pendingAnchor != null) {
+                pendingAnchor.setRepeatCount(pendingAnchor.getRepeatCount() + 1);
+                pendingAnchor.setLastRepeatTime(sample.getReceiveTime());
+            } else {
+                Repeat repeat = repeats.computeIfAbsent(anchorRowId, k -> new Repeat());
+                repeat.rowReceiveTime = anchor.receiveTime;
+                repeat.count++;
+                repeat.lastTime = sample.getReceiveTime();
+            }
+            foldedCount++;
+            return true;
+        }
+        
+        /**
+         * 登记本批将要保存的数据，作为同一参数后续样本的锚点
+         */
+        public void saving(Long commandId, TelemetryData data) {
+            pending.computeIfAbsent(commandId, k -> new HashMap<>()).put(data.getParamCode(), data);
+        }
+        
+        /**
+         * 本批合并的样本数
+         */
+        public int getFoldedCount() {
+            return foldedCount;
+        }
+        
+        /**
+         * 更新并入已提交数据的重复次数，并在事务提交后把本批保存的数据登记为新的锚点
+         * 需在本批数据交给写入之后调用（异步写入时锚点的ID在写入数据库后才可用）
+         */
+        public void flush() {
+            // 按接收时间前后1秒定位（数据库时间精度可能低于内存中的值），分区表只访问该数据所在的分区
+            repeats.forEach((rowId, repeat) -> telemetryDataRepository.addRepeats(rowId, repeat.count, repeat.lastTime,
+                repeat.rowReceiveTime.minusSeconds(1), repeat.rowReceiveTime.plusSeconds(1)));
+                
+            List<TelemetryData> saved = new ArrayList<>();
+            pending.values().forEach(byParam -> saved.addAll(byParam.values()));
+            int updates = repeats.size();
+            int count = foldedCount;
+            Runnable action = () -> {
+                folded.add(count);
+                repeatUpdates.add(updates);
+                for (TelemetryData data : saved) {
+                    // 锚点尚未加载的指令不处理，下次使用时从数据库加载即包含这些数据
+                    Map<String, Anchor> commandAnchors = anchors.getForUpdate(data.getCommandId());
+                    if (commandAnchors != null) {
+                        commandAnchors.put(data.getParamCode(), new Anchor(data));
+                    }
+                }
+            };
+            
+            AfterCommit.run(action);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.example.springbootredis.service;
+
+import com.example.springbootredis.entity.TelemetryData;
+import com.example.springbootredis.event.CommandStatusChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 遥测参数近期历史环形缓冲
+ * 为每个指令的每个数值参数维护 样本时间（消息时间戳，毫秒）+ 数值 两个基本类型数组组成的环形缓冲，
+ * 供公式中的时间窗口函数（avg、rate、heldFor）使用，窗口计算只扫描窗口内的样本，不查询数据库；
+ * 消息时间戳与本机时钟可能不一致，每个指令另记录最近一帧的样本时间及收到该帧时的本机时间，用于换算定时判定的判定时刻；
+ * 缓冲按需从小容量翻倍增长到上限，超出上限覆盖最旧的样本，指令进入终态后移除
+ */
+@Component
+public class TelemetryHistoryBuffers {
+    
+    private static final int INITIAL_CAPACITY = 16;
+    
+    private final int capacity;
+    
+    private final Map<Long, Map<String, SampleRing>> buffers = new ConcurrentHashMap<>();
+    
+    /**
+     * 每个指令最近一帧的 {样本时间, 收到时的本机时间}（毫秒）
+     */
+    private final Map<Long, long[]> clocks = new ConcurrentHashMap<>();
+    
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    
+    public TelemetryHistoryBuffers(@Value("${telemetry.history-buffer.capacity:1024}") int capacity) {
+        this.capacity = Math.max(2, capacity);
+    }
+    
+    /**
+     * 记录样本（在判定之前调用，使当前样本落在窗口内）
+     * 只记录可解析为数值的实际值，布尔值按1/0记录，其他值跳过
+     *
+     * @param commandId 指令ID
+     * @param samples 按接收顺序排列的遥测数据
+     */
+    public void record(Long commandId, List<TelemetryData> samples) {
+        if (commandId == null || samples.isEmpty()) {
+            return;
+        }
+        long frameTime = toEpochMillis(samples.get(samples.size() - 1).getSampleTime());
+        clocks.merge(commandId, new long[]{frameTime, System.currentTimeMillis()},
+            (previous, current) -> current[0] >= previous[0] ? current : previous);
+        Map<String, SampleRing> rings = buffers.computeIfAbsent(commandId, k -> new ConcurrentHashMap<>());
+        for (TelemetryData sample : samples) {
+            double value = toDouble(sample.getActualValue());
+            if (Double.isNaN(value) || sample.getParamCode() == null) {
+                skipped.increment();
+                continue;
+            }
+            rings.computeIfAbsent(sample.getParamCode(), k -> new SampleRing(capacity))
+                .add(toEpochMillis(sample.getSampleTime()), value);
+            recorded.increment();
+        }
+    }
+    
+    /**
+     * 获取参数的环形缓冲
+     *
+     * @param commandId 指令ID
+     * @param paramCode 参数代码
+     * @return 环形缓冲，尚未收到过数值样本时返回null
+     */
+    public SampleRing get(Long commandId, String paramCode) {
+        Map<String, SampleRing> rings = buffers.get(commandId);
+        return rings == null ? null : rings.get(paramCode);
+    }
+    
+    /**
+     * 指令最近一个样本的样本时间（毫秒）
+     *
+     * @param commandId 指令ID
+     * @return 样本时间，尚未收到过数值样本时返回null
+     */
+    public Long latestTime(Long commandId) {
+        Map<String, SampleRing> rings = buffers.get(commandId);
+        if (rings == null) {
+            return null;
+        }
+        long latest = Long.MIN_VALUE;
+        for (SampleRing ring : rings.values()) {
+            latest = Math.max(latest, ring.newestTime());
+        }
+        return latest == Long.MIN_VALUE ? null : latest;
+    }
+    
+    /**
+     * 把本机当前时间换算为指令的样本时间：最近一帧的样本时间加上收到该帧后经过的本机时间
+     *
+     * @param commandId 指令ID
+     * @param nowMillis 本机当前时间（毫秒）
+     * @return 判定时刻，尚未收到过样本时返回本机当前时间
+     */
+    public long evaluationTime(Long commandId, long nowMillis) {
+        long[] clock = clocks.get(commandId);
+        return clock == null ? nowMillis : clock[0] + Math.max(0, nowMillis - clock[1]);
+    }
+    
+    /**
+     * 移除指令的全部缓冲
+     */
+    public void evict(Long commandId) {
+        buffers.remove(commandId);
+        clocks.remove(commandId);
+    }
+    
+    /**
+     * 指令进入终态后移除其缓冲
+     */
+    @EventListener
+    public void onCommandStatusChanged(CommandStatusChangedEvent event) {
+        if (event.isTerminal()) {
+            evict(event.getCommandId());
+        }
+    }
+    
+    /**
+     * 获取缓冲统计信息
+     */
+    public Map<String, Object> getStats() {
+        long rings = 0;
+        long samples = 0;
+        long allocatedSlots = 0;
+        for (Map<String, SampleRing> commandRings : buffers.values()) {
+            for (SampleRing ring : commandRings.values()) {
+                rings++;
+                samples += ring.size();
+                allocatedSlots += ring.allocated();
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("commands", buffers.size());
+        stats.put("rings", rings);
+        stats.put("samples", samples);
+        stats.put("allocatedBytes", allocatedSlots * (Long.BYTES + Double.BYTES));
+        stats.put("capacity", capacity);
+        stats.put("recorded", recorded.sum());
+        stats.put("skipped", skipped.sum());
+        return stats;
+    }
+    
+    static long toEpochMillis(LocalDateTime time) {
+        return time == null ? System.currentTimeMillis() : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+    
+    private static double toDouble(String value) {
+        if (value == null) {
+            return Double.NaN;
+        }
+        if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+            return Boolean.parseBoolean(value) ? 1 : 0;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+    
+    /**
+     * 单个参数的环形缓冲
+     * 时间和数值分别存放在long[]和double[]中，按写入顺序覆盖；所有读写在缓冲自身上同步
+     */
+    public static final class SampleRing {
+        
+        private final int maxCapacity;
+        private long[] times = new long[0];
+        private double[] values = new double[0];
+        /**
+         * 下一个写入位置
+         */
+        private int head;
+        private int size;
+        
+        SampleRing(int maxCapacity) {
+            this.maxCapacity = maxCapacity;
+        }
+        
+        /**
+         * 追加样本，时间早于最新样本时按最新样本的时间记录，保证缓冲内时间单调不减
+         */
+        public synchronized void add(long timeMillis, double value) {
+            if (size == times.length && times.length < maxCapacity) {
+                grow();
+            }
+            if (size > 0) {
+                timeMillis = Math.max(timeMillis, times[index(size - 1)]);
+            }
+            times[head] = timeMillis;
+            values[head] = value;
+            head = (head + 1) % times.length;
+            if (size < times.length) {
+                size++;
+            }
+        }
+        
+        /**
+         * 窗口内样本的平均值
+         *
+         * @param sinceMillis 窗口起始时间（含）
+         * @return 平均值，窗口内没有样本时返回NaN
+         */
+        public synchronized double average(long sinceMillis) {
+            double sum = 0;
+            int count = 0;
+            for (int i = size - 1; i >= 0 && times[index(i)] >= sinceMillis; i--) {
+                sum += values[index(i)];
+                count++;
+            }
+            return count == 0 ? Double.NaN : sum / count;
+        }
+        
+        /**
+         * 窗口内的变化速率（每秒）：窗口内最新样本与最早样本之差除以时间差
+         *
+         * @param sinceMillis 窗口起始时间（含），Long.MIN_VALUE表示只取最近两个样本
+         * @return 每秒变化量，样本不足两个或时间差为0时返回NaN
+         */
+        public synchronized double rate(long sinceMillis) {
+            if (size < 2) {
+                return Double.NaN;
+            }
+            int newest = size - 1;
+            int oldest = newest - 1;
+            if (sinceMillis != Long.MIN_VALUE) {
+                oldest = newest;
+                while (oldest > 0 && times[index(oldest - 1)] >= sinceMillis) {
+                    oldest--;
+                }
+            }
+            long elapsed = times[index(newest)] - times[index(oldest)];
+            if (elapsed <= 0) {
+                return Double.NaN;
+            }
+            return (values[index(newest)] - values[index(oldest)]) * 1000.0 / elapsed;
+        }
+        
+        /**
+         * 复制窗口期间生效的样本：窗口内的全部样本，以及窗口开始时生效的那个更早样本
+         *
+         * @param sinceMillis 窗口起始时间
+         * @return 按时间顺序的数值；缓冲中没有早于窗口起点的样本（历史不足以覆盖整个窗口）时返回null
+         */
+        public synchronized double[] valuesCovering(long sinceMillis) {
+            int first = size - 1;
+            while (first >= 0 && times[index(first)] > sinceMillis) {
+                first--;
+            }
+            if (first < 0) {
+                return null;
+            }
+            double[] covering = new double[size - first];
+            for (int i = first; i < size; i++) {
+                covering[i - first] = values[index(i)];
+            }
+            return covering;
+        }
+        
+        /**
+         * 最新样本的样本时间，没有样本时返回Long.MIN_VALUE
+         */
+        public synchronized long newestTime() {
+            return size == 0 ? Long.MIN_VALUE : times[index(size - 1)];
+        }
+        
+        public synchronized int size() {
+            return size;
+        }
+        
+        synchronized int allocated() {
+            return times.length;
+        }
+        
+        /**
+         * 第i个样本（0为最旧）在数组中的位置
+         */
+        private int index(int i) {
+            int start = head - size;
+            return (start + i + times.length) % times.length;
+        }
+        
+        private void grow() {
+            int newCapacity = Math.min(maxCapacity, Math.max(INITIAL_CAPACITY, times.length * 2));
+            long[] newTimes = new long[newCapacity];
+            double[] newValues = new double[newCapacity];
+            for (int i = 0; i < size; i++) {
+                newTimes[i] = times[index(i)];
+                newValues[i] = values[index(i)];
+            }
+            times = newTimes;
+            values = newValues;
+            head = size % newCapacity;
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.example.springbootredis.service;
+
+import com.example.springbootredis.entity.TelemetryData;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 遥测数据追加日志（内存映射文件）
+ * 日志按固定大小分段（segment-00000001.log ...），每段整体映射到内存，记录格式为 长度(int) + CRC32(int) + 内容，
+ * 长度为0表示该段后续没有数据。检查点文件记录已写入数据库的最后位置，检查点之前的整段文件会被删除。
+ * 打开时从检查点开始扫描，读取尚未写入数据库的记录并定位追加位置（遇到不完整或校验失败的记录即视为日志末尾）。
+ * 非线程安全，由调用方加锁
+ */
+public class TelemetryJournal implements AutoCloseable {
+    
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int HEADER_BYTES = 8;
+    
+    private final Path directory;
+    private final int segmentSize;
+    
+    private long segment;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    
+    private Position checkpoint;
+    private final List<Record> recovered = new ArrayList<>();
+    
+    /**
+     * 打开日志目录（不存在时创建）
+     *
+     * @param directory 日志目录
+     * @param segmentSize 每段字节数
+     */
+    public TelemetryJournal(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        try {
+            Files.createDirectories(directory);
+            checkpoint = readCheckpoint();
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("打开遥测日志失败: " + directory, e);
+        }
+    }
+    
+    /**
+     * 日志中的位置（段号 + 段内偏移）
+     */
+    public static final class Position {
+        private final long segment;
+        private final int offset;
+        
+        public Position(long segment, int offset) {
+            this.segment = segment;
+            this.offset = offset;
+        }
+        
+        public long getSegment() { return segment; }
+        public int getOffset() { return offset; }
+        
+        @Override
+        public String toString() {
+            return segment + ":" + offset;
+        }
+    }
+    
+    /**
+     * 日志记录及其结束位置（写入数据库后以该位置作为检查点）
+     */
+    public static final class Record {
+        private final TelemetryData data;
+        private final Position end;
+        
+        Record(TelemetryData data, Position end) {
+            this.data = data;
+            this.end = end;
+        }
+        
+        public TelemetryData getData() { return data; }
+        public Position getEnd() { return end; }
+    }
+    
+    /**
+     * 打开时读取到的、检查点之后尚未写入数据库的记录
+     */
+    public List<Record> getRecovered() {
+        return recovered;
+    }
+    
+    /**
+     * 追加一组遥测数据并同步到磁盘
+     *
+     * @param data 遥测数据
+     * @return 各条数据对应的日志记录
+     */
+    public List<Record> append(List<TelemetryData> data) {
+        List<Record> records = new ArrayList<>(data.size());
+        int syncFrom = buffer.position();
+        for (TelemetryData item : data) {
+            byte[] payload = encode(item);
+            if (HEADER_BYTES + payload.length > segmentSize) {
+                throw new IllegalArgumentException("遥测日志记录超过段大小: " + payload.length + " 字节");
+            }
+            // 新段文件初始全为0，当前段剩余部分即为结束标记
+            if (buffer.remaining() < HEADER_BYTES + payload.length) {
+                buffer.force(syncFrom, buffer.position() - syncFrom);
+                openSegment(segment + 1);
+                syncFrom = 0;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            buffer.putInt(payload.length);
+            buffer.putInt((int) crc.getValue());
+            buffer.put(payload);
+            records.add(new Record(item, new Position(segment, buffer.position())));
+        }
+        // 恢复后追加时覆盖的位置之后可能残留旧数据，写入结束标记
+        int end = Math.min(buffer.position() + HEADER_BYTES, buffer.capacity());
+        if (end - buffer.position() == HEADER_BYTES) {
+            buffer.putInt(buffer.position(), 0);
+        }
+        buffer.force(syncFrom, end - syncFrom);
+        return records;
+    }
+    
+    /**
+     * 记录已写入数据库的位置，并删除检查点之前的整段文件
+     */
+    public void checkpoint(Position position) {
+        ByteBuffer content = ByteBuffer.allocate(12);
+        content.putLong(position.getSegment());
+        content.putInt(position.getOffset());
+        content.flip();
+        try (FileChannel file = FileChannel.open(directory.resolve(CHECKPOINT_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (content.hasRemaining()) {
+                file.write(content);
+            }
+            file.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入遥测日志检查点失败", e);
+        }
+        checkpoint = position;
+        for (long obsolete : listSegments()) {
+            if (obsolete < position.getSegment()) {
+                try {
+                    Files.deleteIfExists(segmentPath(obsolete));
+                } catch (IOException e) {
+                    System.err.println("删除遥测日志段失败: " + segmentPath(obsolete) + ", " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    /**
+     * 当前追加位置
+     */
+    public Position getWritePosition() {
+        return new Position(segment, buffer.position());
+    }
+    
+    /**
+     * 检查点之后尚未写入数据库的日志字节数
+     */
+    public long getPendingBytes() {
+        if (checkpoint.getSegment() == segment) {
+            return buffer.position() - checkpoint.getOffset();
+        }
+        return (long) (segment - checkpoint.getSegment()) * segmentSize - checkpoint.getOffset() + buffer.position();
+    }
+    
+    @Override
+    public void close() {
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("关闭遥测日志失败: " + e.getMessage());
+        }
+    }
+    
+    private Position readCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (Files.exists(file)) {
+            ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (content.remaining() >= 12) {
+                return new Position(content.getLong(), content.getInt());
+            }
+        }
+        List<Long> segments = listSegments();
+        return new Position(segments.isEmpty() ? 1 : segments.get(0), 0);
+    }
+    
+    /**
+     * 从检查点开始扫描各段，收集未写入数据库的记录，并把追加位置定位到最后一条完整记录之后
+     */
+    private void recover() {
+        List<Long> segments = listSegments();
+        long last = segments.isEmpty() ? checkpoint.getSegment() : Math.max(checkpoint.getSegment(), segments.get(segments.size() - 1));
+        for (long current = checkpoint.getSegment(); current <= last; current++) {
+            if (current != checkpoint.getSegment() && !Files.exists(segmentPath(current))) {
+                continue;
+            }
+            openSegment(current);
+            if (current == checkpoint.getSegment()) {
+                buffer.position(checkpoint.getOffset());
+            }
+            while (buffer.remaining() >= HEADER_BYTES) {
+                int start = buffer.position();
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    buffer.position(start);
+                    break;
+                }
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    buffer.position(start);
+                    break;
+                }
+                recovered.add(new Record(decode(payload), new Position(current, buffer.position())));
+            }
+        }
+        // 截断位置之后可能残留半条记录，写入结束标记
+        if (buffer.remaining() >= HEADER_BYTES) {
+            buffer.putInt(buffer.position(), 0);
+        }
+    }
+    
+    private void openSegment(long index) {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+            channel = FileChannel.open(segmentPath(index),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            segment = index;
+        } catch (IOException e) {
+            throw new UncheckedIOException("打开遥测日志段失败: " + segmentPath(index), e);
+        }
+    }
+    
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("segment-%08d.log", index));
+    }
+    
+    private List<Long> listSegments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                .filter(name -> name.startsWith("segment-") && name.endsWith(".log"))
+                .map(name -> Long.parseLong(name.substring("segment-".length(), name.length() - ".log".length())))
+                .sorted()
+                .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取遥测日志目录失败: " + directory, e);
+        }
+    }
+    
+    private static byte[] encode(TelemetryData data) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(data.getCommandId());
+            writeString(out, data.getParamCode());
+            writeString(out, data.getActualValue());
+            writeTime(out, data.getReceiveTime());
+            out.writeByte(data.getJudgeResult() == null ? -1 : data.getJudgeResult() ? 1 : 0);
+            writeTime(out, data.getJudgeTime());
+            writeString(out, data.getDataSource());
+            writeBytes(out, data.getRawPayload());
+            out.writeInt(data.getRepeatCount() == null ? -1 : data.getRepeatCount());
+            writeTime(out, data.getLastRepeatTime());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+    
+    private static TelemetryData decode(byte[] payload) {
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        TelemetryData data = new TelemetryData(in.getLong(), readString(in), readString(in));
+        data.setReceiveTime(readTime(in));
+        byte judgeResult = in.get();
+        data.setJudgeResult(judgeResult < 0 ? null : judgeResult == 1);
+        data.setJudgeTime(readTime(in));
+        data.setDataSource(readString(in));
+        data.setRawPayload(readBytes(in));
+        int repeatCount = in.getInt();
+        data.setRepeatCount(repeatCount < 0 ? null : repeatCount);
+        data.setLastRepeatTime(readTime(in));
+        return data;
+    }
+    
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = readBytes(in);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static byte[] readBytes(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+    
+    private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        if (time == null) {
+            out.writeLong(Long.MIN_VALUE);
+            return;
+        }
+        out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(time.getNano());
+    }
+    
+    private static LocalDateTime readTime(ByteBuffer in) {
+        long seconds = in.getLong();
+        if (seconds == Long.MIN_VALUE) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(seconds, in.getInt(), ZoneOffset.UTC);
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.springbootredis.service;
 
+import com.example.springbootredis.dto.CommandTelemetryStatsDTO;
+import com.example.springbootredis.dto.TelemetryValueDTO;
 import com.example.springbootredis.entity.Command;
 import com.example.springbootredis.entity.CommandTelemetryRelation;
 import com.example.springbootredis.entity.TelemetryData;
@@ -8,16 +10,25 @@ import com.example.springbootredis.entity.enums.CommandStatus;
 import com.example.springbootredis.entity.enums.JudgeOperator;
 import com.example.springbootredis.repository.CommandTelemetryRelationRepository;
 import com.example.springbootredis.repository.TelemetryDataRepository;
+import com.googlecode.aviator.Expression;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * 遥测参数判断服务
@@ -26,14 +37,41 @@ import java.util.stream.Collectors;
 public class TelemetryJudgeService {
     
     @Autowired
-    private CommandTelemetryRelationRepository relationRepository;
+    private TelemetryDataRepository telemetryDataRepository;
     
     @Autowired
-    private TelemetryDataRepository telemetryDataRepository;
+    private CommandTelemetryRelationRepository relationRepository;
     
     @Autowired
     private FormulaEvaluationService formulaEvaluationService;
     
+    @Autowired
+    private CommandSatisfactionTracker satisfactionTracker;
+    
+    @Autowired
+    private ParamWatcherIndex paramWatcherIndex;
+    
+    @Autowired
+    private TelemetrySnapshotStore snapshotStore;
+    
+    @Autowired
+    private TelemetryHistoryBuffers historyBuffers;
+    
+    @Autowired
+    private RelationJudgeStats relationJudgeStats;
+    
+    @Autowired
+    private TelemetryDeadbandFilter deadbandFilter;
+    
+    @Autowired
+    private JudgePlanCache judgePlanCache;
+    
+    @Autowired
+    private TelemetryWriteBehindBuffer writeBehindBuffer;
+    
+    @Autowired
+    private TelemetryRawMessageStore rawMessageStore;
+    
     /**
      * 判断单个遥测参数是否满足要求（支持简单比较和复杂公式）
      * 
@@ -61,21 +99,55 @@ public class TelemetryJudgeService {
      * @return 是否满足要求
      */
     public boolean judgeParameterWithFormula(CommandTelemetryRelation relation, Map<String, Object> telemetryData) {
+        long start = System.nanoTime();
+        boolean judgeResult = evaluateRelation(relation, telemetryData);
+        relationJudgeStats.record(relation, System.nanoTime() - start, judgeResult);
+        return judgeResult;
+    }
+    
+    /**
+     * 按判定计划判定关联关系：复杂公式使用计划中的编译结果，简单比较使用计划中的判定器，
+     * 计划中没有的关联关系按 {@link #judgeParameterWithFormula} 判定
+     */
+    private boolean judgeWithPlan(JudgePlan plan, CommandTelemetryRelation relation, Map<String, Object> telemetryData) {
+        long start = System.nanoTime();
+        boolean judgeResult = evaluateWithPlan(plan, relation, telemetryData);
+        relationJudgeStats.record(relation, System.nanoTime() - start, judgeResult);
+        return judgeResult;
+    }
+    
+    /**
+     * 按判定计划判定关联关系，不计入判定统计（完成校验使用）
+     */
+    private boolean evaluateWithPlan(JudgePlan plan, CommandTelemetryRelation relation, Map<String, Object> telemetryData) {
+        boolean judgeResult;
+        Expression expression = plan.getExpression(relation);
+        SimpleJudge simpleJudge = plan.getSimpleJudge(relation);
+        Object value = relation.getTelemetryParam() != null ? telemetryData.get(relation.getTelemetryParam().getParamCode()) : null;
+        if (expression != null) {
+            Map<String, Object> context = formulaEvaluationService.createComplexContext(telemetryData);
+            context.put(FormulaEvaluationService.COMMAND_ID_VARIABLE, relation.getCommandId());
+            judgeResult = formulaEvaluationService.evaluatePreCompiledExpression(expression, context);
+        } else if (simpleJudge != null && value != null) {
+            judgeResult = simpleJudge.test(value.toString());
+        } else {
+            judgeResult = evaluateRelation(relation, telemetryData);
+        }
+        return judgeResult;
+    }
+    
+    private boolean evaluateRelation(CommandTelemetryRelation relation, Map<String, Object> telemetryData) {
         try {
-            if ("COMPLEX".equals(relation.getFormulaType()) && relation.getFormulaExpression() != null) {
+            if (FormulaDependencyGraph.isComplex(relation)) {
                 // 使用复杂公式计算
                 Map<String, Object> context = formulaEvaluationService.createComplexContext(telemetryData);
+                context.put(FormulaEvaluationService.COMMAND_ID_VARIABLE, relation.getCommandId());
                 return formulaEvaluationService.evaluateComplexExpression(relation.getFormulaExpression(), context);
             } else {
-                // 使用简单比较
+                // 使用简单比较（类型化直接比较，不经过Aviator）
                 TelemetryParam param = relation.getTelemetryParam();
                 if (param != null) {
-                    return judgeParameter(
-                        telemetryData.get(param.getParamCode()).toString(),
-                        relation.getExpectedValue(),
-                        relation.getJudgeOperator(),
-                        param.getParamType()
-                    );
+                    return judgeSimple(relation, telemetryData.get(param.getParamCode()).toString());
                 }
             }
             return false;
@@ -85,127 +157,423 @@ public class TelemetryJudgeService {
         }
     }
     
+    /**
+     * 按关联关系的简单比较配置判断实际值
+     * 使用指令判定计划中已解析期望值的判定器（计划未缓存或配置不一致时临时构建），判定结果与Aviator简单表达式一致
+     * 
+     * @param relation 指令-遥测参数关联关系（需已加载遥测参数）
+     * @param actualValue 实际值
+     * @return 是否满足要求
+     */
+    public boolean judgeSimple(CommandTelemetryRelation relation, String actualValue) {
+        TelemetryParam param = relation.getTelemetryParam();
+        if (actualValue == null) {
+            return judgeParameter(null, relation.getExpectedValue(), relation.getJudgeOperator(), param.getParamType());
+        }
+        return simpleJudgeFor(relation, param).test(actualValue);
+    }
+    
+    private SimpleJudge simpleJudgeFor(CommandTelemetryRelation relation, TelemetryParam param) {
+        JudgePlan plan = relation.getCommandId() != null ? judgePlanCache.getIfPresent(relation.getCommandId()) : null;
+        SimpleJudge judge = plan != null ? plan.getSimpleJudge(relation) : null;
+        if (judge == null || !judge.matches(relation.getJudgeOperator(), relation.getExpectedValue(), param.getParamType())) {
+            judge = SimpleJudge.of(relation.getJudgeOperator(), relation.getExpectedValue(), param.getParamType());
+        }
+        return judge;
+    }
+    
     /**
      * 检查指令的所有遥测参数是否都满足
+     * 先读取内存中的参数满足状态（常见的"尚未完成"不做任何判定）；状态显示已完成时，
+     * 再按各参数最新值重新判定必须的关联关系加以确认（时间窗口公式、只在内存中重判的结果可能已过期），
+     * 判定顺序见 {@link #getRelationJudgeOrder}；时间窗口函数以该指令最近一帧的样本时间（消息时间戳）为判定时刻
      * 
      * @param commandId 指令ID
      * @return 是否所有必须参数都满足
      */
     public boolean checkCommandCompletion(Long commandId) {
-        List<CommandTelemetryRelation> relations = relationRepository.findRequiredByCommandId(commandId);
-        
+        if (!satisfactionTracker.getState(commandId).isComplete()) {
+            return false;
+        }
+        return verifyRequiredRelations(commandId, historyBuffers.latestTime(commandId));
+    }
+    
+    /**
+     * 按本机当前时间检查指令的所有遥测参数是否都满足（定时重新判定时间窗口公式后使用）
+     * 当前时间按 {@link TelemetryHistoryBuffers#evaluationTime} 换算为该指令的样本时间后作为判定时刻
+     * 
+     * @param commandId 指令ID
+     * @param nowMillis 本机当前时间（毫秒）
+     * @return 是否所有必须参数都满足
+     */
+    public boolean checkCommandCompletion(Long commandId, long nowMillis) {
+        if (!satisfactionTracker.getState(commandId).isComplete()) {
+            return false;
+        }
+        return verifyRequiredRelations(commandId, historyBuffers.evaluationTime(commandId, nowMillis));
+    }
+    
+    /**
+     * 按期望代价从小到大逐个判定必须的关联关系，遇到不满足即停止
+     */
+    private boolean verifyRequiredRelations(Long commandId, Long evaluationTime) {
+        JudgePlan plan = judgePlanCache.get(commandId);
+        // 只判定满足状态中结果所归属的关联关系，同一参数的其他关联关系沿用其结果
+        List<CommandTelemetryRelation> relations = plan.getRequiredOwners();
         if (relations.isEmpty()) {
-            return true; // 没有必须满足的参数，认为已完成
+            return true;
         }
-        
-        for (CommandTelemetryRelation relation : relations) {
-            TelemetryParam param = relation.getTelemetryParam();
-            if (param == null) {
-                continue;
-            }
-            
-            // 获取该参数的最新遥测数据
-            TelemetryData latestData = telemetryDataRepository
-                .findLatestByCommandIdAndParamCode(commandId, param.getParamCode())
-                .orElse(null);
-            
-            if (latestData == null || latestData.getJudgeResult() == null || !latestData.getJudgeResult()) {
-                return false; // 有必须参数未满足
+        Map<String, Object> telemetryData = snapshotStore.getLatestValues(commandId);
+        if (evaluationTime != null) {
+            telemetryData.put(FormulaEvaluationService.EVALUATION_TIME_VARIABLE, evaluationTime);
+        }
+        int evaluations = 0;
+        for (CommandTelemetryRelation relation : relationJudgeStats.order(relations)) {
+            evaluations++;
+            if (!evaluateWithPlan(plan, relation, telemetryData)) {
+                relationJudgeStats.recordVerification(evaluations, true);
+                if (TelemetryTrace.isEnabled()) {
+                    System.out.println(String.format("指令完成确认未通过: 指令ID=%d, 参数=%s, 已判定=%d/%d",
+                        commandId, FormulaDependencyGraph.ownParamCode(relation), evaluations, relations.size()));
+                }
+                return false;
             }
         }
-        
+        relationJudgeStats.recordVerification(evaluations, false);
         return true;
     }
     
     /**
-     * 计算指令完成度
+     * 获取指令关联关系的判定顺序及运行统计（用于调优）
+     * 
+     * @param commandId 指令ID
+     * @return relations：按完成确认的判定顺序排列的各关联关系统计；verification：完成确认的整体统计
+     */
+    public Map<String, Object> getRelationJudgeOrder(Long commandId) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("relations", relationJudgeStats.describe(judgePlanCache.lookup(commandId).getRelations()));
+        result.put("verification", relationJudgeStats.getStats());
+        return result;
+    }
+    
+    /**
+     * 计算指令完成度（按权重，读取内存中的参数满足状态）
      * 
      * @param commandId 指令ID
      * @return 完成度（0-100）
      */
     public int calculateCommandProgress(Long commandId) {
-        List<CommandTelemetryRelation> allRelations = relationRepository.findByCommandIdWithTelemetryParam(commandId);
+        return satisfactionTracker.getState(commandId).getProgress();
+    }
+    
+    /**
+     * 处理遥测数据并判断（支持复杂公式）
+     * 除该参数自身的关联关系外，公式中引用该参数的其他关联关系也会按依赖图重新判定
+     * 
+     * @param commandId 指令ID
+     * @param paramCode 参数代码
+     * @param actualValue 实际值
+     * @param rawMessage 原始消息
+     * @return 判断结果
+     */
+    @Transactional
+    public boolean processTelemetryData(Long commandId, String paramCode, String actualValue, String rawMessage) {
+        TelemetryData sample = new TelemetryData(commandId, paramCode, actualValue);
+        sample.setRawMessage(rawMessage);
+        return processTelemetrySample(sample);
+    }
+    
+    /**
+     * 处理单个遥测样本并判断，以样本时间（遥测消息的时间戳）作为时间窗口函数的判定时刻
+     * 
+     * @param sample 遥测样本（需已设置指令ID、参数代码和实际值，原始消息和样本时间可为空）
+     * @return 判断结果
+     */
+    @Transactional
+    public boolean processTelemetrySample(TelemetryData sample) {
+        Long commandId = sample.getCommandId();
+        List<TelemetryData> judged = judgeAndSaveFrames(commandId, List.of(List.of(sample)));
+        if (judged.isEmpty()) {
+            return false;
+        }
         
-        if (allRelations.isEmpty()) {
-            return 100; // 没有参数，认为100%完成
+        boolean judgeResult = Boolean.TRUE.equals(sample.getJudgeResult());
+        if (TelemetryTrace.isEnabled()) {
+            System.out.println(String.format("遥测参数判断: 指令ID=%d, 参数=%s, 实际值=%s, 结果=%s",
+                commandId, sample.getParamCode(), sample.getActualValue(), judgeResult ? "满足" : "不满足"));
         }
         
-        int totalWeight = 0;
-        int satisfiedWeight = 0;
+        return judgeResult;
+    }
+    
+    /**
+     * 处理一帧多参数遥测数据并判断
+     * 同一帧内的参数共享时间戳：先把整帧的值放入上下文，再一次性判定帧内涉及的每个关联关系
+     * 
+     * @param commandId 指令ID
+     * @param frame 同一帧的遥测数据（需已设置参数代码、实际值和原始消息）
+     * @return 已判定的遥测数据（含按死区合并未单独保存的样本，没有关联关系的参数不保存）
+     */
+    @Transactional
+    public List<TelemetryData> processTelemetryFrame(Long commandId, List<TelemetryData> frame) {
+        return judgeAndSaveFrames(commandId, List.of(frame));
+    }
+    
+    /**
+     * 批量处理同一指令的遥测数据并判断
+     * 关联关系和历史数据只查询一次，各帧按顺序判定（后到的帧能看到先到帧的值），
+     * 全部判定完成后在同一事务内一次性保存
+     * 
+     * @param commandId 指令ID
+     * @param frames 按接收顺序排列的遥测帧，单参数消息为只含一个样本的帧
+     * @return 已判定的遥测数据（含按死区合并未单独保存的样本，没有关联关系的样本不保存）
+     */
+    @Transactional
+    public List<TelemetryData> processTelemetryBatch(Long commandId, List<List<TelemetryData>> frames) {
+        return judgeAndSaveFrames(commandId, frames);
+    }
+    
+    /**
+     * 按帧判定并批量保存遥测数据
+     * 每帧按依赖图找出依赖帧内参数的关联关系，只重新判定这些关联关系：
+     * 自身参数在帧内的，结果随样本保存；自身参数不在帧内的（被其他参数的变化影响），
+     * 结果只更新内存中的满足状态，自身参数尚未收到过数据的不判定。
+     * 参数配置了压缩模式时，值在死区内且结果不变的样本并入该参数上一条保存的数据，不再插入；
+     * 帧的原始报文只记录在帧内第一个保存的样本上（第一个样本被合并或没有关联关系时不会丢失）
+     */
+    private List<TelemetryData> judgeAndSaveFrames(Long commandId, List<List<TelemetryData>> frames) {
+        JudgePlan plan = judgePlanCache.get(commandId);
+        FormulaDependencyGraph graph = plan.getGraph();
         
-        for (CommandTelemetryRelation relation : allRelations) {
-            TelemetryParam param = relation.getTelemetryParam();
-            if (param == null) {
-                continue;
+        // 只有复杂公式需要其他参数的最新值
+        Map<String, Object> telemetryData = graph.hasComplex() ? snapshotStore.getLatestValues(commandId) : new HashMap<>();
+        
+        TelemetryDeadbandFilter.FoldBatch foldBatch = deadbandFilter.newBatch();
+        List<TelemetryData> judged = new ArrayList<>();
+        List<TelemetryData> saved = new ArrayList<>();
+        // 按判定顺序记录的全部结果（含受影响关联关系的重新判定结果），用于更新满足状态
+        List<TelemetryData> results = new ArrayList<>();
+        int sampleCount = 0;
+        int satisfiedCount = 0;
+        int reevaluatedCount = 0;
+        for (List<TelemetryData> frame : frames) {
+            sampleCount += frame.size();
+            // 先记录参数历史，使时间窗口函数的窗口包含本帧
+            historyBuffers.record(commandId, frame);
+            Map<String, TelemetryData> frameSamples = new LinkedHashMap<>();
+            byte[] rawPayload = frame.isEmpty() ? null : frame.get(0).getRawPayload();
+            boolean rawMessageSaved = false;
+            telemetryData.put(FormulaEvaluationService.EVALUATION_TIME_VARIABLE, frameTime(frame));
+            for (TelemetryData sample : frame) {
+                telemetryData.put(sample.getParamCode(), sample.getActualValue());
+                frameSamples.put(sample.getParamCode(), sample);
             }
             
-            totalWeight += relation.getWeight();
-            
-            // 获取该参数的最新遥测数据
-            TelemetryData latestData = telemetryDataRepository
-                .findLatestByCommandIdAndParamCode(commandId, param.getParamCode())
-                .orElse(null);
+            for (TelemetryData sample : frame) {
+                CommandTelemetryRelation relation = graph.getOwner(sample.getParamCode());
+                if (relation == null) {
+                    TelemetryTrace.println("未找到指令 " + commandId + " 与参数 " + sample.getParamCode() + " 的关联关系");
+                    continue;
+                }
+                
+                sample.setCommandId(commandId);
+                boolean folded = foldBatch.judgeOrFold(commandId, relation, sample,
+                    () -> judgeWithPlan(plan, relation, telemetryData));
+                if (!folded) {
+                    sample.setRawPayload(rawMessageSaved ? null : rawPayload);
+                    rawMessageSaved = true;
+                    foldBatch.saving(commandId, sample);
+                    saved.add(sample);
+                }
+                judged.add(sample);
+                results.add(sample);
+                if (sample.getJudgeResult()) {
+                    satisfiedCount++;
+                }
+            }
             
-            if (latestData != null && latestData.getJudgeResult() != null && latestData.getJudgeResult()) {
-                satisfiedWeight += relation.getWeight();
+            for (CommandTelemetryRelation relation : graph.affectedBy(frameSamples.keySet())) {
+                String ownParamCode = FormulaDependencyGraph.ownParamCode(relation);
+                if (frameSamples.containsKey(ownParamCode) || !telemetryData.containsKey(ownParamCode)) {
+                    continue;
+                }
+                results.add(reevaluate(plan, relation, telemetryData));
+                reevaluatedCount++;
             }
         }
         
-        if (totalWeight == 0) {
-            return 100;
+        writeBehindBuffer.write(saved);
+        foldBatch.flush();
+        satisfactionTracker.recordResults(commandId, results);
+        snapshotStore.recordSamples(commandId, judged);
+        
+        if (TelemetryTrace.isEnabled()) {
+            System.out.println(String.format("遥测参数批量判断: 指令ID=%d, 帧数=%d, 样本数=%d, 已保存=%d, 合并=%d, 满足=%d, 依赖重判=%d",
+                commandId, frames.size(), sampleCount, saved.size(), foldBatch.getFoldedCount(), satisfiedCount, reevaluatedCount));
         }
         
-        return (int) Math.round((double) satisfiedWeight / totalWeight * 100);
+        return judged;
     }
     
     /**
-     * 处理遥测数据并判断（支持复杂公式）
+     * 按当前时间重新判定使用时间窗口函数且尚未满足的关联关系
+     * 参数值保持不变时不会再有新帧触发判定（死区合并或设备不再发送），heldFor等公式在条件持续到窗口长度后才变为满足，
+     * 由定时任务调用；只应用变为满足的结果，不满足的由下一帧判定。结果只更新内存中的满足状态。
+     * 判定时刻为本机当前时间按 {@link TelemetryHistoryBuffers#evaluationTime} 换算出的各指令样本时间
+     *
+     * @param now 本机当前时间（毫秒）
+     * @return 有关联关系变为满足的指令ID
+     */
+    public List<Long> reevaluateTemporalRelations(long now) {
+        List<Long> changed = new ArrayList<>();
+        for (Long commandId : satisfactionTracker.getTrackedCommandIds()) {
+            CommandSatisfactionState state = satisfactionTracker.getCachedState(commandId);
+            if (state == null || state.isComplete()) {
+                continue;
+            }
+            JudgePlan plan = judgePlanCache.getIfPresent(commandId);
+            if (plan == null) {
+                continue;
+            }
+            Map<String, Object> telemetryData = null;
+            List<TelemetryData> results = new ArrayList<>();
+            for (CommandTelemetryRelation relation : plan.getTemporalRelations()) {
+                String ownParamCode = FormulaDependencyGraph.ownParamCode(relation);
+                if (state.isSatisfied(ownParamCode)) {
+                    continue;
+                }
+                if (telemetryData == null) {
+                    telemetryData = snapshotStore.getLatestValues(commandId);
+                    telemetryData.put(FormulaEvaluationService.EVALUATION_TIME_VARIABLE, historyBuffers.evaluationTime(commandId, now));
+                }
+                if (!telemetryData.containsKey(ownParamCode)) {
+                    continue;
+                }
+                TelemetryData result = reevaluate(plan, relation, telemetryData);
+                if (result.getJudgeResult()) {
+                    results.add(result);
+                }
+            }
+            if (!results.isEmpty()) {
+                satisfactionTracker.recordResults(commandId, results);
+                changed.add(commandId);
+            }
+        }
+        return changed;
+    }
+    
+    /**
+     * 帧的判定时刻：帧内样本共享的消息时间戳（消息未携带时为接收时间）
+     */
+    private static long frameTime(List<TelemetryData> frame) {
+        return TelemetryHistoryBuffers.toEpochMillis(frame.isEmpty() ? null : frame.get(0).getSampleTime());
+    }
+    
+    /**
+     * 重新判定受其他参数影响的关联关系，返回不落库的判定结果（参数值为该参数当前最新值）
+     */
+    private TelemetryData reevaluate(JudgePlan plan, CommandTelemetryRelation relation, Map<String, Object> telemetryData) {
+        String ownParamCode = FormulaDependencyGraph.ownParamCode(relation);
+        Object latestValue = telemetryData.get(ownParamCode);
+        TelemetryData result = new TelemetryData(plan.getCommandId(), ownParamCode, latestValue == null ? null : latestValue.toString());
+        result.setJudgeResult(judgeWithPlan(plan, relation, telemetryData));
+        return result;
+    }
+    
+    /**
+     * 处理不带指令代码的一帧遥测数据
+     * 通过参数关注索引把每个样本分发给所有依赖该参数的执行中指令关联关系判定，简单比较只用样本值，不查询数据库；
+     * 复杂公式需要同一指令其他参数的值，从该指令的最新值快照构建上下文。
+     * 自身参数在帧内的关联关系每个指令各保存一份判定结果（按死区合并的除外），受影响的其他关联关系只更新满足状态
      * 
-     * @param commandId 指令ID
-     * @param paramCode 参数代码
-     * @param actualValue 实际值
-     * @param rawMessage 原始消息
-     * @return 判断结果
+     * @param frame 同一帧的遥测数据（需已设置参数代码、实际值和原始消息，指令ID为空）
+     * @return 全部判定结果（已设置指令ID，含只更新满足状态的重新判定结果），没有指令关注时为空
      */
     @Transactional
-    public boolean processTelemetryData(Long commandId, String paramCode, String actualValue, String rawMessage) {
-        // 查找关联关系
-        List<CommandTelemetryRelation> relations = relationRepository.findByCommandIdWithTelemetryParam(commandId);
-        CommandTelemetryRelation relation = relations.stream()
-            .filter(r -> r.getTelemetryParam() != null && paramCode.equals(r.getTelemetryParam().getParamCode()))
-            .findFirst()
-            .orElse(null);
-        
-        if (relation == null) {
-            System.out.println("未找到指令 " + commandId + " 与参数 " + paramCode + " 的关联关系");
-            return false;
+    public List<TelemetryData> processWatchedFrame(List<TelemetryData> frame) {
+        Map<String, Object> frameValues = new HashMap<>();
+        frameValues.put(FormulaEvaluationService.EVALUATION_TIME_VARIABLE, frameTime(frame));
+        byte[] rawPayload = null;
+        for (TelemetryData sample : frame) {
+            frameValues.put(sample.getParamCode(), sample.getActualValue());
+            if (rawPayload == null) {
+                rawPayload = sample.getRawPayload();
+            }
         }
         
-        TelemetryParam param = relation.getTelemetryParam();
-        
-        // 创建遥测数据上下文
-        Map<String, Object> telemetryData = new HashMap<>();
-        telemetryData.put(paramCode, actualValue);
-        
-        // 获取该指令的所有历史遥测数据，用于复杂公式计算
-        List<TelemetryData> historicalData = telemetryDataRepository.findByCommandIdOrderByReceiveTimeDesc(commandId);
-        for (TelemetryData data : historicalData) {
-            telemetryData.put(data.getParamCode(), data.getActualValue());
+        Map<Long, Map<String, Object>> complexContexts = new HashMap<>();
+        Map<Long, JudgePlan> plans = new HashMap<>();
+        Map<Long, List<TelemetryData>> judgedByCommand = new LinkedHashMap<>();
+        Map<Long, List<TelemetryData>> resultsByCommand = new LinkedHashMap<>();
+        Set<CommandTelemetryRelation> evaluated = new HashSet<>();
+        Set<Long> recordedCommands = new HashSet<>();
+        TelemetryDeadbandFilter.FoldBatch foldBatch = deadbandFilter.newBatch();
+        Set<Long> rawMessageCommands = new HashSet<>();
+        List<TelemetryData> judged = new ArrayList<>();
+        List<TelemetryData> saved = new ArrayList<>();
+        for (TelemetryData sample : frame) {
+            for (ParamWatcherIndex.Watcher watcher : paramWatcherIndex.getWatchers(sample.getParamCode())) {
+                CommandTelemetryRelation relation = watcher.getRelation();
+                if (!evaluated.add(relation)) {
+                    continue;
+                }
+                if (recordedCommands.add(watcher.getCommandId())) {
+                    historyBuffers.record(watcher.getCommandId(), frame);
+                }
+                JudgePlan plan = plans.computeIfAbsent(watcher.getCommandId(), judgePlanCache::get);
+                Map<String, Object> context = frameValues;
+                if (FormulaDependencyGraph.isComplex(relation)) {
+                    context = complexContexts.computeIfAbsent(watcher.getCommandId(), commandId -> {
+                        Map<String, Object> values = snapshotStore.getLatestValues(commandId);
+                        values.putAll(frameValues);
+                        return values;
+                    });
+                }
+                
+                List<TelemetryData> commandResults = resultsByCommand.computeIfAbsent(watcher.getCommandId(), k -> new ArrayList<>());
+                if (!frameValues.containsKey(watcher.getParamCode())) {
+                    // 自身参数不在帧内：受依赖参数影响，自身参数收到过数据时才重新判定
+                    if (context.containsKey(watcher.getParamCode())) {
+                        commandResults.add(reevaluate(plan, relation, context));
+                    }
+                    continue;
+                }
+                
+                TelemetryData data = new TelemetryData(watcher.getCommandId(), watcher.getParamCode(),
+                    String.valueOf(frameValues.get(watcher.getParamCode())));
+                Map<String, Object> judgeContext = context;
+                boolean folded = foldBatch.judgeOrFold(watcher.getCommandId(), relation, data,
+                    () -> judgeWithPlan(plan, relation, judgeContext));
+                if (!folded) {
+                    // 原始报文每个指令只记录一次
+                    if (rawMessageCommands.add(watcher.getCommandId())) {
+                        data.setRawPayload(rawPayload);
+                    }
+                    foldBatch.saving(watcher.getCommandId(), data);
+                    saved.add(data);
+                }
+                judgedByCommand.computeIfAbsent(watcher.getCommandId(), k -> new ArrayList<>()).add(data);
+                commandResults.add(data);
+                judged.add(data);
+            }
         }
         
-        // 判断参数是否满足要求
-        boolean judgeResult = judgeParameterWithFormula(relation, telemetryData);
-        
-        // 保存遥测数据
-        TelemetryData telemetryDataEntity = new TelemetryData(commandId, paramCode, actualValue);
-        telemetryDataEntity.setJudgeResult(judgeResult);
-        telemetryDataEntity.setRawMessage(rawMessage);
-        telemetryDataRepository.save(telemetryDataEntity);
+        List<TelemetryData> results = new ArrayList<>();
+        resultsByCommand.values().forEach(results::addAll);
+        if (results.isEmpty()) {
+            return results;
+        }
+        writeBehindBuffer.write(saved);
+        foldBatch.flush();
+        resultsByCommand.forEach(satisfactionTracker::recordResults);
+        judgedByCommand.forEach(snapshotStore::recordSamples);
         
-        System.out.println(String.format("遥测参数判断: 指令ID=%d, 参数=%s, 实际值=%s, 公式类型=%s, 结果=%s",
-            commandId, paramCode, actualValue, relation.getFormulaType(), judgeResult ? "满足" : "不满足"));
+        if (TelemetryTrace.isEnabled()) {
+            System.out.println(String.format("遥测参数分发判断: 样本数=%d, 关注指令数=%d, 已保存=%d, 合并=%d, 依赖重判=%d",
+                frame.size(), resultsByCommand.size(), saved.size(), foldBatch.getFoldedCount(), results.size() - judged.size()));
+        }
         
-        return judgeResult;
+        return results;
     }
     
     /**
@@ -220,79 +588,176 @@ public class TelemetryJudgeService {
     @Transactional
     public boolean processTelemetryDataSimple(Long commandId, String paramCode, String actualValue, String rawMessage) {
         // 查找关联关系
-        List<CommandTelemetryRelation> relations = relationRepository.findByCommandIdWithTelemetryParam(commandId);
-        CommandTelemetryRelation relation = relations.stream()
-            .filter(r -> r.getTelemetryParam() != null && paramCode.equals(r.getTelemetryParam().getParamCode()))
-            .findFirst()
-            .orElse(null);
+        JudgePlan plan = judgePlanCache.get(commandId);
+        CommandTelemetryRelation relation = plan.getGraph().getOwner(paramCode);
         
         if (relation == null) {
-            System.out.println("未找到指令 " + commandId + " 与参数 " + paramCode + " 的关联关系");
+            TelemetryTrace.println("未找到指令 " + commandId + " 与参数 " + paramCode + " 的关联关系");
             return false;
         }
         
-        TelemetryParam param = relation.getTelemetryParam();
-        
         // 判断参数是否满足要求
-        boolean judgeResult = judgeParameter(
-            actualValue, 
-            relation.getExpectedValue(), 
-            relation.getJudgeOperator(),
-            param.getParamType()
-        );
+        SimpleJudge simpleJudge = plan.getSimpleJudge(relation);
+        boolean judgeResult = simpleJudge != null && actualValue != null
+            ? simpleJudge.test(actualValue) : judgeSimple(relation, actualValue);
         
         // 保存遥测数据
         TelemetryData telemetryData = new TelemetryData(commandId, paramCode, actualValue);
         telemetryData.setJudgeResult(judgeResult);
         telemetryData.setRawMessage(rawMessage);
-        telemetryDataRepository.save(telemetryData);
+        writeBehindBuffer.write(List.of(telemetryData));
+        satisfactionTracker.recordResults(commandId, List.of(telemetryData));
+        snapshotStore.recordSamples(commandId, List.of(telemetryData));
         
-        System.out.println(String.format("遥测参数判断: 指令ID=%d, 参数=%s, 实际值=%s, 期望值=%s, 操作符=%s, 结果=%s",
-            commandId, paramCode, actualValue, relation.getExpectedValue(), 
-            relation.getJudgeOperator(), judgeResult ? "满足" : "不满足"));
+        if (TelemetryTrace.isEnabled()) {
+            System.out.println(String.format("遥测参数判断: 指令ID=%d, 参数=%s, 实际值=%s, 期望值=%s, 操作符=%s, 结果=%s",
+                commandId, paramCode, actualValue, relation.getExpectedValue(), 
+                relation.getJudgeOperator(), judgeResult ? "满足" : "不满足"));
+        }
         
         return judgeResult;
     }
     
     /**
      * 获取指令的遥测参数统计信息
+     * 已加载满足状态的指令直接读取内存，否则执行一条聚合查询（不为统计重建满足状态）
      * 
      * @param commandId 指令ID
      * @return 统计信息
      */
     public Map<String, Object> getCommandTelemetryStats(Long commandId) {
-        List<CommandTelemetryRelation> relations = relationRepository.findByCommandIdWithTelemetryParam(commandId);
+        return getCommandTelemetryStats(List.of(commandId)).get(commandId);
+    }
+    
+    /**
+     * 批量获取多个指令的遥测参数统计信息（指令列表等场景）
+     * 已加载满足状态的指令读取内存，其余指令合并为一条聚合查询，按参数最新值表中保存的判定结果统计；
+     * 异步写入开启时尚未写入数据库的判定结果、复杂公式因依赖参数变化只在内存中重新判定的结果不计入
+     * 
+     * @param commandIds 指令ID
+     * @return 指令ID -> 统计信息（按传入顺序）
+     */
+    public Map<Long, Map<String, Object>> getCommandTelemetryStats(Collection<Long> commandIds) {
+        Map<Long, Map<String, Object>> result = new LinkedHashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long commandId : commandIds) {
+            CommandSatisfactionState state = satisfactionTracker.getCachedState(commandId);
+            result.put(commandId, state != null ? state.toStats() : null);
+            if (state == null) {
+                missing.add(commandId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
         
-        int totalParams = relations.size();
-        int requiredParams = (int) relations.stream().filter(CommandTelemetryRelation::getRequired).count();
-        int satisfiedParams = 0;
-        int unsatisfiedParams = 0;
+        Map<Long, CommandTelemetryStatsDTO> summaries = new HashMap<>();
+        for (CommandTelemetryStatsDTO summary : relationRepository.summarizeByCommandIds(missing)) {
+            summaries.put(summary.getCommandId(), summary);
+        }
+        for (Long commandId : missing) {
+            CommandTelemetryStatsDTO summary = summaries.get(commandId);
+            result.put(commandId, (summary != null ? summary : CommandTelemetryStatsDTO.empty(commandId)).toStats());
+        }
+        return result;
+    }
+    
+    /**
+     * 查看一条遥测数据的判定详情（排查判定问题用）
+     * 原始消息不在遥测数据表中，从原始消息表按数据ID读取并解压，未被采样或已过期时为null
+     * 
+     * @param dataId 遥测数据ID
+     * @return 遥测数据字段和原始消息，数据不存在时为null
+     */
+    public Map<String, Object> getTelemetryDetail(Long dataId) {
+        TelemetryData data = telemetryDataRepository.findById(dataId).orElse(null);
+        if (data == null) {
+            return null;
+        }
+        Map<String, Object> detail = new LinkedHashMap<>();
+        detail.put("id", data.getId());
+        detail.put("commandId", data.getCommandId());
+        detail.put("paramCode", data.getParamCode());
+        detail.put("actualValue", data.getActualValue());
+        detail.put("receiveTime", data.getReceiveTime());
+        detail.put("judgeResult", data.getJudgeResult());
+        detail.put("judgeTime", data.getJudgeTime());
+        detail.put("repeatCount", data.getRepeatCount());
+        detail.put("rawMessage", rawMessageStore.load(dataId).orElse(null));
+        return detail;
+    }
+    
+    /**
+     * 用指令在时间范围内的历史遥测数据回测公式
+     * 按接收顺序流式读取公式变量的取值（只读参数代码、实际值和接收时间），每个变量变化时生成一行
+     * （各变量取当时的最新值，未收到或非数值为NaN），再批量计算整段历史（公式支持时按列计算，否则逐行计算）
+     * 
+     * @param commandId 指令ID
+     * @param formulaExpression 待回测的公式表达式
+     * @param startTime 开始时间（包含）
+     * @param endTime 结束时间（不包含）
+     * @return 行数、满足行数、首次满足时间、是否按列计算和计算耗时
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> backtestFormula(Long commandId, String formulaExpression,
+                                               LocalDateTime startTime, LocalDateTime endTime) {
+        String[] variables = formulaEvaluationService.getExpressionVariables(formulaExpression);
+        Map<String, Integer> variableIndex = new HashMap<>();
+        for (int i = 0; i < variables.length; i++) {
+            variableIndex.put(variables[i], i);
+        }
         
-        for (CommandTelemetryRelation relation : relations) {
-            TelemetryParam param = relation.getTelemetryParam();
-            if (param == null) {
-                continue;
-            }
-            
-            TelemetryData latestData = telemetryDataRepository
-                .findLatestByCommandIdAndParamCode(commandId, param.getParamCode())
-                .orElse(null);
-            
-            if (latestData != null && latestData.getJudgeResult() != null) {
-                if (latestData.getJudgeResult()) {
-                    satisfiedParams++;
-                } else {
-                    unsatisfiedParams++;
+        double[][] columns = new double[variables.length][1024];
+        LocalDateTime[] rowTimes = new LocalDateTime[1024];
+        double[] latest = new double[variables.length];
+        Arrays.fill(latest, Double.NaN);
+        int rowCount = 0;
+        if (variables.length > 0) {
+            try (Stream<TelemetryValueDTO> values = telemetryDataRepository.streamValues(
+                    commandId, variableIndex.keySet(), startTime, endTime)) {
+                for (TelemetryValueDTO value : (Iterable<TelemetryValueDTO>) values::iterator) {
+                    latest[variableIndex.get(value.getParamCode())] = toDouble(value.getActualValue());
+                    if (rowCount == rowTimes.length) {
+                        int capacity = rowCount * 2;
+                        for (int v = 0; v < variables.length; v++) {
+                            columns[v] = Arrays.copyOf(columns[v], capacity);
+                        }
+                        rowTimes = Arrays.copyOf(rowTimes, capacity);
+                    }
+                    for (int v = 0; v < variables.length; v++) {
+                        columns[v][rowCount] = latest[v];
+                    }
+                    rowTimes[rowCount++] = value.getReceiveTime();
                 }
             }
         }
         
-        return Map.of(
-            "totalParams", totalParams,
-            "requiredParams", requiredParams,
-            "satisfiedParams", satisfiedParams,
-            "unsatisfiedParams", unsatisfiedParams,
-            "progress", calculateCommandProgress(commandId)
-        );
+        Map<String, double[]> columnsByName = new LinkedHashMap<>();
+        for (int v = 0; v < variables.length; v++) {
+            columnsByName.put(variables[v], columns[v]);
+        }
+        long startNanos = System.nanoTime();
+        BitSet satisfied = formulaEvaluationService.evaluateColumnar(formulaExpression, columnsByName, rowCount);
+        long elapsedNanos = System.nanoTime() - startNanos;
+        
+        int firstSatisfied = satisfied.nextSetBit(0);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("rows", rowCount);
+        result.put("satisfiedRows", satisfied.cardinality());
+        result.put("firstSatisfiedTime", firstSatisfied >= 0 ? rowTimes[firstSatisfied] : null);
+        result.put("columnar", formulaEvaluationService.isColumnar(formulaExpression, columnsByName.keySet()));
+        result.put("evaluateMillis", elapsedNanos / 1_000_000.0);
+        return result;
+    }
+    
+    private static double toDouble(String value) {
+        if (value == null) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
     }
 }
@@ -0,0 +1,53 @@
+package com.example.springbootredis.service;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * 参数最新值表一次性回填
+ * 升级前保存的遥测数据没有对应的最新值行，而满足状态、最新值快照和死区锚点只从最新值表加载；
+ * 最新值表为空而遥测数据表有数据时，用一条 INSERT ... SELECT 把每个指令每个参数ID最大的一条写入最新值表。
+ * 在所有单例创建之后、Kafka监听容器启动之前执行，回填完成前不会有新数据写入
+ */
+@Component
+public class TelemetryLatestBackfill implements SmartInitializingSingleton {
+    
+    private static final String BACKFILL_SQL = "INSERT INTO tb_telemetry_latest "
+        + "(command_id, param_code, data_id, actual_value, judge_result, receive_time) "
+        + "SELECT td.command_id, td.param_code, td.id, td.actual_value, td.judge_result, td.receive_time "
+        + "FROM tb_telemetry_data td "
+        + "JOIN (SELECT MAX(id) AS id FROM tb_telemetry_data GROUP BY command_id, param_code) latest ON td.id = latest.id";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            backfillIfEmpty();
+        } catch (Exception e) {
+            System.err.println("回填参数最新值表失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 最新值表为空时从遥测数据表回填
+     *
+     * @return 回填的行数
+     */
+    public int backfillIfEmpty() {
+        Boolean latestExists = jdbcTemplate.queryForObject(
+            "SELECT EXISTS (SELECT 1 FROM tb_telemetry_latest)", Boolean.class);
+        Boolean dataExists = jdbcTemplate.queryForObject(
+            "SELECT EXISTS (SELECT 1 FROM tb_telemetry_data)", Boolean.class);
+        if (Boolean.TRUE.equals(latestExists) || !Boolean.TRUE.equals(dataExists)) {
+            return 0;
+        }
+        long start = System.currentTimeMillis();
+        int rows = jdbcTemplate.update(BACKFILL_SQL);
+        System.out.println("已从遥测数据回填参数最新值 " + rows + " 条，耗时 " + (System.currentTimeMillis() - start) + " ms");
+        return rows;
+    }
+}
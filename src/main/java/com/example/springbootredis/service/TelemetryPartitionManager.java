@@ -0,0 +1,258 @@
+package com.example.springbootredis.service;
+
+import com.example.springbootredis.entity.enums.CommandStatus;
+import com.example.springbootredis.repository.TelemetryDataRepository;
+import com.example.springbootredis.repository.TelemetryLatestRepository;
+import com.example.springbootredis.repository.TelemetryRawMessageRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 遥测数据表按天分区管理（MySQL）
+ * tb_telemetry_data 按 TO_DAYS(receive_time) 做RANGE分区，每天一个分区（p20260101 存放当天数据），
+ * 末尾的 p_max 分区接收超出已建分区范围的数据。转换为分区表会重建整张表，不在应用中执行，
+ * 由迁移脚本 db/migration/V1__partition_telemetry_data.sql 在维护窗口完成；开启后应用每天提前创建之后若干天的分区
+ * （拆分空的 p_max），过期数据按整个分区删除，不逐行删除、不产生大事务。
+ * 按接收时间范围查询时MySQL只扫描涉及的分区。非MySQL数据库（如回放使用的H2）或关闭分区时按接收时间批量删除
+ */
+@Component
+public class TelemetryPartitionManager {
+    
+    private static final String TABLE = "tb_telemetry_data";
+    private static final String MAX_PARTITION = "p_max";
+    
+    /**
+     * TO_DAYS('1970-01-01')
+     */
+    private static final long TO_DAYS_EPOCH = 719528;
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMMdd");
+    
+    /**
+     * 未结束的指令状态：这些指令的参数最新值不随保留期清理
+     */
+    public static final Set<CommandStatus> ACTIVE_STATUSES =
+        EnumSet.of(CommandStatus.PENDING, CommandStatus.PREPARED, CommandStatus.EXECUTING);
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private TelemetryDataRepository telemetryDataRepository;
+    
+    @Autowired
+    private TelemetryLatestRepository telemetryLatestRepository;
+    
+    @Autowired
+    private TelemetryRawMessageRepository rawMessageRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${telemetry.partition.enabled:false}")
+    private boolean enabled;
+    
+    /**
+     * 遥测数据保留天数
+     */
+    @Value("${telemetry.partition.retention-days:7}")
+    private int retentionDays;
+    
+    /**
+     * 提前创建的分区天数
+     */
+    @Value("${telemetry.partition.ahead-days:7}")
+    private int aheadDays;
+    
+    private volatile boolean partitioned;
+    
+    /**
+     * 分区（上界为 TO_DAYS 值，p_max 为null）
+     */
+    public static final class Partition {
+        private final String name;
+        private final Long lessThanDays;
+        
+        public Partition(String name, Long lessThanDays) {
+            this.name = name;
+            this.lessThanDays = lessThanDays;
+        }
+        
+        public String getName() { return name; }
+        public Long getLessThanDays() { return lessThanDays; }
+    }
+    
+    /**
+     * 启动时检查遥测数据表是否已分区，已分区时创建之后几天的分区
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (!isMySql()) {
+                System.out.println("当前数据库不支持遥测数据表分区，过期数据按接收时间批量删除");
+                return;
+            }
+            if (listPartitions().isEmpty()) {
+                System.err.println("遥测数据表尚未分区，请先执行迁移脚本 db/migration/V1__partition_telemetry_data.sql；"
+                    + "过期数据按接收时间批量删除");
+                return;
+            }
+            partitioned = true;
+            createPartitionsAhead();
+        } catch (Exception e) {
+            System.err.println("初始化遥测数据表分区失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 每天凌晨1点创建之后几天的分区
+     */
+    @Scheduled(cron = "0 0 1 * * ?")
+    public void createPartitionsAhead() {
+        if (!partitioned) {
+            return;
+        }
+        try {
+            List<LocalDate> missing = missingDays(listPartitions(), LocalDate.now(), aheadDays);
+            if (missing.isEmpty()) {
+                return;
+            }
+            jdbcTemplate.execute(reorganizeMaxPartitionSql(missing));
+            System.out.println("已创建遥测数据分区: " + missing.stream().map(PARTITION_NAME::format).collect(Collectors.joining(",")));
+        } catch (Exception e) {
+            System.err.println("创建遥测数据分区失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 删除保留期之前的遥测数据
+     * 分区表整分区删除；未分区时执行一条按接收时间的批量删除。保留期之前的原始消息一并删除；
+     * 参数最新值表只删除已结束（或已删除）指令在保留期之前更新的行，未结束指令长期未更新的参数仍保留最新值
+     *
+     * @return 删除的分区数（分区表）或数据行数（未分区）
+     */
+    public int dropExpiredData() {
+        LocalDate cutoff = LocalDate.now().minusDays(retentionDays);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            telemetryLatestRepository.deleteInactiveByReceiveTimeBefore(cutoff.atStartOfDay(), ACTIVE_STATUSES);
+            rawMessageRepository.deleteByReceiveTimeBefore(cutoff.atStartOfDay());
+        });
+        if (!partitioned) {
+            Integer deleted = new TransactionTemplate(transactionManager).execute(
+                status -> telemetryDataRepository.deleteByReceiveTimeBefore(cutoff.atStartOfDay()));
+            System.out.println("已删除 " + cutoff + " 之前的遥测数据 " + deleted + " 条");
+            return deleted == null ? 0 : deleted;
+        }
+        List<String> expired = expiredPartitions(listPartitions(), cutoff);
+        if (!expired.isEmpty()) {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP PARTITION " + String.join(", ", expired));
+        }
+        System.out.println("已删除 " + cutoff + " 之前的遥测数据分区: " + (expired.isEmpty() ? "无" : String.join(",", expired)));
+        return expired.size();
+    }
+    
+    /**
+     * 获取分区信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("partitioned", partitioned);
+        stats.put("retentionDays", retentionDays);
+        stats.put("aheadDays", aheadDays);
+        if (partitioned) {
+            stats.put("partitions", listPartitions().stream().map(partition -> partition.name).toList());
+        }
+        return stats;
+    }
+    
+    private boolean isMySql() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+            connection.getMetaData().getDatabaseProductName());
+        return "MySQL".equalsIgnoreCase(product);
+    }
+    
+    /**
+     * 当前分区（按分区顺序），未分区时为空
+     */
+    private List<Partition> listPartitions() {
+        return jdbcTemplate.query(
+            "SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL " +
+            "ORDER BY PARTITION_ORDINAL_POSITION",
+            (rs, rowNum) -> {
+                String description = rs.getString(2);
+                return new Partition(rs.getString(1),
+                    "MAXVALUE".equalsIgnoreCase(description) ? null : Long.valueOf(description));
+            },
+            TABLE);
+    }
+    
+    /**
+     * 从 p_max 中拆分出指定日期的分区
+     */
+    public static String reorganizeMaxPartitionSql(List<LocalDate> days) {
+        StringBuilder sql = new StringBuilder("ALTER TABLE " + TABLE + " REORGANIZE PARTITION " + MAX_PARTITION + " INTO (");
+        for (LocalDate day : days) {
+            sql.append(partitionDefinition(day)).append(", ");
+        }
+        return sql.append("PARTITION ").append(MAX_PARTITION).append(" VALUES LESS THAN MAXVALUE)").toString();
+    }
+    
+    /**
+     * 从今天起 aheadDays 天内尚未建分区的日期（只追加在已建分区之后）
+     */
+    public static List<LocalDate> missingDays(List<Partition> partitions, LocalDate today, int aheadDays) {
+        long lastBound = partitions.stream()
+            .filter(partition -> partition.lessThanDays != null)
+            .mapToLong(partition -> partition.lessThanDays)
+            .max()
+            .orElse(Long.MIN_VALUE);
+        List<LocalDate> missing = new ArrayList<>();
+        for (int i = 0; i <= aheadDays; i++) {
+            LocalDate day = today.plusDays(i);
+            if (toDays(day) >= lastBound) {
+                missing.add(day);
+            }
+        }
+        return missing;
+    }
+    
+    /**
+     * 数据全部早于截止日期的分区（p_max 除外）
+     */
+    public static List<String> expiredPartitions(List<Partition> partitions, LocalDate cutoff) {
+        long cutoffDays = toDays(cutoff);
+        return partitions.stream()
+            .filter(partition -> partition.lessThanDays != null && partition.lessThanDays <= cutoffDays)
+            .map(partition -> partition.name)
+            .toList();
+    }
+    
+    private static String partitionDefinition(LocalDate day) {
+        return "PARTITION " + PARTITION_NAME.format(day) + " VALUES LESS THAN (" + toDays(day.plusDays(1)) + ")";
+    }
+    
+    public static long toDays(LocalDate date) {
+        return date.toEpochDay() + TO_DAYS_EPOCH;
+    }
+}
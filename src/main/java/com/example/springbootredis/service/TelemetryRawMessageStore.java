@@ -0,0 +1,165 @@
+package com.example.springbootredis.service;
+
+import com.example.springbootredis.entity.TelemetryData;
+import com.example.springbootredis.repository.TelemetryRawMessageRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 遥测原始消息存储
+ * 原始Kafka消息只在排查问题时读取，不再随每条遥测数据保存在 tb_telemetry_data 中；
+ * 遥测数据插入并取得ID后，按采样率选取部分原始消息，Deflate压缩后在同一事务中批量写入 tb_telemetry_raw_message，
+ * 需要时按遥测数据ID读取并解压。判定不满足的数据可配置为总是保留原始消息
+ */
+@Component
+public class TelemetryRawMessageStore {
+    
+    private static final String INSERT_SQL =
+        "INSERT INTO tb_telemetry_raw_message (data_id, receive_time, raw_length, payload) VALUES (?, ?, ?, ?)";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private TelemetryRawMessageRepository rawMessageRepository;
+    
+    /**
+     * 原始消息保留比例（0-1，0表示不保留）
+     */
+    @Value("${telemetry.raw-message.sample-rate:1.0}")
+    private double sampleRate;
+    
+    /**
+     * 判定不满足的数据是否总是保留原始消息（不受采样率限制）
+     */
+    @Value("${telemetry.raw-message.keep-unsatisfied:true}")
+    private boolean keepUnsatisfied;
+    
+    private final LongAdder offered = new LongAdder();
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    
+    /**
+     * 保存已插入遥测数据中被采样的原始消息（在当前事务的连接上执行）
+     *
+     * @param data 已回填ID的遥测数据，没有ID或原始消息的数据跳过
+     */
+    public void storeAll(List<TelemetryData> data) {
+        List<Object[]> rows = new ArrayList<>();
+        for (TelemetryData item : data) {
+            if (item.getId() == null || item.getRawPayload() == null) {
+                continue;
+            }
+            offered.increment();
+            if (!sampled(item)) {
+                continue;
+            }
+            byte[] raw = item.getRawPayload();
+            byte[] payload = compress(raw);
+            rows.add(new Object[]{item.getId(), item.getReceiveTime(), raw.length, payload});
+            rawBytes.add(raw.length);
+            compressedBytes.add(payload.length);
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        stored.add(rows.size());
+    }
+    
+    /**
+     * 读取遥测数据的原始消息
+     *
+     * @param dataId 遥测数据ID
+     * @return 原始消息，未采样或已过期时为空
+     */
+    public Optional<String> load(Long dataId) {
+        return rawMessageRepository.findById(dataId)
+            .map(message -> new String(decompress(message.getPayload(), message.getRawLength()), StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * 获取原始消息存储统计信息
+     *
+     * @return 采样数、保存数、压缩前后字节数和压缩率
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long totalRaw = rawBytes.sum();
+        long totalCompressed = compressedBytes.sum();
+        stats.put("sampleRate", sampleRate);
+        stats.put("keepUnsatisfied", keepUnsatisfied);
+        stats.put("offered", offered.sum());
+        stats.put("stored", stored.sum());
+        stats.put("rawBytes", totalRaw);
+        stats.put("compressedBytes", totalCompressed);
+        stats.put("compressionRatio", totalRaw == 0 ? 0.0 : Math.round(totalCompressed * 1000.0 / totalRaw) / 1000.0);
+        return stats;
+    }
+    
+    private boolean sampled(TelemetryData item) {
+        if (keepUnsatisfied && Boolean.FALSE.equals(item.getJudgeResult())) {
+            return true;
+        }
+        return sampleRate >= 1.0 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+    
+    /**
+     * Deflate压缩（原始消息较短，使用最快级别）
+     */
+    public static byte[] compress(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+            byte[] buffer = new byte[512];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+    
+    public static byte[] decompress(byte[] payload, int rawLength) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(payload);
+            byte[] raw = new byte[rawLength];
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, length, rawLength - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != rawLength) {
+                throw new IllegalStateException("原始消息解压长度不一致: 期望=" + rawLength + ", 实际=" + length);
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("原始消息解压失败", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
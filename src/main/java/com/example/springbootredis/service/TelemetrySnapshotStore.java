@@ -0,0 +1,171 @@
+package com.example.springbootredis.service;
+
+import com.example.springbootredis.entity.TelemetryData;
+import com.example.springbootredis.entity.TelemetryLatest;
+import com.example.springbootredis.event.CommandStatusChangedEvent;
+import com.example.springbootredis.event.TelemetryStateInvalidatedEvent;
+import com.example.springbootredis.repository.TelemetryLatestRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 遥测参数最新值快照
+ * 为每个指令维护 参数代码 -> 最新实际值，样本落库提交后增量更新，公式上下文按参数个数构建，不再读取全部历史数据；
+ * 未命中时从参数最新值表（tb_telemetry_latest）一次加载，可选镜像到Redis哈希（telemetry:latest:{指令ID}）供其他服务读取，
+ * 指令进入终态或其他实例写入同一指令的遥测数据后移除
+ */
+@Component
+public class TelemetrySnapshotStore {
+    
+    private static final String REDIS_KEY_PREFIX = "telemetry:latest:";
+    
+    @Autowired
+    private TelemetryLatestRepository telemetryLatestRepository;
+    
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+    
+    @Value("${telemetry.snapshot.redis-mirror-enabled:false}")
+    private boolean redisMirrorEnabled;
+    
+    @Value("${telemetry.snapshot.redis-ttl-seconds:86400}")
+    private long redisTtlSeconds;
+    
+    private final CommandStateMap<Map<String, String>> snapshots = new CommandStateMap<>();
+    
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder mirrorFailures = new LongAdder();
+    
+    /**
+     * 获取指令各参数最新值的副本，可直接作为公式上下文修改
+     *
+     * @param commandId 指令ID
+     * @return 参数代码 -> 最新实际值
+     */
+    public Map<String, Object> getLatestValues(Long commandId) {
+        return new HashMap<>(snapshots.get(commandId, this::load));
+    }
+    
+    /**
+     * 记录已保存的遥测数据
+     * 在事务中调用时推迟到提交之后更新，回滚的样本不会进入快照
+     *
+     * @param commandId 指令ID
+     * @param samples 已保存的遥测数据（按接收顺序）
+     */
+    public void recordSamples(Long commandId, List<TelemetryData> samples) {
+        if (samples.isEmpty()) {
+            return;
+        }
+        Runnable action = () -> {
+            Map<String, String> latest = new LinkedHashMap<>();
+            for (TelemetryData data : samples) {
+                if (data.getActualValue() != null) {
+                    latest.put(data.getParamCode(), data.getActualValue());
+                }
+            }
+            // 快照尚未加载时不处理，下次读取时从数据库加载即包含这些样本
+            Map<String, String> snapshot = snapshots.getForUpdate(commandId);
+            if (snapshot != null) {
+                snapshot.putAll(latest);
+            }
+            updates.increment();
+            mirror(commandId, latest);
+        };
+        
+        AfterCommit.run(action);
+    }
+    
+    /**
+     * 移除指令的快照
+     */
+    public void evict(Long commandId) {
+        snapshots.evict(commandId);
+        if (redisMirrorEnabled) {
+            try {
+                redisTemplate.delete(REDIS_KEY_PREFIX + commandId);
+            } catch (Exception e) {
+                mirrorFailures.increment();
+                System.err.println("删除遥测快照镜像失败: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * 指令进入终态后移除其快照
+     */
+    @EventListener
+    public void onCommandStatusChanged(CommandStatusChangedEvent event) {
+        if (event.isTerminal()) {
+            evict(event.getCommandId());
+        }
+    }
+    
+    /**
+     * 其他实例变更指令状态或本实例的分区被回收后移除快照（Redis镜像由写入的实例维护，保留）
+     */
+    @EventListener
+    public void onStateInvalidated(TelemetryStateInvalidatedEvent event) {
+        if (event.isAllCommands()) {
+            snapshots.clear();
+        } else {
+            event.getCommandIds().forEach(snapshots::evict);
+        }
+    }
+    
+    /**
+     * 获取快照统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("commands", snapshots.size());
+        stats.put("loads", loads.sum());
+        stats.put("updates", updates.sum());
+        stats.put("redisMirrorEnabled", redisMirrorEnabled);
+        stats.put("mirrorFailures", mirrorFailures.sum());
+        return stats;
+    }
+    
+    /**
+     * 从参数最新值表加载每个参数的最新值（按主键范围查询，结果行数等于参数个数）
+     */
+    private Map<String, String> load(Long commandId) {
+        loads.increment();
+        Map<String, String> snapshot = new ConcurrentHashMap<>();
+        for (TelemetryLatest data : telemetryLatestRepository.findByCommandId(commandId)) {
+            if (data.getActualValue() != null) {
+                snapshot.put(data.getParamCode(), data.getActualValue());
+            }
+        }
+        return snapshot;
+    }
+    
+    /**
+     * 镜像到Redis哈希，失败只记录日志，不影响判定
+     */
+    private void mirror(Long commandId, Map<String, String> latest) {
+        if (!redisMirrorEnabled || latest.isEmpty()) {
+            return;
+        }
+        try {
+            String key = REDIS_KEY_PREFIX + commandId;
+            redisTemplate.opsForHash().putAll(key, latest);
+            redisTemplate.expire(key, redisTtlSeconds, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            mirrorFailures.increment();
+            System.err.println("遥测快照镜像到Redis失败: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.springbootredis.service;
+
+import com.example.springbootredis.event.CommandStatusChangedEvent;
+import com.example.springbootredis.event.TelemetryStateInvalidatedEvent;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 多实例遥测状态同步
+ * 满足状态、最新值快照和死区锚点只随本实例判定的结果增量更新，按Kafka分区归属：同一指令的数据
+ * 只由持有其分区的实例写入，因此遥测写入本身不需要通知其他实例。状态只在以下情况失效：
+ * 1. 指令状态变更提交后通过Redis发布 "来源|指令ID"，其他实例收到后移除该指令的状态；
+ * 2. 本实例的Kafka分区被回收或丢失时移除全部状态（不跟踪分区与指令的对应关系），之后由新持有分区的实例从参数最新值表重建。
+ * 关联关系变更由判定计划缓存的失效通知同步，这里不重复发布
+ */
+@Component
+public class TelemetryStateSync implements MessageListener {
+    
+    /**
+     * 指令状态变更通知频道
+     */
+    public static final String CHANNEL = "telemetry_state:invalidated";
+    
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Value("${telemetry.state-sync.enabled:true}")
+    private boolean enabled;
+    
+    /**
+     * 当前实例标识，用于忽略自己发布的通知
+     */
+    private final String instanceId = UUID.randomUUID().toString();
+    
+    private final LongAdder published = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder partitionReleases = new LongAdder();
+    
+    /**
+     * 指令状态变更提交后通知其他实例
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCommandStatusChanged(CommandStatusChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(CHANNEL, instanceId + "|" + event.getCommandId());
+            published.increment();
+        } catch (Exception e) {
+            System.err.println("发布遥测状态失效通知失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Kafka分区被回收或丢失后移除本实例的全部遥测状态
+     *
+     * @param partitions 被回收的分区
+     */
+    public void onPartitionsReleased(Collection<TopicPartition> partitions) {
+        if (!enabled || partitions.isEmpty()) {
+            return;
+        }
+        partitionReleases.increment();
+        eventPublisher.publishEvent(new TelemetryStateInvalidatedEvent(null));
+        System.out.println("Kafka分区被回收，清空遥测内存状态: " + partitions);
+    }
+    
+    /**
+     * 接收其他实例的状态变更通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf('|');
+        if (separator < 0 || body.substring(0, separator).equals(instanceId)) {
+            return;
+        }
+        try {
+            Long commandId = Long.valueOf(body.substring(separator + 1).trim());
+            received.increment();
+            eventPublisher.publishEvent(new TelemetryStateInvalidatedEvent(Set.of(commandId)));
+        } catch (NumberFormatException e) {
+            System.err.println("无效的遥测状态失效通知: " + body);
+        }
+    }
+    
+    /**
+     * 获取同步统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("published", published.sum());
+        stats.put("received", received.sum());
+        stats.put("partitionReleases", partitionReleases.sum());
+        return stats;
+    }
+}
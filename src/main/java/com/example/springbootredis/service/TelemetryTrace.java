@@ -0,0 +1,34 @@
+package com.example.springbootredis.service;
+
+/**
+ * 遥测处理流程的逐条日志开关
+ * 逐条消息的接收、判定和推送日志先检查此开关，关闭时不拼接也不输出；
+ * 启动、汇总和错误日志不受影响。离线回放的 telemetry.replay.quiet 在回放期间关闭
+ */
+public final class TelemetryTrace {
+    
+    private static volatile boolean enabled = true;
+    
+    private TelemetryTrace() {
+    }
+    
+    /**
+     * 是否输出逐条日志
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+    
+    public static void setEnabled(boolean enabled) {
+        TelemetryTrace.enabled = enabled;
+    }
+    
+    /**
+     * 开关打开时输出一行逐条日志
+     */
+    public static void println(String message) {
+        if (enabled) {
+            System.out.println(message);
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package com.example.springbootredis.service;
+
+import com.alibaba.fastjson2.JSON;
+import com.example.springbootredis.entity.TelemetryData;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 遥测数据异步写入（write-behind）
+ * 开启后判定结果不再在处理事务中插入数据库：事务提交后追加到本地内存映射日志（{@link TelemetryJournal}）并同步到磁盘，
+ * 再放入有界缓冲区，由后台线程攒满一批或最早的数据等待超过刷新间隔时批量写入数据库并推进日志检查点。
+ * 追加在处理线程上同步完成，Kafka偏移量在处理返回后才提交，因此偏移量推进时数据至少已经写入日志；
+ * 缓冲区满时处理线程阻塞形成背压。启动时先把检查点之后的日志记录写入数据库（进程在写入数据库后、
+ * 推进检查点前退出时，这部分数据会重复写入一次）。
+ * 写入失败时按退避间隔有限次重试，仍失败时逐条写入，写不进去的数据转入隔离文件（quarantine.ndjson）并推进检查点，
+ * 个别无法写入的数据不会一直占住后台线程、进而填满缓冲区阻塞处理线程。
+ * 数据写入数据库之前没有ID，按ID读取的功能（死区压缩合并到已保存的数据、按参数查询最新数据重建状态）在写入后才能看到这些数据
+ */
+@Component
+public class TelemetryWriteBehindBuffer {
+    
+    @Autowired
+    private TelemetryDataBatchWriter batchWriter;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${telemetry.write-behind.enabled:false}")
+    private boolean enabled;
+    
+    @Value("${telemetry.write-behind.journal-dir:./telemetry-journal}")
+    private String journalDir;
+    
+    @Value("${telemetry.write-behind.segment-size-mb:64}")
+    private int segmentSizeMb;
+    
+    @Value("${telemetry.write-behind.buffer-capacity:10000}")
+    private int bufferCapacity;
+    
+    @Value("${telemetry.write-behind.batch-size:500}")
+    private int batchSize;
+    
+    @Value("${telemetry.write-behind.flush-interval-ms:200}")
+    private long flushIntervalMs;
+    
+    /**
+     * 一批写入失败后的最多重试次数，之后逐条写入并隔离失败的数据
+     */
+    @Value("${telemetry.write-behind.max-retries:5}")
+    private int maxRetries;
+    
+    /**
+     * 重试间隔上限（每次失败后间隔翻倍）
+     */
+    @Value("${telemetry.write-behind.max-retry-interval-ms:30000}")
+    private long maxRetryIntervalMs;
+    
+    private TelemetryJournal journal;
+    private BlockingQueue<Pending> buffer;
+    private TransactionTemplate transactionTemplate;
+    private Thread flusher;
+    private volatile boolean running;
+    
+    /**
+     * 保证缓冲区顺序与日志顺序一致（检查点按缓冲区顺序推进）；放入缓冲区时可能阻塞，后台线程不获取这把锁
+     */
+    private final Object appendLock = new Object();
+    
+    /**
+     * 日志读写互斥，只在追加、推进检查点和读取统计时短暂持有，不在持有时阻塞
+     */
+    private final Object journalLock = new Object();
+    
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder flushed = new LongAdder();
+    private final LongAdder flushBatches = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private final LongAdder quarantined = new LongAdder();
+    private volatile long recovered;
+    private volatile long lastFlushMillis;
+    
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        journal = new TelemetryJournal(Paths.get(journalDir), segmentSizeMb * 1024 * 1024);
+        replayJournal();
+        
+        buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        running = true;
+        flusher = new Thread(this::runFlusher, "telemetry-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+        System.out.println("遥测数据异步写入已启动，日志目录: " + Paths.get(journalDir).toAbsolutePath());
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (flusher == null) {
+            return;
+        }
+        running = false;
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (journalLock) {
+            journal.close();
+        }
+    }
+    
+    /**
+     * 写入判定结果
+     * 未开启时直接批量插入；开启时在事务提交后追加到日志并进入缓冲区（没有事务时立即追加）
+     *
+     * @param data 待保存的遥测数据
+     */
+    public void write(List<TelemetryData> data) {
+        if (data.isEmpty()) {
+            return;
+        }
+        if (!enabled) {
+            batchWriter.insertAll(data);
+            return;
+        }
+        List<TelemetryData> snapshot = new ArrayList<>(data);
+        AfterCommit.run(() -> append(snapshot));
+    }
+    
+    /**
+     * 等待已追加的数据全部写入数据库（回放结束、停机前等需要读取完整数据的场景）
+     *
+     * @param timeoutMillis 最长等待时间
+     * @return 是否已全部写入
+     */
+    public boolean awaitFlushed(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (enabled && flushed.sum() + quarantined.sum() - recovered < appended.sum()) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+    
+    /**
+     * 缓冲区占用比例（未开启时为0），供消费背压判断
+     */
+    public double getFillRatio() {
+        return enabled ? (double) buffer.size() / bufferCapacity : 0;
+    }
+    
+    /**
+     * 获取异步写入统计信息
+     *
+     * @return 日志和缓冲区积压（journalPendingBytes、buffered、oldestBufferedMs）及写入计数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("appended", appended.sum());
+        stats.put("flushed", flushed.sum());
+        stats.put("recovered", recovered);
+        stats.put("flushBatches", flushBatches.sum());
+        stats.put("flushFailures", flushFailures.sum());
+        stats.put("quarantined", quarantined.sum());
+        stats.put("lastFlushMillis", lastFlushMillis);
+        if (enabled) {
+            Pending oldest = buffer.peek();
+            stats.put("buffered", buffer.size());
+            stats.put("fillRatio", getFillRatio());
+            stats.put("oldestBufferedMs", oldest == null ? 0 : (System.nanoTime() - oldest.appendedAt) / 1_000_000);
+            synchronized (journalLock) {
+                stats.put("journalPendingBytes", journal.getPendingBytes());
+                stats.put("journalPosition", journal.getWritePosition().toString());
+            }
+        }
+        return stats;
+    }
+    
+    private void append(List<TelemetryData> data) {
+        synchronized (appendLock) {
+            List<TelemetryJournal.Record> records;
+            synchronized (journalLock) {
+                records = journal.append(data);
+            }
+            appended.add(records.size());
+            long now = System.nanoTime();
+            try {
+                for (TelemetryJournal.Record record : records) {
+                    // 缓冲区满时阻塞，此时不持有日志锁，后台线程仍可写入并推进检查点
+                    buffer.put(new Pending(record, now));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("遥测数据进入写入缓冲区时被中断", e);
+            }
+        }
+    }
+    
+    /**
+     * 启动时把检查点之后的日志记录写入数据库
+     */
+    private void replayJournal() {
+        List<TelemetryJournal.Record> records = journal.getRecovered();
+        for (int from = 0; from < records.size(); from += batchSize) {
+            try {
+                flushOrQuarantine(records.subList(from, Math.min(from + batchSize, records.size())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("恢复遥测日志时被中断", e);
+            }
+        }
+        recovered = records.size();
+        if (!records.isEmpty()) {
+            System.out.println("已从遥测日志恢复写入 " + records.size() + " 条数据");
+        }
+    }
+    
+    private void runFlusher() {
+        List<Pending> batch = new ArrayList<>();
+        while (running || !buffer.isEmpty() || !batch.isEmpty()) {
+            try {
+                if (batch.isEmpty()) {
+                    Pending first = buffer.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                }
+                // 攒满一批，或最早的数据等待超过刷新间隔
+                long deadline = batch.get(0).appendedAt + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (running && batch.size() < batchSize) {
+                    long waitNanos = deadline - System.nanoTime();
+                    Pending next = waitNanos > 0 ? buffer.poll(waitNanos, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    buffer.drainTo(batch, batchSize - batch.size());
+                }
+                if (!running) {
+                    buffer.drainTo(batch, batchSize - batch.size());
+                }
+                
+                List<TelemetryJournal.Record> records = new ArrayList<>(batch.size());
+                batch.forEach(pending -> records.add(pending.record));
+                if (!flushOrQuarantine(records)) {
+                    // 停止时不再重试，未写入的数据保留在日志中，下次启动时恢复
+                    return;
+                }
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // 隔离文件写入失败：检查点未推进，稍后整批重新处理
+                System.err.println(e.getMessage());
+                if (!running) {
+                    return;
+                }
+                try {
+                    Thread.sleep(maxRetryIntervalMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * 写入一批日志记录：失败时按退避间隔重试，超过重试次数后逐条写入，仍失败的数据转入隔离文件，最后推进检查点
+     *
+     * @return 是否已处理完这批记录（停止过程中写入失败时返回false，记录留在日志中）
+     */
+    private boolean flushOrQuarantine(List<TelemetryJournal.Record> records) throws InterruptedException {
+        long retryInterval = flushIntervalMs;
+        for (int attempt = 0; attempt <= maxRetries; attempt++) {
+            try {
+                flush(records);
+                return true;
+            } catch (RuntimeException e) {
+                flushFailures.increment();
+                System.err.println("遥测数据异步写入失败（第" + (attempt + 1) + "次）: " + e.getMessage());
+                if (flusher != null && !running) {
+                    return false;
+                }
+                if (attempt < maxRetries) {
+                    Thread.sleep(retryInterval);
+                    retryInterval = Math.min(retryInterval * 2, maxRetryIntervalMs);
+                }
+            }
+        }
+        
+        // 整批多次失败：逐条写入找出无法写入的数据
+        List<TelemetryData> rejected = new ArrayList<>();
+        for (TelemetryJournal.Record record : records) {
+            try {
+                insert(List.of(record.getData()));
+                flushed.increment();
+            } catch (RuntimeException e) {
+                rejected.add(record.getData());
+            }
+        }
+        quarantine(rejected);
+        checkpoint(records);
+        return true;
+    }
+    
+    /**
+     * 在一个事务中写入一批日志记录并推进检查点
+     */
+    private void flush(List<TelemetryJournal.Record> records) {
+        List<TelemetryData> data = new ArrayList<>(records.size());
+        records.forEach(record -> data.add(record.getData()));
+        long start = System.nanoTime();
+        insert(data);
+        checkpoint(records);
+        flushed.add(records.size());
+        flushBatches.increment();
+        lastFlushMillis = (System.nanoTime() - start) / 1_000_000;
+    }
+    
+    /**
+     * 在一个事务中插入数据；失败时清除已回填的ID，便于重试
+     */
+    private void insert(List<TelemetryData> data) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> batchWriter.insertAll(data));
+        } catch (RuntimeException e) {
+            data.forEach(item -> item.setId(null));
+            throw e;
+        }
+    }
+    
+    private void checkpoint(List<TelemetryJournal.Record> records) {
+        synchronized (journalLock) {
+            journal.checkpoint(records.get(records.size() - 1).getEnd());
+        }
+    }
+    
+    /**
+     * 把无法写入数据库的数据追加到隔离文件（每行一条JSON），写入失败时抛出异常，检查点不推进
+     */
+    private void quarantine(List<TelemetryData> rejected) {
+        if (rejected.isEmpty()) {
+            return;
+        }
+        Path file = Paths.get(journalDir, "quarantine.ndjson");
+        StringBuilder lines = new StringBuilder();
+        rejected.forEach(data -> lines.append(JSON.toJSONString(data)).append('\n'));
+        try {
+            Files.writeString(file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND,
+                StandardOpenOption.SYNC);
+        } catch (IOException e) {
+            throw new IllegalStateException("写入遥测数据隔离文件失败: " + file, e);
+        }
+        quarantined.add(rejected.size());
+        System.err.println("已隔离 " + rejected.size() + " 条无法写入的遥测数据: " + file.toAbsolutePath());
+    }
+    
+    /**
+     * 缓冲区中的日志记录及其追加时间
+     */
+    private static final class Pending {
+        private final TelemetryJournal.Record record;
+        private final long appendedAt;
+        
+        Pending(TelemetryJournal.Record record, long appendedAt) {
+            this.record = record;
+            this.appendedAt = appendedAt;
+        }
+    }
+}
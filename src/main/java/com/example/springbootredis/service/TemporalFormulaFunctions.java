@@ -0,0 +1,168 @@
+package com.example.springbootredis.service;
+
+import com.googlecode.aviator.AviatorEvaluatorInstance;
+import com.googlecode.aviator.runtime.function.AbstractFunction;
+import com.googlecode.aviator.runtime.function.FunctionUtils;
+import com.googlecode.aviator.runtime.type.AviatorBoolean;
+import com.googlecode.aviator.runtime.type.AviatorDouble;
+import com.googlecode.aviator.runtime.type.AviatorFunction;
+import com.googlecode.aviator.runtime.type.AviatorJavaType;
+import com.googlecode.aviator.runtime.type.AviatorObject;
+
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 公式时间窗口函数
+ * 基于 {@link TelemetryHistoryBuffers} 中当前指令的参数近期样本计算，窗口以判定时刻为终点、按样本时间（消息时间戳）划分
+ * （判定时刻取上下文中的 {@link FormulaEvaluationService#EVALUATION_TIME_VARIABLE}，即被判定帧的样本时间）：
+ * <ul>
+ *   <li>avg(参数, 秒数)：窗口内样本的平均值，如 avg(VOLT_001, 10) &gt; 27</li>
+ *   <li>rate(参数[, 秒数])：每秒变化量，不带窗口时取最近两个样本</li>
+ *   <li>heldFor(参数, lambda(x) -&gt; 条件 end, 秒数)：整个窗口期间参数值一直满足条件，
+ *       如 heldFor(TEMP_001, lambda(x) -&gt; math.abs(x - 80) &lt;= 1 end, 30)</li>
+ * </ul>
+ * 参数可直接写参数代码（同时作为公式变量参与依赖图），也可写成字符串；
+ * 样本不足时avg、rate抛出异常（判定为不满足），heldFor返回false。
+ * 参数值保持不变时不会再有新的判定（死区合并或设备不再发送），heldFor等结果随时间变化的公式由定时任务按当前时间重新判定
+ */
+public final class TemporalFormulaFunctions {
+    
+    private static final Pattern TEMPORAL_CALL = Pattern.compile("\\b(avg|rate|heldFor)\\s*\\(");
+    
+    private TemporalFormulaFunctions() {
+    }
+    
+    /**
+     * 把时间窗口函数注册到Aviator实例（公式编译缓存使用的实例）
+     *
+     * @param evaluator Aviator实例
+     * @param buffers 参数近期历史缓冲
+     */
+    public static void register(AviatorEvaluatorInstance evaluator, TelemetryHistoryBuffers buffers) {
+        evaluator.addFunction(new AvgFunction(buffers));
+        evaluator.addFunction(new RateFunction(buffers));
+        evaluator.addFunction(new HeldForFunction(buffers));
+    }
+    
+    /**
+     * 公式是否调用了时间窗口函数（结果依赖内存中的近期历史，不能只凭各参数最新值重新计算）
+     */
+    public static boolean usesTemporalFunctions(String expression) {
+        return expression != null && TEMPORAL_CALL.matcher(expression).find();
+    }
+    
+    /**
+     * 时间窗口函数公共逻辑：解析参数代码、当前指令和窗口
+     */
+    private abstract static class TemporalFunction extends AbstractFunction {
+        
+        private final TelemetryHistoryBuffers buffers;
+        
+        TemporalFunction(TelemetryHistoryBuffers buffers) {
+            this.buffers = buffers;
+        }
+        
+        TelemetryHistoryBuffers.SampleRing ring(Map<String, Object> env, AviatorObject param) {
+            Object commandId = env.get(FormulaEvaluationService.COMMAND_ID_VARIABLE);
+            if (!(commandId instanceof Number)) {
+                throw new IllegalStateException(getName() + " 需要在指令的公式判定中使用");
+            }
+            String paramCode = param instanceof AviatorJavaType
+                ? ((AviatorJavaType) param).getName()
+                : FunctionUtils.getStringValue(param, env);
+            return buffers.get(((Number) commandId).longValue(), paramCode);
+        }
+        
+        long windowStart(Map<String, Object> env, AviatorObject seconds) {
+            double windowSeconds = FunctionUtils.getNumberValue(seconds, env).doubleValue();
+            if (!(windowSeconds > 0)) {
+                throw new IllegalArgumentException(getName() + " 的时间窗口必须大于0: " + windowSeconds);
+            }
+            Object evaluationTime = env.get(FormulaEvaluationService.EVALUATION_TIME_VARIABLE);
+            long end = evaluationTime instanceof Number ? ((Number) evaluationTime).longValue() : System.currentTimeMillis();
+            return end - (long) (windowSeconds * 1000);
+        }
+        
+        AviatorObject result(double value) {
+            if (Double.isNaN(value)) {
+                throw new IllegalStateException(getName() + " 的窗口内样本不足");
+            }
+            return AviatorDouble.valueOf(value);
+        }
+    }
+    
+    private static class AvgFunction extends TemporalFunction {
+        
+        AvgFunction(TelemetryHistoryBuffers buffers) {
+            super(buffers);
+        }
+        
+        @Override
+        public String getName() {
+            return "avg";
+        }
+        
+        @Override
+        public AviatorObject call(Map<String, Object> env, AviatorObject param, AviatorObject seconds) {
+            TelemetryHistoryBuffers.SampleRing ring = ring(env, param);
+            long since = windowStart(env, seconds);
+            return result(ring == null ? Double.NaN : ring.average(since));
+        }
+    }
+    
+    private static class RateFunction extends TemporalFunction {
+        
+        RateFunction(TelemetryHistoryBuffers buffers) {
+            super(buffers);
+        }
+        
+        @Override
+        public String getName() {
+            return "rate";
+        }
+        
+        @Override
+        public AviatorObject call(Map<String, Object> env, AviatorObject param) {
+            TelemetryHistoryBuffers.SampleRing ring = ring(env, param);
+            return result(ring == null ? Double.NaN : ring.rate(Long.MIN_VALUE));
+        }
+        
+        @Override
+        public AviatorObject call(Map<String, Object> env, AviatorObject param, AviatorObject seconds) {
+            TelemetryHistoryBuffers.SampleRing ring = ring(env, param);
+            long since = windowStart(env, seconds);
+            return result(ring == null ? Double.NaN : ring.rate(since));
+        }
+    }
+    
+    private static class HeldForFunction extends TemporalFunction {
+        
+        HeldForFunction(TelemetryHistoryBuffers buffers) {
+            super(buffers);
+        }
+        
+        @Override
+        public String getName() {
+            return "heldFor";
+        }
+        
+        @Override
+        public AviatorObject call(Map<String, Object> env, AviatorObject param, AviatorObject condition,
+                                  AviatorObject seconds) {
+            TelemetryHistoryBuffers.SampleRing ring = ring(env, param);
+            AviatorFunction predicate = FunctionUtils.getFunction(condition, env, 1);
+            long since = windowStart(env, seconds);
+            double[] values = ring == null ? null : ring.valuesCovering(since);
+            if (values == null) {
+                return AviatorBoolean.FALSE;
+            }
+            for (double value : values) {
+                if (!FunctionUtils.getBooleanValue(predicate.call(env, AviatorDouble.valueOf(value)), env)) {
+                    return AviatorBoolean.FALSE;
+                }
+            }
+            return AviatorBoolean.TRUE;
+        }
+    }
+}
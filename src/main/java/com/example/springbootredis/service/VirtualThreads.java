@@ -0,0 +1,43 @@
+package com.example.springbootredis.service;
+
+/**
+ * 虚拟线程模式判断
+ * spring.threads.virtual.enabled 只在运行时JDK为21及以上时生效（与编译目标版本无关），
+ * 较低版本的JDK上回退到平台线程并输出提示
+ */
+public final class VirtualThreads {
+    
+    /**
+     * 虚拟线程正式可用的最低JDK版本
+     */
+    public static final int MIN_FEATURE_VERSION = 21;
+    
+    private VirtualThreads() {
+    }
+    
+    /**
+     * 当前运行时是否支持虚拟线程
+     */
+    public static boolean isAvailable() {
+        return Runtime.version().feature() >= MIN_FEATURE_VERSION;
+    }
+    
+    /**
+     * 判断组件是否使用虚拟线程：开关已打开且运行时支持；开关打开但运行时不支持时输出回退提示
+     *
+     * @param enabled spring.threads.virtual.enabled 的值
+     * @param component 组件名称（用于日志）
+     * @return 是否使用虚拟线程
+     */
+    public static boolean isActive(boolean enabled, String component) {
+        if (!enabled) {
+            return false;
+        }
+        if (!isAvailable()) {
+            System.out.println(component + "：虚拟线程需要JDK " + MIN_FEATURE_VERSION + " 及以上，当前JDK "
+                + Runtime.version().feature() + "，回退到平台线程");
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,18 @@
+-- 把 tb_telemetry_data 转换为按天RANGE分区表（MySQL 8）
+-- 转换会重建整张表并阻塞写入，大表请在维护窗口停机执行（或使用 pt-online-schema-change / gh-ost 等在线工具）。
+-- 执行后设置 telemetry.partition.enabled=true，应用每天提前创建之后几天的分区、按分区删除过期数据。
+--
+-- 今天之前的数据放入 p_history，今天一个分区，其余进入 p_max（应用启动后从 p_max 拆分出之后几天的分区）
+
+-- 分区键必须包含在主键中；删除和新增主键在同一语句中执行，自增列始终有索引
+ALTER TABLE tb_telemetry_data DROP PRIMARY KEY, ADD PRIMARY KEY (id, receive_time);
+
+SET @today = CURDATE();
+SET @partition_sql = CONCAT(
+    'ALTER TABLE tb_telemetry_data PARTITION BY RANGE (TO_DAYS(receive_time)) (',
+    'PARTITION p_history VALUES LESS THAN (', TO_DAYS(@today), '), ',
+    'PARTITION p', DATE_FORMAT(@today, '%Y%m%d'), ' VALUES LESS THAN (', TO_DAYS(@today + INTERVAL 1 DAY), '), ',
+    'PARTITION p_max VALUES LESS THAN MAXVALUE)');
+PREPARE partition_stmt FROM @partition_sql;
+EXECUTE partition_stmt;
+DEALLOCATE PREPARE partition_stmt;
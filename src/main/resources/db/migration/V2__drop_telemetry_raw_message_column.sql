@@ -0,0 +1,17 @@
+-- 原始消息改为采样压缩后存入 tb_telemetry_raw_message（TelemetryData.rawMessage 为 @Transient），
+-- ddl-auto=update 不会删除旧的 tb_telemetry_data.raw_message 列，旧数据仍占用大量空间，需手动删除。
+-- 删除列会重建整张表，大表请在维护窗口执行（或使用 pt-online-schema-change / gh-ost 等在线工具）；
+-- 需要保留历史原始消息时先导出再执行。已按 V1 分区的表同样适用。
+
+ALTER TABLE tb_telemetry_data DROP COLUMN raw_message;
+
+-- 原始消息表按接收时间清理过期数据，已存在的表补建索引（新建的表由实体定义自动创建）
+SET @index_exists = (SELECT COUNT(*) FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'tb_telemetry_raw_message'
+      AND index_name = 'idx_raw_message_receive_time');
+SET @index_sql = IF(@index_exists = 0,
+    'CREATE INDEX idx_raw_message_receive_time ON tb_telemetry_raw_message (receive_time)',
+    'SELECT 1');
+PREPARE index_stmt FROM @index_sql;
+EXECUTE index_stmt;
+DEALLOCATE PREPARE index_stmt;
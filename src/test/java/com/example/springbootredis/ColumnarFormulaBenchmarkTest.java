@@ -0,0 +1,238 @@
+package com.example.springbootredis;
+
+import com.example.springbootredis.dto.TelemetryValueDTO;
+import com.example.springbootredis.repository.TelemetryDataRepository;
+import com.example.springbootredis.service.ColumnarFormula;
+import com.example.springbootredis.service.FormulaEvaluationService;
+import com.example.springbootredis.service.FormulaExpressionCache;
+import com.example.springbootredis.service.TelemetryJudgeService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 公式列式批量计算对比测试
+ * 对比逐行Map上下文计算、单线程列式计算与列式并行计算的结果和吞吐量
+ */
+class ColumnarFormulaBenchmarkTest {
+
+    private static final String FORMULA = "(temperature + pressure / 1000) / 2 > 50";
+    private static final int ROWS = 2_000_000;
+
+    private final FormulaEvaluationService formulaEvaluationService = new FormulaEvaluationService();
+
+    ColumnarFormulaBenchmarkTest() {
+        ReflectionTestUtils.setField(formulaEvaluationService, "expressionCache", new FormulaExpressionCache(16));
+    }
+
+    @Test
+    void testColumnarMatchesRowByRow() {
+        System.out.println("=== 开始测试列式批量计算一致性 ===");
+
+        // 行数不是64的整数倍，覆盖末尾不完整的结果字
+        int rows = 20_011;
+        Map<String, double[]> columns = randomColumns(rows, new Random(42));
+        columns.get("temperature")[7] = Double.NaN;
+
+        BitSet result = formulaEvaluationService.evaluateColumnar(FORMULA, columns, rows);
+        for (int row = 0; row < rows; row++) {
+            if (row == 7) {
+                continue;
+            }
+            Map<String, Object> context = new HashMap<>();
+            context.put("temperature", columns.get("temperature")[row]);
+            context.put("pressure", columns.get("pressure")[row]);
+            assertEquals(formulaEvaluationService.evaluateComplexExpression(FORMULA, context), result.get(row), "row " + row);
+        }
+        // 缺失变量的行视为不满足
+        assertFalse(result.get(7));
+        assertTrue(result.nextSetBit(rows) < 0);
+
+        assertThrows(IllegalArgumentException.class,
+            () -> formulaEvaluationService.evaluateColumnar(FORMULA, columns, rows + 1));
+
+        System.out.println("=== 列式批量计算一致性测试通过 ===");
+    }
+
+    @Test
+    void testColumnarSemanticsMatchAviator() {
+        System.out.println("=== 开始测试列式计算语义 ===");
+
+        int rows = 3_000;
+        Random random = new Random(11);
+        double[] a = new double[rows];
+        double[] b = new double[rows];
+        double[] special = {0.0, -0.0, 1.0, -1.0, 2.5, 3.0, 5.0, 100.0};
+        for (int row = 0; row < rows; row++) {
+            a[row] = row % 3 == 0 ? special[random.nextInt(special.length)] : random.nextDouble() * 20 - 10;
+            b[row] = row % 5 == 0 ? special[random.nextInt(special.length)] : random.nextDouble() * 20 - 10;
+        }
+        b[13] = Double.NaN;
+        Map<String, double[]> columns = new LinkedHashMap<>();
+        columns.put("a", a);
+        columns.put("b", b);
+
+        // 前一组按列计算，后一组（函数调用、三元运算返回字符串、布尔值比较）退回逐行计算
+        List<String> columnar = List.of(
+            "a > b", "a == b", "a != 0", "a >= -b", "-a <= b % 3", "a * 2 - b / 4 > 1",
+            "a > 0 && b > 0 || !(a < -5)", "5 / 2 + a > 3", "1.5e1 > a * b", "a + b",
+            "a == 0", "(a - b) / 0 > 1", "true && a < 1", "7 % 2 == 1");
+        List<String> rowByRow = List.of(
+            "math.abs(a) > 5", "a > b ? 'true' : 'false'", "(a > 0) == (b > 0)", "a > c", "a > 1 && b");
+        for (String formula : columnar) {
+            assertTrue(formulaEvaluationService.isColumnar(formula, columns.keySet()), formula);
+        }
+        for (String formula : rowByRow) {
+            assertFalse(formulaEvaluationService.isColumnar(formula, columns.keySet()), formula);
+        }
+
+        List<String> formulas = new ArrayList<>(columnar);
+        formulas.addAll(rowByRow);
+        for (String formula : formulas) {
+            BitSet result = formulaEvaluationService.evaluateColumnar(formula, columns, rows);
+            for (int row = 0; row < rows; row++) {
+                boolean expected = false;
+                if (row != 13) {
+                    Map<String, Object> context = new HashMap<>();
+                    context.put("a", a[row]);
+                    context.put("b", b[row]);
+                    expected = formulaEvaluationService.evaluateComplexExpression(formula, context);
+                }
+                assertEquals(expected, result.get(row), formula + " row " + row);
+            }
+        }
+        // 公式返回字符串"true"时与逐条判定一样视为满足
+        assertTrue(formulaEvaluationService.evaluateColumnar("a > b ? 'true' : 'false'", columns, rows).cardinality() > 0);
+
+        System.out.println("=== 列式计算语义测试通过 ===");
+    }
+
+    @Test
+    void testBacktestStreamsValuesInRange() {
+        System.out.println("=== 开始测试公式回测 ===");
+
+        LocalDateTime start = LocalDateTime.of(2026, 1, 1, 0, 0);
+        LocalDateTime end = start.plusHours(1);
+        List<Object[]> queries = new ArrayList<>();
+        List<TelemetryValueDTO> values = List.of(
+            new TelemetryValueDTO("temperature", "60", start.plusMinutes(1)),
+            new TelemetryValueDTO("pressure", "100000", start.plusMinutes(2)),
+            new TelemetryValueDTO("temperature", "abc", start.plusMinutes(3)),
+            new TelemetryValueDTO("temperature", "20", start.plusMinutes(4)));
+        TelemetryDataRepository repository = (TelemetryDataRepository) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class<?>[]{TelemetryDataRepository.class}, (proxy, method, args) -> {
+                if (!"streamValues".equals(method.getName())) {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+                queries.add(args);
+                return values.stream();
+            });
+        TelemetryJudgeService judgeService = new TelemetryJudgeService();
+        ReflectionTestUtils.setField(judgeService, "formulaEvaluationService", formulaEvaluationService);
+        ReflectionTestUtils.setField(judgeService, "telemetryDataRepository", repository);
+
+        Map<String, Object> result = judgeService.backtestFormula(1L, FORMULA, start, end);
+
+        // 只查询公式变量在时间范围内的取值
+        assertEquals(1, queries.size());
+        assertEquals(1L, queries.get(0)[0]);
+        assertEquals(Set.of("temperature", "pressure"), Set.copyOf((Collection<?>) queries.get(0)[1]));
+        assertEquals(start, queries.get(0)[2]);
+        assertEquals(end, queries.get(0)[3]);
+        // 第1行压力未收到、第3行温度非数值，均不满足；第2行 (60 + 100) / 2 和第4行 (20 + 100) / 2 大于50
+        assertEquals(4, result.get("rows"));
+        assertEquals(2, result.get("satisfiedRows"));
+        assertEquals(true, result.get("columnar"));
+        assertEquals(start.plusMinutes(2), result.get("firstSatisfiedTime"));
+
+        System.out.println("=== 公式回测测试完成 ===");
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmarkColumnarAgainstRowByRow() {
+        System.out.println("=== 开始公式批量计算性能对比 ===");
+
+        Map<String, double[]> columns = randomColumns(ROWS, new Random(7));
+        double[] temperature = columns.get("temperature");
+        double[] pressure = columns.get("pressure");
+
+        // 预热
+        formulaEvaluationService.evaluateColumnar(FORMULA, columns, ROWS);
+        int rowByRowRows = ROWS / 10;
+        countRowByRow(temperature, pressure, rowByRowRows);
+
+        long start = System.nanoTime();
+        long rowByRowCount = countRowByRow(temperature, pressure, rowByRowRows);
+        long rowByRowNanos = System.nanoTime() - start;
+
+        // 单线程列式计算，不含ForkJoin并行的收益
+        ColumnarFormula program = ColumnarFormula.compile(FORMULA, Map.of("temperature", 0, "pressure", 1));
+        assertNotNull(program);
+        double[][] values = {temperature, pressure};
+        long[] words = new long[(ROWS + 63) >>> 6];
+        program.evaluate(values, words, 0, ROWS);
+        start = System.nanoTime();
+        program.evaluate(values, words, 0, ROWS);
+        long singleThreadNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        BitSet result = formulaEvaluationService.evaluateColumnar(FORMULA, columns, ROWS);
+        long columnarNanos = System.nanoTime() - start;
+
+        // 各种方式对相同的行给出相同的满足数
+        assertEquals(rowByRowCount, result.get(0, rowByRowRows).cardinality());
+        assertEquals(result, BitSet.valueOf(words));
+        assertTrue(result.length() <= ROWS);
+        assertTrue(result.cardinality() > 0 && result.cardinality() < ROWS);
+
+        double rowByRowRate = rowByRowRows * 1e9 / rowByRowNanos;
+        System.out.println(String.format("逐行Map上下文: %.0f 行/秒, 单线程列式: %.0f 行/秒 (提升 %.2f 倍), 列式并行: %.0f 行/秒 (%d 核, 提升 %.2f 倍)",
+            rowByRowRate, ROWS * 1e9 / singleThreadNanos, (ROWS * 1e9 / singleThreadNanos) / rowByRowRate,
+            ROWS * 1e9 / columnarNanos, Runtime.getRuntime().availableProcessors(),
+            (ROWS * 1e9 / columnarNanos) / rowByRowRate));
+
+        System.out.println("=== 公式批量计算性能对比完成 ===");
+    }
+
+    private long countRowByRow(double[] temperature, double[] pressure, int rows) {
+        long count = 0;
+        for (int row = 0; row < rows; row++) {
+            Map<String, Object> telemetryData = new HashMap<>();
+            telemetryData.put("temperature", String.valueOf(temperature[row]));
+            telemetryData.put("pressure", String.valueOf(pressure[row]));
+            Map<String, Object> context = formulaEvaluationService.createComplexContext(telemetryData);
+            if (formulaEvaluationService.evaluateComplexExpression(FORMULA, context)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Map<String, double[]> randomColumns(int rows, Random random) {
+        double[] temperature = new double[rows];
+        double[] pressure = new double[rows];
+        for (int row = 0; row < rows; row++) {
+            temperature[row] = 40 + random.nextDouble() * 80;
+            pressure[row] = random.nextDouble() * 100_000;
+        }
+        Map<String, double[]> columns = new LinkedHashMap<>();
+        columns.put("temperature", temperature);
+        columns.put("pressure", pressure);
+        return columns;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.springbootredis;
+
+import com.example.springbootredis.service.CommandFanOutExecutor;
+import com.example.springbootredis.service.VirtualThreads;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 按指令并发执行的任务分发器测试
+ */
+class CommandFanOutExecutorTest {
+
+    private final CommandFanOutExecutor executor = new CommandFanOutExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    @Timeout(10)
+    void testConcurrencyIsBounded() {
+        System.out.println("=== 开始测试并发数上限 ===");
+
+        ReflectionTestUtils.setField(executor, "maxConcurrency", 4);
+        executor.init();
+        assertTrue(executor.isConcurrent());
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Set<Integer> processed = ConcurrentHashMap.newKeySet();
+        List<Integer> items = IntStream.range(0, 40).boxed().toList();
+        executor.forEach(items, item -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            processed.add(item);
+            if (item % 10 == 0) {
+                throw new IllegalStateException("模拟失败");
+            }
+        });
+
+        // 全部完成后才返回，单个任务失败不影响其他任务
+        assertEquals(40, processed.size());
+        assertTrue(maxRunning.get() > 1);
+        assertTrue(maxRunning.get() <= 4);
+
+        System.out.println("=== 并发数上限测试完成 ===");
+    }
+
+    @Test
+    void testSingleConcurrencyRunsOnCallingThread() {
+        System.out.println("=== 开始测试顺序执行 ===");
+
+        ReflectionTestUtils.setField(executor, "maxConcurrency", 1);
+        executor.init();
+        assertFalse(executor.isConcurrent());
+
+        Thread caller = Thread.currentThread();
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        executor.forEach(List.of(1, 2, 3), item -> threads.add(Thread.currentThread()));
+        assertEquals(Set.of(caller), threads);
+
+        System.out.println("=== 顺序执行测试完成 ===");
+    }
+
+    @Test
+    @Timeout(10)
+    void testVirtualThreadsFollowRuntimeVersion() {
+        System.out.println("=== 开始测试虚拟线程模式 ===");
+
+        ReflectionTestUtils.setField(executor, "maxConcurrency", 4);
+        ReflectionTestUtils.setField(executor, "virtualThreadsEnabled", true);
+        executor.init();
+
+        // JDK 21及以上使用虚拟线程，较低版本回退到平台线程池，两种情况都并发执行
+        assertTrue(executor.isConcurrent());
+        assertEquals(VirtualThreads.isAvailable(), executor.isVirtual());
+        Set<Boolean> virtualFlags = ConcurrentHashMap.newKeySet();
+        executor.forEach(List.of(1, 2, 3), item -> virtualFlags.add(isVirtual(Thread.currentThread())));
+        assertEquals(Set.of(VirtualThreads.isAvailable()), virtualFlags);
+
+        System.out.println("=== 虚拟线程模式测试完成 ===");
+    }
+
+    /**
+     * Thread.isVirtual() 从JDK 21开始提供
+     */
+    private boolean isVirtual(Thread thread) {
+        try {
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+}
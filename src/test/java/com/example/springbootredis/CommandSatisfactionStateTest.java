@@ -0,0 +1,94 @@
+package com.example.springbootredis;
+
+import com.example.springbootredis.dto.CommandTelemetryStatsDTO;
+import com.example.springbootredis.entity.CommandTelemetryRelation;
+import com.example.springbootredis.entity.TelemetryParam;
+import com.example.springbootredis.service.CommandSatisfactionState;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 指令参数满足状态增量更新测试
+ */
+class CommandSatisfactionStateTest {
+
+    @Test
+    void testIncrementalCompletionAndProgress() {
+        System.out.println("=== 开始测试指令参数满足状态 ===");
+
+        CommandSatisfactionState state = new CommandSatisfactionState(1L, List.of(
+            relation("TEMP_001", true, 3),
+            relation("PRESS_001", true, 2),
+            relation("STATUS_001", false, 5)
+        ));
+
+        assertFalse(state.isComplete());
+        assertEquals(0, state.getProgress());
+
+        state.apply("TEMP_001", true);
+        state.apply("PRESS_001", false);
+        assertFalse(state.isComplete());
+        assertEquals(30, state.getProgress());
+
+        state.apply("PRESS_001", true);
+        assertTrue(state.isComplete());
+        assertEquals(50, state.getProgress());
+
+        // 最新结果变为不满足时回退
+        state.apply("TEMP_001", false);
+        state.apply("STATUS_001", true);
+        assertFalse(state.isComplete());
+        assertEquals(70, state.getProgress());
+
+        // 重复结果和未关联的参数不影响计数
+        state.apply("STATUS_001", true);
+        state.apply("UNKNOWN", true);
+        Map<String, Object> stats = state.toStats();
+        assertEquals(3, stats.get("totalParams"));
+        assertEquals(2, stats.get("requiredParams"));
+        assertEquals(2, stats.get("satisfiedParams"));
+        assertEquals(1, stats.get("unsatisfiedParams"));
+        assertEquals(70, stats.get("progress"));
+
+        System.out.println("=== 指令参数满足状态测试通过 ===");
+    }
+
+    @Test
+    void testNoRequiredRelationsIsComplete() {
+        CommandSatisfactionState state = new CommandSatisfactionState(2L, List.of(relation("TEMP_001", false, 1)));
+        assertTrue(state.isComplete());
+
+        CommandSatisfactionState empty = new CommandSatisfactionState(3L, List.of());
+        assertTrue(empty.isComplete());
+        assertEquals(100, empty.getProgress());
+    }
+
+    @Test
+    void testAggregatedStatsMatchState() {
+        CommandSatisfactionState state = new CommandSatisfactionState(4L, List.of(
+            relation("TEMP_001", true, 3),
+            relation("PRESS_001", true, 2),
+            relation("STATUS_001", false, 5)
+        ));
+        state.apply("TEMP_001", true);
+        state.apply("STATUS_001", false);
+
+        // 聚合查询的结果：3个关联、2个必须、1满足1不满足，总权重10、满足权重3
+        CommandTelemetryStatsDTO summary = new CommandTelemetryStatsDTO(4L, 3L, 2L, 1L, 1L, 10L, 3L);
+        assertEquals(state.toStats(), summary.toStats());
+        assertEquals(CommandSatisfactionState.progress(0, 0), CommandTelemetryStatsDTO.empty(5L).getProgress());
+        assertEquals(new CommandSatisfactionState(5L, List.of()).toStats(), CommandTelemetryStatsDTO.empty(5L).toStats());
+    }
+
+    private CommandTelemetryRelation relation(String paramCode, boolean required, int weight) {
+        CommandTelemetryRelation relation = new CommandTelemetryRelation();
+        relation.setTelemetryParam(new TelemetryParam(paramCode, paramCode));
+        relation.setRequired(required);
+        relation.setWeight(weight);
+        return relation;
+    }
+}
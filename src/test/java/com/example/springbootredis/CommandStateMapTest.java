@@ -0,0 +1,56 @@
+package com.example.springbootredis;
+
+import com.example.springbootredis.service.CommandStateMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 按指令缓存的内存状态测试
+ */
+class CommandStateMapTest {
+
+    @Test
+    void testLoadCachedOnce() {
+        System.out.println("=== 开始测试状态加载缓存 ===");
+
+        CommandStateMap<String> states = new CommandStateMap<>();
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals("state-1", states.get(1L, id -> {
+            loads.incrementAndGet();
+            return "state-" + id;
+        }));
+        assertEquals("state-1", states.get(1L, id -> "reloaded"));
+        assertEquals(1, loads.get());
+        assertEquals(1, states.size());
+
+        System.out.println("=== 状态加载缓存测试完成 ===");
+    }
+
+    @Test
+    void testStaleLoadNotCached() {
+        System.out.println("=== 开始测试过期加载结果不缓存 ===");
+
+        CommandStateMap<String> states = new CommandStateMap<>();
+        // 加载期间指令被移除（例如其他实例写入了数据）
+        assertEquals("stale", states.get(1L, id -> {
+            states.evict(id);
+            return "stale";
+        }));
+        assertNull(states.getIfPresent(1L));
+
+        // 加载期间有增量更新因状态未加载而跳过
+        assertEquals("stale", states.get(2L, id -> {
+            assertNull(states.getForUpdate(id));
+            return "stale";
+        }));
+        assertNull(states.getIfPresent(2L));
+
+        assertEquals("fresh", states.get(2L, id -> "fresh"));
+        assertEquals("fresh", states.getIfPresent(2L));
+
+        System.out.println("=== 过期加载结果不缓存测试完成 ===");
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.springbootredis;
+
+import com.example.springbootredis.dto.CommandTelemetryStatsDTO;
+import com.example.springbootredis.entity.Command;
+import com.example.springbootredis.entity.CommandTelemetryRelation;
+import com.example.springbootredis.entity.TelemetryLatest;
+import com.example.springbootredis.entity.TelemetryParam;
+import com.example.springbootredis.entity.enums.JudgeOperator;
+import com.example.springbootredis.repository.CommandTelemetryRelationRepository;
+import com.example.springbootredis.service.CommandSatisfactionState;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 指令遥测统计聚合查询测试
+ * 在H2内存库（MySQL兼容模式）上执行 summarizeByCommandIds，与按同样的关联关系和参数最新值构建的
+ * {@link CommandSatisfactionState#toStats()} 对比
+ */
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:telemetry_stats;MODE=MySQL;DB_CLOSE_DELAY=-1",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class CommandTelemetryStatsRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private CommandTelemetryRelationRepository relationRepository;
+
+    @Test
+    void testSummaryMatchesSatisfactionState() {
+        System.out.println("=== 开始测试聚合统计与满足状态一致 ===");
+
+        Long commandId = command();
+        relation(commandId, param("TEMP_001"), true, 3, null);
+        relation(commandId, param("PRESS_001"), true, 2, null);
+        relation(commandId, param("VOLT_001"), false, 1, null);
+        relation(commandId, param("CURR_001"), false, 4, null);
+        latest(commandId, "TEMP_001", true);
+        latest(commandId, "PRESS_001", false);
+        latest(commandId, "VOLT_001", true);
+        // 其他指令的最新值不计入
+        latest(commandId + 1, "CURR_001", true);
+        entityManager.flush();
+        entityManager.clear();
+
+        CommandTelemetryStatsDTO summary = summarize(commandId);
+        CommandSatisfactionState state = stateFromLatest(commandId);
+        assertEquals(state.toStats(), summary.toStats());
+        assertEquals(state.getSatisfiedWeight(), summary.getSatisfiedWeight());
+        assertEquals(Map.of("totalParams", 4, "requiredParams", 2, "satisfiedParams", 2,
+            "unsatisfiedParams", 1, "progress", 40), summary.toStats());
+
+        // 没有关联关系的指令不返回
+        assertTrue(relationRepository.summarizeByCommandIds(List.of(commandId + 1)).isEmpty());
+
+        System.out.println("=== 聚合统计与满足状态一致测试完成 ===");
+    }
+
+    @Test
+    void testSummaryUsesPersistedResultOfReevaluatedFormula() {
+        System.out.println("=== 开始测试重新判定的复杂公式结果不计入聚合统计 ===");
+
+        Long commandId = command();
+        relation(commandId, param("TEMP_001"), true, 1, null);
+        relation(commandId, param("PRESS_001"), true, 1, "PRESS_001 > 400 && TEMP_001 > 0");
+        latest(commandId, "TEMP_001", true);
+        // PRESS_001 落库时 TEMP_001 尚未满足，之后 TEMP_001 变化只在内存中重新判定为满足
+        latest(commandId, "PRESS_001", false);
+        entityManager.flush();
+        entityManager.clear();
+
+        CommandSatisfactionState state = stateFromLatest(commandId);
+        state.apply("PRESS_001", true);
+        CommandTelemetryStatsDTO summary = summarize(commandId);
+        assertEquals(2, state.toStats().get("satisfiedParams"));
+        assertEquals(1, summary.getSatisfiedParams());
+        assertEquals(1, summary.getUnsatisfiedParams());
+
+        System.out.println("=== 重新判定的复杂公式结果不计入聚合统计测试完成 ===");
+    }
+
+    private CommandTelemetryStatsDTO summarize(Long commandId) {
+        List<CommandTelemetryStatsDTO> summaries = relationRepository.summarizeByCommandIds(List.of(commandId));
+        assertEquals(1, summaries.size());
+        assertEquals(commandId, summaries.get(0).getCommandId());
+        return summaries.get(0);
+    }
+
+    /**
+     * 与满足状态跟踪器重建状态相同：关联关系加上参数最新值表中保存的判定结果
+     */
+    private CommandSatisfactionState stateFromLatest(Long commandId) {
+        CommandSatisfactionState state = new CommandSatisfactionState(commandId,
+            relationRepository.findByCommandIdWithTelemetryParam(commandId));
+        entityManager.getEntityManager()
+            .createQuery("SELECT tl FROM TelemetryLatest tl WHERE tl.commandId = :commandId", TelemetryLatest.class)
+            .setParameter("commandId", commandId)
+            .getResultList()
+            .forEach(latest -> state.apply(latest.getParamCode(), latest.getJudgeResult()));
+        return state;
+    }
+
+    private Long command() {
+        return entityManager.persist(new Command("测试指令", LocalDateTime.now(), "SAT_001")).getId();
+    }
+
+    private Long param(String paramCode) {
+        return entityManager.persist(new TelemetryParam(paramCode, paramCode)).getId();
+    }
+
+    private void relation(Long commandId, Long paramId, boolean required, int weight, String formula) {
+        CommandTelemetryRelation relation = new CommandTelemetryRelation(commandId, paramId, JudgeOperator.GREATER_THAN, "0");
+        relation.setRequired(required);
+        relation.setWeight(weight);
+        if (formula != null) {
+            relation.setFormulaType("COMPLEX");
+            relation.setFormulaExpression(formula);
+        }
+        entityManager.persist(relation);
+    }
+
+    private void latest(Long commandId, String paramCode, boolean judgeResult) {
+        TelemetryLatest latest = new TelemetryLatest();
+        latest.setCommandId(commandId);
+        latest.setParamCode(paramCode);
+        latest.setDataId(1L);
+        latest.setActualValue("1");
+        latest.setJudgeResult(judgeResult);
+        latest.setReceiveTime(LocalDateTime.now());
+        entityManager.persist(latest);
+    }
+}
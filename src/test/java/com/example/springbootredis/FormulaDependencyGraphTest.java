@@ -0,0 +1,65 @@
+package com.example.springbootredis;
+
+import com.example.springbootredis.entity.CommandTelemetryRelation;
+import com.example.springbootredis.entity.TelemetryParam;
+import com.example.springbootredis.service.FormulaDependencyGraph;
+import com.example.springbootredis.service.FormulaEvaluationService;
+import com.example.springbootredis.service.FormulaExpressionCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 参数依赖图测试
+ */
+class FormulaDependencyGraphTest {
+
+    @Test
+    void testAffectedRelationsFollowFormulaVariables() {
+        System.out.println("=== 开始测试参数依赖图 ===");
+
+        FormulaEvaluationService formulaEvaluationService = new FormulaEvaluationService();
+        ReflectionTestUtils.setField(formulaEvaluationService, "expressionCache", new FormulaExpressionCache(16));
+
+        CommandTelemetryRelation temp = relation("TEMP_001", null);
+        CommandTelemetryRelation press = relation("PRESS_001", null);
+        CommandTelemetryRelation average = relation("AVG_001", "(TEMP_001 + PRESS_001 / 1000) / 2 > 50");
+        CommandTelemetryRelation status = relation("STATUS_001", "STATUS_001 == 'NORMAL'");
+        // 同一参数的第二个关联关系不参与判定
+        CommandTelemetryRelation duplicate = relation("TEMP_001", "TEMP_001 > 0 && STATUS_001 == 'NORMAL'");
+
+        FormulaDependencyGraph graph = FormulaDependencyGraph.build(
+            List.of(temp, press, average, status, duplicate), formulaEvaluationService);
+
+        assertTrue(graph.hasComplex());
+        assertSame(temp, graph.getOwner("TEMP_001"));
+        assertNull(graph.getOwner("UNKNOWN"));
+
+        assertEquals(List.of(temp, average), List.copyOf(graph.affectedBy(List.of("TEMP_001"))));
+        assertEquals(List.of(press, average), List.copyOf(graph.affectedBy(List.of("PRESS_001"))));
+        assertEquals(Set.of(status), graph.affectedBy(List.of("STATUS_001")));
+        assertEquals(Set.of(average), graph.affectedBy(List.of("AVG_001")));
+        // 同一帧多个参数影响同一关联关系时只判定一次
+        assertEquals(List.of(temp, average, press), List.copyOf(graph.affectedBy(List.of("TEMP_001", "PRESS_001"))));
+        assertTrue(graph.affectedBy(List.of("UNKNOWN")).isEmpty());
+
+        System.out.println("=== 参数依赖图测试完成 ===");
+    }
+
+    private CommandTelemetryRelation relation(String paramCode, String formula) {
+        TelemetryParam param = new TelemetryParam();
+        param.setParamCode(paramCode);
+
+        CommandTelemetryRelation relation = new CommandTelemetryRelation();
+        relation.setTelemetryParam(param);
+        if (formula != null) {
+            relation.setFormulaType("COMPLEX");
+            relation.setFormulaExpression(formula);
+        }
+        return relation;
+    }
+}
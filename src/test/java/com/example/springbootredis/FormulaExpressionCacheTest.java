@@ -0,0 +1,59 @@
+package com.example.springbootredis;
+
+import com.example.springbootredis.service.FormulaExpressionCache;
+import com.googlecode.aviator.Expression;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 公式编译结果缓存测试
+ */
+class FormulaExpressionCacheTest {
+
+    @Test
+    void testCompileOnceAndLruEviction() {
+        System.out.println("=== 开始测试公式编译缓存 ===");
+
+        FormulaExpressionCache cache = new FormulaExpressionCache(2);
+
+        Expression first = cache.getOrCompile("temp > 80");
+        assertSame(first, cache.getOrCompile("temp > 80"));
+        assertEquals(true, first.execute(Map.of("temp", 90)));
+
+        cache.getOrCompile("press < 100");
+        // 访问 temp > 80 使其成为最近使用，再加入第三个公式时淘汰 press < 100
+        cache.getOrCompile("temp > 80");
+        cache.getOrCompile("(a + b) / 2 > 10");
+
+        Map<String, Object> stats = cache.getStats();
+        System.out.println("缓存统计: " + stats);
+        assertEquals(2L, stats.get("hits"));
+        assertEquals(3L, stats.get("misses"));
+        assertEquals(1L, stats.get("evictions"));
+        assertEquals(2, stats.get("size"));
+        assertSame(first, cache.getOrCompile("temp > 80"));
+
+        System.out.println("=== 公式编译缓存测试完成 ===");
+    }
+
+    @Test
+    void testInvalidateAndCompileFailure() {
+        FormulaExpressionCache cache = new FormulaExpressionCache(16);
+
+        Expression first = cache.getOrCompile("temp > 80");
+        cache.invalidate("temp > 80");
+        assertNotSame(first, cache.getOrCompile("temp > 80"));
+
+        // 编译失败不缓存，每次都抛出异常
+        assertThrows(RuntimeException.class, () -> cache.getOrCompile("temp >"));
+        assertThrows(RuntimeException.class, () -> cache.getOrCompile("temp >"));
+
+        Map<String, Object> stats = cache.getStats();
+        assertEquals(2L, stats.get("compileFailures"));
+        assertEquals(1L, stats.get("invalidations"));
+        assertEquals(1, stats.get("size"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.springbootredis;
+
+import com.example.springbootredis.replay.InMemoryRedisConnectionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 离线回放Redis替身测试：覆盖回放流程经RedisTemplate用到的全部命令
+ */
+class InMemoryRedisConnectionFactoryTest {
+
+    private final StringRedisTemplate redisTemplate = new StringRedisTemplate(new InMemoryRedisConnectionFactory());
+
+    @Test
+    void testStringCommands() {
+        System.out.println("=== 开始测试字符串命令 ===");
+
+        // 指令缓存（CommandManagementService）
+        redisTemplate.opsForValue().set("command:1", "CMD_001", 1, TimeUnit.HOURS);
+        redisTemplate.opsForValue().set("command:2", "CMD_002");
+        assertEquals("CMD_001", redisTemplate.opsForValue().get("command:1"));
+        assertEquals("CMD_002", redisTemplate.opsForValue().get("command:2"));
+        assertNull(redisTemplate.opsForValue().get("command:3"));
+
+        assertTrue(redisTemplate.delete("command:1"));
+        assertFalse(redisTemplate.delete("command:1"));
+        assertNull(redisTemplate.opsForValue().get("command:1"));
+
+        System.out.println("=== 字符串命令测试完成 ===");
+    }
+
+    @Test
+    void testSetCommands() {
+        System.out.println("=== 开始测试集合命令 ===");
+
+        // 执行中指令集合（CommandManagementService）
+        assertEquals(1L, redisTemplate.opsForSet().add("executing_commands", "1"));
+        assertEquals(1L, redisTemplate.opsForSet().add("executing_commands", "2", "1"));
+        assertEquals(Set.of("1", "2"), redisTemplate.opsForSet().members("executing_commands"));
+        assertTrue(redisTemplate.opsForSet().isMember("executing_commands", "2"));
+        assertEquals(2L, redisTemplate.opsForSet().size("executing_commands"));
+
+        assertEquals(1L, redisTemplate.opsForSet().remove("executing_commands", "1"));
+        assertEquals(0L, redisTemplate.opsForSet().remove("executing_commands", "1"));
+        assertEquals(Set.of("2"), redisTemplate.opsForSet().members("executing_commands"));
+
+        System.out.println("=== 集合命令测试完成 ===");
+    }
+
+    @Test
+    void testHashAndKeyCommands() {
+        System.out.println("=== 开始测试哈希和键命令 ===");
+
+        // 最新值快照镜像（TelemetrySnapshotStore）
+        redisTemplate.opsForHash().putAll("telemetry:latest:1", Map.of("TEMP_001", "85", "PRESS_001", "2.1"));
+        redisTemplate.opsForHash().put("telemetry:latest:1", "VOLT_001", "28");
+        assertTrue(redisTemplate.expire("telemetry:latest:1", 60, TimeUnit.SECONDS));
+        assertFalse(redisTemplate.expire("telemetry:latest:2", 60, TimeUnit.SECONDS));
+
+        assertEquals("85", redisTemplate.opsForHash().get("telemetry:latest:1", "TEMP_001"));
+        assertEquals(Map.of("TEMP_001", "85", "PRESS_001", "2.1", "VOLT_001", "28"),
+            redisTemplate.opsForHash().entries("telemetry:latest:1"));
+        assertEquals(1L, redisTemplate.opsForHash().delete("telemetry:latest:1", "VOLT_001", "MISSING"));
+
+        assertTrue(redisTemplate.hasKey("telemetry:latest:1"));
+        assertEquals(Set.of("telemetry:latest:1"), redisTemplate.keys("telemetry:latest:*"));
+        assertTrue(redisTemplate.delete("telemetry:latest:1"));
+        assertFalse(redisTemplate.hasKey("telemetry:latest:1"));
+        assertTrue(redisTemplate.opsForHash().entries("telemetry:latest:1").isEmpty());
+
+        System.out.println("=== 哈希和键命令测试完成 ===");
+    }
+
+    @Test
+    void testPublishAndUnsupportedCommands() {
+        System.out.println("=== 开始测试发布和未实现的命令 ===");
+
+        // 回放配置关闭了订阅，发布的消息直接丢弃
+        assertEquals(0L, redisTemplate.convertAndSend("command_code:invalidate", "message"));
+
+        // 未实现的命令立即失败，而不是静默返回空值
+        assertThrows(UnsupportedOperationException.class, () -> redisTemplate.opsForList().leftPush("list", "value"));
+        assertThrows(UnsupportedOperationException.class, () -> redisTemplate.opsForValue().increment("counter"));
+
+        System.out.println("=== 发布和未实现的命令测试完成 ===");
+    }
+}
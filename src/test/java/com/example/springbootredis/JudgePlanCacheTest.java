@@ -0,0 +1,113 @@
+package com.example.springbootredis;
+
+import com.example.springbootredis.entity.CommandTelemetryRelation;
+import com.example.springbootredis.entity.TelemetryParam;
+import com.example.springbootredis.entity.enums.JudgeOperator;
+import com.example.springbootredis.event.CommandRelationsChangedEvent;
+import com.example.springbootredis.repository.CommandTelemetryRelationRepository;
+import com.example.springbootredis.service.FormulaEvaluationService;
+import com.example.springbootredis.service.FormulaExpressionCache;
+import com.example.springbootredis.service.JudgePlan;
+import com.example.springbootredis.service.JudgePlanCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 指令判定计划缓存测试
+ */
+class JudgePlanCacheTest {
+
+    private static final Long COMMAND_ID = 1L;
+
+    private int queries;
+    private String expectedTemp = "80";
+
+    @Test
+    void testPlanBuiltOnceAndRebuiltAfterRelationsChange() {
+        System.out.println("=== 开始测试判定计划缓存 ===");
+
+        FormulaEvaluationService formulaEvaluationService = new FormulaEvaluationService();
+        FormulaExpressionCache expressionCache = new FormulaExpressionCache(16);
+        ReflectionTestUtils.setField(formulaEvaluationService, "expressionCache", expressionCache);
+
+        // 只实现判定计划用到的查询
+        CommandTelemetryRelationRepository repository = (CommandTelemetryRelationRepository) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class<?>[]{CommandTelemetryRelationRepository.class}, (proxy, method, args) -> {
+                if (!"findByCommandIdWithTelemetryParam".equals(method.getName())) {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+                queries++;
+                return List.of(
+                    relation(1L, "TEMP_001", expectedTemp, null, true),
+                    relation(2L, "PRESS_001", "400", "PRESS_001 > 400 && TEMP_001 > 0", false));
+            });
+        JudgePlanCache cache = new JudgePlanCache();
+        ReflectionTestUtils.setField(cache, "relationRepository", repository);
+        ReflectionTestUtils.setField(cache, "formulaEvaluationService", formulaEvaluationService);
+
+        JudgePlan plan = cache.get(COMMAND_ID);
+        assertSame(plan, cache.get(COMMAND_ID));
+        assertEquals(1, queries);
+
+        CommandTelemetryRelation temp = plan.getGraph().getOwner("TEMP_001");
+        CommandTelemetryRelation press = plan.getGraph().getOwner("PRESS_001");
+        assertEquals(List.of(temp), plan.getRequiredRelations());
+        assertTrue(plan.getSimpleJudge(temp).test("85"));
+        assertNull(plan.getExpression(temp));
+        assertNull(plan.getSimpleJudge(press));
+        assertNotNull(plan.getExpression(press));
+        assertThrows(UnsupportedOperationException.class, () -> plan.getRelations().clear());
+
+        // 其他指令的变更不影响本指令的计划
+        cache.onRelationsChanged(new CommandRelationsChangedEvent(2L, false));
+        assertSame(plan, cache.get(COMMAND_ID));
+
+        expectedTemp = "90";
+        cache.onRelationsChanged(new CommandRelationsChangedEvent(COMMAND_ID, false));
+        JudgePlan rebuilt = cache.get(COMMAND_ID);
+        assertNotSame(plan, rebuilt);
+        assertEquals(2, queries);
+        assertFalse(rebuilt.getSimpleJudge(rebuilt.getGraph().getOwner("TEMP_001")).test("85"));
+
+        // 遥测参数变更影响所有指令
+        cache.onRelationsChanged(new CommandRelationsChangedEvent(null, false));
+        assertNotSame(rebuilt, cache.get(COMMAND_ID));
+        assertEquals(3, queries);
+        assertEquals(2L, cache.getStats().get("invalidations"));
+        // 公式编译结果按公式文本共享，失效计划时不移除
+        assertEquals(0L, expressionCache.getStats().get("invalidations"));
+        assertEquals(1, expressionCache.getStats().get("size"));
+
+        // 查询接口不缓存其他指令的计划
+        assertNull(cache.getIfPresent(5L));
+        assertNotNull(cache.lookup(5L));
+        assertNull(cache.getIfPresent(5L));
+        assertEquals(1, cache.getStats().get("plans"));
+
+        System.out.println("=== 判定计划缓存测试完成 ===");
+    }
+
+    private CommandTelemetryRelation relation(Long id, String paramCode, String expectedValue, String formula, boolean required) {
+        TelemetryParam param = new TelemetryParam();
+        param.setParamCode(paramCode);
+        param.setParamType("NUMBER");
+
+        CommandTelemetryRelation relation = new CommandTelemetryRelation();
+        relation.setId(id);
+        relation.setCommandId(COMMAND_ID);
+        relation.setTelemetryParam(param);
+        relation.setJudgeOperator(JudgeOperator.GREATER_THAN);
+        relation.setExpectedValue(expectedValue);
+        relation.setRequired(required);
+        if (formula != null) {
+            relation.setFormulaType("COMPLEX");
+            relation.setFormulaExpression(formula);
+        }
+        return relation;
+    }
+}
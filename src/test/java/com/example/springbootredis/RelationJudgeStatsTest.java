@@ -0,0 +1,80 @@
+package com.example.springbootredis;
+
+import com.example.springbootredis.entity.CommandTelemetryRelation;
+import com.example.springbootredis.entity.enums.CommandStatus;
+import com.example.springbootredis.event.CommandRelationsChangedEvent;
+import com.example.springbootredis.event.CommandStatusChangedEvent;
+import com.example.springbootredis.service.RelationJudgeStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 关联关系判定顺序测试
+ */
+class RelationJudgeStatsTest {
+
+    @Test
+    void testCheapFrequentlyFailingRelationsComeFirst() {
+        System.out.println("=== 开始测试关联关系判定顺序 ===");
+
+        RelationJudgeStats stats = new RelationJudgeStats();
+        CommandTelemetryRelation expensiveRarelyFails = relation(1L);
+        CommandTelemetryRelation cheapRarelyFails = relation(2L);
+        CommandTelemetryRelation cheapOftenFails = relation(3L);
+        CommandTelemetryRelation unseen = relation(4L);
+
+        for (int i = 0; i < 100; i++) {
+            stats.record(expensiveRarelyFails, 50_000, i % 10 != 0);
+            stats.record(cheapRarelyFails, 1_000, i % 10 != 0);
+            stats.record(cheapOftenFails, 1_000, i % 10 == 0);
+        }
+
+        // 没有统计的关联关系先判定以积累统计，其余按 耗时 / 不满足概率 排序
+        assertEquals(List.of(unseen, cheapOftenFails, cheapRarelyFails, expensiveRarelyFails),
+            stats.order(List.of(expensiveRarelyFails, cheapRarelyFails, cheapOftenFails, unseen)));
+
+        stats.recordVerification(1, true);
+        stats.recordVerification(3, false);
+        assertEquals(2.0, stats.getStats().get("avgEvaluationsPerVerification"));
+        assertEquals(1L, stats.getStats().get("shortCircuits"));
+        assertEquals(0.9, (Double) stats.describe(List.of(cheapOftenFails)).get(0).get("unsatisfiedRate"), 1e-9);
+
+        System.out.println("=== 关联关系判定顺序测试完成 ===");
+    }
+
+    @Test
+    void testStatsEvictedWhenCommandEnds() {
+        System.out.println("=== 开始测试指令结束后移除统计 ===");
+
+        RelationJudgeStats stats = new RelationJudgeStats();
+        CommandTelemetryRelation finished = relation(1L, 10L);
+        CommandTelemetryRelation running = relation(2L, 20L);
+        stats.record(finished, 1_000, false);
+        stats.record(running, 1_000, false);
+        assertEquals(2, stats.getStats().get("trackedRelations"));
+
+        stats.onCommandStatusChanged(new CommandStatusChangedEvent(10L, "CMD_10",
+            CommandStatus.EXECUTING, CommandStatus.COMPLETED));
+        assertEquals(1, stats.getStats().get("trackedRelations"));
+        assertEquals(0L, stats.describe(List.of(finished)).get(0).get("evaluations"));
+
+        stats.onRelationsChanged(new CommandRelationsChangedEvent(20L, true));
+        assertEquals(0, stats.getStats().get("trackedRelations"));
+
+        System.out.println("=== 指令结束后移除统计测试完成 ===");
+    }
+
+    private CommandTelemetryRelation relation(Long id) {
+        return relation(id, null);
+    }
+
+    private CommandTelemetryRelation relation(Long id, Long commandId) {
+        CommandTelemetryRelation relation = new CommandTelemetryRelation();
+        relation.setId(id);
+        relation.setCommandId(commandId);
+        return relation;
+    }
+}
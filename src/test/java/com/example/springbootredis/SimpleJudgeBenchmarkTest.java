@@ -0,0 +1,99 @@
+package com.example.springbootredis;
+
+import com.example.springbootredis.entity.enums.JudgeOperator;
+import com.example.springbootredis.service.FormulaEvaluationService;
+import com.example.springbootredis.service.FormulaExpressionCache;
+import com.example.springbootredis.service.SimpleJudge;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 简单比较判定对比测试
+ * 对比Aviator简单表达式与类型化直接比较的判定结果和性能
+ */
+class SimpleJudgeBenchmarkTest {
+
+    private static final int WARMUP_ROUNDS = 200_000;
+    private static final int MEASURE_ROUNDS = 1_000_000;
+
+    private final FormulaEvaluationService formulaEvaluationService = new FormulaEvaluationService();
+
+    SimpleJudgeBenchmarkTest() {
+        ReflectionTestUtils.setField(formulaEvaluationService, "expressionCache", new FormulaExpressionCache(1024));
+    }
+
+    @Test
+    void testMatchesAviatorPath() {
+        System.out.println("=== 开始测试简单比较判定一致性 ===");
+
+        String[][] numberCases = {
+            {"80", "80"}, {"80", "80.0"}, {"80.00", "80"}, {"-1.5", "-1.50"}, {"+3", "3"}, {".5", "0.5"},
+            {"5.", "5"}, {"1e3", "1000"}, {"1E-2", "0.01"}, {"79.999999999999999999", "80"},
+            {"80.000000000000000001", "80"}, {"123456789012345678901234", "1"}, {"0", "-0.0"},
+            {"abc", "80"}, {"", "80"}, {"-", "80"}, {"1.2.3", "1"}, {"85", "not-a-number"},
+            {"0.3", "0.1"}, {"922337203685477580.7", "922337203685477580"}, {"1", "1e20"}, {"1e20", "99999999999999999999"}
+        };
+        String[][] stringCases = {
+            {"NORMAL", "NORMAL"}, {"NORMAL", "ERROR"}, {"abc", "abd"}, {"", "a"}, {"温度", "温度"}
+        };
+        String[][] booleanCases = {
+            {"true", "true"}, {"true", "false"}, {"false", "TRUE"}, {"yes", "false"}
+        };
+
+        int checked = 0;
+        for (JudgeOperator operator : JudgeOperator.values()) {
+            checked += assertSameResults(operator, "NUMBER", numberCases);
+            checked += assertSameResults(operator, "number", numberCases);
+            checked += assertSameResults(operator, "STRING", stringCases);
+            checked += assertSameResults(operator, "ENUM", stringCases);
+            checked += assertSameResults(operator, "BOOLEAN", booleanCases);
+        }
+        System.out.println("一致性检查通过: " + checked + " 组");
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmarkTypedJudgeAgainstAviator() {
+        System.out.println("=== 开始简单比较判定性能对比 ===");
+
+        String[] actualValues = {"79.5", "80", "80.25", "123", "-4.75", "85.5"};
+        SimpleJudge judge = SimpleJudge.of(JudgeOperator.GREATER_THAN_OR_EQUALS, "80", "NUMBER");
+
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            String actual = actualValues[i % actualValues.length];
+            sink += formulaEvaluationService.evaluateSimpleExpression(actual, "80", ">=", "NUMBER") ? 1 : 0;
+            sink += judge.test(actual) ? 1 : 0;
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            sink += formulaEvaluationService.evaluateSimpleExpression(actualValues[i % actualValues.length], "80", ">=", "NUMBER") ? 1 : 0;
+        }
+        long aviatorNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            sink += judge.test(actualValues[i % actualValues.length]) ? 1 : 0;
+        }
+        long typedNanos = System.nanoTime() - start;
+
+        System.out.println(String.format("Aviator简单表达式: %.0f 次/秒, 类型化直接比较: %.0f 次/秒, 提升: %.2f 倍 (sink=%d)",
+            MEASURE_ROUNDS * 1e9 / aviatorNanos, MEASURE_ROUNDS * 1e9 / typedNanos,
+            (double) aviatorNanos / typedNanos, sink));
+
+        System.out.println("=== 简单比较判定性能对比完成 ===");
+    }
+
+    private int assertSameResults(JudgeOperator operator, String paramType, String[][] cases) {
+        for (String[] c : cases) {
+            boolean expected = formulaEvaluationService.evaluateSimpleExpression(c[0], c[1], operator.getSymbol(), paramType);
+            boolean actual = SimpleJudge.of(operator, c[1], paramType).test(c[0]);
+            assertEquals(expected, actual, String.format("%s %s %s (%s)", c[0], operator.getSymbol(), c[1], paramType));
+        }
+        return cases.length;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.springbootredis;
+
+import com.example.springbootredis.kafka.TelemetryBackpressureController;
+import com.example.springbootredis.kafka.TelemetryLaneDispatcher;
+import com.example.springbootredis.service.TelemetryWriteBehindBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 遥测消费背压控制器测试：暂停和恢复的滞回、延迟衰减和异步写入缓冲区水位
+ */
+class TelemetryBackpressureControllerTest {
+
+    private final TelemetryBackpressureController controller = new TelemetryBackpressureController();
+
+    private final List<String> containerCalls = new ArrayList<>();
+
+    private double writeBehindFillRatio;
+
+    @BeforeEach
+    void setUp() {
+        MessageListenerContainer container = (MessageListenerContainer) Proxy.newProxyInstance(
+            MessageListenerContainer.class.getClassLoader(),
+            new Class<?>[]{MessageListenerContainer.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "isRunning":
+                        return true;
+                    case "pause":
+                    case "resume":
+                        containerCalls.add(method.getName());
+                        return null;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+        KafkaListenerEndpointRegistry registry = new KafkaListenerEndpointRegistry() {
+            @Override
+            public MessageListenerContainer getListenerContainer(String id) {
+                return container;
+            }
+        };
+        TelemetryWriteBehindBuffer writeBehindBuffer = new TelemetryWriteBehindBuffer() {
+            @Override
+            public double getFillRatio() {
+                return writeBehindFillRatio;
+            }
+        };
+
+        ReflectionTestUtils.setField(controller, "listenerRegistry", registry);
+        ReflectionTestUtils.setField(controller, "laneDispatcher", new TelemetryLaneDispatcher());
+        ReflectionTestUtils.setField(controller, "writeBehindBuffer", writeBehindBuffer);
+        ReflectionTestUtils.setField(controller, "consumerMode", "single");
+        ReflectionTestUtils.setField(controller, "enabled", true);
+        ReflectionTestUtils.setField(controller, "highWatermark", 0.8);
+        ReflectionTestUtils.setField(controller, "lowWatermark", 0.3);
+        ReflectionTestUtils.setField(controller, "maxRecordLatencyMs", 200.0);
+        ReflectionTestUtils.setField(controller, "resumeRecordLatencyMs", 100.0);
+        ReflectionTestUtils.setField(controller, "pauseCooldownMs", 0L);
+    }
+
+    @Test
+    void testLatencyPauseResumesWithHysteresis() {
+        System.out.println("=== 开始测试处理延迟暂停与恢复 ===");
+
+        controller.recordProcessed(1, 300_000_000L);
+        controller.evaluate();
+        assertTrue(controller.isPaused());
+
+        // 暂停期间没有新样本：EWMA逐次衰减，高于恢复阈值时保持暂停
+        int evaluations = 0;
+        while (controller.isPaused()) {
+            double before = controller.getRecordLatencyMs();
+            controller.evaluate();
+            evaluations++;
+            if (controller.isPaused()) {
+                assertTrue(controller.getRecordLatencyMs() < before);
+                assertTrue(controller.getRecordLatencyMs() > 100.0);
+            }
+            assertTrue(evaluations < 20, "延迟应衰减到恢复阈值以下");
+        }
+        System.out.println("恢复前评估次数: " + evaluations + ", 恢复时延迟: " + controller.getRecordLatencyMs() + " ms");
+
+        // 恢复时保留EWMA，两个阈值之间的延迟不会再次暂停
+        double resumedLatency = controller.getRecordLatencyMs();
+        assertTrue(resumedLatency > 0 && resumedLatency <= 100.0);
+        controller.recordProcessed(1, 150_000_000L);
+        controller.evaluate();
+        assertFalse(controller.isPaused());
+        assertEquals(List.of("pause", "resume"), containerCalls);
+
+        System.out.println("=== 处理延迟暂停与恢复测试完成 ===");
+    }
+
+    @Test
+    void testWriteBehindBufferWatermarks() {
+        System.out.println("=== 开始测试异步写入缓冲区水位 ===");
+
+        writeBehindFillRatio = 0.9;
+        controller.evaluate();
+        assertTrue(controller.isPaused());
+        assertTrue(((String) controller.getStats().get("lastPauseReason")).contains("异步写入缓冲区"));
+
+        // 回落到高低水位之间保持暂停，低于低水位后恢复
+        writeBehindFillRatio = 0.5;
+        controller.evaluate();
+        assertTrue(controller.isPaused());
+        writeBehindFillRatio = 0.2;
+        controller.evaluate();
+        assertFalse(controller.isPaused());
+        assertEquals(0.2, (Double) controller.getStats().get("writeBehindFillRatio"), 1e-9);
+
+        System.out.println("=== 异步写入缓冲区水位测试完成 ===");
+    }
+}
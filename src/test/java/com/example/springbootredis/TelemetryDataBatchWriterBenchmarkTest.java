@@ -0,0 +1,195 @@
+package com.example.springbootredis;
+
+import com.example.springbootredis.entity.TelemetryData;
+import com.example.springbootredis.service.TelemetryDataBatchWriter;
+import com.example.springbootredis.service.TelemetryRawMessageStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 遥测数据批量写入对比测试
+ * 在H2内存库（MySQL兼容模式）上对比逐条插入（与Hibernate对IDENTITY主键的save()相同：每条一次往返并取回自增ID）
+ * 和JDBC批量插入的写入速度；内存库没有网络往返，实际MySQL上的差距更大
+ */
+class TelemetryDataBatchWriterBenchmarkTest {
+
+    private static final int WARMUP_ROWS = 20_000;
+    private static final int MEASURE_ROWS = 100_000;
+
+    private final SingleConnectionDataSource dataSource =
+        new SingleConnectionDataSource("jdbc:h2:mem:batch_writer;MODE=MySQL", "sa", "", true);
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    private final TelemetryDataBatchWriter writer = new TelemetryDataBatchWriter();
+    private final TelemetryRawMessageStore rawMessageStore = new TelemetryRawMessageStore();
+
+    TelemetryDataBatchWriterBenchmarkTest() {
+        jdbcTemplate.execute("CREATE TABLE tb_telemetry_data (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+            + "command_id BIGINT NOT NULL, param_code VARCHAR(50) NOT NULL, actual_value VARCHAR(100) NOT NULL, "
+            + "receive_time TIMESTAMP NOT NULL, judge_result BOOLEAN, judge_time TIMESTAMP, data_source VARCHAR(20), "
+            + "repeat_count INT, last_repeat_time TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE tb_telemetry_latest (command_id BIGINT NOT NULL, param_code VARCHAR(50) NOT NULL, "
+            + "data_id BIGINT NOT NULL, actual_value VARCHAR(100), judge_result BOOLEAN, receive_time TIMESTAMP, "
+            + "PRIMARY KEY (command_id, param_code))");
+        jdbcTemplate.execute("CREATE TABLE tb_telemetry_raw_message (data_id BIGINT PRIMARY KEY, "
+            + "receive_time TIMESTAMP NOT NULL, raw_length INT NOT NULL, payload BLOB NOT NULL)");
+        ReflectionTestUtils.setField(rawMessageStore, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(rawMessageStore, "sampleRate", 1.0);
+        ReflectionTestUtils.setField(rawMessageStore, "keepUnsatisfied", true);
+        ReflectionTestUtils.setField(writer, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(writer, "rawMessageStore", rawMessageStore);
+        ReflectionTestUtils.setField(writer, "enabled", true);
+        ReflectionTestUtils.setField(writer, "batchSize", 500);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE tb_telemetry_data");
+        jdbcTemplate.execute("DROP TABLE tb_telemetry_latest");
+        jdbcTemplate.execute("DROP TABLE tb_telemetry_raw_message");
+        dataSource.destroy();
+    }
+
+    @Test
+    void testInsertAllAssignsIdsInOrder() {
+        System.out.println("=== 开始测试批量写入 ===");
+
+        List<TelemetryData> data = samples(1_234);
+        data.get(0).setJudgeResult(null);
+        data.get(1).setRawMessage("{\"paramCode\":\"TEMP_001\"}");
+        writer.insertAll(data);
+
+        assertEquals(1_234, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tb_telemetry_data", Integer.class));
+        for (int i = 1; i < data.size(); i++) {
+            assertEquals(data.get(i - 1).getId() + 1, data.get(i).getId());
+        }
+        TelemetryData stored = data.get(1);
+        assertEquals(stored.getActualValue(), jdbcTemplate.queryForObject(
+            "SELECT actual_value FROM tb_telemetry_data WHERE id = ?", String.class, stored.getId()));
+        // 原始消息压缩后存入独立的表
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tb_telemetry_raw_message", Integer.class));
+        byte[] payload = jdbcTemplate.queryForObject(
+            "SELECT payload FROM tb_telemetry_raw_message WHERE data_id = ?", byte[].class, stored.getId());
+        assertEquals(stored.getRawMessage(), new String(TelemetryRawMessageStore.decompress(payload,
+            stored.getRawMessage().length()), StandardCharsets.UTF_8));
+        assertNull(jdbcTemplate.queryForObject(
+            "SELECT judge_result FROM tb_telemetry_data WHERE id = ?", Boolean.class, data.get(0).getId()));
+        assertEquals(3L, writer.getStats().get("batches"));
+
+        System.out.println("=== 批量写入测试完成 ===");
+    }
+
+    @Test
+    void testInsertAllUpsertsLatestPerParam() {
+        System.out.println("=== 开始测试最新值更新 ===");
+
+        List<TelemetryData> data = samples(100);
+        writer.insertAll(data);
+
+        // 8个指令各有一个参数，每个取ID最大的一条
+        assertEquals(8, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tb_telemetry_latest", Integer.class));
+        TelemetryData last = data.get(99);
+        assertEquals(last.getId(), jdbcTemplate.queryForObject(
+            "SELECT data_id FROM tb_telemetry_latest WHERE command_id = ? AND param_code = ?",
+            Long.class, last.getCommandId(), last.getParamCode()));
+        assertEquals(last.getActualValue(), jdbcTemplate.queryForObject(
+            "SELECT actual_value FROM tb_telemetry_latest WHERE command_id = ? AND param_code = ?",
+            String.class, last.getCommandId(), last.getParamCode()));
+
+        // 已有更新的数据时不被较早的数据覆盖
+        jdbcTemplate.update("UPDATE tb_telemetry_latest SET data_id = 1000000, actual_value = 'NEWER' WHERE command_id = 1");
+        List<TelemetryData> next = samples(16);
+        writer.insertAll(next);
+        assertEquals("NEWER", jdbcTemplate.queryForObject(
+            "SELECT actual_value FROM tb_telemetry_latest WHERE command_id = 1", String.class));
+        assertEquals(next.get(9).getId(), jdbcTemplate.queryForObject(
+            "SELECT data_id FROM tb_telemetry_latest WHERE command_id = 2", Long.class));
+        assertEquals(16L, writer.getStats().get("latestUpserts"));
+
+        System.out.println("=== 最新值更新测试完成 ===");
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmarkBatchInsertAgainstPerRowInsert() {
+        System.out.println("=== 开始遥测数据写入性能对比 ===");
+
+        insertPerRow(samples(WARMUP_ROWS));
+        writer.insertAll(samples(WARMUP_ROWS));
+
+        List<TelemetryData> perRow = samples(MEASURE_ROWS);
+        long start = System.nanoTime();
+        insertPerRow(perRow);
+        long perRowNanos = System.nanoTime() - start;
+
+        List<TelemetryData> batched = samples(MEASURE_ROWS);
+        start = System.nanoTime();
+        writer.insertAll(batched);
+        long batchNanos = System.nanoTime() - start;
+
+        assertTrue(batched.stream().allMatch(data -> data.getId() != null));
+        assertEquals(2 * (WARMUP_ROWS + MEASURE_ROWS),
+            jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tb_telemetry_data", Integer.class));
+
+        System.out.println(String.format("逐条插入: %d 行/秒", rowsPerSecond(perRowNanos)));
+        System.out.println(String.format("批量插入: %d 行/秒 (%.1fx)",
+            rowsPerSecond(batchNanos), (double) perRowNanos / batchNanos));
+    }
+
+    /**
+     * 与Hibernate保存IDENTITY主键实体相同：每条执行一次插入并取回自增ID
+     */
+    private void insertPerRow(List<TelemetryData> data) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            for (TelemetryData item : data) {
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "INSERT INTO tb_telemetry_data (command_id, param_code, actual_value, receive_time, judge_result, "
+                            + "judge_time, data_source, repeat_count, last_repeat_time) "
+                            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+                    statement.setLong(1, item.getCommandId());
+                    statement.setString(2, item.getParamCode());
+                    statement.setString(3, item.getActualValue());
+                    statement.setObject(4, item.getReceiveTime());
+                    statement.setBoolean(5, item.getJudgeResult());
+                    statement.setObject(6, item.getJudgeTime());
+                    statement.setString(7, item.getDataSource());
+                    statement.setObject(8, item.getRepeatCount());
+                    statement.setObject(9, item.getLastRepeatTime());
+                    statement.executeUpdate();
+                    try (ResultSet keys = statement.getGeneratedKeys()) {
+                        keys.next();
+                        item.setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private List<TelemetryData> samples(int count) {
+        List<TelemetryData> data = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            TelemetryData item = new TelemetryData(1L + i % 8, "TEMP_00" + i % 4, String.valueOf(70 + i % 10));
+            item.setJudgeResult(i % 3 != 0);
+            data.add(item);
+        }
+        return data;
+    }
+
+    private static long rowsPerSecond(long nanos) {
+        return Math.round(MEASURE_ROWS * 1_000_000_000.0 / nanos);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.springbootredis;
+
+import com.example.springbootredis.entity.CommandTelemetryRelation;
+import com.example.springbootredis.entity.TelemetryData;
+import com.example.springbootredis.entity.TelemetryLatest;
+import com.example.springbootredis.entity.TelemetryParam;
+import com.example.springbootredis.entity.enums.CompressionMode;
+import com.example.springbootredis.entity.enums.JudgeOperator;
+import com.example.springbootredis.repository.TelemetryDataRepository;
+import com.example.springbootredis.repository.TelemetryLatestRepository;
+import com.example.springbootredis.service.TelemetryDeadbandFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 遥测数据死区压缩测试
+ */
+class TelemetryDeadbandFilterTest {
+
+    private static final Long COMMAND_ID = 1L;
+
+    private final List<TelemetryData> persisted = new ArrayList<>();
+    private final List<Object[]> repeatUpdates = new ArrayList<>();
+    private final TelemetryDeadbandFilter filter = new TelemetryDeadbandFilter();
+
+    TelemetryDeadbandFilterTest() {
+        // 只实现压缩用到的查询
+        TelemetryDataRepository repository = (TelemetryDataRepository) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class<?>[]{TelemetryDataRepository.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "addRepeats":
+                        repeatUpdates.add(args);
+                        return 1;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+        TelemetryLatestRepository latestRepository = (TelemetryLatestRepository) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class<?>[]{TelemetryLatestRepository.class}, (proxy, method, args) -> {
+                if (!method.getName().equals("findByCommandId")) {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+                return persisted.stream().map(TelemetryDeadbandFilterTest::latest).toList();
+            });
+        ReflectionTestUtils.setField(filter, "telemetryDataRepository", repository);
+        ReflectionTestUtils.setField(filter, "telemetryLatestRepository", latestRepository);
+        ReflectionTestUtils.setField(filter, "maxFoldSeconds", 300L);
+    }
+
+    @Test
+    void testWithinDeadband() {
+        System.out.println("=== 开始测试死区判断 ===");
+
+        assertTrue(TelemetryDeadbandFilter.withinDeadband(CompressionMode.UNCHANGED, null, "70", "70"));
+        assertFalse(TelemetryDeadbandFilter.withinDeadband(CompressionMode.UNCHANGED, null, "70", "70.0"));
+        assertTrue(TelemetryDeadbandFilter.withinDeadband(CompressionMode.DEADBAND, 0.5, "70", "70.5"));
+        assertFalse(TelemetryDeadbandFilter.withinDeadband(CompressionMode.DEADBAND, 0.5, "70", "70.6"));
+        assertTrue(TelemetryDeadbandFilter.withinDeadband(CompressionMode.DEADBAND, null, "70", "70.0"));
+        assertFalse(TelemetryDeadbandFilter.withinDeadband(CompressionMode.DEADBAND, 1.0, "NORMAL", "FAULT"));
+        assertFalse(TelemetryDeadbandFilter.withinDeadband(CompressionMode.NONE, 1.0, "70", "70"));
+        assertFalse(TelemetryDeadbandFilter.withinDeadband(null, 1.0, "70", "70"));
+
+        System.out.println("=== 死区判断测试完成 ===");
+    }
+
+    @Test
+    void testFoldKeepsStateTransitions() {
+        System.out.println("=== 开始测试样本合并 ===");
+
+        CommandTelemetryRelation relation = relation(CompressionMode.DEADBAND, 2.0);
+        int[] judgeCalls = {0};
+
+        // 第一批：没有锚点时保存，同批后续死区内且结果不变的样本并入本批新数据
+        TelemetryDeadbandFilter.FoldBatch batch = filter.newBatch();
+        List<TelemetryData> saved = new ArrayList<>();
+        for (String value : new String[]{"70", "70", "71.5", "85", "86"}) {
+            TelemetryData sample = new TelemetryData(COMMAND_ID, "TEMP_001", value);
+            boolean folded = batch.judgeOrFold(COMMAND_ID, relation, sample, () -> {
+                judgeCalls[0]++;
+                return Double.parseDouble(value) > 80;
+            });
+            if (!folded) {
+                batch.saving(COMMAND_ID, sample);
+                saved.add(sample);
+            }
+            assertEquals(Double.parseDouble(value) > 80, sample.getJudgeResult());
+        }
+        // 70保存；70并入（值相同不再判定）；71.5并入；85结果变化必须保存；86并入85
+        assertEquals(List.of("70", "85"), saved.stream().map(TelemetryData::getActualValue).toList());
+        assertEquals(2, saved.get(0).getRepeatCount());
+        assertEquals(1, saved.get(1).getRepeatCount());
+        assertEquals(3, batch.getFoldedCount());
+        assertEquals(4, judgeCalls[0]);
+
+        saved.get(0).setId(10L);
+        saved.get(1).setId(11L);
+        persisted.add(saved.get(1));
+        batch.flush();
+        assertTrue(repeatUpdates.isEmpty());
+
+        // 第二批：并入已提交的数据，每行只更新一次
+        TelemetryDeadbandFilter.FoldBatch next = filter.newBatch();
+        for (String value : new String[]{"85", "87", "84"}) {
+            TelemetryData sample = new TelemetryData(COMMAND_ID, "TEMP_001", value);
+            assertTrue(next.judgeOrFold(COMMAND_ID, relation, sample, () -> Double.parseDouble(value) > 80));
+        }
+        next.flush();
+        assertEquals(1, repeatUpdates.size());
+        assertEquals(11L, repeatUpdates.get(0)[0]);
+        assertEquals(3, repeatUpdates.get(0)[1]);
+        // 附带数据所在的接收时间范围
+        assertEquals(persisted.get(0).getReceiveTime().minusSeconds(1), repeatUpdates.get(0)[3]);
+        assertEquals(6L, filter.getStats().get("folded"));
+
+        System.out.println("=== 样本合并测试完成 ===");
+    }
+
+    private static TelemetryLatest latest(TelemetryData data) {
+        TelemetryLatest latest = new TelemetryLatest();
+        latest.setCommandId(data.getCommandId());
+        latest.setParamCode(data.getParamCode());
+        latest.setDataId(data.getId());
+        latest.setActualValue(data.getActualValue());
+        latest.setJudgeResult(data.getJudgeResult());
+        latest.setReceiveTime(data.getReceiveTime());
+        return latest;
+    }
+
+    private CommandTelemetryRelation relation(CompressionMode mode, Double deadband) {
+        TelemetryParam param = new TelemetryParam("temp", "TEMP_001");
+        param.setCompressionMode(mode);
+        param.setDeadband(deadband);
+
+        CommandTelemetryRelation relation = new CommandTelemetryRelation();
+        relation.setTelemetryParam(param);
+        relation.setJudgeOperator(JudgeOperator.GREATER_THAN);
+        relation.setExpectedValue("80");
+        return relation;
+    }
+}
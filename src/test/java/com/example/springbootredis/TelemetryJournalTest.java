@@ -0,0 +1,114 @@
+package com.example.springbootredis;
+
+import com.example.springbootredis.entity.TelemetryData;
+import com.example.springbootredis.service.TelemetryJournal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 遥测数据追加日志测试
+ */
+class TelemetryJournalTest {
+
+    private static final int SEGMENT_SIZE = 512;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRecoverFromCheckpointAcrossSegments() {
+        System.out.println("=== 开始测试遥测日志恢复 ===");
+
+        List<TelemetryJournal.Record> records;
+        try (TelemetryJournal journal = new TelemetryJournal(directory, SEGMENT_SIZE)) {
+            assertTrue(journal.getRecovered().isEmpty());
+            records = journal.append(samples(0, 10));
+            records.addAll(journal.append(samples(10, 10)));
+            // 每条记录约90字节，20条跨越多个段
+            assertTrue(journal.getWritePosition().getSegment() >= 4);
+            journal.checkpoint(records.get(11).getEnd());
+            assertTrue(journal.getPendingBytes() > 0);
+        }
+
+        try (TelemetryJournal journal = new TelemetryJournal(directory, SEGMENT_SIZE)) {
+            List<TelemetryJournal.Record> recovered = journal.getRecovered();
+            assertEquals(8, recovered.size());
+            TelemetryData first = recovered.get(0).getData();
+            TelemetryData expected = records.get(12).getData();
+            assertEquals(expected.getCommandId(), first.getCommandId());
+            assertEquals(expected.getParamCode(), first.getParamCode());
+            assertEquals(expected.getActualValue(), first.getActualValue());
+            assertEquals(expected.getReceiveTime(), first.getReceiveTime());
+            assertEquals(expected.getJudgeResult(), first.getJudgeResult());
+            assertEquals(expected.getRawMessage(), first.getRawMessage());
+            assertEquals(expected.getRepeatCount(), first.getRepeatCount());
+            assertEquals(expected.getJudgeTime(), first.getJudgeTime());
+            assertNull(first.getId());
+
+            // 检查点之前的整段已删除
+            assertFalse(Files.exists(directory.resolve("segment-00000001.log")));
+
+            // 恢复后继续追加到最后一条记录之后
+            journal.append(samples(20, 1));
+        }
+
+        try (TelemetryJournal journal = new TelemetryJournal(directory, SEGMENT_SIZE)) {
+            assertEquals(9, journal.getRecovered().size());
+            assertEquals("TEMP_20", journal.getRecovered().get(8).getData().getParamCode());
+        }
+
+        System.out.println("=== 遥测日志恢复测试完成 ===");
+    }
+
+    @Test
+    void testTornRecordIsTreatedAsEndOfJournal() throws IOException {
+        System.out.println("=== 开始测试不完整记录 ===");
+
+        TelemetryJournal.Position end;
+        try (TelemetryJournal journal = new TelemetryJournal(directory, SEGMENT_SIZE)) {
+            List<TelemetryJournal.Record> records = journal.append(samples(0, 2));
+            end = records.get(1).getEnd();
+        }
+        // 模拟写入第二条记录时进程退出：破坏其最后一个字节
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("segment-00000001.log").toFile(), "rw")) {
+            file.seek(end.getOffset() - 1);
+            int last = file.read();
+            file.seek(end.getOffset() - 1);
+            file.write(last ^ 0xFF);
+        }
+
+        try (TelemetryJournal journal = new TelemetryJournal(directory, SEGMENT_SIZE)) {
+            assertEquals(1, journal.getRecovered().size());
+            journal.append(samples(5, 1));
+        }
+        try (TelemetryJournal journal = new TelemetryJournal(directory, SEGMENT_SIZE)) {
+            assertEquals(List.of("TEMP_0", "TEMP_5"),
+                journal.getRecovered().stream().map(record -> record.getData().getParamCode()).toList());
+        }
+
+        System.out.println("=== 不完整记录测试完成 ===");
+    }
+
+    private List<TelemetryData> samples(int from, int count) {
+        List<TelemetryData> data = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            TelemetryData item = new TelemetryData(1L, "TEMP_" + i, String.valueOf(70 + i));
+            item.setReceiveTime(LocalDateTime.of(2026, 1, 1, 0, 0).plusNanos(i * 1_000_123L));
+            item.setJudgeResult(i % 2 == 0);
+            item.setRawMessage("{\"v\":" + i + "}");
+            item.setRepeatCount(i);
+            data.add(item);
+        }
+        return data;
+    }
+}
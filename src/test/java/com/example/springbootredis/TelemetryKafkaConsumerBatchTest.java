@@ -0,0 +1,209 @@
+package com.example.springbootredis;
+
+import com.example.springbootredis.entity.Command;
+import com.example.springbootredis.entity.TelemetryData;
+import com.example.springbootredis.entity.enums.CommandStatus;
+import com.example.springbootredis.kafka.TelemetryBackpressureController;
+import com.example.springbootredis.kafka.TelemetryKafkaConsumer;
+import com.example.springbootredis.kafka.TelemetryMessageDecoder;
+import com.example.springbootredis.kafka.TelemetryPipelineMetrics;
+import com.example.springbootredis.service.AfterCommit;
+import com.example.springbootredis.service.CommandManagementService;
+import com.example.springbootredis.service.CommandStatusWebSocketService;
+import com.example.springbootredis.service.TelemetryJudgeService;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 批量消费模式测试：完成检查在分块事务提交之后进行
+ */
+class TelemetryKafkaConsumerBatchTest {
+
+    private static final String COMMAND_CODE = "CMD_BATCH";
+
+    private final TelemetryKafkaConsumer kafkaConsumer = new TelemetryKafkaConsumer();
+
+    private final Command command = new Command();
+
+    /**
+     * 已提交的满足参数（与满足状态跟踪器一样在事务提交后才更新）
+     */
+    private final Set<String> satisfiedParams = new LinkedHashSet<>();
+
+    private final List<Integer> pushedProgress = new ArrayList<>();
+
+    private final List<CommandStatus> statusChanges = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        command.setId(1L);
+        command.setCommandCode(COMMAND_CODE);
+        command.setStatus(CommandStatus.EXECUTING);
+
+        CommandManagementService commandManagementService = new CommandManagementService() {
+            @Override
+            public Command findByCommandCode(String commandCode) {
+                if (!COMMAND_CODE.equals(commandCode)) {
+                    return null;
+                }
+                Command snapshot = new Command();
+                snapshot.setId(command.getId());
+                snapshot.setCommandCode(command.getCommandCode());
+                snapshot.setStatus(command.getStatus());
+                return snapshot;
+            }
+
+            @Override
+            public boolean updateCommandStatus(Long commandId, CommandStatus newStatus, String reason) {
+                command.setStatus(newStatus);
+                statusChanges.add(newStatus);
+                return true;
+            }
+        };
+
+        TelemetryJudgeService judgeService = new TelemetryJudgeService() {
+            @Override
+            public List<TelemetryData> processTelemetryBatch(Long commandId, List<List<TelemetryData>> frames) {
+                assertTrue(TransactionSynchronizationManager.isSynchronizationActive(), "分块应在事务中落库");
+                List<TelemetryData> judged = new ArrayList<>();
+                for (List<TelemetryData> frame : frames) {
+                    for (TelemetryData sample : frame) {
+                        sample.setJudgeResult(true);
+                        judged.add(sample);
+                        AfterCommit.run(() -> satisfiedParams.add(sample.getParamCode()));
+                    }
+                }
+                return judged;
+            }
+
+            @Override
+            public boolean checkCommandCompletion(Long commandId) {
+                return satisfiedParams.containsAll(Set.of("A", "B"));
+            }
+
+            @Override
+            public Map<String, Object> getCommandTelemetryStats(Long commandId) {
+                Map<String, Object> stats = new LinkedHashMap<>();
+                stats.put("totalParams", 2);
+                stats.put("satisfiedParams", satisfiedParams.size());
+                stats.put("progress", satisfiedParams.size() * 50);
+                return stats;
+            }
+        };
+
+        CommandStatusWebSocketService webSocketService = new CommandStatusWebSocketService() {
+            @Override
+            public void pushTelemetryJudgeResult(Long commandId, String paramCode, String paramName,
+                                                 String expectedValue, String actualValue, boolean judgeResult) {
+            }
+
+            @Override
+            public void pushCommandStatusChange(Long commandId, CommandStatus oldStatus,
+                                                CommandStatus newStatus, String reason) {
+            }
+
+            @Override
+            public void pushCommandProgress(Long commandId, int totalParams, int satisfied,
+                                            int progress, String[] remainingParams) {
+                pushedProgress.add(satisfied);
+            }
+
+            @Override
+            public void pushCommandCompleted(Command completed) {
+            }
+        };
+
+        TelemetryBackpressureController backpressureController = new TelemetryBackpressureController();
+        ReflectionTestUtils.setField(backpressureController, "maxChunkSize", 2);
+        ReflectionTestUtils.setField(backpressureController, "minChunkSize", 1);
+        ReflectionTestUtils.setField(backpressureController, "targetChunkLatencyMs", 10_000.0);
+
+        ReflectionTestUtils.setField(kafkaConsumer, "commandManagementService", commandManagementService);
+        ReflectionTestUtils.setField(kafkaConsumer, "telemetryJudgeService", judgeService);
+        ReflectionTestUtils.setField(kafkaConsumer, "webSocketService", webSocketService);
+        ReflectionTestUtils.setField(kafkaConsumer, "messageDecoder", new TelemetryMessageDecoder());
+        ReflectionTestUtils.setField(kafkaConsumer, "backpressureController", backpressureController);
+        ReflectionTestUtils.setField(kafkaConsumer, "pipelineMetrics", new TelemetryPipelineMetrics());
+        ReflectionTestUtils.setField(kafkaConsumer, "transactionManager", new NoOpTransactionManager());
+    }
+
+    @Test
+    void testCommandCompletesFromFinalChunk() {
+        System.out.println("=== 开始测试最后一块数据完成指令 ===");
+
+        // 分块大小为2：第一块只有参数A，第二块带来最后一个必须参数B
+        List<ConsumerRecord<String, byte[]>> records = List.of(
+            record(0, "A", "1"),
+            record(1, "A", "2"),
+            record(2, "B", "3"));
+        boolean[] acknowledged = {false};
+
+        kafkaConsumer.consumeTelemetryBatch(records, () -> acknowledged[0] = true, emptyConsumer());
+
+        System.out.println("推送的进度（已满足参数数）: " + pushedProgress + ", 状态变更: " + statusChanges);
+        assertEquals(List.of(1), pushedProgress, "第一块提交后推送的进度应包含该块的结果");
+        assertEquals(List.of(CommandStatus.COMPLETED), statusChanges, "最后一块提交后指令应完成");
+        assertTrue(acknowledged[0]);
+
+        System.out.println("=== 最后一块数据完成指令测试完成 ===");
+    }
+
+    private ConsumerRecord<String, byte[]> record(long offset, String paramCode, String actualValue) {
+        String json = "{\"commandCode\":\"" + COMMAND_CODE + "\",\"paramCode\":\"" + paramCode
+            + "\",\"actualValue\":" + actualValue + "}";
+        return new ConsumerRecord<>("satellite-telemetry", 0, offset, COMMAND_CODE, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Consumer<?, ?> emptyConsumer() {
+        return (Consumer<?, ?>) Proxy.newProxyInstance(
+            Consumer.class.getClassLoader(),
+            new Class<?>[]{Consumer.class},
+            (proxy, method, args) -> {
+                if ("assignment".equals(method.getName())) {
+                    return Set.of();
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    /**
+     * 只维护事务同步的事务管理器（提交时触发提交后回调）
+     */
+    private static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
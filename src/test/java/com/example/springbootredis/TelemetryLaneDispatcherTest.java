@@ -0,0 +1,142 @@
+package com.example.springbootredis;
+
+import com.example.springbootredis.kafka.TelemetryLaneDispatcher;
+import com.example.springbootredis.service.TelemetryStateSync;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 遥测分道处理器测试
+ */
+class TelemetryLaneDispatcherTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition("satellite-telemetry", 0);
+
+    private final TelemetryLaneDispatcher dispatcher = new TelemetryLaneDispatcher();
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    @Timeout(10)
+    void testFullLaneDoesNotBlockDispatch() throws InterruptedException {
+        System.out.println("=== 开始测试通道队列满时不阻塞分发 ===");
+
+        ReflectionTestUtils.setField(dispatcher, "consumerMode", "parallel");
+        ReflectionTestUtils.setField(dispatcher, "configuredLaneCount", 1);
+        ReflectionTestUtils.setField(dispatcher, "laneQueueCapacity", 2);
+        ReflectionTestUtils.setField(dispatcher, "maxPollRecords", 500);
+        dispatcher.init();
+
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(5);
+        Runnable task = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        };
+        // 第一条在通道线程中执行并阻塞，其余排队；超过容量时返回true而不是阻塞
+        assertFalse(dispatcher.dispatch("CMD_001", PARTITION, 0, task));
+        boolean saturated = false;
+        for (int offset = 1; offset < 5; offset++) {
+            saturated |= dispatcher.dispatch("CMD_001", PARTITION, offset, task);
+        }
+        assertTrue(saturated);
+        assertTrue(dispatcher.getMaxQueueDepth() >= 3);
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        List<Map<String, Object>> lanes = dispatcher.getLaneStats();
+        assertEquals(1, lanes.size());
+        assertTrue((Long) lanes.get(0).get("saturations") > 0);
+
+        System.out.println("=== 通道队列满时不阻塞分发测试完成 ===");
+    }
+
+    @Test
+    @Timeout(10)
+    void testRevokedPartitionSkipsQueuedTasks() throws InterruptedException {
+        System.out.println("=== 开始测试分区回收后跳过已排队任务 ===");
+
+        ReflectionTestUtils.setField(dispatcher, "consumerMode", "parallel");
+        ReflectionTestUtils.setField(dispatcher, "configuredLaneCount", 1);
+        ReflectionTestUtils.setField(dispatcher, "laneQueueCapacity", 10);
+        ReflectionTestUtils.setField(dispatcher, "maxPollRecords", 10);
+        ReflectionTestUtils.setField(dispatcher, "revokeTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(dispatcher, "stateSync", new TelemetryStateSync());
+        dispatcher.init();
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executed = new AtomicInteger();
+        dispatcher.dispatch("CMD_001", PARTITION, 0, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executed.incrementAndGet();
+        });
+        dispatcher.dispatch("CMD_001", PARTITION, 1, executed::incrementAndGet);
+        dispatcher.dispatch("CMD_001", PARTITION, 2, executed::incrementAndGet);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // 回收时等待正在执行的偏移量0结束，之后提交到第一个未执行的偏移量1
+        Map<TopicPartition, OffsetAndMetadata> committed = new ConcurrentHashMap<>();
+        Thread revoker = new Thread(() -> dispatcher.onPartitionsRevokedBeforeCommit(consumer(committed), List.of(PARTITION)));
+        revoker.start();
+        Thread.sleep(200);
+        assertTrue(revoker.isAlive(), "回收应等待正在执行的任务");
+        release.countDown();
+        revoker.join(5000);
+        assertFalse(revoker.isAlive());
+
+        assertEquals(1L, committed.get(PARTITION).offset());
+        dispatcher.shutdown();
+        assertEquals(1, executed.get(), "已回收分区的排队任务不应执行");
+        System.out.println("各通道统计: " + dispatcher.getLaneStats());
+        assertEquals(2L, dispatcher.getLaneStats().get(0).get("staleSkips"));
+
+        System.out.println("=== 分区回收后跳过已排队任务测试完成 ===");
+    }
+
+    private Consumer<?, ?> consumer(Map<TopicPartition, OffsetAndMetadata> committed) {
+        return (Consumer<?, ?>) Proxy.newProxyInstance(
+            Consumer.class.getClassLoader(),
+            new Class<?>[]{Consumer.class},
+            (proxy, method, args) -> {
+                if ("assignment".equals(method.getName())) {
+                    return Set.of(PARTITION);
+                }
+                if ("commitAsync".equals(method.getName())) {
+                    @SuppressWarnings("unchecked")
+                    Map<TopicPartition, OffsetAndMetadata> offsets = (Map<TopicPartition, OffsetAndMetadata>) args[0];
+                    committed.putAll(offsets);
+                    return null;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.springbootredis;
+
+import com.example.springbootredis.service.TelemetryLatestBackfill;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 参数最新值表回填测试
+ */
+class TelemetryLatestBackfillTest {
+
+    private final SingleConnectionDataSource dataSource =
+        new SingleConnectionDataSource("jdbc:h2:mem:latest_backfill;MODE=MySQL", "sa", "", true);
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    private final TelemetryLatestBackfill backfill = new TelemetryLatestBackfill();
+
+    TelemetryLatestBackfillTest() {
+        jdbcTemplate.execute("CREATE TABLE tb_telemetry_data (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+            + "command_id BIGINT NOT NULL, param_code VARCHAR(50) NOT NULL, actual_value VARCHAR(100) NOT NULL, "
+            + "receive_time TIMESTAMP NOT NULL, judge_result BOOLEAN)");
+        jdbcTemplate.execute("CREATE TABLE tb_telemetry_latest (command_id BIGINT NOT NULL, param_code VARCHAR(50) NOT NULL, "
+            + "data_id BIGINT NOT NULL, actual_value VARCHAR(100), judge_result BOOLEAN, receive_time TIMESTAMP, "
+            + "PRIMARY KEY (command_id, param_code))");
+        ReflectionTestUtils.setField(backfill, "jdbcTemplate", jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE tb_telemetry_data");
+        jdbcTemplate.execute("DROP TABLE tb_telemetry_latest");
+        dataSource.destroy();
+    }
+
+    @Test
+    void testBackfillTakesHighestIdPerParam() {
+        System.out.println("=== 开始测试最新值回填 ===");
+
+        assertEquals(0, backfill.backfillIfEmpty());
+        insert(1L, "TEMP_001", "70", false);
+        insert(1L, "TEMP_001", "85", true);
+        insert(1L, "PRESS_001", "2.0", false);
+        insert(2L, "TEMP_001", "60", false);
+
+        assertEquals(3, backfill.backfillIfEmpty());
+        assertEquals("85", jdbcTemplate.queryForObject(
+            "SELECT actual_value FROM tb_telemetry_latest WHERE command_id = 1 AND param_code = 'TEMP_001'", String.class));
+        assertEquals(2L, jdbcTemplate.queryForObject(
+            "SELECT data_id FROM tb_telemetry_latest WHERE command_id = 1 AND param_code = 'TEMP_001'", Long.class));
+        assertTrue(jdbcTemplate.queryForObject(
+            "SELECT judge_result FROM tb_telemetry_latest WHERE command_id = 1 AND param_code = 'TEMP_001'", Boolean.class));
+
+        // 已有最新值时不再回填
+        insert(3L, "TEMP_001", "50", false);
+        assertEquals(0, backfill.backfillIfEmpty());
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tb_telemetry_latest", Integer.class));
+
+        System.out.println("=== 最新值回填测试完成 ===");
+    }
+
+    private void insert(Long commandId, String paramCode, String value, boolean judgeResult) {
+        jdbcTemplate.update("INSERT INTO tb_telemetry_data (command_id, param_code, actual_value, receive_time, judge_result) "
+            + "VALUES (?, ?, ?, CURRENT_TIMESTAMP, ?)", commandId, paramCode, value, judgeResult);
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.springbootredis;
+
+import com.alibaba.fastjson2.JSON;
+import com.example.springbootredis.kafka.TelemetryMessage;
+import com.example.springbootredis.kafka.TelemetryMessageDecoder;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 遥测消息解码对比测试
+ * 对比原有的 String -> Map -> TelemetryMessage 解析方式与字节数组直接解码方式
+ */
+class TelemetryMessageDecoderBenchmarkTest {
+
+    private static final int WARMUP_ROUNDS = 200_000;
+    private static final int MEASURE_ROUNDS = 1_000_000;
+
+    private final TelemetryMessageDecoder decoder = new TelemetryMessageDecoder();
+
+    private final byte[] numericPayload = ("{\"commandCode\":\"CMD_ENGINE_START\",\"paramCode\":\"TEMP_001\"," +
+            "\"paramName\":\"温度\",\"actualValue\":85.5,\"expectedValue\":\"80\",\"timestamp\":1640995200000}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void testDecodeMatchesMapParsing() {
+        System.out.println("=== 开始测试遥测消息解码一致性 ===");
+
+        String[] messages = {
+            new String(numericPayload, StandardCharsets.UTF_8),
+            "{\"commandCode\":\"CMD_ENGINE_START\",\"paramCode\":\"TEMP_001\",\"actualValue\":\"85\",\"timestamp\":\"2023-12-01T10:30:00\"}",
+            "{\"commandCode\":\"CMD_ENGINE_START\",\"paramCode\":\"STATUS_001\",\"actualValue\":true,\"extra\":{\"a\":[1,2]}}",
+            "{\"commandCode\":\"CMD_ENGINE_START\",\"paramCode\":\"PRESS_001\",\"actualValue\":900000}",
+            "{\"commandCode\":\"CMD_ENGINE_START\",\"paramCode\":\"TEMP_001\",\"actualValue\": 25.50 ,\"timestamp\":1640995200000}",
+            "{\"commandCode\":\"CMD_ENGINE_START\",\"paramCode\":\"VOLT_001\",\"actualValue\":-0.1234567890123456789}",
+            "{\"commandCode\":\"CMD_ENGINE_START\",\"paramCode\":\"TEMP_001\",\"actualValue\":null}",
+            "{\"commandCode\":\"CMD_ENGINE_START\",\"paramCode\":\"TEMP_001\"}"
+        };
+
+        TelemetryMessage reusable = new TelemetryMessage();
+        for (String message : messages) {
+            TelemetryMessage expected = parseWithMap(message);
+            assertTrue(decoder.decode(message.getBytes(StandardCharsets.UTF_8), reusable));
+            assertEquals(expected.getCommandCode(), reusable.getCommandCode());
+            assertEquals(expected.getParamCode(), reusable.getParamCode());
+            assertEquals(expected.getParamName(), reusable.getParamName());
+            assertEquals(expected.getActualValue(), reusable.getActualValue());
+            assertEquals(expected.getExpectedValue(), reusable.getExpectedValue());
+            if (message.contains("\"timestamp\"")) {
+                assertEquals(expected.getTimestamp(), reusable.getTimestamp());
+            }
+        }
+
+        // 数值保留原始文本，不经double转换
+        assertTrue(decoder.decode(numericPayload, reusable));
+        assertEquals("85.5", reusable.getActualValue());
+        assertTrue(decoder.decode("{\"paramCode\":\"PRESS_001\",\"actualValue\":1.5e3}".getBytes(StandardCharsets.UTF_8), reusable));
+        assertEquals("1.5e3", reusable.getActualValue());
+        assertTrue(decoder.decode("{\"paramCode\":\"温度\",\"actualValue\":12.000}".getBytes(StandardCharsets.UTF_8), reusable));
+        assertEquals("12.000", reusable.getActualValue());
+
+        assertFalse(decoder.decode("not json".getBytes(StandardCharsets.UTF_8), reusable));
+
+        System.out.println("=== 遥测消息解码一致性测试通过 ===");
+    }
+
+    @Test
+    void testDecodeMultiParameterFrame() {
+        System.out.println("=== 开始测试多参数帧解码 ===");
+
+        byte[] frame = ("{\"commandCode\":\"CMD_ENGINE_START\",\"timestamp\":1640995200000,\"params\":[" +
+                "{\"paramCode\":\"TEMP_001\",\"actualValue\":85}," +
+                "{\"paramCode\":\"PRESS_001\",\"paramName\":\"压力\",\"actualValue\":900000.50}," +
+                "{\"paramCode\":\"VOLT_001\"}," +
+                "{\"paramCode\":\"STATUS_001\",\"actualValue\":\"NORMAL\",\"unknown\":null}]}")
+                .getBytes(StandardCharsets.UTF_8);
+
+        TelemetryMessage reusable = new TelemetryMessage();
+        assertTrue(decoder.decode(frame, reusable));
+        assertTrue(reusable.isFrame());
+        assertEquals("CMD_ENGINE_START", reusable.getCommandCode());
+        assertEquals(LocalDateTime.ofEpochSecond(1640995200L, 0, java.time.ZoneOffset.UTC), reusable.getTimestamp());
+        assertEquals(4, reusable.getParams().size());
+        assertEquals("TEMP_001", reusable.getParams().get(0).getParamCode());
+        assertEquals("85", reusable.getParams().get(0).getActualValue());
+        assertEquals("压力", reusable.getParams().get(1).getParamName());
+        assertEquals("900000.50", reusable.getParams().get(1).getActualValue());
+        assertEquals("null", reusable.getParams().get(2).getActualValue());
+        assertEquals("NORMAL", reusable.getParams().get(3).getActualValue());
+
+        // 复用对象解码单参数消息时帧参数应被清空
+        assertTrue(decoder.decode(numericPayload, reusable));
+        assertFalse(reusable.isFrame());
+
+        System.out.println("=== 多参数帧解码测试通过 ===");
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmarkDecodeAgainstMapParsing() {
+        System.out.println("=== 开始遥测消息解码性能对比 ===");
+
+        TelemetryMessage reusable = new TelemetryMessage();
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += parseWithMap(new String(numericPayload, StandardCharsets.UTF_8)).getParamCode().length();
+            decoder.decode(numericPayload, reusable);
+            sink += reusable.getActualValue().length();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            sink += parseWithMap(new String(numericPayload, StandardCharsets.UTF_8)).getParamCode().length();
+        }
+        long mapNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            decoder.decode(numericPayload, reusable);
+            sink += reusable.getActualValue().length();
+        }
+        long decoderNanos = System.nanoTime() - start;
+
+        System.out.println(String.format("Map解析: %.0f 条/秒, 直接解码: %.0f 条/秒, 提升: %.2f 倍 (sink=%d)",
+            MEASURE_ROUNDS * 1e9 / mapNanos, MEASURE_ROUNDS * 1e9 / decoderNanos,
+            (double) mapNanos / decoderNanos, sink));
+
+        System.out.println("=== 遥测消息解码性能对比完成 ===");
+    }
+
+    /**
+     * 原有解析方式：先解析为Map，再逐个字段拷贝
+     */
+    private TelemetryMessage parseWithMap(String message) {
+        Map<String, Object> data = JSON.parseObject(message, Map.class);
+
+        TelemetryMessage telemetryMessage = new TelemetryMessage();
+        telemetryMessage.setCommandCode((String) data.get("commandCode"));
+        telemetryMessage.setParamCode((String) data.get("paramCode"));
+        telemetryMessage.setParamName((String) data.get("paramName"));
+        telemetryMessage.setActualValue(String.valueOf(data.get("actualValue")));
+        telemetryMessage.setExpectedValue((String) data.get("expectedValue"));
+
+        Object timestamp = data.get("timestamp");
+        if (timestamp != null) {
+            if (timestamp instanceof Long) {
+                telemetryMessage.setTimestamp(LocalDateTime.ofEpochSecond((Long) timestamp / 1000, 0,
+                        java.time.ZoneOffset.UTC));
+            } else if (timestamp instanceof String) {
+                telemetryMessage.setTimestamp(LocalDateTime.parse((String) timestamp));
+            }
+        } else {
+            telemetryMessage.setTimestamp(LocalDateTime.now());
+        }
+
+        return telemetryMessage;
+    }
+}
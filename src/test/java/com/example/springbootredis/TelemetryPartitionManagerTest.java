@@ -0,0 +1,141 @@
+package com.example.springbootredis;
+
+import com.example.springbootredis.entity.enums.CommandStatus;
+import com.example.springbootredis.repository.TelemetryDataRepository;
+import com.example.springbootredis.repository.TelemetryLatestRepository;
+import com.example.springbootredis.repository.TelemetryRawMessageRepository;
+import com.example.springbootredis.service.TelemetryPartitionManager;
+import com.example.springbootredis.service.TelemetryPartitionManager.Partition;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 遥测数据表分区规划和过期清理测试
+ */
+class TelemetryPartitionManagerTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 3, 10);
+
+    @Test
+    void testPartitionSql() {
+        System.out.println("=== 开始测试分区语句 ===");
+
+        // TO_DAYS('2026-03-10') = 740050
+        assertEquals(740050, TelemetryPartitionManager.toDays(TODAY));
+        assertEquals("ALTER TABLE tb_telemetry_data REORGANIZE PARTITION p_max INTO ("
+                + "PARTITION p20260311 VALUES LESS THAN (740052), "
+                + "PARTITION p20260312 VALUES LESS THAN (740053), "
+                + "PARTITION p_max VALUES LESS THAN MAXVALUE)",
+            TelemetryPartitionManager.reorganizeMaxPartitionSql(List.of(TODAY.plusDays(1), TODAY.plusDays(2))));
+
+        System.out.println("=== 分区语句测试完成 ===");
+    }
+
+    @Test
+    void testMissingAndExpiredPartitions() {
+        System.out.println("=== 开始测试分区规划 ===");
+
+        List<Partition> partitions = List.of(
+            new Partition("p_history", 740041L),
+            new Partition("p20260301", 740042L),
+            new Partition("p20260302", 740043L),
+            new Partition("p20260310", 740051L),
+            new Partition("p_max", null));
+
+        // 已建到今天，提前2天只需要之后两天
+        assertEquals(List.of(TODAY.plusDays(1), TODAY.plusDays(2)),
+            TelemetryPartitionManager.missingDays(partitions, TODAY, 2));
+        assertEquals(List.of(), TelemetryPartitionManager.missingDays(partitions, TODAY, 0));
+        // 停机多日后从今天开始补建（中间的数据落入今天的分区）
+        assertEquals(List.of(TODAY.plusDays(5)),
+            TelemetryPartitionManager.missingDays(partitions, TODAY.plusDays(5), 0));
+
+        // 上界不超过截止日期的分区全部早于截止日期，p_max 永远保留
+        assertEquals(List.of("p_history", "p20260301"),
+            TelemetryPartitionManager.expiredPartitions(partitions, LocalDate.of(2026, 3, 2)));
+        assertEquals(List.of(), TelemetryPartitionManager.expiredPartitions(partitions, LocalDate.of(2026, 2, 1)));
+
+        System.out.println("=== 分区规划测试完成 ===");
+    }
+
+    @Test
+    void testRetentionKeepsLatestValuesOfActiveCommands() {
+        System.out.println("=== 开始测试过期清理保留未结束指令的最新值 ===");
+
+        List<String> calls = new ArrayList<>();
+        List<Object[]> latestArgs = new ArrayList<>();
+        TelemetryPartitionManager manager = new TelemetryPartitionManager();
+        ReflectionTestUtils.setField(manager, "telemetryDataRepository", repository(TelemetryDataRepository.class, calls, null));
+        ReflectionTestUtils.setField(manager, "telemetryLatestRepository", repository(TelemetryLatestRepository.class, calls, latestArgs));
+        ReflectionTestUtils.setField(manager, "rawMessageRepository", repository(TelemetryRawMessageRepository.class, calls, null));
+        ReflectionTestUtils.setField(manager, "transactionManager", new NoOpTransactionManager());
+        ReflectionTestUtils.setField(manager, "retentionDays", 7);
+
+        manager.dropExpiredData();
+
+        System.out.println("清理调用: " + calls);
+        // 最新值表不按接收时间整表清理，只清理已结束或已删除指令的行
+        assertTrue(calls.contains("TelemetryLatestRepository.deleteInactiveByReceiveTimeBefore"));
+        assertFalse(calls.contains("TelemetryLatestRepository.deleteByReceiveTimeBefore"));
+        assertTrue(calls.contains("TelemetryRawMessageRepository.deleteByReceiveTimeBefore"));
+        assertTrue(calls.contains("TelemetryDataRepository.deleteByReceiveTimeBefore"));
+        assertEquals(1, latestArgs.size());
+        Collection<?> activeStatuses = (Collection<?>) latestArgs.get(0)[1];
+        assertTrue(activeStatuses.containsAll(List.of(CommandStatus.PENDING, CommandStatus.PREPARED, CommandStatus.EXECUTING)));
+        assertFalse(activeStatuses.contains(CommandStatus.COMPLETED));
+        assertFalse(activeStatuses.contains(CommandStatus.FAILED));
+
+        System.out.println("=== 过期清理保留未结束指令的最新值测试完成 ===");
+    }
+
+    /**
+     * 记录调用的仓库：删除方法返回0，其他方法不支持
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T repository(Class<T> type, List<String> calls, List<Object[]> args) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, methodArgs) -> {
+            if (!method.getName().startsWith("delete")) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            calls.add(type.getSimpleName() + "." + method.getName());
+            if (args != null) {
+                args.add(methodArgs);
+            }
+            return 0;
+        });
+    }
+
+    /**
+     * 不连接数据库的事务管理器
+     */
+    private static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
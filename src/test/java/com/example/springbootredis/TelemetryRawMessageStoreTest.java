@@ -0,0 +1,147 @@
+package com.example.springbootredis;
+
+import com.example.springbootredis.entity.TelemetryData;
+import com.example.springbootredis.entity.TelemetryRawMessage;
+import com.example.springbootredis.repository.TelemetryRawMessageRepository;
+import com.example.springbootredis.service.TelemetryRawMessageStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 遥测原始消息存储测试
+ * 在H2内存库（MySQL兼容模式）上验证原始消息的采样、压缩写入和按数据ID读取
+ */
+class TelemetryRawMessageStoreTest {
+
+    private final SingleConnectionDataSource dataSource =
+        new SingleConnectionDataSource("jdbc:h2:mem:raw_message_store;MODE=MySQL", "sa", "", true);
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    private final TelemetryRawMessageStore store = new TelemetryRawMessageStore();
+
+    TelemetryRawMessageStoreTest() {
+        jdbcTemplate.execute("CREATE TABLE tb_telemetry_raw_message (data_id BIGINT PRIMARY KEY, "
+            + "receive_time TIMESTAMP NOT NULL, raw_length INT NOT NULL, payload BLOB NOT NULL)");
+        jdbcTemplate.execute("CREATE INDEX idx_raw_message_receive_time ON tb_telemetry_raw_message (receive_time)");
+        TelemetryRawMessageRepository repository = (TelemetryRawMessageRepository) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class<?>[]{TelemetryRawMessageRepository.class}, (proxy, method, args) -> {
+                if (!"findById".equals(method.getName())) {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+                return jdbcTemplate.query("SELECT data_id, raw_length, payload FROM tb_telemetry_raw_message WHERE data_id = ?",
+                    (rs, rowNum) -> {
+                        TelemetryRawMessage message = new TelemetryRawMessage();
+                        message.setDataId(rs.getLong("data_id"));
+                        message.setRawLength(rs.getInt("raw_length"));
+                        message.setPayload(rs.getBytes("payload"));
+                        return message;
+                    }, args[0]).stream().findFirst();
+            });
+        ReflectionTestUtils.setField(store, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(store, "rawMessageRepository", repository);
+        ReflectionTestUtils.setField(store, "sampleRate", 1.0);
+        ReflectionTestUtils.setField(store, "keepUnsatisfied", true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE tb_telemetry_raw_message");
+        dataSource.destroy();
+    }
+
+    @Test
+    void testRawMessagesAreSampled() {
+        System.out.println("=== 开始测试原始消息采样 ===");
+
+        // 不按比例保留时只保留判定不满足的数据的原始消息
+        ReflectionTestUtils.setField(store, "sampleRate", 0.0);
+        List<TelemetryData> data = samples(30);
+        store.storeAll(data);
+
+        assertEquals(10, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tb_telemetry_raw_message", Integer.class));
+        Map<String, Object> stats = store.getStats();
+        assertEquals(30L, stats.get("offered"));
+        assertEquals(10L, stats.get("stored"));
+        assertTrue((Long) stats.get("compressedBytes") < (Long) stats.get("rawBytes"));
+
+        assertEquals(Optional.of(data.get(0).getRawMessage()), store.load(data.get(0).getId()));
+        assertEquals(Optional.empty(), store.load(data.get(1).getId()));
+
+        System.out.println("=== 原始消息采样测试完成 ===");
+    }
+
+    @Test
+    void testSkipsDataWithoutIdOrRawMessage() {
+        System.out.println("=== 开始测试跳过无ID或无原始消息的数据 ===");
+
+        List<TelemetryData> data = samples(3);
+        data.get(0).setId(null);
+        data.get(1).setRawMessage(null);
+        store.storeAll(data);
+
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tb_telemetry_raw_message", Integer.class));
+        assertEquals(1L, store.getStats().get("offered"));
+        assertEquals(Optional.of(data.get(2).getRawMessage()), store.load(data.get(2).getId()));
+
+        System.out.println("=== 跳过无ID或无原始消息的数据测试完成 ===");
+    }
+
+    @Test
+    void testStoresRawPayloadWithoutDecoding() {
+        System.out.println("=== 开始测试按消息字节保存原始消息 ===");
+
+        // 消费时只引用Kafka消息字节，保存时不应先解码成字符串
+        byte[] payload = "{\"commandCode\":\"CMD_001\",\"paramCode\":\"温度\",\"value\":\"25.50\"}"
+            .getBytes(StandardCharsets.UTF_8);
+        TelemetryData item = new TelemetryData(1L, "温度", "25.50");
+        item.setId(1L);
+        item.setJudgeResult(true);
+        item.setRawPayload(payload);
+        store.storeAll(List.of(item));
+
+        assertNull(ReflectionTestUtils.getField(item, "rawMessage"), "保存原始消息不应解码消息字节");
+        assertEquals(Optional.of(new String(payload, StandardCharsets.UTF_8)), store.load(1L));
+        assertEquals(new String(payload, StandardCharsets.UTF_8), item.getRawMessage());
+
+        System.out.println("=== 按消息字节保存原始消息测试完成 ===");
+    }
+
+    @Test
+    void testCompressRoundTrip() {
+        System.out.println("=== 开始测试原始消息压缩解压 ===");
+
+        byte[] raw = "{\"commandCode\":\"CMD_001\",\"paramCode\":\"温度\",\"value\":\"25.50\"}".getBytes(StandardCharsets.UTF_8);
+        byte[] payload = TelemetryRawMessageStore.compress(raw);
+        assertArrayEquals(raw, TelemetryRawMessageStore.decompress(payload, raw.length));
+        assertThrows(IllegalStateException.class, () -> TelemetryRawMessageStore.decompress(payload, raw.length + 1));
+
+        System.out.println("=== 原始消息压缩解压测试完成 ===");
+    }
+
+    /**
+     * 每三条中一条判定不满足，ID从1开始
+     */
+    private static List<TelemetryData> samples(int count) {
+        List<TelemetryData> data = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            TelemetryData item = new TelemetryData(1L, "PARAM_" + (i % 5), String.valueOf(i));
+            item.setId(i + 1L);
+            item.setJudgeResult(i % 3 != 0);
+            item.setRawMessage("{\"commandCode\":\"CMD_001\",\"paramCode\":\"" + item.getParamCode()
+                + "\",\"value\":\"" + item.getActualValue() + "\",\"timestamp\":1767225600000}");
+            data.add(item);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.springbootredis;
+
+import com.example.springbootredis.entity.enums.CommandStatus;
+import com.example.springbootredis.event.CommandStatusChangedEvent;
+import com.example.springbootredis.event.TelemetryStateInvalidatedEvent;
+import com.example.springbootredis.service.TelemetryStateSync;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 多实例遥测状态同步测试：只在指令状态变更和分区回收时失效
+ */
+class TelemetryStateSyncTest {
+
+    private final TelemetryStateSync stateSync = new TelemetryStateSync();
+
+    private final TelemetryStateSync peerSync = new TelemetryStateSync();
+
+    private final List<String> sentMessages = new ArrayList<>();
+
+    private final List<TelemetryStateInvalidatedEvent> peerEvents = new ArrayList<>();
+
+    private final List<TelemetryStateInvalidatedEvent> localEvents = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        RedisTemplate<String, String> redisTemplate = new RedisTemplate<>() {
+            @Override
+            public Long convertAndSend(String channel, Object message) {
+                assertEquals(TelemetryStateSync.CHANNEL, channel);
+                sentMessages.add((String) message);
+                return 1L;
+            }
+        };
+        ReflectionTestUtils.setField(stateSync, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(stateSync, "eventPublisher",
+            (ApplicationEventPublisher) event -> localEvents.add((TelemetryStateInvalidatedEvent) event));
+        ReflectionTestUtils.setField(stateSync, "enabled", true);
+        ReflectionTestUtils.setField(peerSync, "eventPublisher",
+            (ApplicationEventPublisher) event -> peerEvents.add((TelemetryStateInvalidatedEvent) event));
+        ReflectionTestUtils.setField(peerSync, "enabled", true);
+    }
+
+    @Test
+    void testStatusChangeInvalidatesPeers() {
+        System.out.println("=== 开始测试指令状态变更通知其他实例 ===");
+
+        stateSync.onCommandStatusChanged(new CommandStatusChangedEvent(7L, "CMD_7",
+            CommandStatus.EXECUTING, CommandStatus.COMPLETED));
+        assertEquals(1, sentMessages.size());
+
+        // 自己发布的通知被忽略，其他实例移除该指令的状态
+        stateSync.onMessage(message(sentMessages.get(0)), null);
+        peerSync.onMessage(message(sentMessages.get(0)), null);
+        System.out.println("发布的通知: " + sentMessages + ", 其他实例事件: " + peerEvents);
+
+        assertTrue(localEvents.isEmpty());
+        assertEquals(1, peerEvents.size());
+        assertEquals(Set.of(7L), peerEvents.get(0).getCommandIds());
+        assertFalse(peerEvents.get(0).isAllCommands());
+
+        System.out.println("=== 指令状态变更通知测试完成 ===");
+    }
+
+    @Test
+    void testPartitionReleaseClearsLocalState() {
+        System.out.println("=== 开始测试分区回收清空本实例状态 ===");
+
+        stateSync.onPartitionsReleased(List.of());
+        assertTrue(localEvents.isEmpty(), "没有分区被回收时不清空");
+
+        stateSync.onPartitionsReleased(List.of(new TopicPartition("satellite-telemetry", 0)));
+        assertEquals(1, localEvents.size());
+        assertTrue(localEvents.get(0).isAllCommands());
+        assertTrue(sentMessages.isEmpty(), "分区回收只影响本实例，不发布Redis通知");
+
+        System.out.println("=== 分区回收测试完成 ===");
+    }
+
+    @Test
+    void testDisabled() {
+        System.out.println("=== 开始测试关闭状态同步 ===");
+
+        ReflectionTestUtils.setField(stateSync, "enabled", false);
+        stateSync.onCommandStatusChanged(new CommandStatusChangedEvent(7L, "CMD_7",
+            CommandStatus.PREPARED, CommandStatus.EXECUTING));
+        stateSync.onPartitionsReleased(List.of(new TopicPartition("satellite-telemetry", 0)));
+
+        assertTrue(sentMessages.isEmpty());
+        assertTrue(localEvents.isEmpty());
+
+        System.out.println("=== 关闭状态同步测试完成 ===");
+    }
+
+    private DefaultMessage message(String body) {
+        return new DefaultMessage(TelemetryStateSync.CHANNEL.getBytes(StandardCharsets.UTF_8),
+            body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.springbootredis;
+
+import com.example.springbootredis.entity.TelemetryData;
+import com.example.springbootredis.service.TelemetryDataBatchWriter;
+import com.example.springbootredis.service.TelemetryWriteBehindBuffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 遥测数据异步写入测试
+ */
+class TelemetryWriteBehindBufferTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<String> inserted = Collections.synchronizedList(new ArrayList<>());
+    private final TelemetryWriteBehindBuffer buffer = new TelemetryWriteBehindBuffer();
+
+    /**
+     * 参数代码为BAD的数据总是写入失败
+     */
+    private final TelemetryDataBatchWriter batchWriter = new TelemetryDataBatchWriter() {
+        private final AtomicLong ids = new AtomicLong();
+
+        @Override
+        public void insertAll(List<TelemetryData> data) {
+            if (data.stream().anyMatch(item -> "BAD".equals(item.getParamCode()))) {
+                throw new IllegalStateException("Data truncation");
+            }
+            data.forEach(item -> {
+                item.setId(ids.incrementAndGet());
+                inserted.add(item.getParamCode());
+            });
+        }
+    };
+
+    private final PlatformTransactionManager transactionManager = new PlatformTransactionManager() {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    };
+
+    @AfterEach
+    void tearDown() {
+        buffer.shutdown();
+    }
+
+    @Test
+    @Timeout(30)
+    void testFullBufferDoesNotBlockCheckpoint() throws InterruptedException {
+        System.out.println("=== 开始测试缓冲区满时写入 ===");
+
+        start(2);
+        // 一次追加的条数远超缓冲区容量，追加线程阻塞期间后台线程仍需推进检查点
+        buffer.write(samples("TEMP_", 200));
+        assertTrue(buffer.awaitFlushed(10_000));
+        assertEquals(200, inserted.size());
+        assertEquals(200L, buffer.getStats().get("flushed"));
+
+        System.out.println("=== 缓冲区满时写入测试完成 ===");
+    }
+
+    @Test
+    void testFailingRecordIsQuarantined() throws Exception {
+        System.out.println("=== 开始测试写入失败隔离 ===");
+
+        start(100);
+        List<TelemetryData> data = samples("TEMP_", 2);
+        data.add(1, new TelemetryData(1L, "BAD", "70"));
+        buffer.write(data);
+
+        assertTrue(buffer.awaitFlushed(10_000));
+        assertEquals(List.of("TEMP_0", "TEMP_1"), inserted);
+        assertEquals(1L, buffer.getStats().get("quarantined"));
+        List<String> lines = Files.readAllLines(directory.resolve("quarantine.ndjson"));
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).contains("\"paramCode\":\"BAD\""));
+
+        // 后续数据不受影响
+        buffer.write(samples("PRESS_", 1));
+        assertTrue(buffer.awaitFlushed(10_000));
+        assertEquals("PRESS_0", inserted.get(2));
+
+        System.out.println("=== 写入失败隔离测试完成 ===");
+    }
+
+    private void start(int capacity) {
+        ReflectionTestUtils.setField(buffer, "batchWriter", batchWriter);
+        ReflectionTestUtils.setField(buffer, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(buffer, "enabled", true);
+        ReflectionTestUtils.setField(buffer, "journalDir", directory.toString());
+        ReflectionTestUtils.setField(buffer, "segmentSizeMb", 1);
+        ReflectionTestUtils.setField(buffer, "bufferCapacity", capacity);
+        ReflectionTestUtils.setField(buffer, "batchSize", 10);
+        ReflectionTestUtils.setField(buffer, "flushIntervalMs", 10L);
+        ReflectionTestUtils.setField(buffer, "maxRetries", 2);
+        ReflectionTestUtils.setField(buffer, "maxRetryIntervalMs", 20L);
+        buffer.init();
+    }
+
+    private List<TelemetryData> samples(String prefix, int count) {
+        List<TelemetryData> data = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            data.add(new TelemetryData(1L, prefix + i, String.valueOf(70 + i)));
+        }
+        return data;
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.springbootredis;
+
+import com.example.springbootredis.entity.TelemetryData;
+import com.example.springbootredis.service.FormulaEvaluationService;
+import com.example.springbootredis.service.FormulaExpressionCache;
+import com.example.springbootredis.service.TelemetryHistoryBuffers;
+import com.example.springbootredis.service.TemporalFormulaFunctions;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 公式时间窗口函数测试
+ */
+class TemporalFormulaFunctionsTest {
+
+    private static final Long COMMAND_ID = 1L;
+
+    private final TelemetryHistoryBuffers buffers = new TelemetryHistoryBuffers(8);
+    private final FormulaEvaluationService formulaEvaluationService = new FormulaEvaluationService();
+
+    TemporalFormulaFunctionsTest() {
+        ReflectionTestUtils.setField(formulaEvaluationService, "expressionCache", new FormulaExpressionCache(16));
+        ReflectionTestUtils.setField(formulaEvaluationService, "historyBuffers", buffers);
+        formulaEvaluationService.registerTemporalFunctions();
+    }
+
+    @Test
+    void testWindowFunctions() {
+        System.out.println("=== 开始测试时间窗口函数 ===");
+
+        LocalDateTime now = LocalDateTime.now();
+        record("VOLT_001", "20", now.minusSeconds(30));
+        record("VOLT_001", "26", now.minusSeconds(8));
+        record("VOLT_001", "28", now.minusSeconds(4));
+        record("VOLT_001", "30", now);
+
+        // 10秒窗口内为 26、28、30
+        assertTrue(evaluate("avg(VOLT_001, 10) > 27"));
+        assertFalse(evaluate("avg(VOLT_001, 10) > 28"));
+        assertTrue(evaluate("avg('VOLT_001', 60) < 27"));
+        // 最近两个样本：4秒内上升2
+        assertEquals(0.5, formulaEvaluationService.evaluateNumericExpression("rate(VOLT_001)", context()), 0.01);
+        // 10秒窗口：8秒内上升4
+        assertEquals(0.5, formulaEvaluationService.evaluateNumericExpression("rate(VOLT_001, 10)", context()), 0.01);
+
+        // 10秒前生效的值为20，不满足
+        assertFalse(evaluate("heldFor(VOLT_001, lambda(x) -> x > 25 end, 10)"));
+        assertTrue(evaluate("heldFor(VOLT_001, lambda(x) -> x > 25 end, 5)"));
+        assertTrue(evaluate("heldFor(VOLT_001, lambda(x) -> x >= 20 end, 30)"));
+        // 历史不足以覆盖整个窗口
+        assertFalse(evaluate("heldFor(VOLT_001, lambda(x) -> x >= 20 end, 120)"));
+
+        // 没有样本的参数、缺少指令上下文时判定为不满足
+        assertFalse(evaluate("avg(TEMP_001, 10) > 0"));
+        assertFalse(formulaEvaluationService.evaluateComplexExpression("avg(VOLT_001, 10) > 0", new HashMap<>()));
+
+        // 函数参数作为公式变量参与依赖分析
+        assertTrue(List.of(formulaEvaluationService.getExpressionVariables("avg(VOLT_001, 10) > 27")).contains("VOLT_001"));
+        assertTrue(TemporalFormulaFunctions.usesTemporalFunctions("heldFor(TEMP_001, lambda(x) -> x > 1 end, 30)"));
+        assertFalse(TemporalFormulaFunctions.usesTemporalFunctions("TEMP_001 > 80 && average > 1"));
+
+        System.out.println("=== 时间窗口函数测试完成 ===");
+    }
+
+    @Test
+    void testWindowAnchoredOnEvaluationTime() {
+        System.out.println("=== 开始测试按判定时刻划分窗口 ===");
+
+        // 回放一小时前的数据：窗口以帧的接收时间为终点，而不是当前时间
+        LocalDateTime frameTime = LocalDateTime.now().minusHours(1);
+        record("TEMP_001", "70", frameTime.minusSeconds(40));
+        record("TEMP_001", "80", frameTime.minusSeconds(20));
+        record("TEMP_001", "81", frameTime);
+
+        Map<String, Object> context = context();
+        context.put(FormulaEvaluationService.EVALUATION_TIME_VARIABLE, toMillis(frameTime));
+        assertTrue(formulaEvaluationService.evaluateComplexExpression("avg(TEMP_001, 30) > 80", context));
+        assertFalse(formulaEvaluationService.evaluateComplexExpression(
+            "heldFor(TEMP_001, lambda(x) -> math.abs(x - 80) <= 1 end, 30)", context));
+        assertEquals(toMillis(frameTime), buffers.latestTime(COMMAND_ID));
+
+        // 值保持不变、没有新帧：按更晚的判定时刻重新判定时变为满足
+        context.put(FormulaEvaluationService.EVALUATION_TIME_VARIABLE, toMillis(frameTime.plusSeconds(15)));
+        assertTrue(formulaEvaluationService.evaluateComplexExpression(
+            "heldFor(TEMP_001, lambda(x) -> math.abs(x - 80) <= 1 end, 30)", context));
+
+        // 缺省按当前时间：一小时前的样本不在窗口内
+        assertFalse(evaluate("avg(TEMP_001, 30) > 80"));
+
+        System.out.println("=== 按判定时刻划分窗口测试完成 ===");
+    }
+
+    @Test
+    void testWindowUsesMessageTimestamp() {
+        System.out.println("=== 开始测试按消息时间戳划分窗口 ===");
+
+        // 一批积压消息在同一时刻接收，窗口按消息自带的时间戳划分
+        LocalDateTime messageTime = LocalDateTime.now().minusMinutes(10);
+        recordMessage("TEMP_001", "70", messageTime.minusSeconds(40));
+        recordMessage("TEMP_001", "80", messageTime.minusSeconds(20));
+        recordMessage("TEMP_001", "81", messageTime);
+        assertEquals(toMillis(messageTime), buffers.latestTime(COMMAND_ID));
+
+        Map<String, Object> context = context();
+        context.put(FormulaEvaluationService.EVALUATION_TIME_VARIABLE, buffers.latestTime(COMMAND_ID));
+        assertTrue(formulaEvaluationService.evaluateComplexExpression("avg(TEMP_001, 30) > 80", context));
+        assertEquals(0.05, formulaEvaluationService.evaluateNumericExpression("rate(TEMP_001)", context), 1e-9);
+
+        // 定时重新判定：本机时间换算为最近一帧的消息时间加上收到后经过的时间
+        long wallClock = System.currentTimeMillis();
+        long evaluationTime = buffers.evaluationTime(COMMAND_ID, wallClock + 15_000);
+        assertTrue(Math.abs(evaluationTime - (toMillis(messageTime) + 15_000)) < 1_000);
+        context.put(FormulaEvaluationService.EVALUATION_TIME_VARIABLE, evaluationTime);
+        assertTrue(formulaEvaluationService.evaluateComplexExpression(
+            "heldFor(TEMP_001, lambda(x) -> math.abs(x - 80) <= 1 end, 30)", context));
+        assertEquals(wallClock, buffers.evaluationTime(2L, wallClock), "没有样本的指令按本机时间");
+
+        System.out.println("=== 按消息时间戳划分窗口测试完成 ===");
+    }
+
+    @Test
+    void testRingOverwritesOldestSamples() {
+        System.out.println("=== 开始测试环形缓冲覆盖 ===");
+
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 20; i++) {
+            record("PRESS_001", String.valueOf(i), now.minusSeconds(20 - i));
+        }
+        record("PRESS_001", "NORMAL", now);
+
+        TelemetryHistoryBuffers.SampleRing ring = buffers.get(COMMAND_ID, "PRESS_001");
+        // 容量为8，只保留最近的 12..19
+        assertEquals(8, ring.size());
+        assertEquals(15.5, ring.average(Long.MIN_VALUE), 1e-9);
+        assertEquals(1L, buffers.getStats().get("skipped"));
+
+        buffers.evict(COMMAND_ID);
+        assertNull(buffers.get(COMMAND_ID, "PRESS_001"));
+
+        System.out.println("=== 环形缓冲覆盖测试完成 ===");
+    }
+
+    private void record(String paramCode, String value, LocalDateTime receiveTime) {
+        TelemetryData data = new TelemetryData(COMMAND_ID, paramCode, value);
+        data.setReceiveTime(receiveTime);
+        buffers.record(COMMAND_ID, List.of(data));
+    }
+
+    private void recordMessage(String paramCode, String value, LocalDateTime messageTime) {
+        TelemetryData data = new TelemetryData(COMMAND_ID, paramCode, value);
+        data.setSampleTime(messageTime);
+        buffers.record(COMMAND_ID, List.of(data));
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private boolean evaluate(String formula) {
+        return formulaEvaluationService.evaluateComplexExpression(formula, context());
+    }
+
+    private Map<String, Object> context() {
+        Map<String, Object> context = formulaEvaluationService.createComplexContext(new HashMap<>());
+        context.put(FormulaEvaluationService.COMMAND_ID_VARIABLE, COMMAND_ID);
+        return context;
+    }
+}
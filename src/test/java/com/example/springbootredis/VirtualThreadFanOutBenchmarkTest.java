@@ -0,0 +1,96 @@
+package com.example.springbootredis;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 虚拟线程与平台线程按指令分发处理的对比测试
+ * 每个指令模拟3次阻塞I/O（数据库读、写和推送），用信号量模拟大小固定的数据库连接池
+ */
+@EnabledForJreRange(min = JRE.JAVA_21)
+class VirtualThreadFanOutBenchmarkTest {
+
+    private static final int COMMAND_COUNT = 2_000;
+    private static final int IO_CALLS_PER_COMMAND = 3;
+    private static final long IO_MILLIS = 5;
+    private static final int CONNECTION_POOL_SIZE = 20;
+
+    @Test
+    @Tag("benchmark")
+    void benchmarkVirtualAgainstPlatformThreads() throws Exception {
+        System.out.println("=== 开始虚拟线程与平台线程对比 ===");
+
+        // 平台线程：与Spring Boot默认任务线程池相同的8个线程
+        ExecutorService platformPool = Executors.newFixedThreadPool(8);
+        long platformMillis = run(platformPool);
+        platformPool.shutdown();
+
+        // 平台线程：线程数与连接池大小相同
+        ExecutorService sizedPlatformPool = Executors.newFixedThreadPool(CONNECTION_POOL_SIZE);
+        long sizedPlatformMillis = run(sizedPlatformPool);
+        sizedPlatformPool.shutdown();
+
+        // 虚拟线程：每个指令一个虚拟线程，连接池大小成为唯一的限制
+        SimpleAsyncTaskExecutor virtualExecutor = new SimpleAsyncTaskExecutor("command-fanout-");
+        virtualExecutor.setVirtualThreads(true);
+        long virtualMillis = run(virtualExecutor);
+
+        System.out.println(String.format("平台线程(8): %d ms, 平台线程(%d): %d ms, 虚拟线程: %d ms",
+            platformMillis, CONNECTION_POOL_SIZE, sizedPlatformMillis, virtualMillis));
+
+        // 理论下限：总I/O时间 / 连接数
+        long lowerBound = COMMAND_COUNT * IO_CALLS_PER_COMMAND * IO_MILLIS / CONNECTION_POOL_SIZE;
+        assertTrue(virtualMillis >= lowerBound);
+        assertTrue(virtualMillis < platformMillis);
+
+        System.out.println("=== 虚拟线程与平台线程对比完成 ===");
+    }
+
+    private long run(Executor executor) {
+        Semaphore connections = new Semaphore(CONNECTION_POOL_SIZE);
+        AtomicInteger processed = new AtomicInteger();
+        List<CompletableFuture<Void>> futures = new ArrayList<>(COMMAND_COUNT);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < COMMAND_COUNT; i++) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                for (int call = 0; call < IO_CALLS_PER_COMMAND; call++) {
+                    blockingIo(connections);
+                }
+                processed.incrementAndGet();
+            }, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(COMMAND_COUNT, processed.get());
+        return elapsedMillis;
+    }
+
+    private void blockingIo(Semaphore connections) {
+        try {
+            connections.acquire();
+            try {
+                Thread.sleep(IO_MILLIS);
+            } finally {
+                connections.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}